@@ -91,6 +91,26 @@ MV_WITH
     :   'with' '?'? Ws? Parentheses Ws? '{'                         -> popMode
     ;
 
+MV_CACHE
+    :   'cache' Ws? Parentheses Ws? '{'                             -> popMode
+    ;
+
+MV_ASYNC
+    :   'async' Ws? Parentheses Ws? '{'                             -> popMode
+    ;
+
+MV_PARALLEL_FOR
+    :   'parallel' Ws 'for' Ws? Parentheses Ws? '{'                 -> popMode
+    ;
+
+MV_PARALLEL
+    :   'parallel' Ws? '{'                                          -> popMode
+    ;
+
+MV_FRAGMENT
+    :   'fragment' Ws Identifier Ws? '{'                            -> popMode
+    ;
+
 MV_CONTENT_CLOSURE
     :   Identifier Ws? '=>' Ws? '{'                                 -> popMode
     ;
@@ -59,7 +59,7 @@ templateContent
     ;
 
 block
-    :   (ifBlock | forBlock | withBlock | switchBlock | switchExpressionBlock)
+    :   (ifBlock | forBlock | withBlock | cacheBlock | asyncBlock | parallelBlock | fragmentBlock | switchBlock | switchExpressionBlock)
     ;
 
 ifBlock
@@ -75,7 +75,7 @@ ifElseBlock
     ;
 
 forBlock
-    :   AT MV_FOR templateContent* RCURLY
+    :   AT (MV_FOR | MV_PARALLEL_FOR) templateContent* RCURLY
     ;
 
 withBlock
@@ -86,6 +86,22 @@ withElseBlock
     :   ELSE templateContent* RCURLY
     ;
 
+cacheBlock
+    :   AT MV_CACHE templateContent* RCURLY
+    ;
+
+asyncBlock
+    :   AT MV_ASYNC templateContent* RCURLY
+    ;
+
+parallelBlock
+    :   AT MV_PARALLEL templateContent* RCURLY
+    ;
+
+fragmentBlock
+    :   AT MV_FRAGMENT templateContent* RCURLY
+    ;
+
 contentClosure
     :   AT contentClosureExpression templateContent* RCURLY
     ;
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2015 Fizzed Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.rocker.compiler;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Remembers which templates were generated by the last incremental run: the
+ * hash of each template, the java source generated from it and the templates
+ * that were inlined into it.  Only valid as long as the generator version and
+ * the options are the same.
+ */
+public class GeneratorManifest {
+    
+    static public final String FILE_NAME_PREFIX = ".rocker-manifest-";
+    
+    static private final String VERSION = "version";
+    static private final String OPTIONS_HASH = "options";
+    static private final String TEMPLATE_PREFIX = "template.";
+    static private final String OUTPUT_PREFIX = "output.";
+    static private final String INLINED_PREFIX = "inlined.";
+    
+    private final Properties properties;
+
+    public GeneratorManifest(String version, String optionsHash) {
+        this.properties = new Properties();
+        this.properties.setProperty(VERSION, version);
+        this.properties.setProperty(OPTIONS_HASH, optionsHash);
+    }
+    
+    private GeneratorManifest(Properties properties) {
+        this.properties = properties;
+    }
+    
+    /**
+     * Name of the manifest for a template directory.  Several template
+     * directories may generate into the same output directory, so each gets
+     * a manifest of its own.  Named by the path of the template directory
+     * relative to the output directory so a relocated project (e.g. restored
+     * from a build cache) still finds its manifest.
+     * 
+     * @param templateDirectory The template directory
+     * @param outputDirectory The output directory the manifest is stored in
+     * @return The file name of the manifest
+     */
+    static public String fileName(File templateDirectory, File outputDirectory) {
+        Path templatePath = templateDirectory.getAbsoluteFile().toPath().normalize();
+        Path outputPath = outputDirectory.getAbsoluteFile().toPath().normalize();
+        String path;
+        try {
+            path = outputPath.relativize(templatePath).toString().replace(File.separatorChar, '/');
+        } catch (IllegalArgumentException e) {
+            // e.g. on another drive (no relative path)
+            path = templatePath.toString();
+        }
+        return FILE_NAME_PREFIX + RockerUtil.md5(path.getBytes(StandardCharsets.UTF_8)).substring(0, 8);
+    }
+    
+    /**
+     * Loads a manifest.
+     * 
+     * @param file The manifest file
+     * @return The manifest or null if it does not exist or is not readable
+     */
+    static public GeneratorManifest load(File file) {
+        if (!file.exists()) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (FileInputStream fis = new FileInputStream(file)) {
+            properties.load(fis);
+        } catch (IOException e) {
+            return null;
+        }
+        return new GeneratorManifest(properties);
+    }
+    
+    public void store(File file) throws IOException {
+        file.getParentFile().mkdirs();
+        try (FileOutputStream fos = new FileOutputStream(file)) {
+            this.properties.store(fos, "rocker incremental generation (do not edit)");
+        }
+    }
+    
+    public boolean isCompatible(String version, String optionsHash) {
+        return version.equals(this.properties.getProperty(VERSION))
+            && optionsHash.equals(this.properties.getProperty(OPTIONS_HASH));
+    }
+    
+    public Set<String> getTemplatePaths() {
+        Set<String> paths = new TreeSet<>();
+        for (String name : this.properties.stringPropertyNames()) {
+            if (name.startsWith(TEMPLATE_PREFIX)) {
+                paths.add(name.substring(TEMPLATE_PREFIX.length()));
+            }
+        }
+        return paths;
+    }
+    
+    public String getHash(String templatePath) {
+        return this.properties.getProperty(TEMPLATE_PREFIX + templatePath);
+    }
+    
+    public String getOutput(String templatePath) {
+        return this.properties.getProperty(OUTPUT_PREFIX + templatePath);
+    }
+    
+    public List<String> getInlined(String templatePath) {
+        String inlined = this.properties.getProperty(INLINED_PREFIX + templatePath);
+        if (inlined == null || inlined.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return Arrays.asList(inlined.split(","));
+    }
+    
+    /**
+     * Records a generated template.
+     * 
+     * @param templatePath Path of the template relative to the template directory
+     * @param hash Hash of the template's content
+     * @param output Path of the generated java source relative to the output directory
+     * @param inlined Paths of the templates inlined into it
+     */
+    public void put(String templatePath, String hash, String output, Collection<String> inlined) {
+        this.properties.setProperty(TEMPLATE_PREFIX + templatePath, hash);
+        this.properties.setProperty(OUTPUT_PREFIX + templatePath, output);
+        if (inlined.isEmpty()) {
+            this.properties.remove(INLINED_PREFIX + templatePath);
+        } else {
+            this.properties.setProperty(INLINED_PREFIX + templatePath, StringUtils.join(inlined, ","));
+        }
+    }
+    
+    /**
+     * Copies the record of an unchanged template from another manifest.
+     * 
+     * @param other The other (previous) manifest
+     * @param templatePath Path of the template relative to the template directory
+     */
+    public void copy(GeneratorManifest other, String templatePath) {
+        put(templatePath, other.getHash(templatePath), other.getOutput(templatePath), other.getInlined(templatePath));
+    }
+    
+}
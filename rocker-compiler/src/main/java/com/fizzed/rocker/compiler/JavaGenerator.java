@@ -25,8 +25,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.zip.Deflater;
 
 import static com.fizzed.rocker.compiler.RockerUtil.*;
 
@@ -39,6 +41,7 @@ public class JavaGenerator {
     // utf-8 constant string in jvm spec uses short for length -- since chars
     // that require lots of space (e.g. euro symbol) make sure chunk length can be expanded by 4
     static public final int PLAIN_TEXT_CHUNK_LENGTH = 16384;
+    static public final String DEFLATED_SUFFIX = PlainTextUnloadedClassLoader.BYTES_FIELD_SUFFIX;
     
     private final RockerConfiguration configuration;
     //private File outputDirectory;
@@ -87,13 +90,48 @@ public class JavaGenerator {
         
         File outputFile = new File(buildDir, model.getName() + ".java");
         try (Writer w = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(outputFile), "UTF-8"))) {
-            createSourceTemplate(model, w);
+            createSourceTemplate(model, w, null);
             w.flush();
         }
         
         return outputFile;
     }
-    
+
+    /**
+     * Generates the Java source of a template without writing it to the
+     * output directory (e.g. for compiling it in memory while hot reloading).
+     *
+     * @param model The template model
+     * @return The generated Java source
+     * @throws GeneratorException
+     * @throws IOException
+     */
+    public String generateSource(TemplateModel model) throws GeneratorException, IOException {
+        return generateSource(model, null);
+    }
+
+    /**
+     * Same as <code>generateSource(TemplateModel)</code> but any class that
+     * does not need javac (e.g. the plain text holder class) is written
+     * directly as a class file into the supplied map rather than as source.
+     *
+     * @param model The template model
+     * @param classes The map to put class files into (binary class name to
+     *      its bytes) or null to generate everything as source
+     * @return The generated Java source
+     * @throws GeneratorException
+     * @throws IOException
+     */
+    public String generateSource(TemplateModel model, Map<String,byte[]> classes) throws GeneratorException, IOException {
+        if (model == null) {
+            throw new NullPointerException("Model was null");
+        }
+
+        StringWriter w = new StringWriter();
+        createSourceTemplate(model, w, classes);
+        return w.toString();
+    }
+
     public Writer tab(Writer w, int count) throws IOException {
         for (int i = 0; i < count; i++) {
             w.append(TAB);
@@ -127,6 +165,46 @@ public class JavaGenerator {
             .append(CRLF);
     }
     
+    private void appendTemplateNameUpdate(Writer w, int tab, TemplateModel model) throws IOException {
+        tab(w, tab)
+            .append("__internal.setTemplateName(\"").append(model.getTemplateName()).append("\");")
+            .append(CRLF);
+        tab(w, tab)
+            .append("__internal.setTemplatePackageName(\"").append(model.getPackageName()).append("\");")
+            .append(CRLF);
+    }
+    
+    // for loops (and the loops they are nested within) w/ an @async block
+    static private Set<ForBlockBegin> findForBlocksWithAsync(List<TemplateUnit> units) {
+        Set<ForBlockBegin> blocks = new HashSet<>();
+        Deque<ForBlockBegin> open = new ArrayDeque<>();
+        for (TemplateUnit unit : units) {
+            if (unit instanceof ForBlockBegin) {
+                open.push((ForBlockBegin)unit);
+            } else if (unit instanceof ForBlockEnd) {
+                open.pop();
+            } else if (unit instanceof AsyncBlockBegin) {
+                blocks.addAll(open);
+            }
+        }
+        return blocks;
+    }
+    
+    // whether fragments (rendered by methods of their own) may reference
+    // content closures declared outside of them
+    static private boolean hasFragmentsAndClosures(List<TemplateUnit> units) {
+        boolean fragments = false;
+        boolean closures = false;
+        for (TemplateUnit unit : units) {
+            if (unit instanceof FragmentBlockBegin) {
+                fragments = true;
+            } else if (unit instanceof ContentClosureBegin) {
+                closures = true;
+            }
+        }
+        return fragments && closures;
+    }
+    
     public boolean isForIteratorType(String type) {
         return type != null &&
              (type.equals("ForIterator") || type.equals(com.fizzed.rocker.ForIterator.class.getName()));
@@ -147,7 +225,7 @@ public class JavaGenerator {
     }
 
     // TODO: square's JavaWriter looks like a possible replacement
-    private void createSourceTemplate(TemplateModel model, Writer w) throws GeneratorException, IOException {
+    private void createSourceTemplate(TemplateModel model, Writer w, Map<String,byte[]> classes) throws GeneratorException, IOException {
         if ( model.getOptions().getPostProcessing() != null ) {
             // allow post-processors to transform the model
             try {
@@ -349,6 +427,12 @@ public class JavaGenerator {
         LinkedHashMap<String, LinkedHashMap<String,String>> plainTextMap
                 = model.createPlainTextMap(PLAIN_TEXT_CHUNK_LENGTH);
         
+        // chunk name -> chunk deflated at build time (only if it's worth it)
+        Map<String,byte[]> deflatedMap = createDeflatedMap(model, plainTextMap);
+        
+        // constant calls to other templates -> name of field memoizing them
+        Map<TemplateUnit,String> memoizedMap = createMemoizedMap(model);
+        
         if (!plainTextMap.isEmpty()) {
             
             w.append(CRLF);
@@ -383,6 +467,23 @@ public class JavaGenerator {
                             .append(CRLF);
 
                     }
+                    
+                    byte[] deflated = deflatedMap.get(chunk.getKey());
+                    if (deflated != null) {
+                        tab(w, indent).append("static private final byte[] ")
+                            .append(chunk.getKey()).append(DEFLATED_SUFFIX);
+                        if (this.plainTextStrategy == PlainTextStrategy.STATIC_STRINGS) {
+                            // latin-1 maps each char to exactly one byte
+                            w.append(" = \"")
+                                .append(StringEscapeUtils.escapeJava(new String(deflated, StandardCharsets.ISO_8859_1)))
+                                .append("\".getBytes(java.nio.charset.StandardCharsets.ISO_8859_1)");
+                        }
+                        else if (this.plainTextStrategy == PlainTextStrategy.STATIC_BYTE_ARRAYS) {
+                            w.append(" = ")
+                                .append(RockerUtil.getBytesAsJavaByteArrayInitializer(deflated));
+                        }
+                        w.append(";").append(CRLF);
+                    }
  
                 }
             }
@@ -418,6 +519,14 @@ public class JavaGenerator {
                                 .append(chunk.getKey())
                                 .append("\");")
                                 .append(CRLF);
+                            
+                            if (deflatedMap.containsKey(chunk.getKey())) {
+                                tab(w, indent+1).append(chunk.getKey()).append(DEFLATED_SUFFIX)
+                                    .append(" = loader.tryGet(\"")
+                                    .append(chunk.getKey()).append(DEFLATED_SUFFIX)
+                                    .append("\");")
+                                    .append(CRLF);
+                            }
                         }
 
                     }
@@ -430,6 +539,18 @@ public class JavaGenerator {
         }
         
         
+        if (!memoizedMap.isEmpty()) {
+            w.append(CRLF);
+            for (Map.Entry<TemplateUnit,String> memoized : memoizedMap.entrySet()) {
+                tab(w, indent).append("// memoized ").append(sourceRef(memoized.getKey())).append(CRLF);
+                tab(w, indent).append("static private final ")
+                    .append(MemoizedRender.class.getName())
+                    .append(" ").append(memoized.getValue())
+                    .append(" = new ").append(MemoizedRender.class.getName()).append("();")
+                    .append(CRLF);
+            }
+        }
+        
         // arguments as members of template class
         appendArgumentMembers(model, w, "protected", true, indent);
         
@@ -457,16 +578,59 @@ public class JavaGenerator {
         tab(w, indent).append("@Override").append(CRLF);
         tab(w, indent).append("protected void __doRender() throws IOException, RenderingException {").append(CRLF);
         
+        // content closures at the top level are members of the template
+        // (assigned by __closures()) so fragments rendered by a method of
+        // their own (or rendered alone) are able to reference them
+        boolean hoistClosures = hasFragmentsAndClosures(model.getUnits());
+        StringWriter closuresMethod = new StringWriter();
+        Writer closuresWriter = null;
+        Deque<Boolean> closuresHoisted = new ArrayDeque<>();
+        List<String> hoistedNames = new ArrayList<>();
+        Set<String> argumentNames = new HashSet<>();
+        for (Argument arg : model.getArguments()) {
+            argumentNames.add(arg.getName());
+        }
+        
+        if (hoistClosures) {
+            tab(w, indent+1).append("__closures();").append(CRLF);
+        }
         
         // build rendering code
         int depth = 1;
         Deque<String> blockEnd = new ArrayDeque<>();
+        // values within @parallel blocks are rendered concurrently
+        int parallelDepth = 0;
+        
+        // inlined templates are rendered by their own methods (generated after this one)
+        StringWriter inlinedMethods = new StringWriter();
+        Deque<Writer> inlinedWriters = new ArrayDeque<>();
+        Deque<Integer> inlinedDepths = new ArrayDeque<>();
+        int inlinedCounter = -1;
+        
+        // fragments are rendered by their own methods too (either in place or alone)
+        List<String> fragmentNames = new ArrayList<>();
+        
+        // loops whose iterator may be read after the loop moved on
+        Set<ForBlockBegin> forBlocksWithAsync = findForBlocksWithAsync(model.getUnits());
         
         for (TemplateUnit unit : model.getUnits()) {
             if (unit instanceof Comment) {
                 continue;
             }
             
+            if (unit instanceof ContentClosureBegin) {
+                String identifier = ((ContentClosureBegin)unit).getIdentifier();
+                // a closure named like an argument keeps shadowing it locally
+                boolean hoisted = hoistClosures && depth == 1 && inlinedWriters.isEmpty()
+                    && !argumentNames.contains(identifier);
+                closuresHoisted.push(hoisted);
+                if (hoisted) {
+                    hoistedNames.add(identifier);
+                    closuresWriter = w;
+                    w = closuresMethod;
+                }
+            }
+            
             // something like
             // IfBeginBlock
             // __internal.aboutToExecutePosInSourceTemplate(5, 10);
@@ -481,12 +645,107 @@ public class JavaGenerator {
 
                 for (String chunkName : chunks.keySet()) {
 
-                    tab(w, depth+indent)
-                        .append("__internal.writeValue(").append(chunkName).append(");").append(CRLF);
+                    if (deflatedMap.containsKey(chunkName)) {
+                        tab(w, depth+indent)
+                            .append("__internal.writeValue(").append(chunkName)
+                            .append(", ").append(chunkName).append(DEFLATED_SUFFIX).append(");").append(CRLF);
+                    } else {
+                        tab(w, depth+indent)
+                            .append("__internal.writeValue(").append(chunkName).append(");").append(CRLF);
+                    }
 
                 }
                 
             }
+            else if (unit instanceof InlinedTemplateBegin) {
+                InlinedTemplateBegin inlined = (InlinedTemplateBegin)unit;
+                TemplateModel callee = inlined.getTemplate();
+                String methodName = "__inlined" + (++inlinedCounter);
+                
+                tab(w, depth+indent)
+                        .append(methodName).append("(")
+                        .append(StringUtils.join(inlined.getArgumentExpressions(), ", "))
+                        .append(");").append(CRLF);
+                
+                // switch to a method of its own so its arguments & variables
+                // never clash w/ the variables of this template
+                inlinedWriters.push(w);
+                inlinedDepths.push(depth);
+                w = new StringWriter();
+                depth = 1;
+                
+                w.append(CRLF);
+                tab(w, indent).append("// inlined ")
+                        .append(callee.getPackageName().replace('.', '/')).append("/").append(callee.getTemplateName())
+                        .append(" ").append(sourceRef(unit)).append(CRLF);
+                tab(w, indent).append("private void ").append(methodName).append("(");
+                for (int i = 0; i < callee.getArguments().size(); i++) {
+                    Argument arg = callee.getArguments().get(i);
+                    if (i > 0) {
+                        w.append(", ");
+                    }
+                    w.append("final ").append(arg.getExternalType()).append(" ").append(arg.getName());
+                }
+                w.append(") throws IOException, RenderingException {").append(CRLF);
+                
+                // source positions within it are of the inlined template (left
+                // as is if it fails so the exception points to it)
+                appendTemplateNameUpdate(w, indent+1, callee);
+            }
+            else if (unit instanceof InlinedTemplateEnd) {
+                appendTemplateNameUpdate(w, indent+1, model);
+                tab(w, indent).append("}").append(CRLF);
+                
+                inlinedMethods.append(w.toString());
+                w = inlinedWriters.pop();
+                depth = inlinedDepths.pop();
+            }
+            else if (unit instanceof FragmentBlockBegin) {
+                FragmentBlockBegin fragment = (FragmentBlockBegin)unit;
+                String methodName = "__fragment_" + fragment.getName();
+                fragmentNames.add(fragment.getName());
+                
+                tab(w, depth+indent)
+                        .append(methodName).append("();").append(CRLF);
+                
+                // only the arguments of the template (and its top-level
+                // content closures) are in scope -- the parser only allows
+                // fragments at the top level
+                inlinedWriters.push(w);
+                inlinedDepths.push(depth);
+                w = new StringWriter();
+                depth = 1;
+                
+                w.append(CRLF);
+                tab(w, indent).append("// fragment ").append(fragment.getName())
+                        .append(" ").append(sourceRef(unit)).append(CRLF);
+                tab(w, indent).append("private void ").append(methodName)
+                        .append("() throws IOException, RenderingException {").append(CRLF);
+            }
+            else if (unit instanceof FragmentBlockEnd) {
+                tab(w, indent).append("}").append(CRLF);
+                
+                inlinedMethods.append(w.toString());
+                w = inlinedWriters.pop();
+                depth = inlinedDepths.pop();
+            }
+            else if (unit instanceof ValueExpression && memoizedMap.containsKey(unit)) {
+                ValueExpression value = (ValueExpression)unit;
+                tab(w, depth+indent)
+                        .append("__internal.renderMemoized(")
+                        .append(memoizedMap.get(unit))
+                        .append(", () -> ")
+                        .append(value.getExpression())
+                        .append(");").append(CRLF);
+            }
+            else if (unit instanceof ValueExpression && parallelDepth > 0) {
+                ValueExpression value = (ValueExpression)unit;
+                tab(w, depth+indent)
+                        .append("__internal.renderParallel(")
+                        .append(value.getExpression())
+                        .append(", ").append(""+value.isNullSafe())
+                        .append(");").append(CRLF);
+            }
             else if (unit instanceof ValueExpression) {
                 ValueExpression value = (ValueExpression)unit;
                 tab(w, depth+indent)
@@ -577,11 +836,115 @@ public class JavaGenerator {
                             .append(" // value closure end ").append(sourceRef(unit)).append(CRLF);
                 }
             }
+            else if (unit instanceof CacheBlockBegin) {
+                
+                CacheBlockBegin block = (CacheBlockBegin)unit;
+                
+                // unique per block (keys supplied in template are scoped to it)
+                String blockId = model.getPackageName().replace('.', '/') + "/" + model.getTemplateName()
+                    + ":" + sourceRefLineCommaPosInLine(unit).replace(", ", ":");
+                
+                tab(w, depth+indent)
+                        .append("__internal.renderCached(\"")
+                        .append(blockId)
+                        .append("\", ")
+                        .append(block.getExpression())
+                        .append(", ");
+                
+                // Java 1.8+ use lambda
+                if (isJava8Plus(model)) {
+                    w.append("() -> {").append(CRLF);
+                    
+                    depth++;
+                    
+                    blockEnd.push("});");
+                }
+                // Java 1.7- uses anonymous inner class
+                else {
+                    w.append("new ")
+                        .append(unqualifiedClassName(RockerContent.class))
+                        .append("() {").append(CRLF);
+                
+                    depth++;
+                    
+                    blockEnd.push("});");
+                
+                    tab(w, depth+indent)
+                            .append("@Override")
+                            .append(CRLF);
+                
+                    tab(w, depth+indent)
+                            .append("public void render() throws IOException, RenderingException {")
+                            .append(CRLF);
+                
+                    depth++;
+                    
+                    blockEnd.push("}");
+                }
+            }
+            else if (unit instanceof CacheBlockEnd) {
+                // Java 1.8+ use lambda
+                if (isJava8Plus(model)) {
+                    depth--;
+                    
+                    tab(w, depth+indent)
+                        .append(blockEnd.pop())
+                        .append(" // cache end ").append(sourceRef(unit)).append(CRLF);
+                }
+                // Java 1.7- uses anonymous inner class
+                else {
+                    depth--;
+                
+                    tab(w, depth+indent)
+                            .append(blockEnd.pop())
+                            .append(CRLF);
+
+                    depth--;
+
+                    tab(w, depth+indent)
+                            .append(blockEnd.pop())
+                            .append(" // cache end ").append(sourceRef(unit)).append(CRLF);
+                }
+            }
+            else if (unit instanceof AsyncBlockBegin) {
+                
+                AsyncBlockBegin block = (AsyncBlockBegin)unit;
+                
+                // only allowed w/ Java 1.8+ (always a lambda)
+                tab(w, depth+indent)
+                        .append("__internal.renderAsync(")
+                        .append(block.getValueExpression())
+                        .append(", (");
+                
+                if (block.getVariable().hasType()) {
+                    w.append(block.getVariable().getTypeAsNonPrimitiveType()).append(" ");
+                }
+                
+                w.append(block.getVariable().getName())
+                        .append(") -> {").append(CRLF);
+                
+                depth++;
+                
+                blockEnd.push("});");
+            }
+            else if (unit instanceof AsyncBlockEnd) {
+                depth--;
+                
+                tab(w, depth+indent)
+                    .append(blockEnd.pop())
+                    .append(" // async end ").append(sourceRef(unit)).append(CRLF);
+            }
+            else if (unit instanceof ParallelBlockBegin) {
+                parallelDepth++;
+            }
+            else if (unit instanceof ParallelBlockEnd) {
+                parallelDepth--;
+            }
             else if (unit instanceof ContentClosureBegin) {
                 
                 ContentClosureBegin closure = (ContentClosureBegin)unit;
                 tab(w, depth+indent)
-                        .append("RockerContent ")
+                        .append(closuresHoisted.peek() ? "this." : "RockerContent ")
                         .append(closure.getIdentifier())
                         .append(" = ");
                 
@@ -639,6 +1002,10 @@ public class JavaGenerator {
                             .append(blockEnd.pop())
                             .append(" // content closure end ").append(sourceRef(unit)).append(CRLF);
                 }
+                
+                if (closuresHoisted.pop()) {
+                    w = closuresWriter;
+                }
             }
             else if (unit instanceof IfBlockBegin) {
                 IfBlockBegin block = (IfBlockBegin)unit;
@@ -783,6 +1150,8 @@ public class JavaGenerator {
             else if (unit instanceof ForBlockBegin) {
                 ForBlockBegin block = (ForBlockBegin)unit;
                 ForStatement stmt = block.getStatement();
+                // an @async block may render after the iterator moved on
+                boolean snapshotIterator = forBlocksWithAsync.contains(block);
                 
                 // break support via try and catch mechanism (works across lambdas!)
                 tab(w, depth+indent)
@@ -799,6 +1168,21 @@ public class JavaGenerator {
                     
                     blockEnd.push("}");
                 }
+                else if (block.isParallel()) {
+                    // Java 1.8+ (always a lambda, w/ types inferred from the collection)
+                    String localVars = "";
+                    for (JavaVariable arg : stmt.getArguments()) {
+                        if (localVars.length() != 0) { localVars += ","; }
+                        localVars += arg.getName();
+                    }
+                    
+                    tab(w, depth+indent)
+                        .append("__internal.forEachParallel(")
+                        .append(stmt.getValueExpression())
+                        .append(", (").append(localVars).append(") -> {").append(CRLF);
+                    
+                    blockEnd.push("});");
+                }
                 else if (stmt.getForm() == ForStatement.Form.ENHANCED) {
                     // Java 1.8+ (use lambdas)
                     if (stmt.hasAnyUntypedArguments() &&
@@ -811,13 +1195,33 @@ public class JavaGenerator {
                             localVars += arg.getName();
                         }
                         
+                        // first of two or more vars may be the iterator (its
+                        // type is inferred so only known at runtime)
+                        String snapshotVar = null;
+                        String forIteratorVarName = null;
+                        if (snapshotIterator && stmt.getArguments().size() > 1) {
+                            snapshotVar = stmt.getArguments().get(0).getName();
+                            forIteratorVarName = "__forIterator" + (++varCounter);
+                            localVars = forIteratorVarName + localVars.substring(snapshotVar.length());
+                        }
+                        
                         tab(w, depth+indent)
                             .append(Java8Iterator.class.getName())
                             .append(".forEach(")
                             .append(stmt.getValueExpression())
                             .append(", (").append(localVars).append(") -> {").append(CRLF);
                         
-                        blockEnd.push("});");
+                        if (snapshotVar != null) {
+                            tab(w, depth+indent+1)
+                                .append(Java8Iterator.class.getName())
+                                .append(".snapshot(")
+                                .append(forIteratorVarName)
+                                .append(", (").append(snapshotVar).append(") -> {").append(CRLF);
+                            
+                            blockEnd.push("}); });");
+                        } else {
+                            blockEnd.push("});");
+                        }
                     }
                     else {
                     
@@ -861,6 +1265,11 @@ public class JavaGenerator {
                             .append(");")
                             .append(CRLF);
 
+                        // closes the value if a stream (e.g. rows from a db cursor)
+                        tab(w, depth+indent)
+                            .append("try {")
+                            .append(CRLF);
+
                         // for loop same regardless of map vs. collection
                         tab(w, depth+indent)
                             .append("while (")
@@ -870,7 +1279,7 @@ public class JavaGenerator {
 
                         // if forIterator request assign to local var and make it final to assure nested anonymous
                         // blocks can access it as well.
-                        if (forIterator) {
+                        if (forIterator && !snapshotIterator) {
                             tab(w, depth+indent+1)
                                 .append("final ")
                                 .append(com.fizzed.rocker.ForIterator.class.getName())
@@ -924,7 +1333,22 @@ public class JavaGenerator {
                             throw new GeneratorException("Unsupported number of arguments for for loop");
                         }
                         
-                        blockEnd.push("}");
+                        // state of the current element (once moved to it)
+                        if (forIterator && snapshotIterator) {
+                            tab(w, depth+indent+1)
+                                .append("final ")
+                                .append(com.fizzed.rocker.ForIterator.class.getName())
+                                .append(" ")
+                                .append(stmt.getArguments().get(0).getName())
+                                .append(" = new ")
+                                .append(com.fizzed.rocker.runtime.SnapshotForIterator.class.getName())
+                                .append("(")
+                                .append(forIteratorVarName)
+                                .append(");")
+                                .append(CRLF);
+                        }
+                        
+                        blockEnd.push("} } finally { " + forIteratorVarName + ".close(); }");
                     }
                 }
                 
@@ -936,6 +1360,10 @@ public class JavaGenerator {
                 
                 depth++;
                 
+                // stop loops over huge data once the render exceeds its limits
+                tab(w, depth+indent)
+                    .append("__internal.checkLimits();").append(CRLF);
+                
             }
             else if (unit instanceof ForBlockEnd) {
                 depth--;
@@ -1116,6 +1544,40 @@ public class JavaGenerator {
         // end of render()
         tab(w, indent).append("}").append(CRLF);
         
+        w.append(inlinedMethods.toString());
+        
+        if (hoistClosures) {
+            w.append(CRLF);
+            for (String name : hoistedNames) {
+                tab(w, indent).append("private RockerContent ").append(name).append(";").append(CRLF);
+            }
+            w.append(CRLF);
+            tab(w, indent).append("private void __closures() {").append(CRLF);
+            w.append(closuresMethod.toString());
+            tab(w, indent).append("}").append(CRLF);
+        }
+        
+        if (!fragmentNames.isEmpty()) {
+            w.append(CRLF);
+            tab(w, indent).append("@Override").append(CRLF);
+            tab(w, indent).append("protected void __doRenderFragment(String name) throws IOException, RenderingException {").append(CRLF);
+            if (hoistClosures) {
+                tab(w, indent+1).append("__closures();").append(CRLF);
+            }
+            for (int i = 0; i < fragmentNames.size(); i++) {
+                String name = fragmentNames.get(i);
+                tab(w, indent+1)
+                    .append(i == 0 ? "" : "else ")
+                    .append("if (\"").append(name).append("\".equals(name)) {").append(CRLF);
+                tab(w, indent+2).append("__fragment_").append(name).append("();").append(CRLF);
+                tab(w, indent+1).append("}").append(CRLF);
+            }
+            tab(w, indent+1).append("else {").append(CRLF);
+            tab(w, indent+2).append("super.__doRenderFragment(name);").append(CRLF);
+            tab(w, indent+1).append("}").append(CRLF);
+            tab(w, indent).append("}").append(CRLF);
+        }
+        
         indent--;
         
         // end of template class
@@ -1125,6 +1587,29 @@ public class JavaGenerator {
         withStatementConsumerGenerator.generate(this, w);
 
         if (this.plainTextStrategy == PlainTextStrategy.STATIC_BYTE_ARRAYS_VIA_UNLOADED_CLASS &&
+                !plainTextMap.isEmpty() && classes != null) {
+            
+            // fields of the class are constants so javac isn't needed
+            LinkedHashMap<String,String> fields = new LinkedHashMap<>();
+            for (LinkedHashMap<String,String> chunks : plainTextMap.values()) {
+                for (Map.Entry<String,String> chunk : chunks.entrySet()) {
+                    fields.put(chunk.getKey(), chunk.getValue());
+                    byte[] deflated = deflatedMap.get(chunk.getKey());
+                    if (deflated != null) {
+                        // latin-1 maps each char to exactly one byte
+                        fields.put(chunk.getKey() + DEFLATED_SUFFIX, new String(deflated, StandardCharsets.ISO_8859_1));
+                    }
+                }
+            }
+            
+            String className = model.getName() + "$PlainText";
+            if (model.getPackageName() != null && !model.getPackageName().isEmpty()) {
+                className = model.getPackageName() + "." + className;
+            }
+            
+            classes.put(className, PlainTextClassWriter.write(className, fields));
+        }
+        else if (this.plainTextStrategy == PlainTextStrategy.STATIC_BYTE_ARRAYS_VIA_UNLOADED_CLASS &&
                 !plainTextMap.isEmpty()) {
             
             w.append(CRLF);
@@ -1146,6 +1631,17 @@ public class JavaGenerator {
                         .append("\";")
                         .append(CRLF);
                     
+                    byte[] deflated = deflatedMap.get(chunk.getKey());
+                    if (deflated != null) {
+                        // latin-1 maps each char to exactly one byte
+                        tab(w, indent+1).append("static private final String ")
+                            .append(chunk.getKey()).append(DEFLATED_SUFFIX)
+                            .append(" = \"")
+                            .append(StringEscapeUtils.escapeJava(new String(deflated, StandardCharsets.ISO_8859_1)))
+                            .append("\";")
+                            .append(CRLF);
+                    }
+                    
                 }
 
             }
@@ -1160,6 +1656,99 @@ public class JavaGenerator {
         w.append("}").append(CRLF);
     }
 
+    private Map<TemplateUnit,String> createMemoizedMap(TemplateModel model) {
+        
+        // ordered so fields are generated in order of appearance
+        Map<TemplateUnit,String> memoizedMap = new LinkedHashMap<>();
+        
+        // lambdas required
+        if (model.getOptions().getMemoizeConstantCalls() == null
+                || !model.getOptions().getMemoizeConstantCalls()
+                || !isJava8Plus(model)) {
+            return memoizedMap;
+        }
+        
+        Set<String> variables = RockerUtil.declaredVariableNames(model);
+        
+        for (TemplateUnit unit : model.getUnits()) {
+            if (unit instanceof ValueExpression
+                    && RockerUtil.isConstantTemplateCall(((ValueExpression)unit).getExpression())
+                    && isTemplateCall(model, variables, ((ValueExpression)unit).getExpression())) {
+                memoizedMap.put(unit, "MEMOIZED_" + memoizedMap.size());
+            }
+        }
+        
+        return memoizedMap;
+    }
+    
+    // only a call on a template class renders the same content every time (a
+    // call on a variable w/ a template() method does not)
+    private boolean isTemplateCall(TemplateModel model, Set<String> variables, String expression) {
+        List<String> call = RockerUtil.splitTemplateCall(expression);
+        if (call == null) {
+            return false;
+        }
+        
+        for (String qualifiedName : RockerUtil.resolveTemplateCallCandidates(model, variables, call.get(0))) {
+            if (isTemplate(model, qualifiedName)) {
+                return true;
+            }
+        }
+        
+        return false;
+    }
+    
+    private boolean isTemplate(TemplateModel model, String qualifiedName) {
+        int dot = qualifiedName.lastIndexOf('.');
+        String packageName = (dot > 0 ? qualifiedName.substring(0, dot) : "");
+        final String name = qualifiedName.substring(dot + 1);
+        
+        if (name.equals(model.getName()) && packageName.equals(model.getPackageName() != null ? model.getPackageName() : "")) {
+            return true;
+        }
+        
+        File templateDirectory = this.configuration.getTemplateDirectory();
+        if (templateDirectory == null) {
+            return false;
+        }
+        
+        // any content type (e.g. Footer.rocker.html)
+        File[] templateFiles = new File(templateDirectory, packageName.replace('.', File.separatorChar))
+            .listFiles(new FilenameFilter() {
+                @Override
+                public boolean accept(File dir, String fileName) {
+                    return fileName.startsWith(name + ".rocker.");
+                }
+            });
+        
+        return templateFiles != null && templateFiles.length > 0;
+    }
+
+    private Map<String,byte[]> createDeflatedMap(TemplateModel model,
+            LinkedHashMap<String, LinkedHashMap<String,String>> plainTextMap) throws UnsupportedEncodingException {
+
+        Map<String,byte[]> deflatedMap = new HashMap<>();
+
+        if (model.getOptions().getPrecompressPlainText() == null
+                || !model.getOptions().getPrecompressPlainText()) {
+            return deflatedMap;
+        }
+
+        for (LinkedHashMap<String,String> chunks : plainTextMap.values()) {
+            for (Map.Entry<String,String> chunk : chunks.entrySet()) {
+                byte[] bytes = chunk.getValue().getBytes(model.getOptions().getTargetCharset());
+                byte[] deflated = DeflateOutput.deflateChunk(bytes, Deflater.BEST_COMPRESSION);
+                // small chunks usually grow once deflated & the latin-1 string
+                // constant must still fit into the class constant pool
+                if (deflated.length < bytes.length && deflated.length <= PLAIN_TEXT_CHUNK_LENGTH) {
+                    deflatedMap.put(chunk.getKey(), deflated);
+                }
+            }
+        }
+
+        return deflatedMap;
+    }
+
     /**
      * Execute all {@link TemplateModelPostProcessor}s as they were configured globally through 
      * Maven's pom.xml, and through a per-template option. If both were given, execute the global
@@ -8,11 +8,30 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class JavaGeneratorRunnable implements Runnable {
+    static public final String DEFAULT_SUFFIX_REGEX = ".*\\.rocker\\.(raw|html)$";
+
     private static final Logger log = LoggerFactory.getLogger(JavaGeneratorMain.class);
 
     private final RockerConfiguration configuration;
@@ -21,14 +40,20 @@ public class JavaGeneratorRunnable implements Runnable {
     private final List<File> templateFiles;
     private String suffixRegex;
     private boolean failOnError;
+    private int parallelism;
+    private boolean incremental;
+    private boolean saveConfiguration;
 
     public JavaGeneratorRunnable() {
         this.configuration = new RockerConfiguration();
         this.parser = new TemplateParser(this.configuration);
         this.generator = new JavaGenerator(this.configuration);
         this.templateFiles = new ArrayList<>();
-        this.suffixRegex = ".*\\.rocker\\.(raw|html)$";
+        this.suffixRegex = DEFAULT_SUFFIX_REGEX;
         this.failOnError = true;
+        this.parallelism = 1;
+        this.incremental = false;
+        this.saveConfiguration = true;
     }
 
     public String getSuffixRegex() {
@@ -47,6 +72,55 @@ public class JavaGeneratorRunnable implements Runnable {
         this.failOnError = failOnError;
     }
 
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Number of threads templates are parsed and generated with. The parser
+     * and generator keep no state between templates, so the same instances
+     * are shared by every thread.  Errors are still reported in the (sorted)
+     * order of the template files.
+     * 
+     * @param parallelism The number of threads (1 or less to parse and
+     *      generate on the calling thread)
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    /**
+     * Only templates that changed since the last run are generated again and
+     * the sources of deleted templates are deleted.  A manifest of the hash of
+     * every template (along with the version of rocker and the options) is
+     * kept in the output directory to tell.
+     * 
+     * @param incremental True to only generate changed templates
+     */
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+
+    public boolean isSaveConfiguration() {
+        return saveConfiguration;
+    }
+
+    /**
+     * Whether the configuration is saved to the class directory for hot
+     * reloading (only if templates are not optimized).  Callers generating
+     * several template directories into the same class directory at once
+     * should disable it and save the configuration once themselves.
+     * 
+     * @param saveConfiguration True to save the configuration
+     */
+    public void setSaveConfiguration(boolean saveConfiguration) {
+        this.saveConfiguration = saveConfiguration;
+    }
+
     public TemplateParser getParser() {
         return parser;
     }
@@ -65,6 +139,7 @@ public class JavaGeneratorRunnable implements Runnable {
         }
 
         // loop thru template directory and match templates
+        templateFiles.clear();
         Collection<File> allFiles = RockerUtil.listFileTree(this.configuration.getTemplateDirectory());
         for (File f : allFiles) {
             if (f.getName().matches(suffixRegex)) {
@@ -72,44 +147,153 @@ public class JavaGeneratorRunnable implements Runnable {
             }
         }
 
-        log.info("Parsing " + templateFiles.size() + " rocker template files");
+        // same order on every run (errors are reported in this order too)
+        Collections.sort(templateFiles);
+
+        log.info("Parsing " + templateFiles.size() + " rocker template files"
+            + (parallelism > 1 ? " using " + parallelism + " threads" : ""));
 
         int errors = 0;
         int generated = 0;
 
+        ExecutorService executor = null;
+        if (parallelism > 1 && templateFiles.size() > 1) {
+            executor = Executors.newFixedThreadPool(Math.min(parallelism, templateFiles.size()), new ThreadFactory() {
+                private final AtomicInteger counter = new AtomicInteger();
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "rocker-generator-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+
+        GeneratorManifest previous = null;
+        GeneratorManifest manifest = null;
+        Map<String,File> files = new LinkedHashMap<>();
+        Map<String,String> hashes = new HashMap<>();
+        List<File> staleFiles = templateFiles;
+
         for (File f : templateFiles) {
-            TemplateModel model = null;
+            files.put(templatePath(f), f);
+        }
+
+        if (incremental) {
+            String version = generatorVersion();
+            String optionsHash = optionsHash();
+            manifest = new GeneratorManifest(version, optionsHash);
+            previous = GeneratorManifest.load(manifestFile());
+            if (previous != null && !previous.isCompatible(version, optionsHash)) {
+                log.info("Rocker version or options changed. Will generate every template");
+                previous = null;
+            }
 
             try {
-                // parse model
-                model = parser.parse(f);
-            } catch (IOException | ParserException e) {
-                if (e instanceof ParserException) {
-                    ParserException pe = (ParserException) e;
-                    log.error("Parsing failed for " + f + ":[" + pe.getLineNumber() + "," + pe.getColumnNumber() + "] " + pe.getMessage());
-                } else {
-                    log.error("Unable to parse template", e);
+                for (Map.Entry<String,File> entry : files.entrySet()) {
+                    hashes.put(entry.getKey(), RockerUtil.md5(entry.getValue()));
                 }
-                errors++;
+            } catch (IOException e) {
+                throw new RuntimeException("Unable to hash templates", e);
             }
 
-            try {
-                File outputFile = generator.generate(model);
-                generated++;
+            staleFiles = new ArrayList<>();
+            for (String path : findStale(previous, files, hashes)) {
+                staleFiles.add(files.get(path));
+            }
 
-                log.debug("Generated java source: " + outputFile);
-            } catch (GeneratorException | IOException e) {
-                throw new RuntimeException("Generating java source failed for " + f + ": " + e.getMessage(), e);
+            log.info(staleFiles.size() + " of " + templateFiles.size() + " rocker templates changed since last generated");
+        }
+
+        try {
+            // parse every template first so calls between them can be inlined
+            List<TemplateModel> models = parseAll(executor, staleFiles);
+            List<File> modelFiles = new ArrayList<>(staleFiles);
+
+            for (int i = models.size() - 1; i >= 0; i--) {
+                if (models.get(i) == null) {
+                    models.remove(i);
+                    modelFiles.remove(i);
+                    errors++;
+                }
+            }
+
+            // templates to inline may not have changed
+            List<TemplateModel> inlineable = models;
+            if (staleFiles.size() < templateFiles.size() && isAnyInliningEnabled(models)) {
+                List<File> unchangedFiles = new ArrayList<>(templateFiles);
+                unchangedFiles.removeAll(staleFiles);
+                inlineable = new ArrayList<>(models);
+                for (TemplateModel model : parseAll(executor, unchangedFiles)) {
+                    if (model != null) {
+                        inlineable.add(model);
+                    }
+                }
             }
 
+            // inline serially since a model is both the caller in its own
+            // task and a callee in the tasks of other models
+            TemplateInliner inliner = new TemplateInliner(inlineable);
+            for (TemplateModel model : models) {
+                inliner.inline(model);
+            }
+
+            List<Future<File>> generating = new ArrayList<>();
+            for (final TemplateModel model : models) {
+                generating.add(submit(executor, new Callable<File>() {
+                    @Override
+                    public File call() throws Exception {
+                        return generator.generate(model);
+                    }
+                }));
+            }
+
+            for (int i = 0; i < models.size(); i++) {
+                File f = modelFiles.get(i);
+                try {
+                    File outputFile = await(generating.get(i));
+                    generated++;
+
+                    log.debug("Generated java source: " + outputFile);
+
+                    if (manifest != null) {
+                        List<String> inlined = new ArrayList<>();
+                        for (TemplateModel callee : TemplateInliner.getInlinedTemplates(models.get(i))) {
+                            inlined.add(templatePath(callee));
+                        }
+                        String path = templatePath(f);
+                        manifest.put(path, hashes.get(path), relativePath(configuration.getOutputDirectory(), outputFile), inlined);
+                    }
+                } catch (Exception e) {
+                    throw new RuntimeException("Generating java source failed for " + f + ": " + e.getMessage(), e);
+                }
+            }
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
         }
 
         log.info("Generated " + generated + " rocker java source files");
 
+        if (manifest != null) {
+            updateManifest(previous, manifest, files, staleFiles);
+        }
+
         if (errors > 0 && failOnError) {
             throw new RuntimeException("Caught " + errors + " errors.");
         }
 
+        if (saveConfiguration) {
+            writeConfiguration();
+        }
+    }
+
+    /**
+     * Saves the configuration to the class directory so templates can be
+     * hot reloaded.  Nothing is saved if templates are optimized.
+     */
+    public void writeConfiguration() {
         if (!configuration.getOptions().getOptimize()) {
             // save configuration
             this.configuration.getClassDirectory().mkdirs();
@@ -128,6 +312,192 @@ public class JavaGeneratorRunnable implements Runnable {
         }
     }
 
+    private List<TemplateModel> parseAll(ExecutorService executor, List<File> files) {
+        List<Future<TemplateModel>> parsing = new ArrayList<>();
+        for (final File f : files) {
+            parsing.add(submit(executor, new Callable<TemplateModel>() {
+                @Override
+                public TemplateModel call() throws Exception {
+                    return parser.parse(f);
+                }
+            }));
+        }
+
+        // null for every template that failed to parse
+        List<TemplateModel> models = new ArrayList<>();
+        for (int i = 0; i < files.size(); i++) {
+            File f = files.get(i);
+            try {
+                models.add(await(parsing.get(i)));
+            } catch (Exception e) {
+                if (e instanceof ParserException) {
+                    ParserException pe = (ParserException) e;
+                    log.error("Parsing failed for " + f + ":[" + pe.getLineNumber() + "," + pe.getColumnNumber() + "] " + pe.getMessage());
+                } else {
+                    log.error("Unable to parse template", e);
+                }
+                models.add(null);
+            }
+        }
+        return models;
+    }
+
+    static private boolean isAnyInliningEnabled(List<TemplateModel> models) {
+        for (TemplateModel model : models) {
+            if (TemplateInliner.isEnabled(model.getOptions())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Finds the templates that changed since the previous run (or whose
+     * generated source is missing) as well as the templates any of them was
+     * inlined into.
+     */
+    private List<String> findStale(GeneratorManifest previous, Map<String,File> files, Map<String,String> hashes) {
+        // templates whose content changed
+        Set<String> changed = new LinkedHashSet<>();
+        for (String path : files.keySet()) {
+            if (previous == null
+                    || previous.getOutput(path) == null
+                    || !hashes.get(path).equals(previous.getHash(path))) {
+                changed.add(path);
+            }
+        }
+
+        // ...so did the content of any template they were inlined into
+        boolean added = !changed.isEmpty() && previous != null;
+        while (added) {
+            added = false;
+            for (String path : files.keySet()) {
+                if (changed.contains(path)) {
+                    continue;
+                }
+                for (String inlined : previous.getInlined(path)) {
+                    if (changed.contains(inlined) || !files.containsKey(inlined)) {
+                        changed.add(path);
+                        added = true;
+                        break;
+                    }
+                }
+            }
+        }
+
+        Set<String> stale = new LinkedHashSet<>(changed);
+        for (String path : files.keySet()) {
+            if (!stale.contains(path) && !new File(configuration.getOutputDirectory(), previous.getOutput(path)).exists()) {
+                stale.add(path);
+            }
+        }
+
+        // keep the sorted order of the templates
+        List<String> paths = new ArrayList<>(files.keySet());
+        paths.retainAll(stale);
+        return paths;
+    }
+
+    private void updateManifest(GeneratorManifest previous, GeneratorManifest manifest, Map<String,File> files, List<File> staleFiles) {
+        if (previous != null) {
+            for (String path : previous.getTemplatePaths()) {
+                if (!files.containsKey(path)) {
+                    // template was deleted
+                    File orphan = new File(configuration.getOutputDirectory(), previous.getOutput(path));
+                    if (orphan.delete()) {
+                        log.info("Deleted orphaned rocker java source " + orphan);
+                    }
+                }
+                else if (!staleFiles.contains(files.get(path))) {
+                    manifest.copy(previous, path);
+                }
+            }
+        }
+
+        try {
+            manifest.store(manifestFile());
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to write rocker manifest", e);
+        }
+    }
+
+    private File manifestFile() {
+        return new File(configuration.getOutputDirectory(), GeneratorManifest.fileName(configuration.getTemplateDirectory(), configuration.getOutputDirectory()));
+    }
+
+    private String templatePath(File f) {
+        return relativePath(configuration.getTemplateDirectory(), f);
+    }
+
+    static private String templatePath(TemplateModel model) {
+        if (model.getPackageName() == null || model.getPackageName().equals("")) {
+            return model.getTemplateName();
+        }
+        return model.getPackageName().replace('.', '/') + "/" + model.getTemplateName();
+    }
+
+    static private String relativePath(File dir, File f) {
+        return dir.toPath().relativize(f.toPath()).toString().replace(File.separatorChar, '/');
+    }
+
+    /**
+     * Generated sources must be generated again by another version of rocker.
+     */
+    static private String generatorVersion() {
+        String version = JavaGenerator.class.getPackage().getImplementationVersion();
+        if (version != null) {
+            return version;
+        }
+        try {
+            File jar = new File(JavaGenerator.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+            if (jar.isFile()) {
+                return jar.length() + "-" + jar.lastModified();
+            }
+        } catch (Exception e) {
+            // fallthru
+        }
+        return "unknown";
+    }
+
+    private String optionsHash() {
+        Properties properties = new Properties();
+        configuration.getOptions().write(properties);
+        properties.put("plainTextStrategy", String.valueOf(generator.getPlainTextStrategy()));
+        // sorted so the same options always hash the same
+        return RockerUtil.md5(new TreeMap<>(properties).toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Runs the task now if no executor (serial mode) or submits it to the
+     * executor.
+     */
+    static private <T> Future<T> submit(ExecutorService executor, Callable<T> task) {
+        if (executor == null) {
+            FutureTask<T> future = new FutureTask<>(task);
+            future.run();
+            return future;
+        }
+        return executor.submit(task);
+    }
+
+    /**
+     * Waits for the task and rethrows whatever it failed with.
+     */
+    static private <T> T await(Future<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while generating rocker templates", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Error) {
+                throw (Error)cause;
+            }
+            throw (Exception)cause;
+        }
+    }
+
     public void setTemplateDirectory(File templateDirectory) {
         this.parser.getConfiguration().setTemplateDirectory(templateDirectory);
     }
@@ -20,6 +20,7 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.Reader;
 
 /**
  *
@@ -39,13 +40,28 @@ public class JavaSourceUtil {
      * @throws IOException 
      */
     static public SourcePosition findSourcePosition(File javaFile, int lineNumber, int columnNumber) throws IOException {
-        
+        return findSourcePosition(new FileReader(javaFile), lineNumber, columnNumber);
+    }
+
+    /**
+     * Same as <code>findSourcePosition(File,int,int)</code> but reads the
+     * generated Java source from a reader (e.g. source that was only ever
+     * generated in memory).  The reader is closed.
+     *
+     * @param javaSource
+     * @param lineNumber
+     * @param columnNumber
+     * @return
+     * @throws IOException
+     */
+    static public SourcePosition findSourcePosition(Reader javaSource, int lineNumber, int columnNumber) throws IOException {
+
         // keep a buffer of the previous two lines before the target line
         String[] lines = new String[3];
-        
+
         int currentLineNumber = 1;
-        
-        try (BufferedReader br = new BufferedReader(new FileReader(javaFile))) {
+
+        try (BufferedReader br = new BufferedReader(javaSource)) {
             for (String line; (line = br.readLine()) != null; ) {
                 
                 // cycle lines down one
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2015 Fizzed Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.rocker.compiler;
+
+import com.fizzed.rocker.runtime.CompileUnrecoverableException;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A long-lived javac "session" shared across template recompiles (e.g. every
+ * hot reload).  The resolved classpath and the standard file manager (along
+ * with the jars it has already opened and indexed) are reused until the
+ * classpath changes or one of its jars is modified.
+ * 
+ * The file manager is not thread safe -- callers must hold the session's lock
+ * (see <code>getLock</code>) for as long as they use it.  A lock rather than
+ * a monitor so virtual threads waiting on a compile do not pin their carrier.
+ */
+public class JavacSession {
+    static private final Logger log = LoggerFactory.getLogger(JavacSession.class);
+    
+    private final JavaCompiler compiler;
+    private final ReentrantLock lock;
+    private String classpathKey;
+    private List<File> classpath;
+    private List<File> fileManagerClasspath;
+    private List<Long> classpathStamps;
+    private StandardJavaFileManager fileManager;
+    
+    public JavacSession() {
+        this.compiler = ToolProvider.getSystemJavaCompiler();
+        this.lock = new ReentrantLock();
+    }
+
+    public JavaCompiler getCompiler() {
+        return compiler;
+    }
+
+    /**
+     * Gets the lock to hold while using the file manager (or compiling).
+     * 
+     * @return The (reentrant) lock of the session
+     */
+    public ReentrantLock getLock() {
+        return lock;
+    }
+    
+    /**
+     * Gets the classpath to compile templates with.  Resolved from the
+     * context classloader and only rebuilt when its URLs change.
+     * 
+     * @return The classpath entries
+     * @throws CompileUnrecoverableException 
+     */
+    public List<File> getClasspath() throws CompileUnrecoverableException {
+        this.lock.lock();
+        try {
+            return classpath();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+    
+    private List<File> classpath() throws CompileUnrecoverableException {
+        // under maven or other build tools, java.class.path is wrong
+        // build our own from current context
+        // todo: there doesn't seem to be any test checking this assumption is correct.
+        ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+
+        // starting in java 9, the class loader isn't necessarily an instance of URLClassLoader
+        URL[] classpathUrls = null;
+        String key;
+        if (contextClassLoader instanceof URLClassLoader) {
+            classpathUrls = ((URLClassLoader) contextClassLoader).getURLs();
+            key = Arrays.toString(classpathUrls);
+        } else {
+            key = System.getProperty("java.class.path");
+        }
+        
+        if (key.equals(this.classpathKey)) {
+            return this.classpath;
+        }
+        
+        List<File> files = new ArrayList<>();
+        
+        if (classpathUrls != null) {
+            for (URL url : classpathUrls) {
+                try {
+                    files.add(new File(url.toURI()).getAbsoluteFile());
+                } catch (Exception e) {
+                    throw new CompileUnrecoverableException("Unable to build javac classpath", e);
+                }
+            }
+        } else {
+            for (String path : key.split(File.pathSeparator)) {
+                if (!path.isEmpty()) {
+                    files.add(new File(path).getAbsoluteFile());
+                }
+            }
+        }
+        
+        this.classpathKey = key;
+        this.classpath = Collections.unmodifiableList(files);
+        
+        return this.classpath;
+    }
+    
+    /**
+     * Gets the standard file manager with its classpath already set.  A new
+     * one is only created if the classpath changed (or one of its jars was
+     * modified) since the last call.
+     * 
+     * @return The file manager
+     * @throws CompileUnrecoverableException 
+     */
+    public StandardJavaFileManager getFileManager() throws CompileUnrecoverableException {
+        this.lock.lock();
+        try {
+            return fileManager();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+    
+    private StandardJavaFileManager fileManager() throws CompileUnrecoverableException {
+        List<File> files = classpath();
+        
+        // directories are listed by javac on every compile, but jars are
+        // opened once and their index kept by the file manager
+        List<Long> stamps = new ArrayList<>(files.size());
+        for (File file : files) {
+            stamps.add(file.isFile() ? file.lastModified() : 0L);
+        }
+        
+        if (this.fileManager != null && files.equals(this.fileManagerClasspath) && stamps.equals(this.classpathStamps)) {
+            return this.fileManager;
+        }
+        
+        if (this.fileManager != null) {
+            log.debug("Rocker javac classpath changed (will use a new file manager)");
+            closeFileManager();
+        }
+        
+        StandardJavaFileManager newFileManager = compiler.getStandardFileManager(null, null, null);
+        try {
+            newFileManager.setLocation(StandardLocation.CLASS_PATH, files);
+        } catch (IOException e) {
+            throw new CompileUnrecoverableException("Unable to set javac classpath", e);
+        }
+        
+        this.fileManager = newFileManager;
+        this.fileManagerClasspath = files;
+        this.classpathStamps = stamps;
+        
+        return this.fileManager;
+    }
+    
+    /**
+     * Compiles a trivial class in memory so javac is loaded (and the classpath
+     * opened) before the first template actually needs recompiling.
+     */
+    public void warmUp() {
+        this.lock.lock();
+        try {
+            MemoryJavaFileManager memoryFileManager = new MemoryJavaFileManager(fileManager());
+
+            JavaFileObject source = new MemoryJavaFileManager.SourceFileObject(
+                    "RockerWarmUp", "class RockerWarmUp { String s = \"\"; }");
+
+            compiler.getTask(null, memoryFileManager, null, null, null, Arrays.asList(source)).call();
+        } catch (Exception e) {
+            log.debug("Unable to warm up javac", e);
+        } finally {
+            this.lock.unlock();
+        }
+    }
+    
+    public void close() {
+        this.lock.lock();
+        try {
+            closeFileManager();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+    
+    private void closeFileManager() {
+        if (this.fileManager != null) {
+            try {
+                this.fileManager.close();
+            } catch (IOException e) {
+                // do nothing
+            }
+            this.fileManager = null;
+            this.fileManagerClasspath = null;
+            this.classpathStamps = null;
+        }
+    }
+    
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2015 Fizzed Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.rocker.compiler;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+
+/**
+ * Java file manager that reads generated sources from strings and keeps the
+ * compiled class files in memory rather than writing them to the class
+ * directory.  Classes compiled in memory by earlier compiles are put on the
+ * classpath ahead of their (stale) class files on disk.  Everything else is
+ * delegated to the standard file manager.
+ */
+class MemoryJavaFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+
+    static public class SourceFileObject extends SimpleJavaFileObject {
+
+        private final String source;
+
+        public SourceFileObject(String className, String source) {
+            super(URI.create("string:///" + className.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+            this.source = source;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return source;
+        }
+
+    }
+
+    static private class ClassFileObject extends SimpleJavaFileObject {
+
+        private final ByteArrayOutputStream bytes;
+
+        public ClassFileObject(String className) {
+            super(URI.create("bytes:///" + className.replace('.', '/') + Kind.CLASS.extension), Kind.CLASS);
+            this.bytes = new ByteArrayOutputStream();
+        }
+
+        @Override
+        public OutputStream openOutputStream() {
+            return bytes;
+        }
+
+    }
+
+    static private class CompiledClassFileObject extends SimpleJavaFileObject {
+
+        private final String className;
+        private final byte[] bytes;
+
+        public CompiledClassFileObject(String className, byte[] bytes) {
+            super(URI.create("bytes:///" + className.replace('.', '/') + Kind.CLASS.extension), Kind.CLASS);
+            this.className = className;
+            this.bytes = bytes;
+        }
+
+        @Override
+        public InputStream openInputStream() {
+            return new ByteArrayInputStream(bytes);
+        }
+
+    }
+
+    private final Map<String,ClassFileObject> classFiles;
+    private final Map<String,byte[]> compiledClasses;
+
+    public MemoryJavaFileManager(StandardJavaFileManager fileManager) {
+        this(fileManager, Collections.<String,byte[]>emptyMap());
+    }
+
+    /**
+     * @param fileManager The standard file manager
+     * @param compiledClasses Classes compiled in memory by earlier compiles
+     *      (binary class name to the bytes of its class file)
+     */
+    public MemoryJavaFileManager(StandardJavaFileManager fileManager, Map<String,byte[]> compiledClasses) {
+        super(fileManager);
+        this.classFiles = new LinkedHashMap<>();
+        this.compiledClasses = compiledClasses;
+    }
+
+    @Override
+    public Iterable<JavaFileObject> list(Location location, String packageName, Set<JavaFileObject.Kind> kinds, boolean recurse) throws IOException {
+        Iterable<JavaFileObject> files = super.list(location, packageName, kinds, recurse);
+        
+        if (location != StandardLocation.CLASS_PATH || !kinds.contains(JavaFileObject.Kind.CLASS)
+                || compiledClasses.isEmpty()) {
+            return files;
+        }
+        
+        List<JavaFileObject> merged = new ArrayList<>();
+        for (JavaFileObject file : files) {
+            // skip the class files on disk replaced in memory
+            if (file.getKind() != JavaFileObject.Kind.CLASS
+                    || !compiledClasses.containsKey(super.inferBinaryName(location, file))) {
+                merged.add(file);
+            }
+        }
+        for (Map.Entry<String,byte[]> entry : compiledClasses.entrySet()) {
+            String className = entry.getKey();
+            int pos = className.lastIndexOf('.');
+            String classPackageName = (pos < 0 ? "" : className.substring(0, pos));
+            if (classPackageName.equals(packageName)
+                    || (recurse && classPackageName.startsWith(packageName + "."))) {
+                merged.add(new CompiledClassFileObject(className, entry.getValue()));
+            }
+        }
+        return merged;
+    }
+
+    @Override
+    public String inferBinaryName(Location location, JavaFileObject file) {
+        if (file instanceof CompiledClassFileObject) {
+            return ((CompiledClassFileObject)file).className;
+        }
+        return super.inferBinaryName(location, file);
+    }
+
+    @Override
+    public JavaFileObject getJavaFileForInput(Location location, String className, JavaFileObject.Kind kind) throws IOException {
+        if (location == StandardLocation.CLASS_PATH && kind == JavaFileObject.Kind.CLASS) {
+            byte[] bytes = compiledClasses.get(className);
+            if (bytes != null) {
+                return new CompiledClassFileObject(className, bytes);
+            }
+        }
+        return super.getJavaFileForInput(location, className, kind);
+    }
+
+    @Override
+    public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind, FileObject sibling) throws IOException {
+        if (kind != JavaFileObject.Kind.CLASS) {
+            return super.getJavaFileForOutput(location, className, kind, sibling);
+        }
+
+        ClassFileObject classFile = new ClassFileObject(className);
+        classFiles.put(className, classFile);
+        return classFile;
+    }
+
+    /**
+     * Gets the bytes of every class compiled so far.
+     *
+     * @return A map of binary class name (e.g. views.index$Template) to the
+     *      bytes of its class file
+     */
+    public Map<String,byte[]> getClasses() {
+        Map<String,byte[]> classes = new LinkedHashMap<>();
+        for (Map.Entry<String,ClassFileObject> entry : classFiles.entrySet()) {
+            classes.put(entry.getKey(), entry.getValue().bytes.toByteArray());
+        }
+        return classes;
+    }
+
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2015 Fizzed Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.rocker.compiler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the class file of a template's plain text holder class (the one
+ * loaded by <code>PlainTextUnloadedClassLoader</code>) directly, without
+ * generating its Java source and running it through javac.  The class only
+ * consists of <code>static final String</code> fields with constant values,
+ * so the strings go straight into the constant pool.
+ */
+public class PlainTextClassWriter {
+    
+    static private final int MAGIC = 0xCAFEBABE;
+    static private final int MAJOR_VERSION = 52;            // java 8
+    
+    static private final int CONSTANT_UTF8 = 1;
+    static private final int CONSTANT_CLASS = 7;
+    static private final int CONSTANT_STRING = 8;
+    
+    static private final int ACC_PRIVATE = 0x0002;
+    static private final int ACC_STATIC = 0x0008;
+    static private final int ACC_FINAL = 0x0010;
+    static private final int ACC_SUPER = 0x0020;
+    
+    // each entry of the constant pool (key is its type & value)
+    private final Map<String,Integer> constantIndexes;
+    private final ByteArrayOutputStream constantBytes;
+    private final DataOutputStream constants;
+    private int constantCount;
+    
+    private PlainTextClassWriter() {
+        this.constantIndexes = new HashMap<>();
+        this.constantBytes = new ByteArrayOutputStream();
+        this.constants = new DataOutputStream(constantBytes);
+        this.constantCount = 1;         // index 0 is never used
+    }
+    
+    /**
+     * Writes the class file.
+     * 
+     * @param className The binary name of the class (e.g. views.index$PlainText)
+     * @param fields The field names and their (constant) values in order
+     * @return The bytes of the class file
+     * @throws IOException If a value does not fit into the constant pool
+     */
+    static public byte[] write(String className, LinkedHashMap<String,String> fields) throws IOException {
+        return new PlainTextClassWriter().writeClass(className, fields);
+    }
+    
+    private byte[] writeClass(String className, LinkedHashMap<String,String> fields) throws IOException {
+        int thisClass = classConstant(className.replace('.', '/'));
+        int superClass = classConstant("java/lang/Object");
+        int stringDescriptor = utf8Constant("Ljava/lang/String;");
+        int constantValue = utf8Constant("ConstantValue");
+        
+        // [name index, value index] of each field
+        List<int[]> fieldIndexes = new ArrayList<>();
+        for (Map.Entry<String,String> field : fields.entrySet()) {
+            fieldIndexes.add(new int[] { utf8Constant(field.getKey()), stringConstant(field.getValue()) });
+        }
+        
+        if (constantCount > 0xFFFF) {
+            throw new IOException("Too many constants for class " + className);
+        }
+        
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(constantBytes.size() + 64 + (fields.size() * 16));
+        DataOutputStream out = new DataOutputStream(bytes);
+        
+        out.writeInt(MAGIC);
+        out.writeShort(0);                          // minor version
+        out.writeShort(MAJOR_VERSION);
+        out.writeShort(constantCount);
+        constantBytes.writeTo(out);
+        out.writeShort(ACC_SUPER);
+        out.writeShort(thisClass);
+        out.writeShort(superClass);
+        out.writeShort(0);                          // interfaces
+        
+        out.writeShort(fieldIndexes.size());
+        for (int[] field : fieldIndexes) {
+            out.writeShort(ACC_PRIVATE | ACC_STATIC | ACC_FINAL);
+            out.writeShort(field[0]);
+            out.writeShort(stringDescriptor);
+            out.writeShort(1);                      // attributes
+            out.writeShort(constantValue);
+            out.writeInt(2);
+            out.writeShort(field[1]);
+        }
+        
+        out.writeShort(0);                          // methods
+        out.writeShort(0);                          // attributes
+        
+        out.flush();
+        return bytes.toByteArray();
+    }
+    
+    private int utf8Constant(String value) throws IOException {
+        Integer index = constantIndexes.get("U" + value);
+        if (index == null) {
+            constants.writeByte(CONSTANT_UTF8);
+            // modified utf-8 w/ 2-byte length (throws if longer than 65535 bytes)
+            constants.writeUTF(value);
+            index = constantCount++;
+            constantIndexes.put("U" + value, index);
+        }
+        return index;
+    }
+    
+    private int classConstant(String internalName) throws IOException {
+        int nameIndex = utf8Constant(internalName);
+        constants.writeByte(CONSTANT_CLASS);
+        constants.writeShort(nameIndex);
+        return constantCount++;
+    }
+    
+    private int stringConstant(String value) throws IOException {
+        Integer index = constantIndexes.get("S" + value);
+        if (index == null) {
+            int valueIndex = utf8Constant(value);
+            constants.writeByte(CONSTANT_STRING);
+            constants.writeShort(valueIndex);
+            index = constantCount++;
+            constantIndexes.put("S" + value, index);
+        }
+        return index;
+    }
+    
+}
@@ -36,12 +36,16 @@ public class RockerConfiguration {
     static public final String OUTPUT_DIR = "rocker.output.dir";
     static public final String CLASS_DIR = "rocker.class.dir";
     //static public final String COMPILE_DIR = "rocker.compile.dir";
+    static public final String COMPILE_IN_MEMORY = "rocker.compile.memory";
+    static public final String RELOAD_IN_BACKGROUND = "rocker.reload.background";
     static public final String OPTION_PREFIX = "rocker.option.";
     
     private File templateDirectory;
     private File outputDirectory;
     private File classDirectory;
     //private File compileDirectory;
+    private boolean compileInMemory;
+    private boolean reloadInBackground;
     private RockerOptions options;
     
     public RockerConfiguration() {
@@ -49,6 +53,8 @@ public class RockerConfiguration {
         this.outputDirectory = new File("target/generated-sources/rocker");
         this.classDirectory = new File("target/classes");
         //this.compileDirectory = null;
+        this.compileInMemory = true;
+        this.reloadInBackground = false;
         this.options = new RockerOptions();
         // merge in rocker.conf from classpath
         mergeFromClassPath();
@@ -92,6 +98,16 @@ public class RockerConfiguration {
         }
         */
         
+        if (properties.containsKey(COMPILE_IN_MEMORY)) {
+            this.compileInMemory = Boolean.parseBoolean(properties.getProperty(COMPILE_IN_MEMORY));
+            log.debug("compileInMemory = " + this.compileInMemory);
+        }
+        
+        if (properties.containsKey(RELOAD_IN_BACKGROUND)) {
+            this.reloadInBackground = Boolean.parseBoolean(properties.getProperty(RELOAD_IN_BACKGROUND));
+            log.debug("reloadInBackground = " + this.reloadInBackground);
+        }
+        
         // find all keys starting with rocker.options prefix and process them as strings
         Enumeration propertyNames = properties.propertyNames();
         while (propertyNames.hasMoreElements()) {
@@ -160,6 +176,37 @@ public class RockerConfiguration {
     }
     */
 
+    /**
+     * Whether templates recompiled while hot reloading are generated and
+     * compiled entirely in memory (the default) or written to the output
+     * and class directories first.
+     *
+     * @return True if compiled in memory
+     */
+    public boolean isCompileInMemory() {
+        return compileInMemory;
+    }
+
+    public void setCompileInMemory(boolean compileInMemory) {
+        this.compileInMemory = compileInMemory;
+    }
+
+    /**
+     * Whether hot reloading watches the template directory and recompiles
+     * changed templates on a background thread (rendering the previous version
+     * until the new one is ready) rather than checking templates on every
+     * render.
+     *
+     * @return True if reloaded in the background
+     */
+    public boolean isReloadInBackground() {
+        return reloadInBackground;
+    }
+
+    public void setReloadInBackground(boolean reloadInBackground) {
+        this.reloadInBackground = reloadInBackground;
+    }
+
     public RockerOptions getOptions() {
         return options;
     }
@@ -40,6 +40,9 @@ public class RockerOptions {
     static public final String OPTIMIZE = "optimize";
     static public final String POST_PROCESSING = "postProcessing";
     static public final String MARK_AS_GENERATED = "markAsGenerated";
+    static public final String PRECOMPRESS_PLAIN_TEXT = "precompressPlainText";
+    static public final String MEMOIZE_CONSTANT_CALLS = "memoizeConstantCalls";
+    static public final String INLINE_MAX_UNITS = "inlineMaxUnits";
     
     // generated source compatiblity
     private JavaVersion javaVersion;
@@ -60,6 +63,12 @@ public class RockerOptions {
     private String[] postProcessing;
     // mark generated classes with @Generated
     private Boolean markAsGenerated;
+    // also deflate plain text at build time for outputs that can splice it in
+    private Boolean precompressPlainText;
+    // render calls to other templates w/ only constant arguments once
+    private Boolean memoizeConstantCalls;
+    // inline calls to other templates w/ at most this many units (0 disables)
+    private Integer inlineMaxUnits;
     
     public RockerOptions() {
         this.javaVersion = JavaVersion.v1_8;
@@ -71,6 +80,9 @@ public class RockerOptions {
         this.optimize = Boolean.FALSE;
         this.postProcessing = new String[0];
         this.markAsGenerated = Boolean.FALSE;
+        this.precompressPlainText = Boolean.FALSE;
+        this.memoizeConstantCalls = Boolean.FALSE;
+        this.inlineMaxUnits = 0;
     }
     
     public RockerOptions copy() {
@@ -86,6 +98,9 @@ public class RockerOptions {
         // these need to be kept separate from per-template configurations.
         options.postProcessing = new String[0];
         options.markAsGenerated = this.markAsGenerated;
+        options.precompressPlainText = this.precompressPlainText;
+        options.memoizeConstantCalls = this.memoizeConstantCalls;
+        options.inlineMaxUnits = this.inlineMaxUnits;
         return options;
     }
 
@@ -181,6 +196,30 @@ public class RockerOptions {
         this.markAsGenerated = markAsGenerated;
     }
 
+    public Boolean getPrecompressPlainText() {
+        return precompressPlainText;
+    }
+
+    public void setPrecompressPlainText(Boolean precompressPlainText) {
+        this.precompressPlainText = precompressPlainText;
+    }
+
+    public Boolean getMemoizeConstantCalls() {
+        return memoizeConstantCalls;
+    }
+
+    public void setMemoizeConstantCalls(Boolean memoizeConstantCalls) {
+        this.memoizeConstantCalls = memoizeConstantCalls;
+    }
+
+    public Integer getInlineMaxUnits() {
+        return inlineMaxUnits;
+    }
+
+    public void setInlineMaxUnits(Integer inlineMaxUnits) {
+        this.inlineMaxUnits = inlineMaxUnits;
+    }
+
     public String[] getPostProcessing() {
     	return postProcessing;
     }
@@ -221,6 +260,15 @@ public class RockerOptions {
             case MARK_AS_GENERATED:
                 this.setMarkAsGenerated(parseBoolean(optionValue));
                 break;
+            case PRECOMPRESS_PLAIN_TEXT:
+                this.setPrecompressPlainText(parseBoolean(optionValue));
+                break;
+            case MEMOIZE_CONSTANT_CALLS:
+                this.setMemoizeConstantCalls(parseBoolean(optionValue));
+                break;
+            case INLINE_MAX_UNITS:
+                this.setInlineMaxUnits(parseInteger(optionValue));
+                break;
             default:
                 throw new TokenException("Invalid option (" + optionName + ") is not a property)");
         }
@@ -248,6 +296,15 @@ public class RockerOptions {
         if (this.markAsGenerated != null) {
             properties.put(RockerConfiguration.OPTION_PREFIX + MARK_AS_GENERATED, this.markAsGenerated.toString());
         }
+        if (this.precompressPlainText != null) {
+            properties.put(RockerConfiguration.OPTION_PREFIX + PRECOMPRESS_PLAIN_TEXT, this.precompressPlainText.toString());
+        }
+        if (this.memoizeConstantCalls != null) {
+            properties.put(RockerConfiguration.OPTION_PREFIX + MEMOIZE_CONSTANT_CALLS, this.memoizeConstantCalls.toString());
+        }
+        if (this.inlineMaxUnits != null) {
+            properties.put(RockerConfiguration.OPTION_PREFIX + INLINE_MAX_UNITS, this.inlineMaxUnits.toString());
+        }
     }
     
     public void parseOption(Option option) throws ParserException {
@@ -283,6 +340,17 @@ public class RockerOptions {
         }
     }
     
+    private Integer parseInteger(String value) throws TokenException {
+        if (value == null) {
+            throw new TokenException("Integer option cannot be null");
+        }
+        try {
+            return Integer.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new TokenException("Unparseable integer");
+        }
+    }
+    
     /**
      * Create an array of sub-strings from a given comma-separated string.
      * The contents of each string in the returned array will be trimmed of leading and trailing spaces.
@@ -30,6 +30,7 @@ import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -39,14 +40,35 @@ import org.apache.commons.lang3.text.translate.EntityArrays;
 import org.apache.commons.lang3.text.translate.LookupTranslator;
 
 import com.fizzed.rocker.ContentType;
+import com.fizzed.rocker.model.Argument;
+import com.fizzed.rocker.model.AsyncBlockBegin;
+import com.fizzed.rocker.model.BlockBegin;
+import com.fizzed.rocker.model.ContentClosureBegin;
+import com.fizzed.rocker.model.ForBlockBegin;
+import com.fizzed.rocker.model.JavaImport;
+import com.fizzed.rocker.model.JavaVariable;
 import com.fizzed.rocker.model.JavaVersion;
 import com.fizzed.rocker.model.TemplateModel;
+import com.fizzed.rocker.model.TemplateUnit;
+import com.fizzed.rocker.model.ValueExpression;
+import com.fizzed.rocker.model.WithBlockBegin;
+import com.fizzed.rocker.model.WithStatement;
 //import org.apache.commons.lang3.text.translate.*;
 
 public class RockerUtil {
     
     private static final Pattern VALID_JAVA_IDENTIFIER = Pattern
             .compile("\\p{javaJavaIdentifierStart}\\p{javaJavaIdentifierPart}*");
+    
+    // java literal (string, char, number or boolean) -- null is excluded since
+    // it would not pick the same overloaded method
+    private static final String JAVA_LITERAL
+            = "(?:\"(?:[^\"\\\\]|\\\\.)*\"|'(?:[^'\\\\]|\\\\.)'|-?[0-9]+(?:\\.[0-9]+)?[LlDdFf]?|true|false)";
+    
+    // e.g. views.Footer.template() or views.Title.template("Home", 1)
+    private static final Pattern CONSTANT_TEMPLATE_CALL = Pattern
+            .compile("\\p{javaJavaIdentifierStart}\\p{javaJavaIdentifierPart}*(?:\\.\\p{javaJavaIdentifierStart}\\p{javaJavaIdentifierPart}*)*"
+                + "\\.template\\(\\s*(?:" + JAVA_LITERAL + "\\s*(?:,\\s*" + JAVA_LITERAL + "\\s*)*)?\\)");
 
     static public boolean isJava8Plus(TemplateModel model) {
         return model.getOptions().isGreaterThanOrEqualToJavaVersion(JavaVersion.v1_8);
@@ -56,6 +78,235 @@ public class RockerUtil {
         return VALID_JAVA_IDENTIFIER.matcher(identifier).matches();
     }
     
+    /**
+     * Whether an expression is a call to another template with no arguments or
+     * only literal arguments (and thus renders the same content every time).
+     * 
+     * @param expression The value expression
+     * @return True if a constant template call
+     */
+    public static boolean isConstantTemplateCall(String expression) {
+        return CONSTANT_TEMPLATE_CALL.matcher(expression.trim()).matches();
+    }
+    
+    /**
+     * Gets the names of the variables a template declares: its arguments as
+     * well as every loop, with, async and content closure variable.
+     * 
+     * @param model The template
+     * @return The names of its variables
+     */
+    public static Set<String> declaredVariableNames(TemplateModel model) {
+        Set<String> names = new HashSet<>();
+        for (Argument argument : model.getArguments()) {
+            names.add(argument.getName());
+        }
+        for (TemplateUnit unit : model.getUnits()) {
+            if (unit instanceof ContentClosureBegin) {
+                names.add(((ContentClosureBegin)unit).getIdentifier());
+            } else if (unit instanceof ForBlockBegin) {
+                List<JavaVariable> arguments = ((ForBlockBegin)unit).getStatement().getArguments();
+                if (arguments != null) {
+                    for (JavaVariable argument : arguments) {
+                        names.add(argument.getName());
+                    }
+                }
+            } else if (unit instanceof WithBlockBegin) {
+                for (WithStatement.VariableWithExpression variable : ((WithBlockBegin)unit).getStatement().getVariables()) {
+                    names.add(variable.getVariable().getName());
+                }
+            } else if (unit instanceof AsyncBlockBegin) {
+                names.add(((AsyncBlockBegin)unit).getVariable().getName());
+            }
+        }
+        return names;
+    }
+    
+    /**
+     * Resolves the name a template call is made on (e.g. <code>Footer</code>
+     * of <code>Footer.template()</code>) to the qualified names of the class
+     * it may be -- the same way javac would.  A qualified name is itself, a
+     * simple name is a single type import, or else a class of the same
+     * package or of a wildcard import.  A name starting w/ a variable of the
+     * template (e.g. a loop variable that happens to have a template() method)
+     * is never a class.
+     * 
+     * @param model The calling template
+     * @param variables The names of the variables of the calling template
+     * @param name The name the template call is made on
+     * @return The qualified names in the order javac would try them (empty if
+     *      the name is a variable)
+     */
+    public static List<String> resolveTemplateCallCandidates(TemplateModel model, Set<String> variables, String name) {
+        List<String> candidates = new ArrayList<>();
+        int dot = name.indexOf('.');
+        
+        if (variables.contains(dot < 0 ? name : name.substring(0, dot))) {
+            return candidates;
+        }
+        
+        if (dot >= 0) {
+            candidates.add(name);
+            return candidates;
+        }
+        
+        for (JavaImport i : model.getImports()) {
+            String statement = i.getStatement().trim();
+            if (statement.endsWith("." + name)) {
+                candidates.add(statement);
+                return candidates;
+            }
+        }
+        
+        if (model.getPackageName() == null || model.getPackageName().equals("")) {
+            candidates.add(name);
+        } else {
+            candidates.add(model.getPackageName() + "." + name);
+        }
+        
+        for (JavaImport i : model.getImports()) {
+            String statement = i.getStatement().trim();
+            if (statement.endsWith(".*")) {
+                candidates.add(statement.substring(0, statement.length() - 1) + name);
+            }
+        }
+        
+        return candidates;
+    }
+    
+    // e.g. views.Item.template(
+    private static final Pattern TEMPLATE_CALL_START = Pattern
+            .compile("(\\p{javaJavaIdentifierStart}\\p{javaJavaIdentifierPart}*(?:\\.\\p{javaJavaIdentifierStart}\\p{javaJavaIdentifierPart}*)*)"
+                + "\\.template\\(");
+    
+    /**
+     * Splits a plain call to another template (e.g. <code>views.Item.template(a, b.c())</code>)
+     * into the name of the template and its argument expressions.  Anything
+     * else (e.g. a call followed by more method calls) is not split.  Arguments
+     * containing a <code>&lt;</code> are not split since a generic type cannot
+     * be told apart from a comparison without a java parser.
+     * 
+     * @param expression The value expression
+     * @return The template name followed by each argument expression or null
+     *      if not a plain template call
+     */
+    public static List<String> splitTemplateCall(String expression) {
+        String value = expression.trim();
+        Matcher matcher = TEMPLATE_CALL_START.matcher(value);
+        if (!matcher.lookingAt()) {
+            return null;
+        }
+        
+        List<String> parts = new ArrayList<>();
+        parts.add(matcher.group(1));
+        
+        int depth = 0;
+        int argStart = matcher.end();
+        for (int i = matcher.end(); i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\'') {
+                // skip string or char literal
+                i++;
+                while (i < value.length() && value.charAt(i) != c) {
+                    if (value.charAt(i) == '\\') {
+                        i++;
+                    }
+                    i++;
+                }
+                if (i >= value.length()) {
+                    return null;
+                }
+            }
+            else if (c == '<') {
+                return null;
+            }
+            else if (c == '(' || c == '[' || c == '{') {
+                depth++;
+            }
+            else if ((c == ']' || c == '}') && depth > 0) {
+                depth--;
+            }
+            else if (c == ')' && depth > 0) {
+                depth--;
+            }
+            else if (c == ')' || (c == ',' && depth == 0)) {
+                String arg = value.substring(argStart, i).trim();
+                if (arg.isEmpty()) {
+                    // only valid for a call w/o any arguments
+                    if (c == ',' || parts.size() > 1) {
+                        return null;
+                    }
+                } else {
+                    parts.add(arg);
+                }
+                argStart = i + 1;
+                if (c == ')') {
+                    // must be the end of the expression
+                    return (i == value.length() - 1 ? parts : null);
+                }
+            }
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Finds the names of the templates a template calls (e.g. the
+     * <code>views.main</code> of <code>@views.main.template("Home") -> { }</code>).
+     * An unqualified name is resolved against the imports and the package of
+     * the template, so a name may not actually be a template (e.g. a class
+     * with a static template method) and must be matched against the
+     * templates that exist.
+     * 
+     * @param model The calling template
+     * @return The qualified names of every template it may call
+     */
+    static public Set<String> findTemplateCalls(TemplateModel model) {
+        Set<String> names = new HashSet<>();
+        
+        for (TemplateUnit unit : model.getUnits()) {
+            String expression;
+            if (unit instanceof ValueExpression) {
+                expression = ((ValueExpression)unit).getExpression();
+            } else if (unit instanceof BlockBegin) {
+                expression = ((BlockBegin)unit).getExpression();
+            } else {
+                continue;
+            }
+            
+            if (expression == null) {
+                continue;
+            }
+            
+            Matcher matcher = TEMPLATE_CALL_START.matcher(expression);
+            while (matcher.find()) {
+                String name = matcher.group(1);
+                
+                if (name.contains(".")) {
+                    names.add(name);
+                    continue;
+                }
+                
+                for (JavaImport i : model.getImports()) {
+                    String statement = i.getStatement().trim();
+                    if (statement.endsWith(".*")) {
+                        names.add(statement.substring(0, statement.length() - 1) + name);
+                    } else if (statement.endsWith("." + name)) {
+                        names.add(statement);
+                    }
+                }
+                
+                if (model.getPackageName() == null || model.getPackageName().equals("")) {
+                    names.add(name);
+                } else {
+                    names.add(model.getPackageName() + "." + name);
+                }
+            }
+        }
+        
+        return names;
+    }
+    
     static public String pathToPackageName(Path path) {
         if (path == null) {
             return "";
@@ -243,7 +494,12 @@ public class RockerUtil {
 
     public static String getTextAsJavaByteArrayInitializer(String text,String charsetName) throws UnsupportedEncodingException{
 
-        byte[] bytes = text.getBytes(charsetName);
+        return getBytesAsJavaByteArrayInitializer(text.getBytes(charsetName));
+
+    }
+
+    public static String getBytesAsJavaByteArrayInitializer(byte[] bytes) {
+
         StringBuilder s = new StringBuilder();
         s.append("new byte[] { ");
         boolean first = true;
@@ -307,12 +563,16 @@ public class RockerUtil {
     }
     
     static public String md5(File f) throws IOException {
+        return md5(Files.readAllBytes(f.toPath()));
+    }
+    
+    static public String md5(byte[] b) {
         try {
-            byte[] b = Files.readAllBytes(f.toPath());
             byte[] hash = MessageDigest.getInstance("MD5").digest(b);
             return byteArrayToHex(hash);
         } catch (NoSuchAlgorithmException e) {
-            throw new IOException(e.getMessage(), e);
+            // every jvm is required to support md5
+            throw new IllegalStateException(e.getMessage(), e);
         }
     }
     
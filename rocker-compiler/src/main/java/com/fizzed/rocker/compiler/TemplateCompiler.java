@@ -26,9 +26,9 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
-import java.net.URL;
-import java.net.URLClassLoader;
+import java.io.StringReader;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -43,9 +43,22 @@ public class TemplateCompiler {
     private static final Logger log = LoggerFactory.getLogger(TemplateCompiler.class);
 
     private final RockerConfiguration configuration;
+    private final JavacSession session;
 
     public TemplateCompiler(RockerConfiguration configuration) {
+        this(configuration, new JavacSession());
+    }
+
+    /**
+     * Creates a compiler that reuses a javac session (e.g. one kept for the
+     * life of a reloading bootstrap) rather than starting cold.
+     * 
+     * @param configuration The configuration
+     * @param session The javac session to compile with
+     */
+    public TemplateCompiler(RockerConfiguration configuration, JavacSession session) {
         this.configuration = configuration;
+        this.session = session;
     }
     
     static public class CompilationUnit {
@@ -54,6 +67,8 @@ public class TemplateCompiler {
         private TemplateModel templateModel;
         // generate
         private File javaFile;
+        private String javaSource;
+        private Map<String,byte[]> javaClasses;
 
         public File getTemplateFile() {
             return templateFile;
@@ -66,6 +81,22 @@ public class TemplateCompiler {
         public File getJavaFile() {
             return javaFile;
         }
+
+        public String getJavaSource() {
+            return javaSource;
+        }
+
+        public Map<String,byte[]> getJavaClasses() {
+            return javaClasses;
+        }
+
+        public String getJavaClassName() {
+            String packageName = templateModel.getPackageName();
+            if (packageName == null || packageName.isEmpty()) {
+                return templateModel.getName();
+            }
+            return packageName + "." + templateModel.getName();
+        }
         
     }
 
@@ -99,73 +130,128 @@ public class TemplateCompiler {
         }
     }
 
-
-    public void compile(List<CompilationUnit> units) throws CompileUnrecoverableException, CompileDiagnosticException {
+    public void generateInMemory(List<CompilationUnit> units) throws GeneratorException, IOException {
         //
-        // build javac options
+        // model -> java (as a string)
         //
+        JavaGenerator generator = new JavaGenerator(this.configuration);
 
-        // under maven or other build tools, java.class.path is wrong
-        // build our own from current context
-        // todo: there doesn't seem to be any test checking this assumption is correct.
-        StringBuilder classpath = new StringBuilder();
-        ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
-
-        // starting in java 9, the class loader isn't necessarily an instance of URLClassLoader
-        URL[] classpathUrls = new URL[0];
-        if (contextClassLoader instanceof URLClassLoader) {
-            classpathUrls = ((URLClassLoader) contextClassLoader).getURLs();
-        } else {
-            classpath.append(System.getProperty("java.class.path"));
-        }
-        for (URL url : classpathUrls) {
-            if (classpath.length() > 0) {
-                classpath.append(File.pathSeparator);
-            }
-            
-            try {
-                classpath.append(new File(url.toURI()).getAbsolutePath());
-            } catch (Exception e) {
-                throw new CompileUnrecoverableException("Unable to build javac classpath", e);
-            }
+        for (CompilationUnit unit : units) {
+            // classes that don't need javac are written directly
+            unit.javaClasses = new HashMap<>();
+            unit.javaSource = generator.generateSource(unit.templateModel, unit.javaClasses);
         }
-        
+    }
+
+
+    public void compile(List<CompilationUnit> units) throws CompileUnrecoverableException, CompileDiagnosticException {
         // make sure compile directory exists
         this.configuration.getClassDirectory().mkdirs();
         
-
-        List<String> javacOptions = new ArrayList<>();
-
-        // classpath to compile templates with
-        javacOptions.add("-classpath");
-        javacOptions.add(classpath.toString());
+        List<String> javacOptions = buildJavacOptions();
 
         // directory to output compiles classes
         javacOptions.add("-d");
         javacOptions.add(this.configuration.getClassDirectory().getAbsolutePath());
-
-        javacOptions.add("-Xlint:unchecked");
-        
         
         //
         // java -> class
         //
-        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        this.session.getLock().lock();
+        try {
+            StandardJavaFileManager fileManager = this.session.getFileManager();
 
-        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+            Map<JavaFileObject,CompilationUnit> unitsBySource = new HashMap<>();
+            for (CompilationUnit unit : units) {
+                for (JavaFileObject jfo : fileManager.getJavaFileObjects(unit.javaFile.getAbsoluteFile())) {
+                    unitsBySource.put(jfo, unit);
+                }
+            }
+
+            compile(fileManager, javacOptions, unitsBySource);
+        } finally {
+            this.session.getLock().unlock();
+        }
+    }
+    
+    /**
+     * Compiles units whose source was generated in memory (see
+     * <code>generateInMemory</code>) without touching the output or class
+     * directories.
+     * 
+     * @param units The units to compile
+     * @return A map of binary class name (e.g. views.index$Template) to the
+     *      bytes of its class file
+     * @throws CompileUnrecoverableException
+     * @throws CompileDiagnosticException 
+     */
+    public Map<String,byte[]> compileInMemory(List<CompilationUnit> units) throws CompileUnrecoverableException, CompileDiagnosticException {
+        return compileInMemory(units, Collections.<String,byte[]>emptyMap());
+    }
+    
+    /**
+     * Compiles units whose source was generated in memory against classes
+     * compiled in memory before (e.g. by an earlier reload), which take the
+     * place of their class files in the class directory.
+     * 
+     * @param units The units to compile
+     * @param compiledClasses A map of binary class name to the bytes of its
+     *      class file compiled earlier
+     * @return A map of binary class name (e.g. views.index$Template) to the
+     *      bytes of its class file
+     * @throws CompileUnrecoverableException
+     * @throws CompileDiagnosticException 
+     */
+    public Map<String,byte[]> compileInMemory(List<CompilationUnit> units, Map<String,byte[]> compiledClasses) throws CompileUnrecoverableException, CompileDiagnosticException {
+        List<String> javacOptions = buildJavacOptions();
+        
+        //
+        // java -> class (bytes)
+        //
+        this.session.getLock().lock();
+        try {
+            MemoryJavaFileManager fileManager = new MemoryJavaFileManager(this.session.getFileManager(), compiledClasses);
 
-        StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null);
+            Map<JavaFileObject,CompilationUnit> unitsBySource = new HashMap<>();
+            for (CompilationUnit unit : units) {
+                unitsBySource.put(new MemoryJavaFileManager.SourceFileObject(unit.getJavaClassName(), unit.javaSource), unit);
+            }
 
-        Map<File,CompilationUnit> unitsByJavaFile = new HashMap<>();
-        for (CompilationUnit unit : units) {
-            unitsByJavaFile.put(unit.javaFile.getAbsoluteFile(), unit);
+            compile(fileManager, javacOptions, unitsBySource);
+
+            Map<String,byte[]> classes = fileManager.getClasses();
+            for (CompilationUnit unit : units) {
+                if (unit.javaClasses != null) {
+                    classes.putAll(unit.javaClasses);
+                }
+            }
+            
+            return classes;
+        } finally {
+            this.session.getLock().unlock();
         }
+    }
+    
+    private List<String> buildJavacOptions() {
+        //
+        // build javac options
+        //
+        
+        // classpath to compile templates with is set on the session's file manager
+        List<String> javacOptions = new ArrayList<>();
+
+        javacOptions.add("-Xlint:unchecked");
         
-        Iterable<? extends JavaFileObject> compilationUnits =
-                fileManager.getJavaFileObjectsFromFiles(unitsByJavaFile.keySet());
+        return javacOptions;
+    }
+    
+    private void compile(JavaFileManager fileManager, List<String> javacOptions,
+            Map<JavaFileObject,CompilationUnit> unitsBySource) throws CompileDiagnosticException {
+        
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
 
         JavaCompiler.CompilationTask task
-                = compiler.getTask(null, null, diagnostics, javacOptions, null, compilationUnits);
+                = this.session.getCompiler().getTask(null, fileManager, diagnostics, javacOptions, null, unitsBySource.keySet());
 
         boolean success = task.call();
 
@@ -188,32 +274,38 @@ public class TemplateCompiler {
             //log.debug("message: {}", diagnostic.getMessage(null));
             
             if (diagnostic.getKind() == Kind.ERROR) {
-                File javaFile = new File(jfo.toUri()).getAbsoluteFile();
-                
-                CompilationUnit unit = unitsByJavaFile.get(javaFile);
+                CompilationUnit unit = (jfo != null ? findUnit(unitsBySource, jfo) : null);
                 
+                File templateFile = null;
+                File javaFile = null;
                 int templateLineNumber = -1;
                 int templateColumnNumber = -1;
                 
-                try {
-                    // check if we can find the correlating template line & col
-                    SourcePosition sourcePos = JavaSourceUtil.findSourcePosition(
-                                                        javaFile,
-                                                        (int)diagnostic.getLineNumber(),
-                                                        (int)diagnostic.getColumnNumber());
-
+                if (unit != null) {
+                    templateFile = unit.templateFile;
+                    
+                    // in-memory sources were never written so refer to them relatively
+                    javaFile = (unit.javaFile != null ? unit.javaFile.getAbsoluteFile()
+                        : new File(unit.getJavaClassName().replace('.', '/') + ".java"));
+                    
+                    try {
+                        // check if we can find the correlating template line & col
+                        SourcePosition sourcePos = JavaSourceUtil.findSourcePosition(
+                                                            new StringReader(jfo.getCharContent(true).toString()),
+                                                            (int)diagnostic.getLineNumber(),
+                                                            (int)diagnostic.getColumnNumber());
 
-
-                    if (sourcePos != null) {
-                        templateLineNumber = sourcePos.getLineNumber();
-                        templateColumnNumber = sourcePos.getPosInLine();
+                        if (sourcePos != null) {
+                            templateLineNumber = sourcePos.getLineNumber();
+                            templateColumnNumber = sourcePos.getPosInLine();
+                        }
+                    } catch (IOException e) {
+                        // do nothing
                     }
-                } catch (IOException e) {
-                    // do nothing
                 }
                 
                 CompileDiagnostic cd = new CompileDiagnostic(
-                        unit.templateFile, javaFile,
+                        templateFile, javaFile,
                         templateLineNumber, templateColumnNumber,
                         diagnostic.getLineNumber(), diagnostic.getColumnNumber(),
                         diagnostic.getMessage(null));
@@ -256,4 +348,18 @@ public class TemplateCompiler {
         }
     }
     
+    static private CompilationUnit findUnit(Map<JavaFileObject,CompilationUnit> unitsBySource, JavaFileObject jfo) {
+        CompilationUnit unit = unitsBySource.get(jfo);
+        if (unit != null) {
+            return unit;
+        }
+        // javac may hand back a different instance for the same source
+        for (Map.Entry<JavaFileObject,CompilationUnit> entry : unitsBySource.entrySet()) {
+            if (entry.getKey().toUri().equals(jfo.toUri())) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+    
 }
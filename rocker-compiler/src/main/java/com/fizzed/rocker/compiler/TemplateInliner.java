@@ -0,0 +1,284 @@
+/*
+ * Copyright 2015 Fizzed Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.rocker.compiler;
+
+import com.fizzed.rocker.model.Argument;
+import com.fizzed.rocker.model.CacheBlockBegin;
+import com.fizzed.rocker.model.Comment;
+import com.fizzed.rocker.model.InlinedTemplateBegin;
+import com.fizzed.rocker.model.InlinedTemplateEnd;
+import com.fizzed.rocker.model.JavaImport;
+import com.fizzed.rocker.model.ParallelBlockBegin;
+import com.fizzed.rocker.model.ParallelBlockEnd;
+import com.fizzed.rocker.model.PlainText;
+import com.fizzed.rocker.model.TemplateModel;
+import com.fizzed.rocker.model.TemplateUnit;
+import com.fizzed.rocker.model.ValueExpression;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Replaces calls to other (small) templates of the same package with the units
+ * of the called template, so the generated code renders them directly rather
+ * than creating a new model and template for every call.  Only enabled for
+ * optimized templates with a positive <code>inlineMaxUnits</code> option since
+ * an inlined template can no longer be reloaded on its own.
+ */
+public class TemplateInliner {
+    static private final Logger log = LoggerFactory.getLogger(TemplateInliner.class);
+    
+    // qualified name -> model
+    private final Map<String,TemplateModel> models;
+    // model -> its units before any were inlined (only inline one level deep)
+    private final Map<TemplateModel,List<TemplateUnit>> originalUnits;
+    // model -> its imports before any were merged in from inlined templates
+    private final Map<TemplateModel,List<JavaImport>> originalImports;
+    
+    public TemplateInliner(List<TemplateModel> models) {
+        this.models = new HashMap<>();
+        this.originalUnits = new HashMap<>();
+        this.originalImports = new HashMap<>();
+        for (TemplateModel model : models) {
+            this.models.put(qualifiedName(model), model);
+            this.originalUnits.put(model, new ArrayList<>(model.getUnits()));
+            this.originalImports.put(model, new ArrayList<>(model.getImports()));
+        }
+    }
+    
+    static private String qualifiedName(TemplateModel model) {
+        if (model.getPackageName() == null || model.getPackageName().equals("")) {
+            return model.getName();
+        }
+        return model.getPackageName() + "." + model.getName();
+    }
+    
+    static public boolean isEnabled(RockerOptions options) {
+        return options.getOptimize() != null && options.getOptimize()
+            && options.getInlineMaxUnits() != null && options.getInlineMaxUnits() > 0;
+    }
+    
+    /**
+     * Gets the templates that were inlined into a model.
+     * 
+     * @param model The calling template (after inlining)
+     * @return The inlined templates in order of appearance (without duplicates)
+     */
+    static public List<TemplateModel> getInlinedTemplates(TemplateModel model) {
+        List<TemplateModel> inlined = new ArrayList<>();
+        for (TemplateUnit unit : model.getUnits()) {
+            if (unit instanceof InlinedTemplateBegin) {
+                TemplateModel callee = ((InlinedTemplateBegin)unit).getTemplate();
+                if (!inlined.contains(callee)) {
+                    inlined.add(callee);
+                }
+            }
+        }
+        return inlined;
+    }
+    
+    /**
+     * Inlines every eligible call to another template in the model.
+     * 
+     * @param model The calling template
+     * @return The number of calls inlined
+     */
+    public int inline(TemplateModel model) {
+        if (!isEnabled(model.getOptions())) {
+            return 0;
+        }
+        
+        List<TemplateUnit> units = new ArrayList<>();
+        int inlined = 0;
+        // calls within @parallel blocks are rendered concurrently instead
+        int parallelDepth = 0;
+        Set<String> variables = RockerUtil.declaredVariableNames(model);
+        
+        for (TemplateUnit unit : model.getUnits()) {
+            if (unit instanceof ParallelBlockBegin) {
+                parallelDepth++;
+            } else if (unit instanceof ParallelBlockEnd) {
+                parallelDepth--;
+            } else if (unit instanceof ValueExpression && parallelDepth == 0) {
+                ValueExpression value = (ValueExpression)unit;
+                List<String> call = RockerUtil.splitTemplateCall(value.getExpression());
+                TemplateModel callee = (call != null ? resolve(model, variables, call.get(0)) : null);
+                
+                if (callee != null && isInlineable(model, value, callee, call.size() - 1)) {
+                    units.add(new InlinedTemplateBegin(value.getSourceRef(), value.getExpression(),
+                        callee, call.subList(1, call.size())));
+                    units.addAll(this.originalUnits.get(callee));
+                    units.add(new InlinedTemplateEnd(value.getSourceRef()));
+                    mergeImports(model, callee);
+                    inlined++;
+                    continue;
+                }
+            }
+            units.add(unit);
+        }
+        
+        if (inlined > 0) {
+            log.debug("Inlined {} template calls into {}", inlined, qualifiedName(model));
+            model.getUnits().clear();
+            model.getUnits().addAll(units);
+        }
+        
+        return inlined;
+    }
+    
+    private TemplateModel resolve(TemplateModel model, Set<String> variables, String name) {
+        // e.g. a loop variable w/ a template() method
+        int dot = name.indexOf('.');
+        if (variables.contains(dot < 0 ? name : name.substring(0, dot))) {
+            return null;
+        }
+        if (name.contains(".")) {
+            return this.models.get(name);
+        }
+        // an import wins over a template of the same package
+        for (JavaImport i : this.originalImports.get(model)) {
+            if (name.equals(importedName(i))) {
+                return this.models.get(i.getStatement().trim());
+            }
+        }
+        if (model.getPackageName() == null || model.getPackageName().equals("")) {
+            return this.models.get(name);
+        }
+        return this.models.get(model.getPackageName() + "." + name);
+    }
+    
+    private boolean isInlineable(TemplateModel model, ValueExpression value, TemplateModel callee, int argumentCount) {
+        RockerOptions options = model.getOptions();
+        
+        if (callee == model
+                || value.isNullSafe()
+                || !callee.getPackageName().equals(model.getPackageName())
+                || callee.getContentType() != model.getContentType()
+                || callee.hasRockerBodyArgument()
+                || callee.getArguments().size() != argumentCount
+                || !callee.getOptions().getTargetCharset().equals(options.getTargetCharset())
+                || !callee.getOptions().getExtendsClass().equals(options.getExtendsClass())
+                || callee.getOptions().getPostProcessing().length > 0) {
+            return false;
+        }
+        
+        // memoizing renders it just once
+        if (options.getMemoizeConstantCalls() != null && options.getMemoizeConstantCalls()
+                && RockerUtil.isJava8Plus(model)
+                && RockerUtil.isConstantTemplateCall(value.getExpression())) {
+            return false;
+        }
+        
+        int size = 0;
+        for (TemplateUnit unit : this.originalUnits.get(callee)) {
+            if (unit instanceof CacheBlockBegin) {
+                // cache keys are built from the template name
+                return false;
+            }
+            if (!(unit instanceof Comment)) {
+                size++;
+            }
+        }
+        if (size > options.getInlineMaxUnits()) {
+            return false;
+        }
+        
+        // every import the callee needs is merged into the caller, so names
+        // must resolve to the same classes in both of them
+        for (JavaImport calleeImport : this.originalImports.get(callee)) {
+            if (containsImport(model.getImports(), calleeImport)) {
+                continue;
+            }
+            
+            // a new wildcard import may make a name of the caller ambiguous
+            // (e.g. List w/ both java.util.* and java.awt.*)
+            String simpleName = importedName(calleeImport);
+            if (simpleName == null) {
+                return false;
+            }
+            
+            for (JavaImport callerImport : model.getImports()) {
+                // a new single type import also shadows a class the caller
+                // gets from a wildcard import
+                if (importedName(callerImport) == null || simpleName.equals(importedName(callerImport))) {
+                    return false;
+                }
+            }
+        }
+        
+        // nor may an import of the caller shadow a name the callee uses
+        for (JavaImport callerImport : model.getImports()) {
+            if (!containsImport(this.originalImports.get(callee), callerImport)
+                    && mentions(callee, importedName(callerImport))) {
+                return false;
+            }
+        }
+        
+        return true;
+    }
+    
+    static private boolean containsImport(List<JavaImport> imports, JavaImport i) {
+        for (JavaImport other : imports) {
+            if (other.getStatement().trim().equals(i.getStatement().trim())) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    // whether the name appears in the java code of the template at all (it
+    // may not actually refer to a class, but that only prevents inlining)
+    private boolean mentions(TemplateModel model, String name) {
+        if (name == null) {
+            return false;
+        }
+        Pattern pattern = Pattern.compile("(?<![\\w$.])" + Pattern.quote(name) + "(?![\\w$])");
+        for (Argument argument : model.getArguments()) {
+            if (pattern.matcher(argument.getType()).find()) {
+                return true;
+            }
+        }
+        for (TemplateUnit unit : this.originalUnits.get(model)) {
+            if (!(unit instanceof PlainText) && !(unit instanceof Comment)
+                    && pattern.matcher(unit.getSourceRef().getText()).find()) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    static private String importedName(JavaImport i) {
+        String statement = i.getStatement().trim();
+        if (statement.endsWith("*")) {
+            return null;
+        }
+        return statement.substring(statement.lastIndexOf('.') + 1);
+    }
+    
+    private void mergeImports(TemplateModel model, TemplateModel callee) {
+        for (JavaImport calleeImport : this.originalImports.get(callee)) {
+            if (!containsImport(model.getImports(), calleeImport)) {
+                model.getImports().add(calleeImport);
+            }
+        }
+    }
+    
+}
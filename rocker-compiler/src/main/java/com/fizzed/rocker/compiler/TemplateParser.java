@@ -202,45 +202,38 @@ public class TemplateParser {
     }
     
     public void combineAdjacentPlain(TemplateModel model) throws ParserRuntimeException {
-        PlainText lastPlainText = null;
+        // single pass into a new list (removing from the list as we go is
+        // quadratic for templates w/ a huge number of units)
+        List<TemplateUnit> units = new ArrayList<>(model.getUnits().size());
+        List<PlainText> adjacentPlainTexts = new ArrayList<>();
         
-        for (int i = 0; i < model.getUnits().size(); ) {
-            TemplateUnit unit = model.getUnits().get(i);
-            
+        for (TemplateUnit unit : model.getUnits()) {
             if (unit instanceof PlainText) {
-   
-                PlainText plainText = (PlainText)unit;
-                
-                if (lastPlainText != null) {
-                    
-                    try {
-                        log.trace("Combining plainText @ {} with {}", lastPlainText.getSourceRef(), plainText.getSourceRef());
-                        
-                        // combine with last and create new "last"
-                        lastPlainText = lastPlainText.combineAdjacent(plainText);
-                    }
-                    catch (TokenException e) {
-                        throw new ParserRuntimeException(plainText.getSourceRef(), e.getMessage(), e);
-                    }
-                    
-                    // replace last unit with the combined version
-                    model.getUnits().set(i - 1, lastPlainText);
-                    
-                    // remove current node
-                    model.getUnits().remove(i);
-                    
-                    // move onto next w/o swapping in last value
-                    continue;
-                }
-                
-                lastPlainText = plainText;
+                adjacentPlainTexts.add((PlainText)unit);
             }
             else {
-                lastPlainText = null;
+                addCombinedPlainText(units, adjacentPlainTexts);
+                units.add(unit);
             }
-            
-            i++;
         }
+        
+        addCombinedPlainText(units, adjacentPlainTexts);
+        
+        model.getUnits().clear();
+        model.getUnits().addAll(units);
+    }
+    
+    private void addCombinedPlainText(List<TemplateUnit> units, List<PlainText> adjacentPlainTexts) {
+        if (adjacentPlainTexts.isEmpty()) {
+            return;
+        }
+        
+        if (adjacentPlainTexts.size() > 1) {
+            log.trace("Combining {} plainTexts @ {}", adjacentPlainTexts.size(), adjacentPlainTexts.get(0).getSourceRef());
+        }
+        
+        units.add(PlainText.combineAdjacent(adjacentPlainTexts));
+        adjacentPlainTexts.clear();
     }
     
     public void discardLogicWhitespace(TemplateModel model) {
@@ -327,16 +320,17 @@ public class TemplateParser {
         }
         
         // remove any empty plain text units (since many above may have been chopped down to nothing)
-        for (int i = 0; i < model.getUnits().size(); ) {
-            TemplateUnit unit = model.getUnits().get(i);
-            if (unit instanceof PlainText) {
-                PlainText plain = (PlainText)unit;
-                if (plain.getText().isEmpty()) {
-                    model.getUnits().remove(i);
-                    continue;
-                }
+        List<TemplateUnit> units = new ArrayList<>(model.getUnits().size());
+        for (TemplateUnit unit : model.getUnits()) {
+            if (unit instanceof PlainText && ((PlainText)unit).getText().isEmpty()) {
+                continue;
             }
-            i++;
+            units.add(unit);
+        }
+        
+        if (units.size() != model.getUnits().size()) {
+            model.getUnits().clear();
+            model.getUnits().addAll(units);
         }
     }
     
@@ -447,6 +441,144 @@ public class TemplateParser {
             return false;
         }
 
+        public boolean areWeCurrentlyInAParallelForLoop() {
+            int forDepth = 0;
+            int switchDepth = 0;
+            
+            // start from where we are and search backwards for whichever
+            // of the blocks a @break applies to is still open first
+            for (int i = this.model.getUnits().size() - 1; i >= 0; i--) {
+                TemplateUnit unit = this.model.getUnits().get(i);
+                if (unit instanceof ForBlockBegin) {
+                    if (forDepth == 0) {
+                        return ((ForBlockBegin)unit).isParallel();
+                    } else {
+                        forDepth--;
+                    }
+                } else if (unit instanceof ForBlockEnd) {
+                    forDepth++;
+                } else if (unit instanceof SwitchBlock) {
+                    if (switchDepth == 0) {
+                        return false;
+                    } else {
+                        switchDepth--;
+                    }
+                } else if (unit instanceof SwitchBlockEnd) {
+                    switchDepth++;
+                }
+            }
+            
+            return false;
+        }
+
+        public boolean areWeCurrentlyInACacheBlockWithinAForLoop() {
+            int forDepth = 0;
+            int cacheDepth = 0;
+            
+            // start from where we are and search backwards for whichever
+            // of the two blocks is still open first
+            for (int i = this.model.getUnits().size() - 1; i >= 0; i--) {
+                TemplateUnit unit = this.model.getUnits().get(i);
+                if (unit instanceof ForBlockBegin) {
+                    if (forDepth == 0) {
+                        return false;
+                    } else {
+                        forDepth--;
+                    }
+                } else if (unit instanceof ForBlockEnd) {
+                    forDepth++;
+                } else if (unit instanceof CacheBlockBegin) {
+                    if (cacheDepth == 0) {
+                        return areWeCurrentlyInAForLoop();
+                    } else {
+                        cacheDepth--;
+                    }
+                } else if (unit instanceof CacheBlockEnd) {
+                    cacheDepth++;
+                }
+            }
+            
+            return false;
+        }
+
+        public boolean areWeCurrentlyInACacheBlockWithinAForLoopOrSwitch() {
+            int forDepth = 0;
+            int switchDepth = 0;
+            int cacheDepth = 0;
+            
+            // start from where we are and search backwards for whichever
+            // of the blocks is still open first
+            for (int i = this.model.getUnits().size() - 1; i >= 0; i--) {
+                TemplateUnit unit = this.model.getUnits().get(i);
+                if (unit instanceof ForBlockBegin) {
+                    if (forDepth == 0) {
+                        return false;
+                    } else {
+                        forDepth--;
+                    }
+                } else if (unit instanceof ForBlockEnd) {
+                    forDepth++;
+                } else if (unit instanceof SwitchBlock) {
+                    if (switchDepth == 0) {
+                        return false;
+                    } else {
+                        switchDepth--;
+                    }
+                } else if (unit instanceof SwitchBlockEnd) {
+                    switchDepth++;
+                } else if (unit instanceof CacheBlockBegin) {
+                    if (cacheDepth == 0) {
+                        return areWeCurrentlyInAForLoop() || areWeCurrentlyInASwitchBlock();
+                    } else {
+                        cacheDepth--;
+                    }
+                } else if (unit instanceof CacheBlockEnd) {
+                    cacheDepth++;
+                }
+            }
+            
+            return false;
+        }
+
+        public boolean areWeCurrentlyInAnAsyncBlockWithinAForLoopOrSwitch() {
+            int forDepth = 0;
+            int switchDepth = 0;
+            int asyncDepth = 0;
+            
+            // start from where we are and search backwards for whichever
+            // of the blocks is still open first
+            for (int i = this.model.getUnits().size() - 1; i >= 0; i--) {
+                TemplateUnit unit = this.model.getUnits().get(i);
+                if (unit instanceof ForBlockBegin) {
+                    if (forDepth == 0) {
+                        return false;
+                    } else {
+                        forDepth--;
+                    }
+                } else if (unit instanceof ForBlockEnd) {
+                    forDepth++;
+                } else if (unit instanceof SwitchBlock) {
+                    if (switchDepth == 0) {
+                        return false;
+                    } else {
+                        switchDepth--;
+                    }
+                } else if (unit instanceof SwitchBlockEnd) {
+                    switchDepth++;
+                } else if (unit instanceof AsyncBlockBegin) {
+                    if (asyncDepth == 0) {
+                        return areWeCurrentlyInAForLoop() || areWeCurrentlyInASwitchBlock();
+                    } else {
+                        asyncDepth--;
+                    }
+                } else if (unit instanceof AsyncBlockEnd) {
+                    asyncDepth++;
+                }
+            }
+            
+            return false;
+        }
+
         public boolean areWeCurrentlyInASwitchBlock() {
             int depth = 0;
 
@@ -757,11 +889,26 @@ public class TemplateParser {
                 if (!areWeCurrentlyInAForLoop() && !areWeCurrentlyInASwitchBlock()) {
                     throw new ParserRuntimeException(sourceRef, "@break used outside @for loop OR @switch block", null);
                 }
+                if (areWeCurrentlyInACacheBlockWithinAForLoopOrSwitch()) {
+                    throw new ParserRuntimeException(sourceRef, "@break used within @cache block of a @for loop OR @switch block", null);
+                }
+                if (areWeCurrentlyInAnAsyncBlockWithinAForLoopOrSwitch()) {
+                    throw new ParserRuntimeException(sourceRef, "@break used within @async block of a @for loop OR @switch block", null);
+                }
+                if (areWeCurrentlyInAParallelForLoop()) {
+                    throw new ParserRuntimeException(sourceRef, "@break used within @parallel for loop", null);
+                }
                 model.getUnits().add(new BreakStatement(sourceRef));
             } else if (expr.equals("continue")) {
                 if (!areWeCurrentlyInAForLoop()) {
                     throw new ParserRuntimeException(sourceRef, "@continue used outside @for loop", null);
                 }
+                if (areWeCurrentlyInACacheBlockWithinAForLoop()) {
+                    throw new ParserRuntimeException(sourceRef, "@continue used within @cache block of a @for loop", null);
+                }
+                if (areWeCurrentlyInAnAsyncBlockWithinAForLoopOrSwitch()) {
+                    throw new ParserRuntimeException(sourceRef, "@continue used within @async block of a @for loop", null);
+                }
                 model.getUnits().add(new ContinueStatement(sourceRef));
             } else {
                 // null safety?
@@ -809,8 +956,14 @@ public class TemplateParser {
         public void enterForBlock(RockerParser.ForBlockContext ctx) {
             SourceRef sourceRef = createSourceRef(ctx);
             
-            // "for(..){" or "for (...) {"
-            String expr = ctx.MV_FOR().getText();
+            // "for(..){" or "for (...) {" or "parallel for (...) {"
+            boolean parallel = (ctx.MV_PARALLEL_FOR() != null);
+            String expr = (parallel ? ctx.MV_PARALLEL_FOR().getText() : ctx.MV_FOR().getText());
+            
+            if (parallel) {
+                // chop off leading 'parallel' and whitespace up to 'for'
+                expr = expr.substring(8).trim();
+            }
             
             // chop off leading 'for' and trailing '{' and then leading/trailing whitespace
             expr = expr.substring(3, expr.length() - 1).trim();
@@ -823,7 +976,17 @@ public class TemplateParser {
                     throw new TokenException("Untyped variables cannot be used with Java " + model.getOptions().getJavaVersion().getLabel() + " (only allowed with Java 1.8+)");
                 }
                 
-                model.getUnits().add(new ForBlockBegin(sourceRef, expr, statement));
+                if (parallel) {
+                    // body is rendered by a lambda
+                    if (!isJava8Plus(model)) {
+                        throw new TokenException("@parallel for loops are only allowed with Java 1.8+");
+                    }
+                    if (statement.getForm() != ForStatement.Form.ENHANCED) {
+                        throw new TokenException("@parallel for loops must iterate a collection or map (format @parallel for (item : items) {)");
+                    }
+                }
+                
+                model.getUnits().add(new ForBlockBegin(sourceRef, expr, statement, parallel));
             } catch (TokenException e) {
                 throw TemplateParser.buildParserException(sourceRef, templatePath, e.getMessage(), e);
             }
@@ -890,6 +1053,132 @@ public class TemplateParser {
             withStatements.pop();
         }
         
+        @Override
+        public void enterCacheBlock(RockerParser.CacheBlockContext ctx) {
+            SourceRef sourceRef = createSourceRef(ctx);
+            
+            // "cache(key){" or "cache (key, ttlMillis) {"
+            String expr = ctx.MV_CACHE().getText();
+            
+            // chop off leading 'cache' and trailing '{' and then leading/trailing whitespace
+            expr = expr.substring(5, expr.length() - 1).trim();
+            
+            // chop off parentheses (leaving the arguments)
+            expr = expr.substring(1, expr.length() - 1).trim();
+            
+            if (expr.isEmpty()) {
+                throw TemplateParser.buildParserException(sourceRef, templatePath, "Invalid @cache block (missing key; format @cache (key) { or @cache (key, ttlMillis) {)");
+            }
+            
+            model.getUnits().add(new CacheBlockBegin(sourceRef, expr));
+        }
+
+        @Override
+        public void exitCacheBlock(RockerParser.CacheBlockContext ctx) {
+            SourceRef sourceRef = createSourceRef(ctx);
+            
+            model.getUnits().add(new CacheBlockEnd(sourceRef));
+        }
+        
+        @Override
+        public void enterAsyncBlock(RockerParser.AsyncBlockContext ctx) {
+            SourceRef sourceRef = createSourceRef(ctx);
+            
+            // "async (User user = userFuture) {"
+            String expr = ctx.MV_ASYNC().getText();
+            
+            // chop off leading 'async' and trailing '{' and then leading/trailing whitespace
+            expr = expr.substring(5, expr.length() - 1).trim();
+            
+            try {
+                // rendered later by a lambda
+                if (!isJava8Plus(model)) {
+                    throw new TokenException("@async blocks are only allowed with Java 1.8+");
+                }
+                
+                WithStatement statement = WithStatement.parse(expr, templatePath);
+                
+                if (statement.getVariables().size() != 1 || statement.isNullSafe()) {
+                    throw new TokenException("Invalid @async block (format @async (User user = userFuture) {)");
+                }
+                
+                WithStatement.VariableWithExpression variable = statement.getVariables().get(0);
+                
+                model.getUnits().add(new AsyncBlockBegin(sourceRef, expr, variable.getVariable(), variable.getValueExpression()));
+            } catch (TokenException e) {
+                throw TemplateParser.buildParserException(sourceRef, templatePath, e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public void exitAsyncBlock(RockerParser.AsyncBlockContext ctx) {
+            SourceRef sourceRef = createSourceRef(ctx);
+            
+            model.getUnits().add(new AsyncBlockEnd(sourceRef));
+        }
+        
+        @Override
+        public void enterParallelBlock(RockerParser.ParallelBlockContext ctx) {
+            SourceRef sourceRef = createSourceRef(ctx);
+            
+            try {
+                // segments are rendered by lambdas (like @async blocks)
+                if (!isJava8Plus(model)) {
+                    throw new TokenException("@parallel blocks are only allowed with Java 1.8+");
+                }
+                
+                model.getUnits().add(new ParallelBlockBegin(sourceRef, "parallel"));
+            } catch (TokenException e) {
+                throw TemplateParser.buildParserException(sourceRef, templatePath, e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public void exitParallelBlock(RockerParser.ParallelBlockContext ctx) {
+            SourceRef sourceRef = createSourceRef(ctx);
+            
+            model.getUnits().add(new ParallelBlockEnd(sourceRef));
+        }
+        
+        @Override
+        public void enterFragmentBlock(RockerParser.FragmentBlockContext ctx) {
+            SourceRef sourceRef = createSourceRef(ctx);
+            
+            // "fragment items {"
+            String expr = ctx.MV_FRAGMENT().getText();
+            
+            // chop off trailing '{' and then leading/trailing whitespace
+            expr = expr.substring(0, expr.length() - 1).trim();
+            
+            // chop off leading 'fragment' for the name
+            String name = expr.substring(8).trim();
+            
+            try {
+                // rendered on its own w/ only the arguments of the template in
+                // scope (templateContent -> block -> fragmentBlock)
+                if (!(ctx.getParent().getParent().getParent() instanceof RockerParser.TemplateContext)) {
+                    throw new TokenException("@fragment blocks are only allowed at the top level of a template");
+                }
+                
+                for (TemplateUnit unit : model.getUnits()) {
+                    if (unit instanceof FragmentBlockBegin && ((FragmentBlockBegin)unit).getName().equals(name)) {
+                        throw new TokenException("@fragment " + name + " already declared");
+                    }
+                }
+                
+                model.getUnits().add(new FragmentBlockBegin(sourceRef, expr, name));
+            } catch (TokenException e) {
+                throw TemplateParser.buildParserException(sourceRef, templatePath, e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public void exitFragmentBlock(RockerParser.FragmentBlockContext ctx) {
+            SourceRef sourceRef = createSourceRef(ctx);
+            
+            model.getUnits().add(new FragmentBlockEnd(sourceRef));
+        }
+        
         @Override
         public void enterIfBlock(RockerParser.IfBlockContext ctx) {
             SourceRef sourceRef = createSourceRef(ctx);
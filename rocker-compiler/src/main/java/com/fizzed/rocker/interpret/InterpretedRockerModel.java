@@ -0,0 +1,65 @@
+/*
+ * Copyright 2015 Fizzed Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.rocker.interpret;
+
+import com.fizzed.rocker.runtime.DefaultRockerModel;
+import com.fizzed.rocker.runtime.DefaultRockerTemplate;
+import com.fizzed.rocker.runtime.DynamicRockerModel;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Model of an interpreted template. Arguments are bound by name since there
+ * is no generated class with setters for them.
+ */
+public class InterpretedRockerModel extends DefaultRockerModel implements DynamicRockerModel {
+    
+    private final InterpretedTemplate template;
+    private final Map<String,Object> arguments;
+
+    public InterpretedRockerModel(InterpretedTemplate template) {
+        this.template = template;
+        this.arguments = new LinkedHashMap<>();
+    }
+
+    public InterpretedTemplate getTemplate() {
+        return template;
+    }
+
+    @Override
+    public String[] getArgumentNames() {
+        return template.getArgumentNames();
+    }
+    
+    @Override
+    public void bind(String name, Object value) throws IllegalArgumentException {
+        if (!template.hasArgument(name)) {
+            throw new IllegalArgumentException("Property '" + name + "' not found");
+        }
+        this.arguments.put(name, value);
+    }
+
+    public Map<String,Object> getArguments() {
+        return Collections.unmodifiableMap(arguments);
+    }
+
+    @Override
+    protected DefaultRockerTemplate buildTemplate() {
+        return new InterpretedRockerTemplate(this);
+    }
+    
+}
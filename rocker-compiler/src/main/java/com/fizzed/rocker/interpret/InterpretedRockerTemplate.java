@@ -0,0 +1,206 @@
+/*
+ * Copyright 2015 Fizzed Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.rocker.interpret;
+
+import com.fizzed.rocker.BindableRockerModel;
+import com.fizzed.rocker.ForIterator;
+import com.fizzed.rocker.RenderingException;
+import com.fizzed.rocker.RockerContent;
+import com.fizzed.rocker.interpret.InterpretedTemplate.BreakNode;
+import com.fizzed.rocker.interpret.InterpretedTemplate.ContinueNode;
+import com.fizzed.rocker.interpret.InterpretedTemplate.ForNode;
+import com.fizzed.rocker.interpret.InterpretedTemplate.IfNode;
+import com.fizzed.rocker.interpret.InterpretedTemplate.Node;
+import com.fizzed.rocker.interpret.InterpretedTemplate.TextNode;
+import com.fizzed.rocker.interpret.InterpretedTemplate.ValueNode;
+import com.fizzed.rocker.runtime.BreakException;
+import com.fizzed.rocker.runtime.ContinueException;
+import com.fizzed.rocker.runtime.DefaultRockerModel;
+import com.fizzed.rocker.runtime.DefaultRockerTemplate;
+import com.fizzed.rocker.runtime.IterableForIterator;
+import com.fizzed.rocker.runtime.Raw;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.stream.BaseStream;
+
+/**
+ * Renders an interpreted template by walking its nodes.
+ */
+public class InterpretedRockerTemplate extends DefaultRockerTemplate {
+    
+    private final InterpretedTemplate template;
+    private final Map<String,Object> arguments;
+    
+    public InterpretedRockerTemplate(InterpretedRockerModel model) {
+        super(model);
+        this.template = model.getTemplate();
+        this.arguments = model.getArguments();
+        __internal.setCharset(template.getCharset());
+        __internal.setContentType(template.getContentType());
+        __internal.setTemplateName(template.getModel().getTemplateName());
+        __internal.setTemplatePackageName(template.getModel().getPackageName());
+    }
+
+    @Override
+    protected void __doRender() throws IOException, RenderingException {
+        // unbound arguments are null (as with a compiled template)
+        Map<String,Object> variables = new HashMap<>();
+        for (String name : template.getArgumentNames()) {
+            variables.put(name, null);
+        }
+        variables.putAll(this.arguments);
+        
+        render(template.getNodes(), variables);
+    }
+    
+    private void render(List<Node> nodes, Map<String,Object> variables) throws IOException, RenderingException {
+        for (Node node : nodes) {
+            __internal.aboutToExecutePosInTemplate(node.lineNumber, node.posInLine);
+            
+            if (node instanceof TextNode) {
+                __internal.writeValue(((TextNode)node).text);
+            }
+            else if (node instanceof ValueNode) {
+                ValueNode value = (ValueNode)node;
+                renderValue(evaluate(value.expression, variables), value.nullSafe);
+            }
+            else if (node instanceof IfNode) {
+                IfNode block = (IfNode)node;
+                for (int i = 0; i < block.conditions.size(); i++) {
+                    JavaExpression condition = block.conditions.get(i);
+                    if (condition == null || JavaExpression.isTrue(condition, evaluate(condition, variables))) {
+                        render(block.bodies.get(i), variables);
+                        break;
+                    }
+                }
+            }
+            else if (node instanceof ForNode) {
+                renderFor((ForNode)node, variables);
+            }
+            else if (node instanceof BreakNode) {
+                __internal.throwBreakException();
+            }
+            else if (node instanceof ContinueNode) {
+                __internal.throwContinueException();
+            }
+        }
+    }
+    
+    private Object evaluate(JavaExpression expression, Map<String,Object> variables) throws RenderingException {
+        try {
+            return expression.evaluate(variables);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RenderingException(e.getMessage(), e);
+        }
+    }
+    
+    private void renderValue(Object value, boolean nullSafe) throws IOException, RenderingException {
+        if (value instanceof Raw) {
+            __internal.renderValue((Raw)value, nullSafe);
+        } else if (value instanceof DefaultRockerModel) {
+            __internal.renderValue((DefaultRockerModel)value, nullSafe);
+        } else if (value instanceof BindableRockerModel) {
+            __internal.renderValue((BindableRockerModel)value, nullSafe);
+        } else if (value instanceof RockerContent) {
+            __internal.renderValue((RockerContent)value, nullSafe);
+        } else {
+            __internal.renderValue(value, nullSafe);
+        }
+    }
+    
+    @SuppressWarnings("unchecked")
+    private void renderFor(ForNode block, Map<String,Object> variables) throws IOException, RenderingException {
+        Object value = evaluate(block.expression, variables);
+        
+        if (value == null) {
+            throw new NullPointerException("Value of for loop " + block.expression + " was null");
+        }
+        
+        boolean mapEntries = (value instanceof Map)
+            && (block.variables.size() == 3 || (block.variables.size() == 2 && !block.forIterator));
+        
+        IterableForIterator<Object> iterator;
+        if (value instanceof Map) {
+            iterator = new IterableForIterator<>(((Map<Object,Object>)value).entrySet());
+        } else if (value instanceof Iterable) {
+            iterator = new IterableForIterator<>((Iterable<Object>)value);
+        } else if (value instanceof BaseStream) {
+            iterator = new IterableForIterator<>((BaseStream<Object,?>)value);
+        } else if (value instanceof Spliterator) {
+            iterator = new IterableForIterator<>((Spliterator<Object>)value);
+        } else if (value.getClass().isArray()) {
+            int length = Array.getLength(value);
+            List<Object> list = new ArrayList<>(length);
+            for (int i = 0; i < length; i++) {
+                list.add(Array.get(value, i));
+            }
+            iterator = new IterableForIterator<>(list);
+        } else {
+            throw new IllegalArgumentException("Value of for loop " + block.expression + " is not iterable (was " + value.getClass().getName() + ")");
+        }
+        
+        // loop variables may shadow arguments (or variables of outer loops)
+        // which are visible again after the loop
+        Map<String,Object> shadowed = new HashMap<>();
+        for (String name : block.variables) {
+            if (variables.containsKey(name)) {
+                shadowed.put(name, variables.get(name));
+            }
+        }
+        
+        try {
+            while (iterator.hasNext()) {
+                __internal.checkLimits();
+                
+                Object item = iterator.next();
+                
+                int v = 0;
+                if (block.variables.size() == 3 || (block.variables.size() == 2 && !mapEntries)) {
+                    variables.put(block.variables.get(v++), (ForIterator)iterator);
+                }
+                if (mapEntries) {
+                    Map.Entry<Object,Object> entry = (Map.Entry<Object,Object>)item;
+                    variables.put(block.variables.get(v++), entry.getKey());
+                    variables.put(block.variables.get(v), entry.getValue());
+                } else {
+                    variables.put(block.variables.get(v), item);
+                }
+                
+                try {
+                    render(block.body, variables);
+                } catch (ContinueException e) {
+                    // next item
+                }
+            }
+        } catch (BreakException e) {
+            // done
+        } finally {
+            iterator.close();
+            for (String name : block.variables) {
+                variables.remove(name);
+            }
+            variables.putAll(shadowed);
+        }
+    }
+    
+}
@@ -0,0 +1,347 @@
+/*
+ * Copyright 2015 Fizzed Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.rocker.interpret;
+
+import com.fizzed.rocker.ContentType;
+import com.fizzed.rocker.compiler.TemplateParser;
+import com.fizzed.rocker.model.Argument;
+import com.fizzed.rocker.model.BreakStatement;
+import com.fizzed.rocker.model.Comment;
+import com.fizzed.rocker.model.ContinueStatement;
+import com.fizzed.rocker.model.ForBlockBegin;
+import com.fizzed.rocker.model.ForBlockEnd;
+import com.fizzed.rocker.model.ForStatement;
+import com.fizzed.rocker.model.IfBlockBegin;
+import com.fizzed.rocker.model.IfBlockElse;
+import com.fizzed.rocker.model.IfBlockElseIf;
+import com.fizzed.rocker.model.IfBlockEnd;
+import com.fizzed.rocker.model.JavaVariable;
+import com.fizzed.rocker.model.PlainText;
+import com.fizzed.rocker.model.SourceRef;
+import com.fizzed.rocker.model.TemplateModel;
+import com.fizzed.rocker.model.TemplateUnit;
+import com.fizzed.rocker.model.ValueExpression;
+import com.fizzed.rocker.runtime.ParserException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A template that is rendered by walking its (parsed) model rather than by a
+ * generated &amp; compiled class.  Only plain text, value expressions, if/else
+ * if/else blocks, enhanced for blocks and break/continue are supported (with
+ * expressions limited to what <code>JavaExpression</code> supports).
+ * 
+ * Immutable once built and safe to share between threads.
+ */
+public class InterpretedTemplate {
+    
+    static abstract class Node {
+        
+        final int lineNumber;
+        final int posInLine;
+
+        Node(TemplateUnit unit) {
+            this.lineNumber = unit.getSourceRef().getBegin().getLineNumber();
+            this.posInLine = unit.getSourceRef().getBegin().getPosInLine();
+        }
+        
+    }
+    
+    static class TextNode extends Node {
+        
+        final String text;
+
+        TextNode(PlainText unit) {
+            super(unit);
+            this.text = unit.getText();
+        }
+        
+    }
+    
+    static class ValueNode extends Node {
+        
+        final JavaExpression expression;
+        final boolean nullSafe;
+
+        ValueNode(ValueExpression unit, JavaExpression expression) {
+            super(unit);
+            this.expression = expression;
+            this.nullSafe = unit.isNullSafe();
+        }
+        
+    }
+    
+    static class IfNode extends Node {
+        
+        // condition of each branch (null for else) and its body
+        final List<JavaExpression> conditions;
+        final List<List<Node>> bodies;
+
+        IfNode(IfBlockBegin unit) {
+            super(unit);
+            this.conditions = new ArrayList<>();
+            this.bodies = new ArrayList<>();
+        }
+        
+    }
+    
+    static class ForNode extends Node {
+        
+        final List<String> variables;
+        final boolean forIterator;      // first variable definitely a ForIterator
+        final JavaExpression expression;
+        final List<Node> body;
+
+        ForNode(ForBlockBegin unit, List<String> variables, boolean forIterator, JavaExpression expression, List<Node> body) {
+            super(unit);
+            this.variables = variables;
+            this.forIterator = forIterator;
+            this.expression = expression;
+            this.body = body;
+        }
+        
+    }
+    
+    static class BreakNode extends Node {
+        
+        BreakNode(TemplateUnit unit) {
+            super(unit);
+        }
+        
+    }
+    
+    static class ContinueNode extends Node {
+        
+        ContinueNode(TemplateUnit unit) {
+            super(unit);
+        }
+        
+    }
+    
+    private final TemplateModel model;
+    private final String templatePath;
+    private final String[] argumentNames;
+    private final List<Node> nodes;
+    // used while building
+    private int index;
+    
+    private InterpretedTemplate(TemplateModel model) {
+        this.model = model;
+        this.templatePath = model.getPackageName().replace('.', '/') + "/" + model.getTemplateName();
+        
+        List<Argument> arguments = model.getArguments();
+        this.argumentNames = new String[arguments.size()];
+        for (int i = 0; i < arguments.size(); i++) {
+            if (arguments.get(i).isRockerBodyType()) {
+                throw unsupported(arguments.get(i).getSourceRef(), "RockerBody arguments");
+            }
+            this.argumentNames[i] = arguments.get(i).getName();
+        }
+        
+        this.index = 0;
+        this.nodes = Collections.unmodifiableList(buildNodes());
+        
+        if (this.index < model.getUnits().size()) {
+            throw unsupported(model.getUnits().get(this.index).getSourceRef(), "Unexpected end of block");
+        }
+    }
+    
+    /**
+     * Builds a template that can be interpreted from its parsed model.
+     * 
+     * @param model The parsed template model
+     * @return The interpreted template
+     * @throws ParserException If the template uses something the interpreter
+     *      does not support
+     */
+    static public InterpretedTemplate build(TemplateModel model) throws ParserException {
+        return new InterpretedTemplate(model);
+    }
+    
+    public TemplateModel getModel() {
+        return model;
+    }
+    
+    public String getTemplatePath() {
+        return templatePath;
+    }
+
+    public long getModifiedAt() {
+        return model.getModifiedAt();
+    }
+
+    public ContentType getContentType() {
+        return model.getContentType();
+    }
+    
+    public String getCharset() {
+        return model.getOptions().getTargetCharset();
+    }
+    
+    public String[] getArgumentNames() {
+        return argumentNames.clone();
+    }
+    
+    boolean hasArgument(String name) {
+        for (String argumentName : argumentNames) {
+            if (argumentName.equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    List<Node> getNodes() {
+        return nodes;
+    }
+    
+    /**
+     * Creates a new (single use) model to bind arguments to and render.
+     * 
+     * @return A new model
+     */
+    public InterpretedRockerModel model() {
+        return new InterpretedRockerModel(this);
+    }
+    
+    private ParserException unsupported(SourceRef sourceRef, String what) {
+        return TemplateParser.buildParserException(sourceRef, templatePath, what + " not supported when interpreting templates");
+    }
+    
+    private JavaExpression expression(TemplateUnit unit, String expression) {
+        try {
+            return JavaExpression.parse(expression);
+        } catch (IllegalArgumentException e) {
+            throw TemplateParser.buildParserException(unit.getSourceRef(), templatePath, e.getMessage() + " when interpreting templates", e);
+        }
+    }
+    
+    // builds nodes until the end of the units or the end of the current block
+    private List<Node> buildNodes() {
+        List<TemplateUnit> units = model.getUnits();
+        List<Node> list = new ArrayList<>();
+        
+        while (index < units.size()) {
+            TemplateUnit unit = units.get(index);
+            
+            if (unit instanceof IfBlockElseIf || unit instanceof IfBlockElse
+                    || unit instanceof IfBlockEnd || unit instanceof ForBlockEnd) {
+                // end of current block (handled by caller)
+                return list;
+            }
+            
+            index++;
+            
+            if (unit instanceof Comment) {
+                // nothing to render
+            }
+            else if (unit instanceof PlainText) {
+                list.add(new TextNode((PlainText)unit));
+            }
+            else if (unit instanceof ValueExpression) {
+                ValueExpression value = (ValueExpression)unit;
+                list.add(new ValueNode(value, expression(unit, value.getExpression())));
+            }
+            else if (unit instanceof IfBlockBegin) {
+                list.add(buildIf((IfBlockBegin)unit));
+            }
+            else if (unit instanceof ForBlockBegin) {
+                list.add(buildFor((ForBlockBegin)unit));
+            }
+            else if (unit instanceof BreakStatement) {
+                list.add(new BreakNode(unit));
+            }
+            else if (unit instanceof ContinueStatement) {
+                list.add(new ContinueNode(unit));
+            }
+            else {
+                throw unsupported(unit.getSourceRef(), unit.getClass().getSimpleName());
+            }
+        }
+        
+        return list;
+    }
+    
+    private IfNode buildIf(IfBlockBegin begin) {
+        List<TemplateUnit> units = model.getUnits();
+        IfNode node = new IfNode(begin);
+        
+        node.conditions.add(expression(begin, begin.getExpression()));
+        node.bodies.add(buildNodes());
+        
+        while (index < units.size()) {
+            TemplateUnit unit = units.get(index++);
+            
+            if (unit instanceof IfBlockElseIf) {
+                IfBlockElseIf elseIf = (IfBlockElseIf)unit;
+                node.conditions.add(expression(unit, elseIf.getExpression()));
+                node.bodies.add(buildNodes());
+            }
+            else if (unit instanceof IfBlockElse) {
+                node.conditions.add(null);
+                node.bodies.add(buildNodes());
+            }
+            else if (unit instanceof IfBlockEnd) {
+                return node;
+            }
+            else {
+                throw unsupported(unit.getSourceRef(), "Unexpected end of if block");
+            }
+        }
+        
+        throw unsupported(begin.getSourceRef(), "Unterminated if block");
+    }
+    
+    private ForNode buildFor(ForBlockBegin begin) {
+        ForStatement statement = begin.getStatement();
+        
+        if (statement.getForm() != ForStatement.Form.ENHANCED) {
+            throw unsupported(begin.getSourceRef(), "General for loops");
+        }
+        
+        List<String> variables = new ArrayList<>();
+        for (JavaVariable variable : statement.getArguments()) {
+            variables.add(variable.getName());
+        }
+        
+        // e.g. (i, item) : items or (i, key, value) : map -- with two untyped
+        // arguments whether its (i, item) or (key, value) depends on the value
+        boolean forIterator = false;
+        if (variables.size() == 3) {
+            forIterator = true;
+        } else if (variables.size() == 2) {
+            JavaVariable first = statement.getArguments().get(0);
+            forIterator = first.hasType() && (first.getType().equals("ForIterator")
+                || first.getType().equals(com.fizzed.rocker.ForIterator.class.getName()));
+        } else if (variables.size() != 1) {
+            throw unsupported(begin.getSourceRef(), "For loops with " + variables.size() + " arguments");
+        }
+        
+        JavaExpression expression = expression(begin, statement.getValueExpression());
+        
+        List<Node> body = buildNodes();
+        
+        if (index >= model.getUnits().size() || !(model.getUnits().get(index) instanceof ForBlockEnd)) {
+            throw unsupported(begin.getSourceRef(), "Unterminated for block");
+        }
+        
+        index++;
+        
+        return new ForNode(begin, Collections.unmodifiableList(variables), forIterator, expression, Collections.unmodifiableList(body));
+    }
+    
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2015 Fizzed Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.rocker.interpret;
+
+import com.fizzed.rocker.RockerModel;
+import com.fizzed.rocker.TemplateBindException;
+import com.fizzed.rocker.TemplateNotFoundException;
+import com.fizzed.rocker.compiler.RockerConfiguration;
+import com.fizzed.rocker.compiler.TemplateParser;
+import com.fizzed.rocker.runtime.DefaultRockerBootstrap;
+import com.fizzed.rocker.runtime.ParserException;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bootstrap that interprets templates found in the template directory rather
+ * than loading their compiled classes.  A template is (re)parsed whenever its
+ * file changes, so changes show up on the next render without javac.
+ * Templates that aren't found in the template directory fall back to their
+ * compiled classes.
+ */
+public class InterpretingRockerBootstrap extends DefaultRockerBootstrap {
+    static private final Logger log = LoggerFactory.getLogger(InterpretingRockerBootstrap.class);
+    
+    private final RockerConfiguration configuration;
+    private final ConcurrentHashMap<String,InterpretedTemplate> templates;
+
+    public InterpretingRockerBootstrap() {
+        this(new RockerConfiguration());
+    }
+    
+    public InterpretingRockerBootstrap(RockerConfiguration configuration) {
+        this.configuration = configuration;
+        this.templates = new ConcurrentHashMap<>();
+    }
+
+    public RockerConfiguration getConfiguration() {
+        return configuration;
+    }
+    
+    @Override
+    public RockerModel model(String templatePath) throws TemplateNotFoundException, TemplateBindException {
+        File templateFile = new File(this.configuration.getTemplateDirectory(), templatePath);
+        
+        if (!templateFile.exists()) {
+            log.debug("{}: does not exist (will use compiled template)", templateFile);
+            return super.model(templatePath);
+        }
+        
+        return template(templatePath, templateFile).model();
+    }
+    
+    /**
+     * Gets the interpreted template, parsing it again if its file changed.
+     * 
+     * @param templatePath The path to the template such as "views/app/index.rocker.html"
+     * @param templateFile The file of the template
+     * @return The interpreted template
+     * @throws ParserException If the template cannot be parsed or interpreted
+     */
+    private InterpretedTemplate template(String templatePath, File templateFile) throws ParserException {
+        long modifiedAt = templateFile.lastModified();
+        
+        InterpretedTemplate template = this.templates.get(templatePath);
+        
+        if (template == null || template.getModifiedAt() != modifiedAt) {
+            if (template != null) {
+                log.info("Rocker template change detected [{}]", templateFile);
+            }
+            
+            try {
+                TemplateParser parser = new TemplateParser(this.configuration);
+                template = InterpretedTemplate.build(parser.parse(templateFile));
+            } catch (IOException e) {
+                throw new TemplateNotFoundException("Unable to read template " + templatePath, e);
+            }
+            
+            this.templates.put(templatePath, template);
+        }
+        
+        return template;
+    }
+    
+}
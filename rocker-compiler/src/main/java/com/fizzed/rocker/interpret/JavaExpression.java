@@ -0,0 +1,692 @@
+/*
+ * Copyright 2015 Fizzed Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.rocker.interpret;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A (small) subset of Java expressions that can be evaluated without javac.
+ * Supports literals (strings, chars, numbers, true, false &amp; null),
+ * variables, field access, method calls on values (e.g. user.getName() or
+ * items.size()), bean style properties (e.g. user.name for user.getName()),
+ * parentheses, !, &amp;&amp;, ||, ==, !=, &lt;, &lt;=, &gt; and &gt;=.
+ * 
+ * Expressions are parsed once and methods are looked up once per class.
+ */
+abstract public class JavaExpression {
+    
+    // class -> method name + '/' + argument count -> methods (by class rather
+    // than class name so reloaded classes neither clash nor are kept alive)
+    static private final ClassValue<ConcurrentHashMap<String,List<Method>>> METHODS = new ClassValue<ConcurrentHashMap<String,List<Method>>>() {
+        @Override
+        protected ConcurrentHashMap<String,List<Method>> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+    
+    static private final Map<Class<?>,Class<?>> WRAPPERS;
+    static {
+        Map<Class<?>,Class<?>> wrappers = new HashMap<>();
+        wrappers.put(boolean.class, Boolean.class);
+        wrappers.put(byte.class, Byte.class);
+        wrappers.put(char.class, Character.class);
+        wrappers.put(short.class, Short.class);
+        wrappers.put(int.class, Integer.class);
+        wrappers.put(long.class, Long.class);
+        wrappers.put(float.class, Float.class);
+        wrappers.put(double.class, Double.class);
+        WRAPPERS = Collections.unmodifiableMap(wrappers);
+    }
+    
+    private final String source;
+
+    protected JavaExpression(String source) {
+        this.source = source;
+    }
+
+    public String getSource() {
+        return source;
+    }
+    
+    /**
+     * Evaluates the expression.
+     * 
+     * @param variables The variables in scope (e.g. arguments of the template)
+     * @return The value
+     * @throws Exception If evaluating the expression failed
+     */
+    abstract public Object evaluate(Map<String,Object> variables) throws Exception;
+
+    @Override
+    public String toString() {
+        return source;
+    }
+    
+    /**
+     * Parses an expression.
+     * 
+     * @param expression The expression (e.g. "user.getName()")
+     * @return The parsed expression
+     * @throws IllegalArgumentException If the expression is not supported
+     */
+    static public JavaExpression parse(String expression) throws IllegalArgumentException {
+        Parser parser = new Parser(expression);
+        JavaExpression expr = parser.parseOr();
+        parser.skipWhitespace();
+        if (parser.pos < expression.length()) {
+            throw parser.unsupported();
+        }
+        return expr;
+    }
+    
+    //
+    // evaluation
+    //
+    
+    static public boolean isTrue(JavaExpression expr, Object value) {
+        if (!(value instanceof Boolean)) {
+            throw new IllegalArgumentException("Expression " + expr + " did not evaluate to a boolean (was " + value + ")");
+        }
+        return (Boolean)value;
+    }
+    
+    static private Object invoke(Object target, String name, Object[] args) throws Exception {
+        if (target == null) {
+            throw new NullPointerException("Unable to invoke " + name + "() on a null value");
+        }
+        
+        Class<?> type = target.getClass();
+        
+        for (Method method : methods(type, name, args.length)) {
+            if (isApplicable(method.getParameterTypes(), args)) {
+                try {
+                    return method.invoke(target, args);
+                } catch (InvocationTargetException e) {
+                    if (e.getCause() instanceof Exception) {
+                        throw (Exception)e.getCause();
+                    }
+                    throw e;
+                }
+            }
+        }
+        
+        throw new NoSuchMethodException("No method " + name + " with " + args.length + " argument(s) applicable on " + type.getName());
+    }
+    
+    static private List<Method> methods(Class<?> type, String name, int argumentCount) {
+        ConcurrentHashMap<String,List<Method>> methodsOfType = METHODS.get(type);
+        String key = name + "/" + argumentCount;
+        
+        List<Method> methods = methodsOfType.get(key);
+        
+        if (methods == null) {
+            methods = new ArrayList<>();
+            for (Method method : type.getMethods()) {
+                if (method.getName().equals(name) && method.getParameterTypes().length == argumentCount
+                        && !Modifier.isStatic(method.getModifiers())) {
+                    Method accessible = accessible(type, method);
+                    if (accessible != null) {
+                        methods.add(accessible);
+                    }
+                }
+            }
+            methods = Collections.unmodifiableList(methods);
+            methodsOfType.put(key, methods);
+        }
+        
+        return methods;
+    }
+    
+    // a public method declared by a class that isn't public (e.g. an anonymous
+    // or jdk internal class) can only be invoked thru a public supertype
+    static private Method accessible(Class<?> type, Method method) {
+        if (type == null) {
+            return null;
+        }
+        
+        if (Modifier.isPublic(type.getModifiers())) {
+            try {
+                return type.getMethod(method.getName(), method.getParameterTypes());
+            } catch (NoSuchMethodException e) {
+                // fall thru
+            }
+        }
+        
+        for (Class<?> iface : type.getInterfaces()) {
+            Method m = accessible(iface, method);
+            if (m != null) {
+                return m;
+            }
+        }
+        
+        return accessible(type.getSuperclass(), method);
+    }
+    
+    static private boolean isApplicable(Class<?>[] parameterTypes, Object[] args) {
+        for (int i = 0; i < parameterTypes.length; i++) {
+            Class<?> parameterType = parameterTypes[i];
+            if (args[i] == null) {
+                if (parameterType.isPrimitive()) {
+                    return false;
+                }
+            } else {
+                if (parameterType.isPrimitive()) {
+                    parameterType = WRAPPERS.get(parameterType);
+                }
+                if (!parameterType.isInstance(args[i])) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+    
+    static private Object property(Object target, String name) throws Exception {
+        if (target == null) {
+            throw new NullPointerException("Unable to read " + name + " of a null value");
+        }
+        
+        Class<?> type = target.getClass();
+        
+        if (type.isArray() && name.equals("length")) {
+            return Array.getLength(target);
+        }
+        
+        if (Modifier.isPublic(type.getModifiers())) {
+            try {
+                Field field = type.getField(name);
+                if (!Modifier.isStatic(field.getModifiers())) {
+                    return field.get(target);
+                }
+            } catch (NoSuchFieldException e) {
+                // fall thru
+            }
+        }
+        
+        String capitalized = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        
+        if (!methods(type, "get" + capitalized, 0).isEmpty()) {
+            return invoke(target, "get" + capitalized, new Object[0]);
+        }
+        
+        if (!methods(type, "is" + capitalized, 0).isEmpty()) {
+            return invoke(target, "is" + capitalized, new Object[0]);
+        }
+        
+        throw new NoSuchFieldException("No field or property " + name + " on " + type.getName());
+    }
+    
+    static private boolean isNumeric(Object value) {
+        return value instanceof Number || value instanceof Character;
+    }
+    
+    static private Number toNumber(Object value) {
+        if (value instanceof Character) {
+            return (int)(Character)value;
+        }
+        return (Number)value;
+    }
+    
+    static private boolean isFloating(Number n) {
+        return n instanceof Double || n instanceof Float;
+    }
+    
+    static private int compare(JavaExpression expr, Object a, Object b) {
+        if (!isNumeric(a) || !isNumeric(b)) {
+            throw new IllegalArgumentException("Expression " + expr + " compares non-numeric values");
+        }
+        Number x = toNumber(a);
+        Number y = toNumber(b);
+        if (isFloating(x) || isFloating(y)) {
+            return Double.compare(x.doubleValue(), y.doubleValue());
+        }
+        return Long.compare(x.longValue(), y.longValue());
+    }
+    
+    static private boolean equal(Object a, Object b) {
+        if (isNumeric(a) && isNumeric(b)) {
+            Number x = toNumber(a);
+            Number y = toNumber(b);
+            if (isFloating(x) || isFloating(y)) {
+                return x.doubleValue() == y.doubleValue();
+            }
+            return x.longValue() == y.longValue();
+        }
+        if (a instanceof Boolean && b instanceof Boolean) {
+            return a.equals(b);
+        }
+        // reference equality (as in java)
+        return a == b;
+    }
+    
+    //
+    // expressions
+    //
+    
+    static private class Literal extends JavaExpression {
+        
+        private final Object value;
+
+        public Literal(String source, Object value) {
+            super(source);
+            this.value = value;
+        }
+
+        @Override
+        public Object evaluate(Map<String,Object> variables) {
+            return value;
+        }
+        
+    }
+    
+    static private class Variable extends JavaExpression {
+        
+        private final String name;
+
+        public Variable(String name) {
+            super(name);
+            this.name = name;
+        }
+
+        @Override
+        public Object evaluate(Map<String,Object> variables) {
+            Object value = variables.get(name);
+            if (value == null && !variables.containsKey(name)) {
+                throw new IllegalArgumentException("Variable " + name + " not found");
+            }
+            return value;
+        }
+        
+    }
+    
+    static private class Property extends JavaExpression {
+        
+        private final JavaExpression target;
+        private final String name;
+
+        public Property(String source, JavaExpression target, String name) {
+            super(source);
+            this.target = target;
+            this.name = name;
+        }
+
+        @Override
+        public Object evaluate(Map<String,Object> variables) throws Exception {
+            return property(target.evaluate(variables), name);
+        }
+        
+    }
+    
+    static private class MethodCall extends JavaExpression {
+        
+        private final JavaExpression target;
+        private final String name;
+        private final List<JavaExpression> arguments;
+
+        public MethodCall(String source, JavaExpression target, String name, List<JavaExpression> arguments) {
+            super(source);
+            this.target = target;
+            this.name = name;
+            this.arguments = arguments;
+        }
+
+        @Override
+        public Object evaluate(Map<String,Object> variables) throws Exception {
+            Object value = target.evaluate(variables);
+            Object[] args = new Object[arguments.size()];
+            for (int i = 0; i < args.length; i++) {
+                args[i] = arguments.get(i).evaluate(variables);
+            }
+            return invoke(value, name, args);
+        }
+        
+    }
+    
+    static private class Not extends JavaExpression {
+        
+        private final JavaExpression operand;
+
+        public Not(String source, JavaExpression operand) {
+            super(source);
+            this.operand = operand;
+        }
+
+        @Override
+        public Object evaluate(Map<String,Object> variables) throws Exception {
+            return !isTrue(operand, operand.evaluate(variables));
+        }
+        
+    }
+    
+    static private class Binary extends JavaExpression {
+        
+        private final String operator;
+        private final JavaExpression left;
+        private final JavaExpression right;
+
+        public Binary(String source, String operator, JavaExpression left, JavaExpression right) {
+            super(source);
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public Object evaluate(Map<String,Object> variables) throws Exception {
+            Object a = left.evaluate(variables);
+            
+            // short circuit
+            switch (operator) {
+                case "&&":
+                    return isTrue(left, a) && isTrue(right, right.evaluate(variables));
+                case "||":
+                    return isTrue(left, a) || isTrue(right, right.evaluate(variables));
+            }
+            
+            Object b = right.evaluate(variables);
+            
+            switch (operator) {
+                case "==":
+                    return equal(a, b);
+                case "!=":
+                    return !equal(a, b);
+                case "<":
+                    return compare(this, a, b) < 0;
+                case "<=":
+                    return compare(this, a, b) <= 0;
+                case ">":
+                    return compare(this, a, b) > 0;
+                case ">=":
+                    return compare(this, a, b) >= 0;
+                default:
+                    throw new IllegalStateException("Unsupported operator " + operator);
+            }
+        }
+        
+    }
+    
+    //
+    // parsing (recursive descent)
+    //
+    
+    static private class Parser {
+        
+        private final String s;
+        private int pos;
+
+        public Parser(String s) {
+            this.s = s;
+            this.pos = 0;
+        }
+        
+        private IllegalArgumentException unsupported() {
+            return new IllegalArgumentException("Unsupported expression '" + s + "' (at position " + pos + ")");
+        }
+        
+        private void skipWhitespace() {
+            while (pos < s.length() && Character.isWhitespace(s.charAt(pos))) {
+                pos++;
+            }
+        }
+        
+        private boolean accept(String token) {
+            skipWhitespace();
+            if (s.startsWith(token, pos)) {
+                pos += token.length();
+                return true;
+            }
+            return false;
+        }
+        
+        private void expect(String token) {
+            if (!accept(token)) {
+                throw unsupported();
+            }
+        }
+        
+        private JavaExpression parseOr() {
+            int start = pos;
+            JavaExpression left = parseAnd();
+            while (accept("||")) {
+                JavaExpression right = parseAnd();
+                left = new Binary(s.substring(start, pos).trim(), "||", left, right);
+            }
+            return left;
+        }
+        
+        private JavaExpression parseAnd() {
+            int start = pos;
+            JavaExpression left = parseComparison();
+            while (accept("&&")) {
+                JavaExpression right = parseComparison();
+                left = new Binary(s.substring(start, pos).trim(), "&&", left, right);
+            }
+            return left;
+        }
+        
+        private JavaExpression parseComparison() {
+            int start = pos;
+            JavaExpression left = parseUnary();
+            while (true) {
+                String operator;
+                if (accept("==")) {
+                    operator = "==";
+                } else if (accept("!=")) {
+                    operator = "!=";
+                } else if (accept("<=")) {
+                    operator = "<=";
+                } else if (accept(">=")) {
+                    operator = ">=";
+                } else if (accept("<")) {
+                    operator = "<";
+                } else if (accept(">")) {
+                    operator = ">";
+                } else {
+                    return left;
+                }
+                JavaExpression right = parseUnary();
+                left = new Binary(s.substring(start, pos).trim(), operator, left, right);
+            }
+        }
+        
+        private JavaExpression parseUnary() {
+            int start = pos;
+            if (accept("!")) {
+                JavaExpression operand = parseUnary();
+                return new Not(s.substring(start, pos).trim(), operand);
+            }
+            return parsePostfix();
+        }
+        
+        private JavaExpression parsePostfix() {
+            skipWhitespace();
+            int start = pos;
+            JavaExpression expr = parsePrimary();
+            while (accept(".")) {
+                String name = parseIdentifier();
+                if (accept("(")) {
+                    List<JavaExpression> arguments = new ArrayList<>();
+                    if (!accept(")")) {
+                        do {
+                            arguments.add(parseOr());
+                        } while (accept(","));
+                        expect(")");
+                    }
+                    expr = new MethodCall(s.substring(start, pos).trim(), expr, name, arguments);
+                } else {
+                    expr = new Property(s.substring(start, pos).trim(), expr, name);
+                }
+            }
+            return expr;
+        }
+        
+        private JavaExpression parsePrimary() {
+            skipWhitespace();
+            
+            if (pos >= s.length()) {
+                throw unsupported();
+            }
+            
+            int start = pos;
+            char c = s.charAt(pos);
+            
+            if (c == '(') {
+                pos++;
+                JavaExpression expr = parseOr();
+                expect(")");
+                return expr;
+            }
+            
+            if (c == '"') {
+                pos++;
+                String value = parseQuoted('"');
+                return new Literal(s.substring(start, pos), value);
+            }
+            
+            if (c == '\'') {
+                pos++;
+                String value = parseQuoted('\'');
+                if (value.length() != 1) {
+                    throw unsupported();
+                }
+                return new Literal(s.substring(start, pos), value.charAt(0));
+            }
+            
+            if (Character.isDigit(c) || (c == '-' && pos + 1 < s.length() && Character.isDigit(s.charAt(pos + 1)))) {
+                return parseNumber();
+            }
+            
+            String identifier = parseIdentifier();
+            
+            switch (identifier) {
+                case "true":
+                    return new Literal(identifier, Boolean.TRUE);
+                case "false":
+                    return new Literal(identifier, Boolean.FALSE);
+                case "null":
+                    return new Literal(identifier, null);
+            }
+            
+            // only methods of values are supported (e.g. not static methods or new)
+            skipWhitespace();
+            if (pos < s.length() && s.charAt(pos) == '(') {
+                throw unsupported();
+            }
+            
+            return new Variable(identifier);
+        }
+        
+        private String parseIdentifier() {
+            skipWhitespace();
+            int start = pos;
+            if (pos < s.length() && Character.isJavaIdentifierStart(s.charAt(pos))) {
+                pos++;
+                while (pos < s.length() && Character.isJavaIdentifierPart(s.charAt(pos))) {
+                    pos++;
+                }
+            }
+            if (start == pos) {
+                throw unsupported();
+            }
+            return s.substring(start, pos);
+        }
+        
+        private String parseQuoted(char quote) {
+            StringBuilder sb = new StringBuilder();
+            while (pos < s.length()) {
+                char c = s.charAt(pos++);
+                if (c == quote) {
+                    return sb.toString();
+                }
+                if (c == '\\') {
+                    if (pos >= s.length()) {
+                        break;
+                    }
+                    char e = s.charAt(pos++);
+                    switch (e) {
+                        case 'n': sb.append('\n'); break;
+                        case 'r': sb.append('\r'); break;
+                        case 't': sb.append('\t'); break;
+                        case 'b': sb.append('\b'); break;
+                        case 'f': sb.append('\f'); break;
+                        case '0': sb.append('\0'); break;
+                        case 'u':
+                            if (pos + 4 > s.length()) {
+                                throw unsupported();
+                            }
+                            try {
+                                sb.append((char)Integer.parseInt(s.substring(pos, pos + 4), 16));
+                            } catch (NumberFormatException ex) {
+                                throw unsupported();
+                            }
+                            pos += 4;
+                            break;
+                        default: sb.append(e); break;
+                    }
+                } else {
+                    sb.append(c);
+                }
+            }
+            throw unsupported();
+        }
+        
+        private JavaExpression parseNumber() {
+            int start = pos;
+            if (s.charAt(pos) == '-') {
+                pos++;
+            }
+            boolean floating = false;
+            while (pos < s.length() && (Character.isDigit(s.charAt(pos)) || s.charAt(pos) == '.' || s.charAt(pos) == '_')) {
+                if (s.charAt(pos) == '.') {
+                    floating = true;
+                }
+                pos++;
+            }
+            String number = s.substring(start, pos).replace("_", "");
+            char suffix = (pos < s.length() ? Character.toUpperCase(s.charAt(pos)) : ' ');
+            try {
+                if (suffix == 'L') {
+                    pos++;
+                    return new Literal(s.substring(start, pos), Long.parseLong(number));
+                } else if (suffix == 'F') {
+                    pos++;
+                    return new Literal(s.substring(start, pos), Float.parseFloat(number));
+                } else if (suffix == 'D' || floating) {
+                    if (suffix == 'D') {
+                        pos++;
+                    }
+                    return new Literal(s.substring(start, pos), Double.parseDouble(number));
+                } else {
+                    return new Literal(number, Integer.parseInt(number));
+                }
+            } catch (NumberFormatException e) {
+                throw unsupported();
+            }
+        }
+        
+    }
+    
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2015 Fizzed Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.rocker.model;
+
+/**
+ * Beginning of a <code>@async (User user = userFuture) {</code> block. The
+ * value expression must be a <code>CompletionStage</code> of the variable's
+ * type and the block is rendered with its result once complete.
+ */
+public class AsyncBlockBegin extends BlockBegin {
+    
+    private final JavaVariable variable;
+    private final String valueExpression;
+    
+    public AsyncBlockBegin(SourceRef sourceRef, String expression, JavaVariable variable, String valueExpression) {
+        super(sourceRef, expression);
+        this.variable = variable;
+        this.valueExpression = valueExpression;
+    }
+
+    public JavaVariable getVariable() {
+        return variable;
+    }
+
+    public String getValueExpression() {
+        return valueExpression;
+    }
+    
+}
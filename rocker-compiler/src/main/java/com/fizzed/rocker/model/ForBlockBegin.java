@@ -22,14 +22,30 @@ package com.fizzed.rocker.model;
 public class ForBlockBegin extends BlockBegin {
 
     private final ForStatement statement;
+    private final boolean parallel;
     
     public ForBlockBegin(SourceRef sourceRef, String expression, ForStatement statement) {
+        this(sourceRef, expression, statement, false);
+    }
+    
+    public ForBlockBegin(SourceRef sourceRef, String expression, ForStatement statement, boolean parallel) {
         super(sourceRef, expression);
         this.statement = statement;
+        this.parallel = parallel;
     }
 
     public ForStatement getStatement() {
         return statement;
     }
+
+    /**
+     * Whether the loop was declared as <code>@parallel for (...) {</code> and
+     * ranges of its items are rendered concurrently.
+     * 
+     * @return True if a parallel loop
+     */
+    public boolean isParallel() {
+        return parallel;
+    }
     
 }
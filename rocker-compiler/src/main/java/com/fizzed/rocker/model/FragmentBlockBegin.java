@@ -0,0 +1,36 @@
+/*
+ * Copyright 2015 Fizzed Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.rocker.model;
+
+/**
+ * Beginning of a <code>@fragment name {</code> block. Rendered in place as
+ * part of the whole template or on its own (e.g. a partial update of a page)
+ * by its own method in the generated template.
+ */
+public class FragmentBlockBegin extends BlockBegin {
+    
+    private final String name;
+    
+    public FragmentBlockBegin(SourceRef sourceRef, String expression, String name) {
+        super(sourceRef, expression);
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+    
+}
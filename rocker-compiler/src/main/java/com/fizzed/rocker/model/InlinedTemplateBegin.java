@@ -0,0 +1,45 @@
+/*
+ * Copyright 2015 Fizzed Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.rocker.model;
+
+import java.util.List;
+
+/**
+ * Beginning of a call to another template (e.g. <code>@views.item.template(x)</code>)
+ * whose units were inlined by the compiler.  The units of the inlined template
+ * follow until the matching {@link InlinedTemplateEnd}.  The expression is the
+ * original call.
+ */
+public class InlinedTemplateBegin extends BlockBegin {
+    
+    private final TemplateModel template;
+    private final List<String> argumentExpressions;
+    
+    public InlinedTemplateBegin(SourceRef sourceRef, String expression, TemplateModel template, List<String> argumentExpressions) {
+        super(sourceRef, expression);
+        this.template = template;
+        this.argumentExpressions = argumentExpressions;
+    }
+
+    public TemplateModel getTemplate() {
+        return template;
+    }
+
+    public List<String> getArgumentExpressions() {
+        return argumentExpressions;
+    }
+    
+}
@@ -17,6 +17,7 @@ package com.fizzed.rocker.model;
 
 import com.fizzed.rocker.compiler.RockerUtil;
 import com.fizzed.rocker.compiler.TokenException;
+import java.util.List;
 
 /**
  *
@@ -43,6 +44,34 @@ public class PlainText extends TemplateUnit {
             this.text + other.text);
     }
     
+    /**
+     * Combines a run of adjacent plain texts in a single pass (rather than
+     * combining them pair by pair and copying the text every time).
+     * 
+     * @param plainTexts The adjacent plain texts in order
+     * @return The combined plain text
+     */
+    static public PlainText combineAdjacent(List<PlainText> plainTexts) {
+        if (plainTexts.size() == 1) {
+            return plainTexts.get(0);
+        }
+        
+        int charLength = 0;
+        StringBuilder sourceText = new StringBuilder();
+        StringBuilder text = new StringBuilder();
+        
+        for (PlainText plainText : plainTexts) {
+            charLength += plainText.getSourceRef().getCharLength();
+            sourceText.append(plainText.getSourceRef().getText());
+            text.append(plainText.text);
+        }
+        
+        SourceRef combinedSourceRef = new SourceRef(
+            plainTexts.get(0).getSourceRef().getBegin(), charLength, sourceText.toString());
+        
+        return new PlainText(combinedSourceRef, text.toString());
+    }
+    
     public boolean isWhitespace() {
         return RockerUtil.isWhitespace(text);
     }
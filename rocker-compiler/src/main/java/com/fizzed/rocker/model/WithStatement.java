@@ -28,8 +28,6 @@ import java.util.List;
 
 public class WithStatement implements NullSafety {
 
-    private static final WithBlockParserListener WITH_BLOCK_PARSER_LISTENER = new WithBlockParserListener();
-
     private final List<VariableWithExpression> variables;
     private final boolean nullSafe;
     
@@ -138,9 +136,10 @@ public class WithStatement implements NullSafety {
             parser.addErrorListener(new DescriptiveErrorListener());
             final WithBlockParser.StartContext start = parser.start();
 
-            WITH_BLOCK_PARSER_LISTENER.clear();
-            ParseTreeWalker.DEFAULT.walk(WITH_BLOCK_PARSER_LISTENER, start);
-            return WITH_BLOCK_PARSER_LISTENER.getArguments();
+            // not shared so templates can be parsed concurrently
+            final WithBlockParserListener listener = new WithBlockParserListener();
+            ParseTreeWalker.DEFAULT.walk(listener, start);
+            return listener.getArguments();
         }
         catch (ParserRuntimeException e) {
             throw TemplateParser.unwrapParserRuntimeException(templatePath, e);
@@ -20,6 +20,8 @@ import com.fizzed.rocker.model.PostProcessorException;
 import com.fizzed.rocker.model.TemplateModel;
 import com.fizzed.rocker.model.TemplateModelPostProcessor;
 import com.fizzed.rocker.model.TemplateUnit;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * This post-processor reduces the amount of whitespace in static strings.
@@ -28,57 +30,119 @@ import com.fizzed.rocker.model.TemplateUnit;
  */
 public class WhitespaceRemovalProcessor implements TemplateModelPostProcessor {
 
-    /**
-     * For whitespace removals: matching one or more new-lines after horizontal spaces (e.g. space, tab),
-     * i.e. at the end of a line. Will be replaced by a single \n.  
-     */
-    private static final String LINE_END = "[ \t]+[\n\r]+";
-    
-    /**
-     * For whitespace removals: matching more than one horizontal whitespace in a single line.
-     * Will be replaced by a single space. 
-     */
-    private static final String IN_LINE = "[ \t]{2,}";
-
-    /**
-     * For whitespace removals: matching one or more horizontal space (e.g. space, tab) after 
-     * one or more new-lines (i.e. at the beginning of a line).
-     * Will be replaced by a single new line.
-     */
-    private static final String LINE_START = "[\n\r]+[ \t]+";
- 
     /**
      * @see com.fizzed.rocker.model.TemplateModelPostProcessor#process(com.fizzed.rocker.model.TemplateModel, int)
      */
     @Override
     public TemplateModel process(TemplateModel templateModel, int ppIndex) throws PostProcessorException {
-        for (int i = 0; i < templateModel.getUnits().size(); i ++) {
-            TemplateUnit tu = templateModel.getUnits().get(i);
+        // single pass into a new list (inserting into & removing from the list
+        // as we go is quadratic for templates w/ a huge number of units)
+        List<TemplateUnit> units = new ArrayList<>(templateModel.getUnits().size());
+        for (TemplateUnit tu : templateModel.getUnits()) {
             if (tu instanceof PlainText) {
                 PlainText pt = (PlainText)tu;
                 
                 // create a replacement PlainText unit with reduced whitespace
-                PlainText replacementPt = new PlainText(pt.getSourceRef(), reduceWhitespace(pt.getText()));
-                
-                // replace the unit
-                templateModel.getUnits().add(i, replacementPt);
-                templateModel.getUnits().remove(i+1);
+                units.add(new PlainText(pt.getSourceRef(), reduceWhitespace(pt.getText())));
+            } else {
+                units.add(tu);
             }
         }
+        templateModel.getUnits().clear();
+        templateModel.getUnits().addAll(units);
         return templateModel;
     }
 
     /**
-     * Replace a given string with a whitespace-reduced variant of itself.
+     * Replace a given string with a whitespace-reduced variant of itself. In a
+     * single scan of the string:
+     * <ul>
+     *  <li>horizontal spaces (e.g. space, tab) at the end of a line are
+     *      removed along w/ any further new-lines (i.e. a single \n remains)</li>
+     *  <li>horizontal spaces at the beginning of a line are removed along w/
+     *      the new-lines before them (i.e. a single \n remains)</li>
+     *  <li>more than one horizontal space within a line is reduced to a single
+     *      space</li>
+     * </ul>
      * 
      * @param text original string with whitespaces.
      * @return the string with multiple occurences of whitespaces reduced to single occurences.
      */
-    private String reduceWhitespace(String text) {
+    static String reduceWhitespace(String text) {
         if ( text == null ) {
             return null;
         }
-        return text.replaceAll(LINE_END, "\n").replaceAll(LINE_START, "\n").replaceAll(IN_LINE, " ");
+        
+        int length = text.length();
+        StringBuilder sb = new StringBuilder(length);
+        
+        int i = 0;
+        while (i < length) {
+            char c = text.charAt(i);
+            
+            if (!isSpace(c) && !isNewLine(c)) {
+                sb.append(c);
+                i++;
+                continue;
+            }
+            
+            // a run of whitespace: new-lines that do not follow spaces are kept
+            int start = i;
+            while (i < length && isNewLine(text.charAt(i))) {
+                i++;
+            }
+            int leadingNewLinesEnd = i;
+            
+            // then alternating runs of spaces & new-lines
+            int spaceRuns = 0;
+            boolean endsWithSpaces = false;
+            while (i < length) {
+                if (isSpace(text.charAt(i))) {
+                    while (i < length && isSpace(text.charAt(i))) {
+                        i++;
+                    }
+                    spaceRuns++;
+                    endsWithSpaces = true;
+                } else if (isNewLine(text.charAt(i))) {
+                    while (i < length && isNewLine(text.charAt(i))) {
+                        i++;
+                    }
+                    endsWithSpaces = false;
+                } else {
+                    break;
+                }
+            }
+            
+            // spaces at the end of a line (each leaves a single new-line)
+            int lineEnds = spaceRuns - (endsWithSpaces ? 1 : 0);
+            
+            if (leadingNewLinesEnd == start && lineEnds == 0) {
+                // spaces within a line
+                if (i - start > 1) {
+                    sb.append(' ');
+                } else {
+                    sb.append(c);
+                }
+            } else if (endsWithSpaces) {
+                // spaces at the beginning of a line
+                sb.append('\n');
+            } else {
+                sb.append(text, start, leadingNewLinesEnd);
+                for (int j = 0; j < lineEnds; j++) {
+                    sb.append('\n');
+                }
+            }
+        }
+        
+        return sb.toString();
+    }
+    
+    static private boolean isSpace(char c) {
+        return c == ' ' || c == '\t';
+    }
+    
+    static private boolean isNewLine(char c) {
+        return c == '\n' || c == '\r';
     }
 
 }
@@ -22,20 +22,34 @@ import com.fizzed.rocker.TemplateNotFoundException;
 import com.fizzed.rocker.runtime.CompileDiagnosticException;
 import com.fizzed.rocker.runtime.CompileUnrecoverableException;
 import com.fizzed.rocker.compiler.GeneratorException;
+import com.fizzed.rocker.compiler.JavacSession;
 import com.fizzed.rocker.runtime.ParserException;
 import com.fizzed.rocker.compiler.RockerConfiguration;
 import com.fizzed.rocker.compiler.TemplateCompiler;
 import com.fizzed.rocker.runtime.DefaultRockerBootstrap;
 import com.fizzed.rocker.runtime.DefaultRockerModel;
 import com.fizzed.rocker.runtime.DefaultRockerTemplate;
+import com.fizzed.rocker.runtime.FragmentCache;
+import com.fizzed.rocker.runtime.RockerRuntime;
 import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.locks.ReentrantLock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -48,27 +62,121 @@ public class ReloadingRockerBootstrap extends DefaultRockerBootstrap {
     static private final Logger log = LoggerFactory.getLogger(ReloadingRockerBootstrap.class);
     
     static public class LoadedTemplate {
+        public String className;                    // class name of model
         public File file;                           // resolved path to template file
         public long modifiedAt;                     // modified date of version loaded
         public String headerHash;                   // hash of header (interface)
+        public boolean dynamicInterface;            // loaded by path (interface may change)
     }
     
     private final RockerConfiguration configuration;
     private final ConcurrentHashMap<String,String> models;
     private final ConcurrentHashMap<String,LoadedTemplate> templates;
-    private RockerClassLoader classLoader;
+    private volatile Map<String,byte[]> compiledClasses;    // compiled in memory (replaced on change)
+    private final JavacSession javacSession;
+    private final TemplateDependencies dependencies;
+    private final ReentrantLock compileLock;                // one (batch) recompile at a time
+    private volatile RockerClassLoader classLoader;
+    private TemplateWatcher watcher;
+    private ExecutorService backgroundExecutor;
     
     public ReloadingRockerBootstrap() {
         this.configuration = new RockerConfiguration();
         this.models = new ConcurrentHashMap<>();
         this.templates = new ConcurrentHashMap<>();
+        this.compiledClasses = Collections.emptyMap();
+        this.javacSession = new JavacSession();
+        this.dependencies = new TemplateDependencies(this.configuration);
+        // not a monitor so virtual threads waiting on a recompile do not pin
+        this.compileLock = new ReentrantLock();
         this.classLoader = buildClassLoader();
+        
+        if (this.configuration.isReloadInBackground()) {
+            startBackgroundReloading();
+        }
+        
+        // load javac (and open the classpath) & find which templates call
+        // which before the first template change
+        Thread warmUp = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                javacSession.warmUp();
+                dependencies.refresh();
+            }
+        }, "rocker-javac-warmup");
+        warmUp.setDaemon(true);
+        warmUp.start();
     }
 
     public RockerConfiguration getConfiguration() {
         return configuration;
     }
     
+    public boolean isReloadingInBackground() {
+        return this.watcher != null;
+    }
+    
+    private void startBackgroundReloading() {
+        final ThreadFactory threadFactory = new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "rocker-template-compiler");
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+        
+        try {
+            this.watcher = new TemplateWatcher(this.configuration.getTemplateDirectory(),
+                TemplateWatcher.DEFAULT_DEBOUNCE_MILLIS, new TemplateWatcher.Listener() {
+                    @Override
+                    public void changed(Set<File> files) {
+                        templatesChanged(files);
+                    }
+                });
+        } catch (IOException e) {
+            log.warn("Unable to watch {} (will check templates on every render instead)", this.configuration.getTemplateDirectory(), e);
+            return;
+        }
+        
+        this.backgroundExecutor = Executors.newSingleThreadExecutor(threadFactory);
+        this.watcher.start();
+    }
+    
+    /**
+     * Stops watching for template changes (if reloading in the background).
+     */
+    public void close() {
+        if (this.watcher != null) {
+            this.watcher.close();
+            this.backgroundExecutor.shutdownNow();
+        }
+    }
+    
+    private void templatesChanged(Set<File> files) {
+        final List<LoadedTemplate> changed = new ArrayList<>();
+        for (LoadedTemplate template : this.templates.values()) {
+            if (files == null || files.contains(template.file.getAbsoluteFile())) {
+                changed.add(template);
+            }
+        }
+        
+        if (changed.isEmpty()) {
+            return;
+        }
+        
+        this.backgroundExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    compileIfNeeded(changed, null, false);
+                } catch (Exception e) {
+                    log.warn("Rocker templates {} failed to recompile (previous versions still rendered): {}", changed.size(), e.getMessage());
+                }
+            }
+        });
+    }
+    
     private RockerClassLoader buildClassLoader() {
         return new RockerClassLoader(this, ReloadingRockerBootstrap.class.getClassLoader());
     }
@@ -93,6 +201,27 @@ public class ReloadingRockerBootstrap extends DefaultRockerBootstrap {
         return this.templates.containsKey(modelClassName);
     }
     
+    /**
+     * Gets the bytes of a class recompiled in memory.
+     * 
+     * @param className The binary class name (e.g. views.index$Template)
+     * @return The bytes or null if the class was never recompiled in memory
+     */
+    public byte[] getCompiledClass(String className) {
+        return this.compiledClasses.get(className);
+    }
+    
+    /**
+     * Gets all classes recompiled in memory.  The map is immutable -- a
+     * recompile replaces it (along with the classloader) so a classloader
+     * always sees a consistent set of classes.
+     * 
+     * @return A map of binary class name to its bytes
+     */
+    public Map<String,byte[]> getCompiledClasses() {
+        return this.compiledClasses;
+    }
+    
     public File getTemplateFile(String templatePackageName, String templateName) {
         File templateFileDirectory = new File(this.configuration.getTemplateDirectory(), templatePackageName.replace('.', '/'));
         return new File(templateFileDirectory, templateName);
@@ -154,12 +283,18 @@ public class ReloadingRockerBootstrap extends DefaultRockerBootstrap {
             }
             
             template = new LoadedTemplate();
+            template.className = modelType.getName();
             template.file = templateFile;
             template.modifiedAt = modifiedAt;
             template.headerHash = headerHash;
             
             templates.put(modelType.getName(), template);
             
+        } else if (isReloadingInBackground()) {
+            
+            // recompiled by the watcher (render whatever is current)
+            return buildTemplate(modelType, model, this.classLoader);
+            
         } else {
             
             if (!template.file.exists()) {
@@ -193,8 +328,10 @@ public class ReloadingRockerBootstrap extends DefaultRockerBootstrap {
             
             // load initial model so we can grab the metadata
             template = new LoadedTemplate();
+            template.className = modelClassName;
             template.file = templateFile;
             template.modifiedAt = -1;           // maybe its not even compiled yet
+            template.dynamicInterface = true;
             templates.put(modelClassName, template);
             
             // also add to models so that classloader knows to load it
@@ -209,6 +346,11 @@ public class ReloadingRockerBootstrap extends DefaultRockerBootstrap {
                 // ignore exceptions here...
             }
             
+        } else if (isReloadingInBackground()) {
+            
+            // recompiled by the watcher (render whatever is current)
+            return buildModel(templatePath, this.classLoader);
+            
         } else {
             
             if (!template.file.exists()) {
@@ -229,29 +371,84 @@ public class ReloadingRockerBootstrap extends DefaultRockerBootstrap {
     }
     
     public boolean compileIfNeeded(LoadedTemplate template, boolean verifyHeaderHash) {
-        // recompile needed?
-        long modifiedAt = template.file.lastModified();
-
-        if (modifiedAt != template.modifiedAt) {
-
+        if (template.file.lastModified() == template.modifiedAt) {
+            return false;
+        }
+        
+        // only along w/ its callers -- any other modified template may be
+        // half-edited and is reloaded once it is rendered itself
+        return compileIfNeeded(Collections.singletonList(template), template, verifyHeaderHash);
+    }
+    
+    /**
+     * Recompiles every modified template together with the templates calling
+     * them in a single javac invocation and then swaps in a single new
+     * classloader.
+     * 
+     * @param candidates The templates to check for modifications
+     * @param requested The template being rendered (or null)
+     * @param verifyHeaderHash If the interface of the requested template must
+     *      not have changed (any other template is verified unless its interface
+     *      is dynamic)
+     * @return True if the requested template (or if null any template) was
+     *      recompiled
+     */
+    private boolean compileIfNeeded(Collection<LoadedTemplate> candidates, LoadedTemplate requested, boolean verifyHeaderHash) {
+        this.compileLock.lock();
+        try {
+            List<LoadedTemplate> changed = new ArrayList<>();
+            for (LoadedTemplate template : candidates) {
+                // still modified? (may have been recompiled by another thread)
+                if (template.file.exists() && template.file.lastModified() != template.modifiedAt) {
+                    changed.add(template);
+                }
+            }
+            
+            if (changed.isEmpty() || (requested != null && !changed.contains(requested))) {
+                return false;
+            }
+            
+            recompile(changed, requested, verifyHeaderHash);
+            
+            return true;
+        } finally {
+            this.compileLock.unlock();
+        }
+    }
+    
+    private void recompile(List<LoadedTemplate> changed, LoadedTemplate requested, boolean verifyHeaderHash) {
+        for (LoadedTemplate template : changed) {
             log.info("Rocker template change detected [{}]", template.file);
+        }
 
-            TemplateCompiler compiler = new TemplateCompiler(this.configuration);
+        TemplateCompiler compiler = new TemplateCompiler(this.configuration, this.javacSession);
+        Map<String,LoadedTemplate> compiling = new LinkedHashMap<>();
+        Map<String,byte[]> classes = null;
 
-            try {
-                long start = System.currentTimeMillis();
-                
-                List<TemplateCompiler.CompilationUnit> units
-                        = compiler.parse(Arrays.asList(template.file));
+        try {
+            long start = System.currentTimeMillis();
+            
+            List<File> files = new ArrayList<>();
+            for (LoadedTemplate template : changed) {
+                files.add(template.file);
+            }
 
+            List<TemplateCompiler.CompilationUnit> units = compiler.parse(files);
+            
+            for (int i = 0; i < units.size(); i++) {
+                TemplateCompiler.CompilationUnit unit = units.get(i);
+                LoadedTemplate template = changed.get(i);
+                
+                this.dependencies.update(unit.getTemplateFile(), unit.getTemplateModel());
+                
                 // did the interface change?
-                TemplateCompiler.CompilationUnit unit = units.get(0);
                 String newHeaderHash = unit.getTemplateModel().createHeaderHash()+"";
+                boolean verify = (template == requested ? verifyHeaderHash : !template.dynamicInterface);
                 
-                if (verifyHeaderHash) {
+                if (verify) {
                     if (!newHeaderHash.equals(template.headerHash)) {
                         log.debug("current header hash " + template.headerHash + "; new header hash " + newHeaderHash);
-                        
+
                         // build proper template exception
                         String templatePath = unit.getTemplateModel().getPackageName().replace('.', '/');
                         throw new RenderingException(1, 1, unit.getTemplateModel().getTemplateName(), templatePath, 
@@ -259,29 +456,109 @@ public class ReloadingRockerBootstrap extends DefaultRockerBootstrap {
                     }
                 }
                 
-                compiler.generate(units);
-
-                compiler.compile(units);
+                compiling.put(unit.getJavaClassName(), template);
+            }
+            
+            // templates calling a changed template (e.g. with it inlined) are
+            // compiled along with it & from then on reloaded too
+            Map<String,File> callers = this.dependencies.findCallers(compiling.keySet());
+            
+            if (!callers.isEmpty()) {
+                List<TemplateCompiler.CompilationUnit> callerUnits = new ArrayList<>();
                 
-                long stop = System.currentTimeMillis();
+                for (File callerFile : callers.values()) {
+                    // a caller being edited must not fail the changed template
+                    TemplateCompiler.CompilationUnit unit;
+                    try {
+                        unit = compiler.parse(Collections.singletonList(callerFile)).get(0);
+                    } catch (ParserException e) {
+                        log.warn("Rocker unable to recompile caller {} (skipping it): {}", callerFile, e.getMessage());
+                        continue;
+                    }
+                    
+                    LoadedTemplate template = this.templates.get(unit.getJavaClassName());
+                    String newHeaderHash = unit.getTemplateModel().createHeaderHash()+"";
+                    if (template == null) {
+                        template = new LoadedTemplate();
+                        template.className = unit.getJavaClassName();
+                        template.file = unit.getTemplateFile();
+                        template.headerHash = newHeaderHash;
+                    } else if (!template.dynamicInterface && !newHeaderHash.equals(template.headerHash)) {
+                        log.warn("Rocker unable to recompile caller {} (skipping it): interface (e.g. arguments/imports) were modified", callerFile);
+                        continue;
+                    }
+                    
+                    compiling.put(unit.getJavaClassName(), template);
+                    callerUnits.add(unit);
+                }
                 
-                log.info("Rocker compiled " + units.size() + " templates in " + (stop - start) + " ms");
+                units.addAll(callerUnits);
                 
-                // save current modifiedAt & header hash
-                template.modifiedAt = modifiedAt;
-                template.headerHash = newHeaderHash;   
-            } catch (ParserException | CompileDiagnosticException | CompileUnrecoverableException e) {
-                throw e;
-            } catch (IOException | GeneratorException e) {
-                throw new RenderingException("Unable to compile rocker template", e);
+                log.info("Rocker recompiling " + callerUnits.size() + " templates calling the changed templates");
+            }
+            
+            if (this.configuration.isCompileInMemory()) {
+                compiler.generateInMemory(units);
+
+                // callers compile against callees compiled in memory before
+                classes = compiler.compileInMemory(units, this.compiledClasses);
+            } else {
+                compiler.generate(units);
+
+                compiler.compile(units);
             }
 
-            // create new classloader to force a new class load
-            this.classLoader = buildClassLoader();
+            long stop = System.currentTimeMillis();
+
+            log.info("Rocker compiled " + units.size() + " templates in " + (stop - start) + " ms");
+
+            // save current modifiedAt & header hash
+            for (TemplateCompiler.CompilationUnit unit : units) {
+                LoadedTemplate template = compiling.get(unit.getJavaClassName());
+                template.modifiedAt = unit.getTemplateModel().getModifiedAt();
+                template.headerHash = unit.getTemplateModel().createHeaderHash()+"";
+            }
+        } catch (ParserException | CompileDiagnosticException | CompileUnrecoverableException e) {
+            throw e;
+        } catch (IOException | GeneratorException e) {
+            throw new RenderingException("Unable to compile rocker template", e);
+        }
+        
+        for (LoadedTemplate template : compiling.values()) {
+            this.templates.putIfAbsent(template.className, template);
+        }
+
+        // swap in the new classes & a new classloader to force a new class load
+        swapClasses(compiling.keySet(), classes);
+
+        // cached fragments may have been rendered by the previous version
+        FragmentCache fragmentCache = RockerRuntime.getInstance().getFragmentCache();
+        if (fragmentCache != null) {
+            fragmentCache.invalidateAll();
+        }
+    }
+    
+    // called w/ the compile lock held
+    private void swapClasses(Collection<String> modelClassNames, Map<String,byte[]> classes) {
+        if (classes != null) {
+            Map<String,byte[]> newCompiledClasses = new HashMap<>(this.compiledClasses);
             
-            return true;
+            // drop classes of the previous versions (e.g. an anonymous
+            // inner class that no longer exists) before replacing them
+            Iterator<String> it = newCompiledClasses.keySet().iterator();
+            while (it.hasNext()) {
+                String className = it.next();
+                int pos = className.indexOf('$');
+                if (modelClassNames.contains(pos < 0 ? className : className.substring(0, pos))) {
+                    it.remove();
+                }
+            }
+            
+            newCompiledClasses.putAll(classes);
+            
+            this.compiledClasses = Collections.unmodifiableMap(newCompiledClasses);
         }
         
-        return false;
+        this.classLoader = buildClassLoader();
     }
 }
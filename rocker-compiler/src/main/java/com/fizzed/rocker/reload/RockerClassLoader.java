@@ -15,12 +15,14 @@
  */
 package com.fizzed.rocker.reload;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
 import java.net.URLConnection;
+import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -32,16 +34,34 @@ public class RockerClassLoader extends ClassLoader {
     static private final Logger log = LoggerFactory.getLogger(RockerClassLoader.class);
 
     private final ReloadingRockerBootstrap bootstrap;
+    // classes recompiled in memory as of when this classloader was created
+    private final Map<String,byte[]> compiledClasses;
     
     public RockerClassLoader(ReloadingRockerBootstrap bootstrap, ClassLoader parent) {
         super(parent);
         this.bootstrap = bootstrap;
+        this.compiledClasses = bootstrap.getCompiledClasses();
     }
 
     public boolean isClassLoaded(String className) {
         return this.findLoadedClass(className) != null;
     }
     
+    @Override
+    public InputStream getResourceAsStream(String name) {
+        // classes recompiled in memory are also readable as resources (e.g.
+        // the plain text of a template is loaded from its class file)
+        if (name.endsWith(".class")) {
+            String className = name.substring(0, name.length() - ".class".length()).replace('/', '.');
+            byte[] compiledData = this.compiledClasses.get(className);
+            if (compiledData != null) {
+                return new ByteArrayInputStream(compiledData);
+            }
+        }
+        
+        return super.getResourceAsStream(name);
+    }
+    
     @Override
     public Class loadClass(String className) throws ClassNotFoundException {
         // only load classes registered with rocker dynamic bootstrap
@@ -49,6 +69,13 @@ public class RockerClassLoader extends ClassLoader {
             return super.loadClass(className);
         }
 
+        // recompiled in memory?
+        byte[] compiledData = this.compiledClasses.get(className);
+        if (compiledData != null) {
+            log.trace("loading class from memory: " + className);
+            return defineClass(className, compiledData, 0, compiledData.length);
+        }
+
         // load as though class was a resource
         try {
             // views.index -> views/index
@@ -85,10 +112,10 @@ public class RockerClassLoader extends ClassLoader {
             ByteArrayOutputStream buffer;
             try (InputStream input = connection.getInputStream()) {
                 buffer = new ByteArrayOutputStream();
-                int data = input.read();
-                while (data != -1) {
-                    buffer.write(data);
-                    data = input.read();
+                byte[] data = new byte[8192];
+                int read;
+                while ((read = input.read(data)) != -1) {
+                    buffer.write(data, 0, read);
                 }
             }
 
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2015 Fizzed Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.rocker.reload;
+
+import com.fizzed.rocker.compiler.JavaGeneratorRunnable;
+import com.fizzed.rocker.compiler.RockerConfiguration;
+import com.fizzed.rocker.compiler.RockerUtil;
+import com.fizzed.rocker.compiler.TemplateParser;
+import com.fizzed.rocker.model.TemplateModel;
+import com.fizzed.rocker.runtime.ParserException;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tracks which templates call which other templates so a changed template can
+ * be recompiled together with the templates calling it (e.g. a caller that was
+ * compiled with the changed template inlined).  Every template in the template
+ * directory is parsed once and then again only once it is modified.
+ */
+public class TemplateDependencies {
+    static private final Logger log = LoggerFactory.getLogger(TemplateDependencies.class);
+    
+    static private class Template {
+        private final String className;
+        private final long modifiedAt;
+        private final Set<String> callees;
+
+        public Template(String className, long modifiedAt, Set<String> callees) {
+            this.className = className;
+            this.modifiedAt = modifiedAt;
+            this.callees = callees;
+        }
+    }
+    
+    private final RockerConfiguration configuration;
+    // template file -> its calls as of its last modification
+    private final Map<File,Template> templates;
+    // not a monitor so a virtual thread recompiling a template does not pin
+    private final ReentrantLock lock;
+
+    public TemplateDependencies(RockerConfiguration configuration) {
+        this.configuration = configuration;
+        this.templates = new HashMap<>();
+        this.lock = new ReentrantLock();
+    }
+    
+    /**
+     * Records the calls of a freshly parsed template.
+     * 
+     * @param file The template file
+     * @param model The parsed template
+     */
+    public void update(File file, TemplateModel model) {
+        this.lock.lock();
+        try {
+            this.templates.put(file.getAbsoluteFile(), new Template(className(model),
+                model.getModifiedAt(), RockerUtil.findTemplateCalls(model)));
+        } finally {
+            this.lock.unlock();
+        }
+    }
+    
+    /**
+     * Finds every template calling one of the templates (directly or via
+     * another caller).
+     * 
+     * @param classNames The class names of the called templates
+     * @return The class name and file of each caller (not including the called
+     *      templates themselves)
+     */
+    public Map<String,File> findCallers(Collection<String> classNames) {
+        this.lock.lock();
+        try {
+            refresh();
+        
+            Map<String,File> callers = new LinkedHashMap<>();
+            Deque<String> queue = new ArrayDeque<>(classNames);
+        
+            while (!queue.isEmpty()) {
+                String callee = queue.pop();
+                for (Map.Entry<File,Template> entry : this.templates.entrySet()) {
+                    Template template = entry.getValue();
+                    if (template.callees.contains(callee)
+                            && !classNames.contains(template.className)
+                            && !callers.containsKey(template.className)) {
+                        callers.put(template.className, entry.getKey());
+                        queue.push(template.className);
+                    }
+                }
+            }
+        
+            return callers;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+    
+    /**
+     * Parses any template in the template directory that is new or modified
+     * since it was last parsed.
+     */
+    public void refresh() {
+        this.lock.lock();
+        try {
+            File templateDirectory = this.configuration.getTemplateDirectory();
+        
+            if (templateDirectory == null || !templateDirectory.isDirectory()) {
+                return;
+            }
+        
+            TemplateParser parser = null;
+        
+            Map<File,Template> current = new HashMap<>();
+        
+            for (File file : RockerUtil.listFileTree(templateDirectory)) {
+                if (!file.getName().matches(JavaGeneratorRunnable.DEFAULT_SUFFIX_REGEX)) {
+                    continue;
+                }
+            
+                file = file.getAbsoluteFile();
+                Template template = this.templates.get(file);
+            
+                if (template == null || template.modifiedAt != file.lastModified()) {
+                    if (parser == null) {
+                        parser = new TemplateParser(this.configuration);
+                    }
+                    try {
+                        TemplateModel model = parser.parse(file);
+                        template = new Template(className(model), model.getModifiedAt(), RockerUtil.findTemplateCalls(model));
+                    } catch (IOException | ParserException e) {
+                        // keeps whatever it called before (if anything)
+                        log.debug("Unable to parse {} for its dependencies: {}", file, e.getMessage());
+                        if (template == null) {
+                            continue;
+                        }
+                    }
+                }
+            
+                current.put(file, template);
+            }
+        
+            // also forgets deleted templates
+            this.templates.clear();
+            this.templates.putAll(current);
+        } finally {
+            this.lock.unlock();
+        }
+    }
+    
+    static private String className(TemplateModel model) {
+        if (model.getPackageName() == null || model.getPackageName().equals("")) {
+            return model.getName();
+        }
+        return model.getPackageName() + "." + model.getName();
+    }
+    
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2015 Fizzed Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.rocker.reload;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Watches a template directory (recursively) for changes on a background
+ * thread.  Changes are debounced -- the listener is called once no further
+ * changes happened for the debounce period (e.g. an editor saving a file in
+ * multiple writes or a build copying many templates).
+ */
+public class TemplateWatcher implements Closeable {
+    static private final Logger log = LoggerFactory.getLogger(TemplateWatcher.class);
+    
+    static public final long DEFAULT_DEBOUNCE_MILLIS = 100L;
+    
+    public interface Listener {
+        
+        /**
+         * Called (on the watcher thread) with the files that changed.
+         * 
+         * @param files The absolute files that were created, modified or
+         *      deleted. Null if changes were lost (e.g. too many at once) and
+         *      every template should be checked.
+         */
+        void changed(Set<File> files);
+        
+    }
+    
+    private final Path directory;
+    private final long debounceMillis;
+    private final Listener listener;
+    private final WatchService watchService;
+    private final Map<WatchKey,Path> keys;
+    private final Thread thread;
+    private volatile boolean closed;
+
+    public TemplateWatcher(File directory, long debounceMillis, Listener listener) throws IOException {
+        this.directory = directory.toPath().toAbsolutePath();
+        this.debounceMillis = debounceMillis;
+        this.listener = listener;
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.keys = new ConcurrentHashMap<>();
+        this.thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                watch();
+            }
+        }, "rocker-template-watcher");
+        this.thread.setDaemon(true);
+        
+        register(this.directory, null);
+    }
+    
+    public TemplateWatcher start() {
+        this.thread.start();
+        return this;
+    }
+
+    @Override
+    public void close() {
+        this.closed = true;
+        try {
+            this.watchService.close();
+        } catch (IOException e) {
+            // do nothing
+        }
+    }
+    
+    private void register(Path start, final Set<File> files) throws IOException {
+        Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                WatchKey key = dir.register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY,
+                    StandardWatchEventKinds.ENTRY_DELETE);
+                keys.put(key, dir);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                if (files != null) {
+                    files.add(file.toFile());
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+    
+    private void watch() {
+        log.info("Rocker watching templates in {}", directory);
+        
+        while (!closed) {
+            try {
+                // block until something changes
+                WatchKey key = watchService.take();
+                
+                Set<File> files = new HashSet<>();
+                boolean overflow = process(key, files);
+                
+                // then keep collecting until things are quiet
+                while ((key = watchService.poll(debounceMillis, TimeUnit.MILLISECONDS)) != null) {
+                    overflow |= process(key, files);
+                }
+                
+                listener.changed(overflow ? null : files);
+            } catch (ClosedWatchServiceException | InterruptedException e) {
+                break;
+            } catch (Exception e) {
+                log.warn("Rocker template watcher failed (will keep watching)", e);
+            }
+        }
+    }
+    
+    private boolean process(WatchKey key, Set<File> files) throws IOException {
+        boolean overflow = false;
+        Path dir = keys.get(key);
+        
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || dir == null) {
+                overflow = true;
+                continue;
+            }
+            
+            Path child = dir.resolve((Path)event.context());
+            
+            // watch new directories too (files may have been created within
+            // it before it was registered, e.g. by copying a directory)
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(child)) {
+                register(child, files);
+            }
+            
+            files.add(child.toFile());
+        }
+        
+        if (!key.reset()) {
+            keys.remove(key);
+        }
+        
+        return overflow;
+    }
+    
+}
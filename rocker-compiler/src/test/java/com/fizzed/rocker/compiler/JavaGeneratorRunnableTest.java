@@ -0,0 +1,152 @@
+/*
+ * Copyright 2015 Fizzed Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.rocker.compiler;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class JavaGeneratorRunnableTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    
+    static private final long OLD = 1000000000000L;
+    
+    private File templateDir;
+    private File outputDir;
+    
+    private void write(String path, String content) throws Exception {
+        File f = new File(templateDir, path);
+        f.getParentFile().mkdirs();
+        Files.write(f.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    private File output(String path) {
+        return new File(outputDir, path);
+    }
+    
+    private void run(boolean optimize) {
+        JavaGeneratorRunnable jgr = new JavaGeneratorRunnable();
+        jgr.getParser().getConfiguration().setTemplateDirectory(templateDir);
+        jgr.getGenerator().getConfiguration().setOutputDirectory(outputDir);
+        jgr.getGenerator().getConfiguration().setClassDirectory(outputDir);
+        jgr.getParser().getConfiguration().getOptions().setOptimize(optimize);
+        jgr.setIncremental(true);
+        jgr.setParallelism(2);
+        jgr.run();
+    }
+    
+    private void markOld(String... paths) {
+        for (String path : paths) {
+            Assert.assertTrue(output(path).setLastModified(OLD));
+        }
+    }
+    
+    @Test
+    public void incremental() throws Exception {
+        templateDir = temporaryFolder.newFolder("templates");
+        outputDir = temporaryFolder.newFolder("output");
+        
+        write("views/item.rocker.html", "@args (String s)\n<b>@s</b>");
+        write("views/list.rocker.html", "@option inlineMaxUnits=10\n@args (String s)\n<p>@item.template(s)</p>");
+        write("views/other.rocker.html", "@args (String s)\n@s");
+        
+        run(true);
+        
+        Assert.assertTrue(new File(outputDir, GeneratorManifest.fileName(templateDir, outputDir)).exists());
+        markOld("views/item.java", "views/list.java", "views/other.java");
+        
+        // nothing changed
+        run(true);
+        
+        Assert.assertEquals(OLD, output("views/item.java").lastModified());
+        Assert.assertEquals(OLD, output("views/list.java").lastModified());
+        Assert.assertEquals(OLD, output("views/other.java").lastModified());
+        
+        // template inlined into another changed
+        write("views/item.rocker.html", "@args (String s)\n<i>@s</i>");
+        
+        run(true);
+        
+        Assert.assertNotEquals(OLD, output("views/item.java").lastModified());
+        Assert.assertNotEquals(OLD, output("views/list.java").lastModified());
+        Assert.assertEquals(OLD, output("views/other.java").lastModified());
+        
+        // deleted template
+        Assert.assertTrue(new File(templateDir, "views/other.rocker.html").delete());
+        
+        run(true);
+        
+        Assert.assertFalse(output("views/other.java").exists());
+        Assert.assertTrue(output("views/item.java").exists());
+        
+        // missing output
+        Assert.assertTrue(output("views/item.java").delete());
+        markOld("views/list.java");
+        
+        run(true);
+        
+        Assert.assertTrue(output("views/item.java").exists());
+        Assert.assertEquals(OLD, output("views/list.java").lastModified());
+        
+        // options changed
+        markOld("views/item.java");
+        
+        run(false);
+        
+        Assert.assertNotEquals(OLD, output("views/item.java").lastModified());
+        Assert.assertNotEquals(OLD, output("views/list.java").lastModified());
+    }
+    
+    @Test
+    public void incrementalTemplateDirectoriesShareOutput() throws Exception {
+        outputDir = temporaryFolder.newFolder("output");
+        
+        templateDir = temporaryFolder.newFolder("main");
+        write("views/a.rocker.html", "@args (String s)\n@s");
+        run(true);
+        
+        templateDir = temporaryFolder.newFolder("other");
+        write("views/b.rocker.html", "@args (String s)\n@s");
+        run(true);
+        
+        // not an orphan of the other template directory
+        Assert.assertTrue(output("views/a.java").exists());
+        Assert.assertTrue(output("views/b.java").exists());
+    }
+    
+    @Test
+    public void manifestFileNameIsRelocatable() throws Exception {
+        File project = new File("/home/joe/project");
+        File relocated = new File("/cache/restored/project");
+        
+        // same layout relative to the output directory
+        Assert.assertEquals(
+            GeneratorManifest.fileName(new File(project, "src/main/java"), new File(project, "target/generated-sources/rocker")),
+            GeneratorManifest.fileName(new File(relocated, "src/main/java"), new File(relocated, "target/generated-sources/rocker")));
+        
+        // still unique per template directory sharing an output directory
+        Assert.assertNotEquals(
+            GeneratorManifest.fileName(new File(project, "src/main/java"), new File(project, "target/generated-sources/rocker")),
+            GeneratorManifest.fileName(new File(project, "src/main/rocker"), new File(project, "target/generated-sources/rocker")));
+    }
+    
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2015 Fizzed Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.rocker.compiler;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.jar.JarOutputStream;
+import javax.tools.StandardJavaFileManager;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class JavacSessionTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void reusesFileManagerUntilClasspathChanges() throws Exception {
+        File jar = temporaryFolder.newFile("a.jar");
+        new JarOutputStream(new FileOutputStream(jar)).close();
+        File dir = temporaryFolder.newFolder("classes");
+
+        ClassLoader previous = Thread.currentThread().getContextClassLoader();
+        JavacSession session = new JavacSession();
+        try {
+            URLClassLoader classLoader = new URLClassLoader(new URL[] { jar.toURI().toURL() }, null);
+            Thread.currentThread().setContextClassLoader(classLoader);
+
+            StandardJavaFileManager fileManager = session.getFileManager();
+
+            Assert.assertSame(session.getClasspath(), session.getClasspath());
+            Assert.assertSame(fileManager, session.getFileManager());
+
+            // modified jar
+            jar.setLastModified(jar.lastModified() - 10000);
+
+            StandardJavaFileManager fileManager2 = session.getFileManager();
+            Assert.assertNotSame(fileManager, fileManager2);
+            Assert.assertSame(fileManager2, session.getFileManager());
+
+            // different classpath
+            URLClassLoader classLoader2 = new URLClassLoader(new URL[] { jar.toURI().toURL(), dir.toURI().toURL() }, null);
+            Thread.currentThread().setContextClassLoader(classLoader2);
+
+            Assert.assertEquals(2, session.getClasspath().size());
+            Assert.assertNotSame(fileManager2, session.getFileManager());
+        } finally {
+            Thread.currentThread().setContextClassLoader(previous);
+            session.close();
+        }
+    }
+
+}
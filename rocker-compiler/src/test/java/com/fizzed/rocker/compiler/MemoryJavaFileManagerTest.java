@@ -0,0 +1,79 @@
+/*
+ * Copyright 2015 Fizzed Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.rocker.compiler;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MemoryJavaFileManagerTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+
+    @Test
+    public void compilesAgainstClassesCompiledInMemory() throws Exception {
+        File dir = temporaryFolder.newFolder("classes");
+
+        StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null);
+        try {
+            fileManager.setLocation(StandardLocation.CLASS_PATH, Arrays.asList(dir));
+            fileManager.setLocation(StandardLocation.CLASS_OUTPUT, Arrays.asList(dir));
+
+            // stale version on disk
+            Assert.assertTrue(compile(fileManager, "views.Callee", "package views; public class Callee { static public String a() { return \"a\"; } }"));
+
+            // changed version compiled in memory
+            MemoryJavaFileManager memoryFileManager = new MemoryJavaFileManager(fileManager);
+            Assert.assertTrue(compile(memoryFileManager, "views.Callee", "package views; public class Callee { static public String b() { return \"b\"; } }"));
+            Map<String,byte[]> compiledClasses = memoryFileManager.getClasses();
+            Assert.assertTrue(compiledClasses.containsKey("views.Callee"));
+
+            String caller = "package views; public class Caller { static public String c() { return Callee.b(); } }";
+
+            // only the stale version is visible w/o the classes compiled in memory
+            Assert.assertFalse(compile(new MemoryJavaFileManager(fileManager), "views.Caller", caller));
+
+            MemoryJavaFileManager memoryFileManager2 = new MemoryJavaFileManager(fileManager, compiledClasses);
+            Assert.assertTrue(compile(memoryFileManager2, "views.Caller", caller));
+            Assert.assertTrue(memoryFileManager2.getClasses().containsKey("views.Caller"));
+        } finally {
+            fileManager.close();
+        }
+    }
+
+    private boolean compile(JavaFileManager fileManager, String className, String source) {
+        JavaFileObject sourceFile = new MemoryJavaFileManager.SourceFileObject(className, source);
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        return compiler.getTask(null, fileManager, diagnostics, Arrays.asList("-nowarn"), null,
+            Collections.singletonList(sourceFile)).call();
+    }
+
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2015 Fizzed Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.rocker.compiler;
+
+import com.fizzed.rocker.runtime.PlainTextUnloadedClassLoader;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PlainTextClassWriterTest {
+
+    @Test
+    public void write() throws Exception {
+        LinkedHashMap<String,String> fields = new LinkedHashMap<>();
+        fields.put("PLAIN_TEXT_0_0", "<h1>Hello € 😀 \u0000</h1>\n");
+        fields.put("PLAIN_TEXT_1_0", "");
+        fields.put("PLAIN_TEXT_2_0", "<h1>Hello € 😀 \u0000</h1>\n");
+
+        final String className = "views.index$PlainText";
+        final byte[] classData = PlainTextClassWriter.write(className, fields);
+
+        ClassLoader classLoader = new ClassLoader(null) {
+            @Override
+            protected Class<?> findClass(String name) throws ClassNotFoundException {
+                if (name.equals(className)) {
+                    return defineClass(name, classData, 0, classData.length);
+                }
+                throw new ClassNotFoundException(name);
+            }
+
+            @Override
+            public InputStream getResourceAsStream(String name) {
+                if (name.equals("views/index$PlainText.class")) {
+                    return new ByteArrayInputStream(classData);
+                }
+                return null;
+            }
+        };
+
+        Class<?> type = classLoader.loadClass(className);
+
+        Assert.assertEquals(3, type.getDeclaredFields().length);
+        Field field = type.getDeclaredField("PLAIN_TEXT_0_0");
+        Assert.assertTrue(Modifier.isStatic(field.getModifiers()));
+        Assert.assertTrue(Modifier.isFinal(field.getModifiers()));
+        field.setAccessible(true);
+        Assert.assertEquals(fields.get("PLAIN_TEXT_0_0"), field.get(null));
+
+        PlainTextUnloadedClassLoader loader = PlainTextUnloadedClassLoader.load(classLoader, className, "UTF-8");
+
+        Assert.assertEquals(3, loader.size());
+        Assert.assertArrayEquals(fields.get("PLAIN_TEXT_0_0").getBytes(StandardCharsets.UTF_8), loader.get("PLAIN_TEXT_0_0"));
+        Assert.assertArrayEquals(new byte[0], loader.get("PLAIN_TEXT_1_0"));
+    }
+
+}
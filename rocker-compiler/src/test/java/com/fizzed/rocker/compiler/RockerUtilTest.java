@@ -17,7 +17,12 @@ package com.fizzed.rocker.compiler;
 
 import com.fizzed.rocker.ContentType;
 import java.nio.file.Paths;
+import com.fizzed.rocker.model.TemplateModel;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -29,6 +34,68 @@ public class RockerUtilTest {
         Assert.assertEquals("com.fizzed", RockerUtil.pathToPackageName(Paths.get("com", "fizzed")));
     }
     
+    @Test
+    public void isConstantTemplateCall() throws Exception {
+        Assert.assertTrue(RockerUtil.isConstantTemplateCall("views.Footer.template()"));
+        Assert.assertTrue(RockerUtil.isConstantTemplateCall("Footer.template( )"));
+        Assert.assertTrue(RockerUtil.isConstantTemplateCall("views.Title.template(\"Home, \\\"really\\\"\", 1, -2.5d, true, 'c')"));
+        Assert.assertFalse(RockerUtil.isConstantTemplateCall("views.Title.template(title)"));
+        Assert.assertFalse(RockerUtil.isConstantTemplateCall("views.Title.template(\"a\" + b)"));
+        Assert.assertFalse(RockerUtil.isConstantTemplateCall("views.Title.template(null)"));
+        Assert.assertFalse(RockerUtil.isConstantTemplateCall("views.Title.template(\"a\").s(x)"));
+        Assert.assertFalse(RockerUtil.isConstantTemplateCall("views.Title.other()"));
+    }
+    
+    @Test
+    public void splitTemplateCall() throws Exception {
+        Assert.assertEquals(Arrays.asList("views.Footer"), RockerUtil.splitTemplateCall("views.Footer.template()"));
+        Assert.assertEquals(Arrays.asList("Item", "a", "b.c(d, e)", "\"),(\"", "new int[] {1, 2}"),
+            RockerUtil.splitTemplateCall(" Item.template(a, b.c(d, e), \"),(\", new int[] {1, 2}) "));
+        Assert.assertNull(RockerUtil.splitTemplateCall("views.Title.template(\"a\").s(x)"));
+        Assert.assertNull(RockerUtil.splitTemplateCall("views.Title.template(a, )"));
+        Assert.assertNull(RockerUtil.splitTemplateCall("views.Title.template(new ArrayList<String>())"));
+        Assert.assertNull(RockerUtil.splitTemplateCall("views.Title.template(\"a)"));
+        Assert.assertNull(RockerUtil.splitTemplateCall("views.Title.other()"));
+    }
+    
+    @Test
+    public void findTemplateCalls() throws Exception {
+        TemplateParser parser = new TemplateParser(new RockerConfiguration());
+        TemplateModel model = parser.parse(
+            "@import other.Footer\n"
+            + "@import shared.*\n"
+            + "@args (String title)\n"
+            + "@views.main.template(title) -> {\n"
+            + "@Item.template(title.length())\n"
+            + "@if (title != null) { @Footer.template() }\n"
+            + "}\n", "views/index.rocker.html");
+        
+        Assert.assertEquals(new HashSet<>(Arrays.asList("views.main", "views.Item", "shared.Item", "other.Footer", "views.Footer", "shared.Footer")),
+            RockerUtil.findTemplateCalls(model));
+    }
+    
+    @Test
+    public void resolveTemplateCallCandidates() throws Exception {
+        TemplateParser parser = new TemplateParser(new RockerConfiguration());
+        TemplateModel model = parser.parse(
+            "@import other.Footer\n"
+            + "@import shared.*\n"
+            + "@import java.util.List\n"
+            + "@args (String title, List<Widget> widgets)\n"
+            + "@for (Widget w : widgets) { @w.template() }\n"
+            + "@with (Widget x = widgets.get(0)) { @x.y.template() }\n", "views/index.rocker.html");
+        Set<String> variables = RockerUtil.declaredVariableNames(model);
+        
+        Assert.assertEquals(new HashSet<>(Arrays.asList("title", "widgets", "w", "x")), variables);
+        Assert.assertEquals(Arrays.asList("other.Footer"), RockerUtil.resolveTemplateCallCandidates(model, variables, "Footer"));
+        Assert.assertEquals(Arrays.asList("views.Item", "shared.Item"), RockerUtil.resolveTemplateCallCandidates(model, variables, "Item"));
+        Assert.assertEquals(Arrays.asList("views.main"), RockerUtil.resolveTemplateCallCandidates(model, variables, "views.main"));
+        // variables (e.g. a loop variable) are never a template
+        Assert.assertEquals(Collections.emptyList(), RockerUtil.resolveTemplateCallCandidates(model, variables, "w"));
+        Assert.assertEquals(Collections.emptyList(), RockerUtil.resolveTemplateCallCandidates(model, variables, "x.y"));
+        Assert.assertEquals(Collections.emptyList(), RockerUtil.resolveTemplateCallCandidates(model, variables, "title"));
+    }
+    
     @Test
     public void templateNameToName() throws Exception {
         Assert.assertEquals("index", RockerUtil.templateNameToName("index.rocker.html"));
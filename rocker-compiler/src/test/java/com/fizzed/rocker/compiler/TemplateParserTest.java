@@ -548,6 +548,153 @@ public class TemplateParserTest {
         Assert.assertNotNull(model.getUnit(3, ValueClosureEnd.class));
     }
 
+    @Test
+    public void cacheBlock() throws Exception {
+        TemplateParser parser = createParser();
+        File f = findTemplate("rocker/parser/CacheBlock.rocker.html");
+
+        TemplateModel model = parser.parse(f);
+
+        Assert.assertEquals("key, 1000L", model.getUnit(1, CacheBlockBegin.class).getExpression());
+        Assert.assertEquals("\ninside-cache\n", model.getUnit(2, PlainText.class).getText());
+        Assert.assertNotNull(model.getUnit(3, CacheBlockEnd.class));
+    }
+
+    @Test
+    public void breakStatementInCacheBlock() throws Exception {
+        TemplateParser parser = createParser();
+
+        File f = findTemplate("rocker/parser/BreakStatementInCacheBlock.rocker.html");
+
+        try {
+            TemplateModel model = parser.parse(f);
+            fail();
+        }
+        catch (ParserException e) {
+            Assert.assertEquals(3, e.getLineNumber());
+        }
+    }
+
+    @Test
+    public void breakStatementInSwitchInCacheBlock() throws Exception {
+        TemplateParser parser = createParser();
+
+        File f = findTemplate("rocker/parser/BreakStatementInSwitchInCacheBlock.rocker.html");
+
+        // @break targets the @switch, which is entirely within the @cache block
+        TemplateModel model = parser.parse(f);
+
+        int breaks = 0;
+        for (TemplateUnit unit : model.getUnits()) {
+            if (unit instanceof BreakStatement) {
+                breaks++;
+            }
+        }
+        Assert.assertEquals(1, breaks);
+    }
+
+    @Test
+    public void asyncBlock() throws Exception {
+        TemplateParser parser = createParser();
+        File f = findTemplate("rocker/parser/AsyncBlock.rocker.html");
+
+        TemplateModel model = parser.parse(f);
+
+        AsyncBlockBegin begin = model.getUnit(1, AsyncBlockBegin.class);
+        Assert.assertEquals("String", begin.getVariable().getType());
+        Assert.assertEquals("t", begin.getVariable().getName());
+        Assert.assertEquals("title", begin.getValueExpression());
+        Assert.assertEquals("\ninside-async ", model.getUnit(2, PlainText.class).getText());
+        Assert.assertNotNull(model.getUnit(5, AsyncBlockEnd.class));
+    }
+
+    @Test
+    public void breakStatementInAsyncBlock() throws Exception {
+        TemplateParser parser = createParser();
+
+        File f = findTemplate("rocker/parser/BreakStatementInAsyncBlock.rocker.html");
+
+        try {
+            TemplateModel model = parser.parse(f);
+            fail();
+        }
+        catch (ParserException e) {
+            Assert.assertEquals(3, e.getLineNumber());
+        }
+    }
+
+    @Test
+    public void parallelBlock() throws Exception {
+        TemplateParser parser = createParser();
+        File f = findTemplate("rocker/parser/ParallelBlock.rocker.html");
+
+        TemplateModel model = parser.parse(f);
+
+        Assert.assertNotNull(model.getUnit(1, ParallelBlockBegin.class));
+        Assert.assertEquals("views.A.template(a)", model.getUnit(2, ValueExpression.class).getExpression());
+        Assert.assertEquals("b", model.getUnit(4, ValueExpression.class).getExpression());
+        Assert.assertNotNull(model.getUnit(5, ParallelBlockEnd.class));
+    }
+
+    @Test
+    public void breakStatementInParallelFor() throws Exception {
+        TemplateParser parser = createParser();
+
+        File f = findTemplate("rocker/parser/BreakStatementInParallelFor.rocker.html");
+
+        try {
+            TemplateModel model = parser.parse(f);
+            fail();
+        }
+        catch (ParserException e) {
+            Assert.assertEquals(3, e.getLineNumber());
+        }
+    }
+
+    @Test
+    public void fragmentBlock() throws Exception {
+        TemplateParser parser = createParser();
+        File f = findTemplate("rocker/parser/FragmentBlock.rocker.html");
+
+        TemplateModel model = parser.parse(f);
+
+        Assert.assertEquals("items", model.getUnit(3, FragmentBlockBegin.class).getName());
+        Assert.assertEquals("b", model.getUnit(5, ValueExpression.class).getExpression());
+        Assert.assertNotNull(model.getUnit(7, FragmentBlockEnd.class));
+    }
+
+    @Test
+    public void fragmentBlockNotTopLevel() throws Exception {
+        TemplateParser parser = createParser();
+
+        File f = findTemplate("rocker/parser/FragmentBlockNotTopLevel.rocker.html");
+
+        try {
+            TemplateModel model = parser.parse(f);
+            fail();
+        }
+        catch (ParserException e) {
+            Assert.assertEquals(3, e.getLineNumber());
+            Assert.assertThat(e.getMessage(), containsString("only allowed at the top level"));
+        }
+    }
+
+    @Test
+    public void fragmentBlockDuplicate() throws Exception {
+        TemplateParser parser = createParser();
+
+        File f = findTemplate("rocker/parser/FragmentBlockDuplicate.rocker.html");
+
+        try {
+            TemplateModel model = parser.parse(f);
+            fail();
+        }
+        catch (ParserException e) {
+            Assert.assertEquals(3, e.getLineNumber());
+            Assert.assertThat(e.getMessage(), containsString("already declared"));
+        }
+    }
+
     @Test
     public void contentClosure() throws Exception {
         TemplateParser parser = createParser();
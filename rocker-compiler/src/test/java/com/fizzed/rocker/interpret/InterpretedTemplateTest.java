@@ -0,0 +1,137 @@
+/*
+ * Copyright 2015 Fizzed Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.rocker.interpret;
+
+import com.fizzed.rocker.BindableRockerModel;
+import com.fizzed.rocker.RenderingException;
+import com.fizzed.rocker.compiler.RockerConfiguration;
+import com.fizzed.rocker.compiler.TemplateParser;
+import com.fizzed.rocker.runtime.ParserException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class InterpretedTemplateTest {
+
+    static private InterpretedTemplate build(String source) throws Exception {
+        TemplateParser parser = new TemplateParser(new RockerConfiguration());
+        return InterpretedTemplate.build(parser.parse(source, "test.rocker.html"));
+    }
+
+    @Test
+    public void valuesAndIf() throws Exception {
+        InterpretedTemplate template = build(
+            "@args (String name, Integer count, Object missing)\n" +
+            "<p>@name</p>" +
+            "@if (count > 1 && !name.isEmpty()) {many} else if (count == 1) {one} else {none}" +
+            "@?missing" +
+            "@name.length()");
+
+        Assert.assertArrayEquals(new String[] { "name", "count", "missing" }, template.getArgumentNames());
+
+        InterpretedRockerModel model = template.model();
+        model.bind("name", "<b>");
+        model.bind("count", 2);
+
+        Assert.assertEquals("<p>&lt;b&gt;</p>many3", model.render().toString());
+
+        model = template.model();
+        model.bind("name", "joe");
+        model.bind("count", 1);
+
+        Assert.assertEquals("<p>joe</p>one3", model.render().toString());
+    }
+
+    @Test
+    public void forLoops() throws Exception {
+        InterpretedTemplate template = build(
+            "@args (java.util.List<String> items, java.util.Map<String,Integer> map)\n" +
+            "@for ((i, item) : items) {@if (item == null) {@continue}@if (i.index() > 2) {@break}@item@if (!i.last()) {,}}" +
+            "|@for ((k, v) : map) {@k=@v;}" +
+            "|@for (c : \"ab\".toCharArray()) {@c}");
+
+        Map<String,Integer> map = new LinkedHashMap<>();
+        map.put("a", 1);
+        map.put("b", 2);
+
+        BindableRockerModel model = new BindableRockerModel("views/test.rocker.html", "views.test", template.model());
+        model.bind("items", Arrays.asList("x", null, "y", "z"));
+        model.bind("map", map);
+
+        Assert.assertEquals("x,y,|a=1;b=2;|ab", model.render().toString());
+    }
+
+    @Test
+    public void forLoopVariableShadowsArgument() throws Exception {
+        InterpretedTemplate template = build(
+            "@args (String item, java.util.List<String> items)\n" +
+            "@for (item : items) {@item,}@item" +
+            "|@for (i : items) {@for (i : items) {@i}@i;}");
+
+        BindableRockerModel model = new BindableRockerModel("views/test.rocker.html", "views.test", template.model());
+        model.bind("item", "arg");
+        model.bind("items", Arrays.asList("x", "y"));
+
+        Assert.assertEquals("x,y,arg|xyx;xyy;", model.render().toString());
+    }
+
+    @Test
+    public void bindUnknownArgument() throws Exception {
+        InterpretedTemplate template = build("@args (String name)\nhi");
+        try {
+            template.model().bind("nope", "x");
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void renderingExceptionIncludesPosition() throws Exception {
+        InterpretedTemplate template = build("@args (String name)\n\n  @name.nope()");
+
+        InterpretedRockerModel model = template.model();
+        model.bind("name", "joe");
+
+        try {
+            model.render();
+            Assert.fail();
+        } catch (RenderingException e) {
+            Assert.assertEquals(3, e.getSourceLine());
+            Assert.assertEquals(3, e.getSourcePosInLine());
+        }
+    }
+
+    @Test
+    public void unsupported() throws Exception {
+        try {
+            build("@args (String name)\n@with (s = name) {@s}");
+            Assert.fail();
+        } catch (ParserException e) {
+            Assert.assertEquals(2, e.getLineNumber());
+        }
+
+        try {
+            build("@args (String name)\n@(name + name)");
+            Assert.fail();
+        } catch (ParserException e) {
+            Assert.assertEquals(2, e.getLineNumber());
+        }
+    }
+
+}
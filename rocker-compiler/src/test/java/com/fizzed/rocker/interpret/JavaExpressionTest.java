@@ -0,0 +1,107 @@
+/*
+ * Copyright 2015 Fizzed Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.rocker.interpret;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class JavaExpressionTest {
+
+    static public class User {
+        public final String name;
+
+        public User(String name) {
+            this.name = name;
+        }
+
+        public boolean isAdmin() {
+            return name.equals("admin");
+        }
+
+        public String getEmail() {
+            return name + "@example.com";
+        }
+
+        public String greet(String greeting, int times) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < times; i++) {
+                sb.append(greeting);
+            }
+            return sb.append(name).toString();
+        }
+    }
+
+    static private Object eval(String expression, Map<String,Object> variables) throws Exception {
+        return JavaExpression.parse(expression).evaluate(variables);
+    }
+
+    @Test
+    public void evaluate() throws Exception {
+        Map<String,Object> variables = new HashMap<>();
+        variables.put("user", new User("admin"));
+        variables.put("items", Arrays.asList(1, 2, 3));
+        variables.put("n", 5L);
+
+        Assert.assertEquals("admin", eval("user.name", variables));
+        Assert.assertEquals(true, eval("user.admin", variables));
+        Assert.assertEquals("admin@example.com", eval("user.email", variables));
+        Assert.assertEquals("hi hi admin", eval("user.greet(\"hi \", 2)", variables));
+        // non-public implementation (Arrays$ArrayList) invoked thru List
+        Assert.assertEquals(3, eval("items.size()", variables));
+        Assert.assertEquals(true, eval("(items.size() < n) && !(n == 4)", variables));
+        Assert.assertEquals(true, eval("n >= 5.0 || user.missing", variables));
+        Assert.assertEquals(false, eval("user == null", variables));
+        Assert.assertEquals('\n', eval("'\\n'", variables));
+        Assert.assertEquals(-1, eval("-1", variables));
+    }
+
+    @Test
+    public void unsupported() {
+        List<String> expressions = Arrays.asList("a + b", "new Object()", "a.", "(a", "a ? b : c");
+        for (String expression : expressions) {
+            try {
+                JavaExpression.parse(expression);
+                Assert.fail(expression);
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void evaluateOnSameClassOfDifferentClassLoaders() throws Exception {
+        URL classes = User.class.getProtectionDomain().getCodeSource().getLocation();
+
+        for (int i = 0; i < 2; i++) {
+            // e.g. a template reloaded in a new classloader
+            ClassLoader classLoader = new URLClassLoader(new URL[] { classes }, null);
+            Class<?> type = classLoader.loadClass(User.class.getName());
+            Assert.assertNotSame(User.class, type);
+
+            Map<String,Object> variables = new HashMap<>();
+            variables.put("user", type.getConstructor(String.class).newInstance("joe"));
+
+            Assert.assertEquals("joe@example.com", eval("user.getEmail()", variables));
+        }
+    }
+
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2015 Fizzed Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.rocker.processor;
+
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class WhitespaceRemovalProcessorTest {
+    
+    @Test
+    public void reduceWhitespace() {
+        Assert.assertEquals("a b", WhitespaceRemovalProcessor.reduceWhitespace("a \t b"));
+        Assert.assertEquals("a b", WhitespaceRemovalProcessor.reduceWhitespace("a b"));
+        Assert.assertEquals("a\nb", WhitespaceRemovalProcessor.reduceWhitespace("a  \n\n  b"));
+        Assert.assertEquals("a\n\nb", WhitespaceRemovalProcessor.reduceWhitespace("a\n\nb"));
+        Assert.assertEquals("a\n\n\nb", WhitespaceRemovalProcessor.reduceWhitespace("a\n\n \nb"));
+        Assert.assertEquals("\n", WhitespaceRemovalProcessor.reduceWhitespace("  \r\n"));
+        Assert.assertEquals("", WhitespaceRemovalProcessor.reduceWhitespace(""));
+        Assert.assertNull(WhitespaceRemovalProcessor.reduceWhitespace(null));
+    }
+    
+    @Test
+    public void reduceWhitespaceSameAsRegexes() {
+        // the regexes it replaced
+        Random random = new Random(1L);
+        char[] chars = new char[] { ' ', '\t', '\n', '\r', 'a' };
+        
+        for (int i = 0; i < 10000; i++) {
+            StringBuilder sb = new StringBuilder();
+            int length = random.nextInt(12);
+            for (int j = 0; j < length; j++) {
+                sb.append(chars[random.nextInt(chars.length)]);
+            }
+            String text = sb.toString();
+            
+            String expected = text
+                .replaceAll("[ \t]+[\n\r]+", "\n")
+                .replaceAll("[\n\r]+[ \t]+", "\n")
+                .replaceAll("[ \t]{2,}", " ");
+            
+            Assert.assertEquals(expected, WhitespaceRemovalProcessor.reduceWhitespace(text));
+        }
+    }
+    
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2015 Fizzed Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.rocker.reload;
+
+import com.fizzed.rocker.compiler.RockerConfiguration;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TemplateDependenciesTest {
+    
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    
+    @Test
+    public void findCallers() throws Exception {
+        File dir = temporaryFolder.newFolder("templates");
+        new File(dir, "views").mkdirs();
+        
+        write(dir, "views/main.rocker.html", "@args (RockerBody content)\n<html>@content</html>\n");
+        write(dir, "views/index.rocker.html", "@views.main.template() -> {\nindex\n}\n");
+        write(dir, "views/home.rocker.html", "@index.template()\n");
+        write(dir, "views/other.rocker.html", "other\n");
+        
+        RockerConfiguration configuration = new RockerConfiguration();
+        configuration.setTemplateDirectory(dir);
+        
+        TemplateDependencies dependencies = new TemplateDependencies(configuration);
+        
+        Assert.assertEquals(new HashSet<>(Arrays.asList("views.index", "views.home")),
+            dependencies.findCallers(Collections.singleton("views.main")).keySet());
+        Assert.assertEquals(new File(dir, "views/home.rocker.html").getAbsoluteFile(),
+            dependencies.findCallers(Collections.singleton("views.index")).get("views.home"));
+        Assert.assertTrue(dependencies.findCallers(Collections.singleton("views.other")).isEmpty());
+        
+        // index no longer calls main
+        File index = write(dir, "views/index.rocker.html", "index\n");
+        index.setLastModified(index.lastModified() + 2000L);
+        
+        Assert.assertTrue(dependencies.findCallers(Collections.singleton("views.main")).isEmpty());
+    }
+    
+    private File write(File dir, String path, String content) throws Exception {
+        File file = new File(dir, path);
+        Files.write(file.toPath(), content.getBytes("UTF-8"));
+        return file;
+    }
+    
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2015 Fizzed Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.rocker.reload;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.junit.Assert.assertThat;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TemplateWatcherTest {
+    
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    
+    @Test
+    public void changesInSubdirectories() throws Exception {
+        File dir = temporaryFolder.newFolder("views");
+        File subdir = new File(dir, "sub");
+        subdir.mkdirs();
+        
+        final LinkedBlockingQueue<Set<File>> changes = new LinkedBlockingQueue<>();
+        
+        try (TemplateWatcher watcher = new TemplateWatcher(dir, 50L, new TemplateWatcher.Listener() {
+                @Override
+                public void changed(Set<File> files) {
+                    changes.add(files);
+                }
+            })) {
+            watcher.start();
+            
+            File template = new File(subdir, "index.rocker.html");
+            Files.write(template.toPath(), "hello".getBytes("UTF-8"));
+            
+            Set<File> files = changes.poll(30, TimeUnit.SECONDS);
+            
+            assertThat(files, notNullValue());
+            assertThat(files.contains(template.getAbsoluteFile()), is(true));
+        }
+    }
+    
+    @Test
+    public void templatesInNewDirectories() throws Exception {
+        File dir = temporaryFolder.newFolder("views");
+        
+        // a directory w/ templates already in it (e.g. copied or checked out)
+        File staging = temporaryFolder.newFolder("staging");
+        File stagedTemplate = new File(staging, "nested/index.rocker.html");
+        stagedTemplate.getParentFile().mkdirs();
+        Files.write(stagedTemplate.toPath(), "hello".getBytes("UTF-8"));
+        
+        final LinkedBlockingQueue<Set<File>> changes = new LinkedBlockingQueue<>();
+        
+        try (TemplateWatcher watcher = new TemplateWatcher(dir, 50L, new TemplateWatcher.Listener() {
+                @Override
+                public void changed(Set<File> files) {
+                    changes.add(files);
+                }
+            })) {
+            watcher.start();
+            
+            File subdir = new File(dir, "sub");
+            Files.move(staging.toPath(), subdir.toPath());
+            File template = new File(subdir, "nested/index.rocker.html");
+            
+            Set<File> files = changes.poll(30, TimeUnit.SECONDS);
+            
+            assertThat(files, notNullValue());
+            assertThat(files.contains(template.getAbsoluteFile()), is(true));
+        }
+    }
+    
+}
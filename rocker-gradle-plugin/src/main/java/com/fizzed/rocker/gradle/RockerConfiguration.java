@@ -16,6 +16,8 @@ public class RockerConfiguration {
     private Project project;
     private boolean skip = false;
     private boolean failOnError = true;
+    private int parallelism = 1;
+    private boolean incremental = false;
     private boolean skipTouch = true;
     private String touchFile;
     private String javaVersion;
@@ -29,6 +31,9 @@ public class RockerConfiguration {
     private File classBaseDirectory;
     private String[] postProcessing;
     private Boolean markAsGenerated;
+    private Boolean precompressPlainText;
+    private Boolean memoizeConstantCalls;
+    private Integer inlineMaxUnits;
 
     public RockerConfiguration(Project project) {
 		super();
@@ -53,6 +58,24 @@ public class RockerConfiguration {
         this.failOnError = failOnError;
     }
 
+    @Internal
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    @Internal
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+
     @Internal
     public boolean isSkipTouch() {
         return skipTouch;
@@ -155,7 +178,7 @@ public class RockerConfiguration {
         this.outputBaseDirectory = project.file(outputBaseDirectory, pv);
     }
 
-    @Input // Neither input nor output directory, but generated rocker.conf depends on it
+    @Internal // tracked by the task as location of the generated rocker.conf
     public String getClassBaseDirectoryPath() {
         return classBaseDirectory.getAbsolutePath();
     }
@@ -192,4 +215,34 @@ public class RockerConfiguration {
     public void setMarkAsGenerated(Boolean markAsGenerated) {
         this.markAsGenerated = markAsGenerated;
     }
+
+    @Optional
+    @Input
+    public Boolean getPrecompressPlainText() {
+        return precompressPlainText;
+    }
+
+    public void setPrecompressPlainText(Boolean precompressPlainText) {
+        this.precompressPlainText = precompressPlainText;
+    }
+
+    @Optional
+    @Input
+    public Boolean getMemoizeConstantCalls() {
+        return memoizeConstantCalls;
+    }
+
+    public void setMemoizeConstantCalls(Boolean memoizeConstantCalls) {
+        this.memoizeConstantCalls = memoizeConstantCalls;
+    }
+
+    @Optional
+    @Input
+    public Integer getInlineMaxUnits() {
+        return inlineMaxUnits;
+    }
+
+    public void setInlineMaxUnits(Integer inlineMaxUnits) {
+        this.inlineMaxUnits = inlineMaxUnits;
+    }
 }
@@ -88,17 +88,12 @@ public class RockerPlugin implements Plugin<Project> {
                     rockerTask.sourceSet().getName()));
             }
 
-            // 2) Add input information for incremental build
-            //    (there doesn't seem to be an @InputDirectories annotation)
-            for (File templateDir: rockerTask.getTemplateDirs()) {
-                rockerTask.getInputs().dir(templateDir);
-            }
-
-            // 3) Add output directory to java sources
+            // 2) Add output directory to java sources (templates are
+            //    inputs of the task through getTemplateFiles())
             rockerTask.sourceSet().getJava().srcDir(
                 rockerTask.getOutputDir());
 
-            // 4) Check if classes directory was set
+            // 3) Check if classes directory was set
             if (rockerTask.getClassDir() == null) {
                 // else set to default
                 rockerTask.setClassDir(new File(
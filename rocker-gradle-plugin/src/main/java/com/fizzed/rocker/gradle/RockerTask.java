@@ -1,26 +1,40 @@
 package com.fizzed.rocker.gradle;
 
-import com.fizzed.rocker.compiler.JavaGeneratorMain;
 import com.fizzed.rocker.compiler.JavaGeneratorRunnable;
 import com.fizzed.rocker.compiler.RockerOptions;
 
 import com.fizzed.rocker.model.JavaVersion;
+import com.fizzed.rocker.runtime.RockerRuntime;
 import org.gradle.api.DefaultTask;
 import org.gradle.api.Project;
+import org.gradle.api.file.FileCollection;
 import org.gradle.api.logging.Logger;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.InputFiles;
 import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.Nested;
+import org.gradle.api.tasks.Optional;
 import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
 import org.gradle.api.tasks.SourceSet;
 import org.gradle.api.tasks.TaskAction;
+import org.gradle.workers.WorkQueue;
+import org.gradle.workers.WorkerExecutor;
 
+import javax.inject.Inject;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
 import java.util.Set;
 
-public class RockerTask extends DefaultTask {
+@CacheableTask
+public abstract class RockerTask extends DefaultTask {
 
     private static Logger logger;
     private SourceSet sourceSet;
@@ -29,6 +43,21 @@ public class RockerTask extends DefaultTask {
     private File classDir;
     private RockerConfiguration rockerProjectConfig;
 
+    public RockerTask() {
+        // a generated rocker.conf holds absolute paths and touching a file
+        // is a side effect, neither can be restored from the build cache
+        getOutputs().cacheIf("optimized templates without a touch file",
+            task -> rockerProjectConfig != null
+                && Boolean.TRUE.equals(rockerProjectConfig.getOptimize())
+                && rockerProjectConfig.isSkipTouch());
+    }
+
+    /**
+     * @return the executor generating each template directory in parallel
+     */
+    @Inject
+    protected abstract WorkerExecutor getWorkerExecutor();
+
     /**
 	 * @return the config
 	 */
@@ -64,7 +93,7 @@ public class RockerTask extends DefaultTask {
     /**
      * @return the templateDirs
      */
-    @Internal // Not really, handled programmatically as there is no @InputDirectories 
+    @Internal // tracked by getTemplateFiles()
     public Set<File> getTemplateDirs() {
         return templateDirs;
     }
@@ -76,6 +105,21 @@ public class RockerTask extends DefaultTask {
         this.templateDirs = templateDirs;
     }
 
+    /**
+     * The templates within the template directories. Relative paths only so
+     * generated sources can be pulled from the build cache of another machine.
+     * 
+     * @return the template files
+     */
+    @InputFiles
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public FileCollection getTemplateFiles() {
+        String suffixRegex = (rockerProjectConfig != null && rockerProjectConfig.getSuffixRegex() != null
+            ? rockerProjectConfig.getSuffixRegex() : JavaGeneratorRunnable.DEFAULT_SUFFIX_REGEX);
+        return getProject().files(templateDirs).getAsFileTree()
+            .filter(f -> f.getName().matches(suffixRegex));
+    }
+
     /**
      * @return the outputDir
      */
@@ -107,14 +151,59 @@ public class RockerTask extends DefaultTask {
     }
 
     /**
-     * Sets up the logger and runs the rocker compiler
+     * @return the rocker.conf generated for hot reloading (null if templates
+     *      are optimized)
+     */
+    @Optional
+    @OutputFile
+    public File getReloadConfigFile() {
+        if (classDir == null || rockerProjectConfig == null
+                || Boolean.TRUE.equals(rockerProjectConfig.getOptimize())) {
+            return null;
+        }
+        return new File(classDir, RockerRuntime.CONF_RESOURCE_NAME.substring(1));
+    }
+
+    /**
+     * Sets up the logger and runs the rocker compiler for every template
+     * directory in parallel through the worker API
      */
     @TaskAction
     public void compileRocker() {
         logger = getProject().getLogger();
+        RockerConfiguration ext = rockerProjectConfig;
+
+        if (ext.isSkip()) {
+            logInfo("Skip flag is on, will skip goal.");
+            return;
+        }
+
+        Map<String, String> options = toOptions(ext);
+
+        WorkQueue workQueue = getWorkerExecutor().noIsolation();
+        File lastTemplateDir = null;
         for (File templateDir: templateDirs) {
-            doCompileRocker(getProject(), templateDir, outputDir, classDir);
+            lastTemplateDir = templateDir;
+            workQueue.submit(RockerWorkAction.class, parameters -> {
+                parameters.getTemplateDir().set(templateDir);
+                parameters.getOutputDir().set(outputDir);
+                parameters.getClassDir().set(classDir);
+                parameters.getSuffixRegex().set(ext.getSuffixRegex());
+                parameters.getFailOnError().set(ext.isFailOnError());
+                parameters.getParallelism().set(ext.getParallelism());
+                parameters.getIncremental().set(ext.isIncremental());
+                parameters.getOptions().set(options);
+            });
         }
+        workQueue.await();
+
+        // every directory shares the class directory, so the reload config
+        // is saved once (for the last directory as when run one by one)
+        if (lastTemplateDir != null) {
+            writeConfiguration(lastTemplateDir, outputDir, classDir, options);
+        }
+
+        touch(ext);
     }
 
     /**
@@ -142,6 +231,20 @@ public class RockerTask extends DefaultTask {
             return;
         }
 
+        generate(templateDir, outputDir, classDir, ext.getSuffixRegex(), ext.isFailOnError(),
+            ext.getParallelism(), ext.isIncremental(), toOptions(ext), true);
+
+        touch(ext);
+    }
+
+    /**
+     * Converts the extension to rocker options (as properties so they can be
+     * handed to workers).
+     *
+     * @param ext the extension from the project object
+     * @return the rocker options
+     */
+    static Map<String, String> toOptions(RockerConfiguration ext) {
         if (ext.getJavaVersion() == null || ext.getJavaVersion().length() == 0) {
             // set to current jdk version
             ext.setJavaVersion(JavaVersion.current());
@@ -152,19 +255,7 @@ public class RockerTask extends DefaultTask {
         }
 
         try {
-            JavaGeneratorRunnable jgm = new JavaGeneratorRunnable();
-
-            jgm.getParser().getConfiguration().setTemplateDirectory(templateDir);
-            jgm.getGenerator().getConfiguration().setOutputDirectory(outputDir);
-            jgm.getGenerator().getConfiguration().setClassDirectory(classDir);
-            jgm.setFailOnError(ext.isFailOnError());
-
-            // passthru other config
-            if (ext.getSuffixRegex() != null) {
-                jgm.setSuffixRegex(ext.getSuffixRegex());
-            }
-            RockerOptions rockerOptions
-                = jgm.getParser().getConfiguration().getOptions();
+            RockerOptions rockerOptions = new RockerOptions();
             if (ext.getJavaVersion() != null) {
                 rockerOptions.setJavaVersion(ext.getJavaVersion());
             }
@@ -189,6 +280,47 @@ public class RockerTask extends DefaultTask {
             if (ext.getMarkAsGenerated() != null) {
                 rockerOptions.setMarkAsGenerated(ext.getMarkAsGenerated());
             }
+            if (ext.getPrecompressPlainText() != null) {
+                rockerOptions.setPrecompressPlainText(ext.getPrecompressPlainText());
+            }
+            if (ext.getMemoizeConstantCalls() != null) {
+                rockerOptions.setMemoizeConstantCalls(ext.getMemoizeConstantCalls());
+            }
+            if (ext.getInlineMaxUnits() != null) {
+                rockerOptions.setInlineMaxUnits(ext.getInlineMaxUnits());
+            }
+
+            Properties properties = new Properties();
+            rockerOptions.write(properties);
+            Map<String, String> options = new HashMap<>();
+            for (String name : properties.stringPropertyNames()) {
+                options.put(name, properties.getProperty(name));
+            }
+            return options;
+        }
+        catch (Exception e) {
+            throw new RockerGradleException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Generates the java sources of a template directory.
+     */
+    static void generate(File templateDir, File outputDir, File classDir, String suffixRegex,
+                         boolean failOnError, int parallelism, boolean incremental, Map<String, String> options,
+                         boolean saveConfiguration) {
+        try {
+            JavaGeneratorRunnable jgm = create(templateDir, outputDir, classDir, options);
+
+            jgm.setFailOnError(failOnError);
+            jgm.setParallelism(parallelism);
+            jgm.setIncremental(incremental);
+            jgm.setSaveConfiguration(saveConfiguration);
+
+            // passthru other config
+            if (suffixRegex != null) {
+                jgm.setSuffixRegex(suffixRegex);
+            }
 
             jgm.run();
 
@@ -196,7 +328,37 @@ public class RockerTask extends DefaultTask {
         catch (Exception e) {
             throw new RockerGradleException(e.getMessage(), e);
         }
+    }
+
+    /**
+     * Saves the rocker.conf for hot reloading a template directory (unless
+     * templates are optimized).
+     */
+    static void writeConfiguration(File templateDir, File outputDir, File classDir, Map<String, String> options) {
+        try {
+            create(templateDir, outputDir, classDir, options).writeConfiguration();
+        }
+        catch (Exception e) {
+            throw new RockerGradleException(e.getMessage(), e);
+        }
+    }
+
+    private static JavaGeneratorRunnable create(File templateDir, File outputDir, File classDir,
+                                                Map<String, String> options) {
+        JavaGeneratorRunnable jgm = new JavaGeneratorRunnable();
+
+        jgm.getParser().getConfiguration().setTemplateDirectory(templateDir);
+        jgm.getGenerator().getConfiguration().setOutputDirectory(outputDir);
+        jgm.getGenerator().getConfiguration().setClassDirectory(classDir);
+
+        Properties properties = new Properties();
+        properties.putAll(options);
+        jgm.getParser().getConfiguration().merge(properties);
+
+        return jgm;
+    }
 
+    private static void touch(RockerConfiguration ext) {
         if (!ext.isSkipTouch()) {
             if (ext.getTouchFile().length() == 0) {
                 throw new RockerGradleException(
@@ -0,0 +1,26 @@
+package com.fizzed.rocker.gradle;
+
+import org.gradle.workers.WorkAction;
+
+/**
+ * Generates the java sources of a single template directory (possibly at the
+ * same time as other template directories).  The rocker.conf for hot
+ * reloading is saved by the task once every directory is generated.
+ */
+public abstract class RockerWorkAction implements WorkAction<RockerWorkParameters> {
+
+    @Override
+    public void execute() {
+        RockerWorkParameters parameters = getParameters();
+        RockerTask.generate(
+            parameters.getTemplateDir().get().getAsFile(),
+            parameters.getOutputDir().get().getAsFile(),
+            parameters.getClassDir().get().getAsFile(),
+            parameters.getSuffixRegex().getOrNull(),
+            parameters.getFailOnError().get(),
+            parameters.getParallelism().get(),
+            parameters.getIncremental().get(),
+            parameters.getOptions().get(),
+            false);
+    }
+}
@@ -0,0 +1,29 @@
+package com.fizzed.rocker.gradle;
+
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.provider.MapProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.workers.WorkParameters;
+
+/**
+ * Everything needed to generate the templates of a single template directory
+ * (options as written by {@link com.fizzed.rocker.compiler.RockerOptions#write}).
+ */
+public interface RockerWorkParameters extends WorkParameters {
+
+    DirectoryProperty getTemplateDir();
+
+    DirectoryProperty getOutputDir();
+
+    DirectoryProperty getClassDir();
+
+    Property<String> getSuffixRegex();
+
+    Property<Boolean> getFailOnError();
+
+    Property<Integer> getParallelism();
+
+    Property<Boolean> getIncremental();
+
+    MapProperty<String, String> getOptions();
+}
@@ -5,7 +5,14 @@ import org.gradle.testfixtures.ProjectBuilder;
 import org.junit.Test;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Properties;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -37,6 +44,35 @@ public class RockerGradlePluginTest {
         assertTrue(templateFile.exists());
     }
 
+    @Test
+    public void testEveryTemplateDirectoryIsGeneratedAndConfIsSavedOnce() throws IOException {
+        Project project = ProjectBuilder.builder().build();
+        project.getPluginManager().apply(RockerPlugin.class);
+
+        File classDir = new File("build/classes/multi");
+        File confFile = new File(classDir, "rocker-compiler.conf");
+        confFile.delete();
+
+        RockerTask task = (RockerTask)project.getTasks().getByName("generateRockerTemplateSource");
+        task.getRockerProjectConfig().setOptimize(false);
+        task.getRockerProjectConfig().setSkipTouch(true);
+        task.setTemplateDirs(new LinkedHashSet<>(Arrays.asList(
+            new File("src/test/java"), new File("src/test/rocker"))));
+        task.setOutputDir(new File("build/generated/source/rocker/multi"));
+        task.setClassDir(classDir);
+        task.compileRocker();
+
+        assertTrue(new File("build/generated/source/rocker/multi/com/fizzed/rocker/gradle/views/HelloTemplate.java").exists());
+        assertTrue(new File("build/generated/source/rocker/multi/com/fizzed/rocker/gradle/other/ByeTemplate.java").exists());
+
+        // saved for the last template directory only (not clobbered by both)
+        Properties properties = new Properties();
+        try (InputStream input = new FileInputStream(confFile)) {
+            properties.load(input);
+        }
+        assertEquals(new File("src/test/rocker").getPath(), properties.getProperty("rocker.template.dir"));
+    }
+
     @Test
     public void testNullOutputDirectoryThrowsException() {
         Project project = ProjectBuilder.builder().build();
@@ -64,6 +64,21 @@ public class GenerateMojo extends AbstractMojo {
     @Parameter(property = "rocker.suffixRegex")
     protected String suffixRegex;
     
+    /**
+     * Number of threads used to parse templates and generate their java
+     * sources. 1 parses and generates them one at a time.
+     */
+    @Parameter(property = "rocker.parallelism", defaultValue = "1")
+    protected int parallelism;
+    
+    /**
+     * Only generates java sources for templates that changed since the last
+     * run (unchanged sources are not touched) and deletes the sources of
+     * deleted templates.
+     */
+    @Parameter(property = "rocker.incremental", defaultValue = "false")
+    protected boolean incremental;
+    
     /**
      * Directory containing templates. The base directory to search -- which is
      * also how their "package" name is determined.
@@ -98,6 +113,28 @@ public class GenerateMojo extends AbstractMojo {
     @Parameter(property = "rocker.markAsGenerated")
     protected Boolean markAsGenerated;
     
+    /**
+     * Weather or not to also deflate plain text at build time so outputs such
+     * as {@code DeflateOutput} can write it without compressing it again.
+     * */
+    @Parameter(property = "rocker.precompressPlainText")
+    protected Boolean precompressPlainText;
+    
+    /**
+     * Weather or not calls to other templates with only constant arguments are
+     * rendered once and then replayed (they must always render the same content).
+     * */
+    @Parameter(property = "rocker.memoizeConstantCalls")
+    protected Boolean memoizeConstantCalls;
+    
+    /**
+     * Calls to other templates of the same package with at most this many
+     * units are inlined into the calling template (only if optimized). Zero
+     * disables inlining.
+     * */
+    @Parameter(property = "rocker.inlineMaxUnits")
+    protected Integer inlineMaxUnits;
+    
     @Override
     public void execute() throws MojoExecutionException, MojoFailureException {
         if (this.skip) {
@@ -169,6 +206,17 @@ public class GenerateMojo extends AbstractMojo {
             if (markAsGenerated != null) {
                 jgr.getParser().getConfiguration().getOptions().setMarkAsGenerated(markAsGenerated);
             }
+            if (precompressPlainText != null) {
+                jgr.getParser().getConfiguration().getOptions().setPrecompressPlainText(precompressPlainText);
+            }
+            if (memoizeConstantCalls != null) {
+                jgr.getParser().getConfiguration().getOptions().setMemoizeConstantCalls(memoizeConstantCalls);
+            }
+            jgr.setParallelism(parallelism);
+            jgr.setIncremental(incremental);
+            if (inlineMaxUnits != null) {
+                jgr.getParser().getConfiguration().getOptions().setInlineMaxUnits(inlineMaxUnits);
+            }
             
             jgr.run();
         }
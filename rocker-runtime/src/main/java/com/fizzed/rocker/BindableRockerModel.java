@@ -15,6 +15,8 @@
  */
 package com.fizzed.rocker;
 
+import com.fizzed.rocker.runtime.DefaultRockerModel;
+import com.fizzed.rocker.runtime.DynamicRockerModel;
 import java.lang.reflect.Method;
 import java.util.Map;
 
@@ -44,8 +46,14 @@ public class BindableRockerModel implements RockerModel {
 
     public BindableRockerModel relaxedBind(Map<String,Object> values) {
         try {
-            Method f = model.getClass().getMethod("getArgumentNames");
-            for (String k : (String[]) f.invoke(null)) {
+            String[] argumentNames;
+            if (model instanceof DynamicRockerModel) {
+                argumentNames = ((DynamicRockerModel)model).getArgumentNames();
+            } else {
+                Method f = model.getClass().getMethod("getArgumentNames");
+                argumentNames = (String[])f.invoke(null);
+            }
+            for (String k : argumentNames) {
                 if (!values.containsKey(k)) {
                     throw new TemplateBindException(templatePath, templateClassName, "Unable to set property '" + k + "'");
                 }
@@ -58,6 +66,15 @@ public class BindableRockerModel implements RockerModel {
     }
     
     public BindableRockerModel bind(String name, Object value) {
+        if (this.model instanceof DynamicRockerModel) {
+            try {
+                ((DynamicRockerModel)this.model).bind(name, value);
+            } catch (IllegalArgumentException e) {
+                throw new TemplateBindException(templatePath, templateClassName, e.getMessage(), e);
+            }
+            return this;
+        }
+        
         Method setter = null;
         try {
             // find method matching name w/ a single parameter
@@ -115,6 +132,17 @@ public class BindableRockerModel implements RockerModel {
         return this.model.render(outputFactory, templateCustomizer);
     }
     
+    /**
+     * Renders only a fragment (<code>@fragment name { ... }</code>) of the
+     * template.
+     */
+    public <T extends RockerOutput> T renderFragment(String name, RockerOutputFactory<T> outputFactory) throws RenderingException {
+        if (!(this.model instanceof DefaultRockerModel)) {
+            throw new RenderingException("Template " + templatePath + " does not support fragments");
+        }
+        return ((DefaultRockerModel)this.model).renderFragment(name, outputFactory);
+    }
+    
     public RockerModel getModel() {
         return this.model;
     }
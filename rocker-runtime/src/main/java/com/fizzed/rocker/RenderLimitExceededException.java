@@ -0,0 +1,41 @@
+/*
+ * Copyright 2015 Fizzed Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.rocker;
+
+/**
+ * Rendering stopped since it exceeded a limit (e.g. its deadline or max byte
+ * length) it was rendered with.  The source info is where the limit was
+ * found to be exceeded.
+ */
+public class RenderLimitExceededException extends RenderingException {
+    
+    static public enum Limit {
+        DEADLINE,
+        MAX_BYTE_LENGTH
+    }
+    
+    private final Limit limit;
+    
+    public RenderLimitExceededException(Limit limit, int sourceLine, int sourcePosInLine, String templateName, String templatePath, String message) {
+        super(sourceLine, sourcePosInLine, templateName, templatePath, message, null);
+        this.limit = limit;
+    }
+
+    public Limit getLimit() {
+        return limit;
+    }
+    
+}
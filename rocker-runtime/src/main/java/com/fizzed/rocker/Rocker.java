@@ -15,6 +15,7 @@
  */
 package com.fizzed.rocker;
 
+import com.fizzed.rocker.runtime.DynamicRockerModel;
 import com.fizzed.rocker.runtime.RockerRuntime;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
@@ -70,6 +71,10 @@ public class Rocker {
     }
     
     static private String[] getModelArgumentNames(String templatePath, RockerModel model) {
+        if (model instanceof DynamicRockerModel) {
+            return ((DynamicRockerModel)model).getArgumentNames();
+        }
+        
         try {
             Method f = model.getClass().getMethod("getArgumentNames");
             return (String[])f.invoke(null);
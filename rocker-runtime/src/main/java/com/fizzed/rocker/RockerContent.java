@@ -15,6 +15,7 @@
  */
 package com.fizzed.rocker;
 
+import com.fizzed.rocker.runtime.CapturedContent;
 import java.io.IOException;
 
 /**
@@ -34,4 +35,15 @@ public interface RockerContent {
     
     void render() throws RenderingException, IOException;
     
+    /**
+     * Captures this content into its bytes the first time a template renders
+     * it so every later render replays those bytes rather than executing the
+     * content again.
+     * 
+     * @return The content to render in place of this content
+     */
+    default CapturedContent captured() {
+        return new CapturedContent(this);
+    }
+    
 }
@@ -0,0 +1,31 @@
+/*
+ * Copyright 2015 Fizzed Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.rocker.runtime;
+
+import com.fizzed.rocker.RenderingException;
+import java.io.IOException;
+
+/**
+ * The content of an <code>@async</code> block -- rendered with the result of
+ * its <code>CompletionStage</code>.
+ * 
+ * @param <T> The type of the result
+ */
+public interface AsyncContent<T> {
+    
+    void render(T value) throws RenderingException, IOException;
+    
+}
@@ -0,0 +1,291 @@
+/*
+ * Copyright 2015 Fizzed Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.rocker.runtime;
+
+import com.fizzed.rocker.ContentType;
+import com.fizzed.rocker.RenderingException;
+import com.fizzed.rocker.RockerModel;
+import com.fizzed.rocker.RockerOutputFactory;
+import java.nio.charset.Charset;
+import java.util.Iterator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Renders a batch of models (e.g. generating thousands of emails or static
+ * pages) and hands each render to a sink.  Every worker reuses a single
+ * <code>ReusableByteArrayOutput</code> (and its encoder) across the models it
+ * renders, so the per model garbage is only the model and template itself.
+ * Workers run on the configured executor or, by default, on the calling
+ * thread.
+ * 
+ * The sink may be called concurrently (once per worker) and must consume the
+ * output before returning since it is reset for the next model.  The first
+ * failure stops the batch and is rethrown.
+ */
+public class BulkRenderer {
+    
+    /**
+     * Receives each rendered model.
+     * 
+     * @param <M> The model type
+     */
+    public interface Sink<M> {
+        
+        void accept(M model, ReusableByteArrayOutput output) throws Exception;
+        
+    }
+    
+    /**
+     * Throughput of a batch.
+     */
+    static public class Stats {
+        
+        private final long count;
+        private final long bytes;
+        private final long elapsedNanos;
+
+        public Stats(long count, long bytes, long elapsedNanos) {
+            this.count = count;
+            this.bytes = bytes;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+        
+        public double getRendersPerSecond() {
+            return perSecond(this.count);
+        }
+        
+        public double getBytesPerSecond() {
+            return perSecond(this.bytes);
+        }
+        
+        private double perSecond(long value) {
+            return this.elapsedNanos > 0 ? value * (double)TimeUnit.SECONDS.toNanos(1) / this.elapsedNanos : 0d;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d renders (%d bytes) in %d ms (%.1f renders/sec, %.1f bytes/sec)",
+                this.count, this.bytes, TimeUnit.NANOSECONDS.toMillis(this.elapsedNanos),
+                getRendersPerSecond(), getBytesPerSecond());
+        }
+        
+    }
+    
+    private final Executor executor;
+    private final int parallelism;
+    private final int initialBufferSize;
+
+    /**
+     * Renders on the calling thread.
+     */
+    public BulkRenderer() {
+        this(null, 1);
+    }
+    
+    /**
+     * Renders with the number of workers on the executor.
+     * 
+     * @param executor The executor to run workers on or null to render on
+     *      the calling thread
+     * @param parallelism The number of workers
+     */
+    public BulkRenderer(Executor executor, int parallelism) {
+        this(executor, parallelism, ReusableByteArrayOutput.DEFAULT_INITIAL_SIZE);
+    }
+    
+    public BulkRenderer(Executor executor, int parallelism, int initialBufferSize) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be >= 1");
+        }
+        this.executor = executor;
+        this.parallelism = (executor != null ? parallelism : 1);
+        this.initialBufferSize = initialBufferSize;
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+    
+    public <M extends RockerModel> Stats render(Stream<M> models, Sink<? super M> sink) {
+        // e.g. releases the result set of a stream backed by jdbc
+        try (Stream<M> stream = models) {
+            return render(stream.iterator(), sink);
+        }
+    }
+    
+    public <M extends RockerModel> Stats render(Iterable<M> models, Sink<? super M> sink) {
+        return render(models.iterator(), sink);
+    }
+    
+    public <M extends RockerModel> Stats render(Iterator<M> models, Sink<? super M> sink) {
+        final Batch<M> batch = new Batch<>(models, sink);
+        
+        long startedAt = System.nanoTime();
+        
+        if (this.executor == null) {
+            new Worker<>(batch).run();
+        } else {
+            for (int i = 0; i < this.parallelism; i++) {
+                try {
+                    this.executor.execute(new Worker<>(batch));
+                } catch (RuntimeException e) {
+                    // e.g. rejected by a bounded or shut down executor -- stop
+                    // the workers already running & wait for them below
+                    batch.fail(e);
+                    for (int j = i; j < this.parallelism; j++) {
+                        batch.done(0, 0);
+                    }
+                    break;
+                }
+            }
+            
+            try {
+                batch.finished.await();
+            } catch (InterruptedException e) {
+                // stop remaining workers from taking more models
+                batch.fail(e);
+                Thread.currentThread().interrupt();
+            }
+        }
+        
+        long elapsedNanos = System.nanoTime() - startedAt;
+        
+        Throwable failure = batch.failure.get();
+        if (failure != null) {
+            if (failure instanceof RuntimeException) {
+                throw (RuntimeException)failure;
+            } else if (failure instanceof Error) {
+                throw (Error)failure;
+            }
+            throw new RenderingException("Bulk render failed: " + failure.getMessage(), failure);
+        }
+        
+        return new Stats(batch.count, batch.bytes, elapsedNanos);
+    }
+    
+    private class Batch<M extends RockerModel> {
+        
+        private final ReentrantLock lock;
+        private final Iterator<M> models;
+        private final Sink<? super M> sink;
+        private final CountDownLatch finished;
+        private final AtomicReference<Throwable> failure;
+        // totals merged by each worker once it is done (under lock)
+        private long count;
+        private long bytes;
+
+        public Batch(Iterator<M> models, Sink<? super M> sink) {
+            this.lock = new ReentrantLock();
+            this.models = models;
+            this.sink = sink;
+            this.finished = new CountDownLatch(parallelism);
+            this.failure = new AtomicReference<>();
+        }
+        
+        public M next() {
+            this.lock.lock();
+            try {
+                if (this.failure.get() != null || !this.models.hasNext()) {
+                    return null;
+                }
+                return this.models.next();
+            } finally {
+                this.lock.unlock();
+            }
+        }
+        
+        public void fail(Throwable t) {
+            this.failure.compareAndSet(null, t);
+        }
+        
+        public void done(long count, long bytes) {
+            this.lock.lock();
+            try {
+                this.count += count;
+                this.bytes += bytes;
+            } finally {
+                this.lock.unlock();
+            }
+            this.finished.countDown();
+        }
+        
+    }
+    
+    private class Worker<M extends RockerModel> implements Runnable, RockerOutputFactory<ReusableByteArrayOutput> {
+
+        private final Batch<M> batch;
+        private ReusableByteArrayOutput output;
+
+        public Worker(Batch<M> batch) {
+            this.batch = batch;
+        }
+
+        @Override
+        public ReusableByteArrayOutput create(ContentType contentType, String charsetName) {
+            // reuse unless the template differs in content type or charset
+            if (this.output != null
+                    && this.output.getContentType() == contentType
+                    && this.output.getCharset().name().equals(charsetName)) {
+                this.output.reset();
+            } else {
+                this.output = new ReusableByteArrayOutput(contentType, Charset.forName(charsetName), initialBufferSize);
+            }
+            return this.output;
+        }
+        
+        @Override
+        public void run() {
+            long count = 0;
+            long bytes = 0;
+            try {
+                M model;
+                while ((model = this.batch.next()) != null) {
+                    ReusableByteArrayOutput out = model.render(this);
+                    this.batch.sink.accept(model, out);
+                    count++;
+                    bytes += out.getByteLength();
+                }
+            } catch (Throwable t) {
+                this.batch.fail(t);
+            } finally {
+                this.batch.done(count, bytes);
+            }
+        }
+        
+    }
+    
+}
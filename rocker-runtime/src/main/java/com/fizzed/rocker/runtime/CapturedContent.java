@@ -0,0 +1,101 @@
+/*
+ * Copyright 2015 Fizzed Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.rocker.runtime;
+
+import com.fizzed.rocker.RenderingException;
+import com.fizzed.rocker.RockerContent;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+/**
+ * Content rendered into its bytes only once and replayed every time it is
+ * rendered after that rather than executing the content again (e.g. a layout
+ * rendering the same body for both a desktop and a mobile nav).  Created by
+ * <code>RockerContent.captured()</code> (captured the first time it is
+ * rendered) or by the <code>capture(content)</code> implicit of a template
+ * (captured immediately so its byte length is known up front).
+ *
+ * The captured bytes are only replayed by templates.  Calling
+ * <code>render()</code> directly executes the underlying content.
+ */
+public class CapturedContent implements RockerContent {
+
+    private final RockerContent content;
+    private final MemoizedRender rendered;
+    private volatile int byteLength;
+
+    public CapturedContent(RockerContent content) {
+        if (content == null) {
+            throw new NullPointerException("Content was null");
+        }
+        this.content = content;
+        this.rendered = new MemoizedRender();
+        this.byteLength = -1;
+    }
+
+    public RockerContent getContent() {
+        return content;
+    }
+
+    /**
+     * Gets the captured bytes.
+     *
+     * @param charset The charset the bytes must be in
+     * @return The byte arrays (in order) or null if not yet captured in the charset
+     */
+    public byte[][] get(Charset charset) {
+        return this.rendered.get(charset);
+    }
+
+    public void set(Charset charset, byte[][] arrays) {
+        int length = 0;
+        for (byte[] bytes : arrays) {
+            length += bytes.length;
+        }
+        this.rendered.set(charset, arrays);
+        this.byteLength = length;
+    }
+
+    public boolean isCaptured() {
+        return this.byteLength >= 0;
+    }
+
+    /**
+     * Gets the length of the captured bytes (e.g. to measure a body before
+     * deciding how to lay it out).
+     *
+     * @return The byte length
+     * @throws IllegalStateException If not yet captured
+     */
+    public int getByteLength() {
+        int length = this.byteLength;
+        if (length < 0) {
+            throw new IllegalStateException("Content not yet captured (render it or use capture(content) first)");
+        }
+        return length;
+    }
+
+    @Override
+    public CapturedContent captured() {
+        return this;
+    }
+
+    @Override
+    public void render() throws RenderingException, IOException {
+        this.content.render();
+    }
+
+}
@@ -19,6 +19,7 @@ import com.fizzed.rocker.RenderingException;
 import com.fizzed.rocker.RockerOutput;
 import com.fizzed.rocker.RockerModel;
 import com.fizzed.rocker.RockerOutputFactory;
+import com.fizzed.rocker.RockerTemplate;
 import com.fizzed.rocker.RockerTemplateCustomizer;
 
 public class DefaultRockerModel implements RockerModel {
@@ -48,6 +49,31 @@ public class DefaultRockerModel implements RockerModel {
         return (O)doRender(null, outputFactory, templateCustomizer);
     }
     
+    /**
+     * Renders only a fragment (<code>@fragment name { ... }</code>) of the
+     * template rather than the whole template (e.g. the section of a page
+     * that changed). Single use only.
+     * @param name The name of the fragment
+     * @return The output of rendering the fragment
+     * @throws RenderingException Thrown if the template has no such fragment
+     *      or any error encountered while rendering
+     */
+    public RockerOutput renderFragment(String name) throws RenderingException {
+        return renderFragment(name, null);
+    }
+    
+    public <O extends RockerOutput> O renderFragment(final String name, RockerOutputFactory<O> outputFactory) throws RenderingException {
+        if (name == null) {
+            throw new NullPointerException("Fragment name was null");
+        }
+        return (O)doRender(null, outputFactory, new RockerTemplateCustomizer() {
+            @Override
+            public void customize(RockerTemplate template) {
+                ((DefaultRockerTemplate)template).__internal.setFragment(name);
+            }
+        });
+    }
+    
     protected RockerOutput doRender(DefaultRockerTemplate context,
                                     RockerOutputFactory outputFactory,
                                     RockerTemplateCustomizer templateCustomizer) throws RenderingException {
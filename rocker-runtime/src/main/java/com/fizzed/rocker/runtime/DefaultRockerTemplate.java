@@ -17,6 +17,8 @@ package com.fizzed.rocker.runtime;
 
 import com.fizzed.rocker.BindableRockerModel;
 import com.fizzed.rocker.ContentType;
+import com.fizzed.rocker.ForIterator;
+import com.fizzed.rocker.RenderLimitExceededException;
 import com.fizzed.rocker.RenderingException;
 import com.fizzed.rocker.RockerOutput;
 import com.fizzed.rocker.RockerStringify;
@@ -24,7 +26,22 @@ import com.fizzed.rocker.RockerTemplate;
 import com.fizzed.rocker.RockerContent;
 import com.fizzed.rocker.RockerModel;
 import com.fizzed.rocker.RockerOutputFactory;
+import com.fizzed.rocker.RockerTemplateCustomizer;
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
 
 public abstract class DefaultRockerTemplate extends RockerTemplate {
     
@@ -43,8 +60,10 @@ public abstract class DefaultRockerTemplate extends RockerTemplate {
         
         // configure this template from another template
         // internally the out, content type, and stringify are all shared
+        __internal.context = otherContext;
         __internal.setOut(otherContext.__internal.getOut());
         __internal.setContentType(otherContext.__internal.getContentType(), otherContext.__internal.getStringify());
+        __internal.setLimits(otherContext.__internal.getLimits());
     }
     
     @Override
@@ -83,26 +102,71 @@ public abstract class DefaultRockerTemplate extends RockerTemplate {
             throw new RenderingException("Stringify must be initialized before render");
         }
         
+        // output created by this render (rather than shared w/ another template)
+        RockerOutput created = null;
+        
         if (this.__internal.out == null) {
             if (outputFactory != null) {
                 this.__internal.out = outputFactory.create(this.__internal.contentType, this.__internal.charset);
             } else {
                 this.__internal.out = __newOutput();
             }
+            created = this.__internal.out;
         }
         
         // make sure not previously used
         __internal.verifyOkToBeginRendering();
 
+        // ranges of a @parallel for loop never replace their output
+        Internal root = __internal.root();
+        boolean tracked = !(__internal.out instanceof ParallelOutput);
+        if (tracked) {
+            if (root.rendering == null) {
+                root.rendering = new ArrayList<>();
+            }
+            root.rendering.add(this);
+        }
+        
+        boolean completed = false;
         try {
-            this.__doRender();
-        } catch (CompileDiagnosticException e) {
+            __internal.checkLimits();
+            
+            if (__internal.fragment != null) {
+                // only the named fragment (e.g. a partial update of a page)
+                this.__doRenderFragment(__internal.fragment);
+            } else {
+                this.__doRender();
+            }
+            
+            // fill in any @async blocks still pending once everything else
+            // was rendered (by the template rendered first)
+            if (__internal.context == null) {
+                __internal.resolveAsync();
+                __internal.checkLimits();
+            }
+            
+            completed = true;
+        } catch (RenderLimitExceededException | CompileDiagnosticException e) {
             // do not wrap the underlying exception
             throw e;
         } catch (Throwable t) {
             // include info on source line + pos where execution failed
             String templatePath = __internal.templatePackageName.replace('.', '/');
             throw new RenderingException(__internal.sourceLine, __internal.sourcePosInLine, __internal.templateName, templatePath, t.getMessage(), t);
+        } finally {
+            if (tracked) {
+                root.rendering.remove(root.rendering.size() - 1);
+            }
+            
+            // the caller never gets an output of a failed render to release
+            // (e.g. the native memory of a DeflateOutput)
+            if (!completed && created instanceof Closeable) {
+                try {
+                    ((Closeable)created).close();
+                } catch (IOException e) {
+                    // ignore (already failing)
+                }
+            }
         }
         
         return __internal.out;
@@ -110,6 +174,144 @@ public abstract class DefaultRockerTemplate extends RockerTemplate {
     
     abstract protected void __doRender() throws IOException, RenderingException;
     
+    /**
+     * Renders only a fragment (<code>@fragment name { ... }</code>) of the
+     * template.  Overridden by templates that declare fragments.
+     * 
+     * @param name The name of the fragment
+     * @throws IOException
+     * @throws RenderingException 
+     */
+    protected void __doRenderFragment(String name) throws IOException, RenderingException {
+        throw new RenderingException("Template has no fragment named '" + name + "'");
+    }
+    
+    // ranges of a @parallel for loop rendered concurrently
+    static private final int PARALLEL_RANGES_PER_PROCESSOR = 4;
+    static private final int PARALLEL_MIN_RANGE_SIZE = 16;
+    
+    static private <T> T join(CompletableFuture<T> future) throws RenderingException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RenderingException) {
+                // e.g. a template rendered concurrently (already w/ its source position)
+                throw (RenderingException)e.getCause();
+            }
+            throw new RenderingException("Async value failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+    
+    /**
+     * An <code>@async</code> block waiting for its value along with what was
+     * rendered after it (up to the next pending block).
+     */
+    static private class PendingAsync<T> {
+        
+        private final DefaultRockerTemplate template;
+        private final RockerOutput before;
+        private final CompletableFuture<? extends T> future;
+        private final AsyncContent<T> content;
+        private final ArrayOfByteArraysOutput after;
+
+        public PendingAsync(DefaultRockerTemplate template, RockerOutput before, CompletableFuture<? extends T> future,
+                AsyncContent<T> content, ArrayOfByteArraysOutput after) {
+            this.template = template;
+            this.before = before;
+            this.future = future;
+            this.content = content;
+            this.after = after;
+        }
+        
+        public void render(RockerOutput target) throws RenderingException, IOException {
+            T value = join(this.future);
+            
+            // the block (and content closures of templates it is rendered
+            // within) now write to the target
+            DefaultRockerTemplate t = this.template;
+            while (t != null) {
+                t.__internal.out = target;
+                t = t.__internal.context;
+            }
+            
+            this.content.render(value);
+            
+            for (byte[] bytes : this.after.getArrays()) {
+                target.w(bytes);
+            }
+        }
+        
+    }
+    
+    /**
+     * Output of a template (and the templates it calls) while it renders a
+     * <code>@parallel for</code> loop. Every thread rendering a range of the
+     * loop writes to its own segment.
+     */
+    static private class ParallelOutput implements RockerOutput<ParallelOutput> {
+        
+        private final ContentType contentType;
+        private final Charset charset;
+        private final ThreadLocal<RockerOutput> segment;
+
+        public ParallelOutput(ContentType contentType, Charset charset) {
+            this.contentType = contentType;
+            this.charset = charset;
+            this.segment = new ThreadLocal<>();
+        }
+        
+        /**
+         * Sets the segment the current thread writes to.
+         * 
+         * @return The segment previously written to (or null)
+         */
+        public RockerOutput set(RockerOutput output) {
+            RockerOutput previous = this.segment.get();
+            if (output != null) {
+                this.segment.set(output);
+            } else {
+                this.segment.remove();
+            }
+            return previous;
+        }
+        
+        private RockerOutput segment() {
+            RockerOutput output = this.segment.get();
+            if (output == null) {
+                throw new IllegalStateException("Output of a @parallel for loop used outside of the loop");
+            }
+            return output;
+        }
+
+        @Override
+        public ContentType getContentType() {
+            return this.contentType;
+        }
+
+        @Override
+        public Charset getCharset() {
+            return this.charset;
+        }
+
+        @Override
+        public ParallelOutput w(String string) throws IOException {
+            segment().w(string);
+            return this;
+        }
+
+        @Override
+        public ParallelOutput w(byte[] bytes) throws IOException {
+            segment().w(bytes);
+            return this;
+        }
+
+        @Override
+        public int getByteLength() {
+            return segment().getByteLength();
+        }
+        
+    }
+    
     //
     // implicits to rocker templates
     //
@@ -127,6 +329,25 @@ public abstract class DefaultRockerTemplate extends RockerTemplate {
         }
         return Raw.of(s);
     }
+    
+    /**
+     * Captures content into its bytes now (e.g. to measure it) so rendering
+     * it any number of times replays those bytes rather than executing the
+     * content again.
+     * 
+     * @param content The content to capture
+     * @return The captured content
+     * @throws RenderingException
+     * @throws IOException 
+     */
+    public CapturedContent capture(RockerContent content) throws RenderingException, IOException {
+        if (content == null) {
+            throw new NullPointerException("Content was null");
+        }
+        CapturedContent captured = content.captured();
+        __internal.captured(captured);
+        return captured;
+    }
 
     /**
      * Internal state of a template.
@@ -144,6 +365,8 @@ public abstract class DefaultRockerTemplate extends RockerTemplate {
         private ContentType contentType;
         private RockerStringify stringify;
         private RockerOutput out;
+        // template this one is rendered within (if any)
+        private DefaultRockerTemplate context;
         
         private boolean rendered;
         // counters for where we are in original source (helps provide better runtime exceptions)
@@ -151,6 +374,14 @@ public abstract class DefaultRockerTemplate extends RockerTemplate {
         private int sourcePosInLine;
         private String templateName;
         private String templatePackageName;
+        // pending @async blocks (only of the template rendered first)
+        private List<PendingAsync<?>> pendingAsyncs;
+        // templates still rendering within the template rendered first
+        private List<DefaultRockerTemplate> rendering;
+        private int capturing;
+        private boolean resolvingAsync;
+        private RenderLimits limits;
+        private String fragment;
         
         private Internal() {
             this.sourceLine = -1;
@@ -208,6 +439,74 @@ public abstract class DefaultRockerTemplate extends RockerTemplate {
             this.stringify = stringify;
         }
 
+        public String getFragment() {
+            return fragment;
+        }
+
+        public void setFragment(String fragment) {
+            this.fragment = fragment;
+        }
+        
+        public RenderLimits getLimits() {
+            return limits;
+        }
+
+        public void setLimits(RenderLimits limits) {
+            this.limits = limits;
+        }
+        
+        /**
+         * Checks the render is still within its limits (if any).  Called at
+         * the start of every template and of every loop iteration.
+         * 
+         * @throws RenderLimitExceededException If a limit was exceeded
+         */
+        public void checkLimits() throws RenderLimitExceededException {
+            if (this.limits == null) {
+                return;
+            }
+            
+            // bytes of the whole render (not just of the buffer written to)
+            if (this.limits.isMaxByteLengthExceeded(this.limits.getByteLength())) {
+                throw limitExceeded(RenderLimitExceededException.Limit.MAX_BYTE_LENGTH,
+                    "Render exceeded max byte length of " + this.limits.getMaxByteLength());
+            }
+            
+            if (this.limits.isDeadlineExceeded()) {
+                throw limitExceeded(RenderLimitExceededException.Limit.DEADLINE, "Render exceeded its deadline");
+            }
+        }
+        
+        private boolean isCountingByteLength() {
+            return this.limits != null && this.limits.isCountingByteLength();
+        }
+        
+        // writes to the output and counts the bytes towards the limits (if
+        // any) -- bytes only spliced in from another buffer were counted
+        // when written to that buffer and are written to out directly
+        private void write(String s) throws IOException {
+            if (!isCountingByteLength()) {
+                out.w(s);
+                return;
+            }
+            RockerOutput output = this.out;
+            int before = output.getByteLength();
+            output.w(s);
+            this.limits.addByteLength(output.getByteLength() - before);
+        }
+        
+        private void write(byte[] bytes) throws IOException {
+            out.w(bytes);
+            if (isCountingByteLength()) {
+                this.limits.addByteLength(bytes.length);
+            }
+        }
+        
+        private RenderLimitExceededException limitExceeded(RenderLimitExceededException.Limit limit, String message) {
+            String templatePath = (this.templatePackageName != null ? this.templatePackageName.replace('.', '/') : null);
+            return new RenderLimitExceededException(limit, this.sourceLine, this.sourcePosInLine, this.templateName, templatePath, message);
+        }
+
         public RockerOutput getOut() {
             return out;
         }
@@ -223,6 +522,377 @@ public abstract class DefaultRockerTemplate extends RockerTemplate {
             this.rendered = true;
         }
         
+        /**
+         * Replaces the output of this template as well as of every template it
+         * is rendered within that shares the same output. Content closures
+         * supplied by those templates then write to the replacement too. So
+         * do templates still rendering that called one of those closures (e.g.
+         * a layout rendering the content of a page).
+         */
+        protected void replaceOut(RockerOutput current, RockerOutput replacement) {
+            DefaultRockerTemplate template = DefaultRockerTemplate.this;
+            while (template != null && template.__internal.out == current) {
+                template.__internal.out = replacement;
+                template = template.__internal.context;
+            }
+            
+            List<DefaultRockerTemplate> rendering = root().rendering;
+            if (rendering != null) {
+                for (DefaultRockerTemplate t : rendering) {
+                    if (t.__internal.out == current) {
+                        t.__internal.out = replacement;
+                    }
+                }
+            }
+        }
+        
+        //
+        // fragment caching support
+        //
+        
+        public void renderCached(String blockId, Object key, RockerContent content) throws RenderingException, IOException {
+            renderCached(blockId, key, 0L, content);
+        }
+        
+        public void renderCached(String blockId, Object key, long ttlMillis, final RockerContent content) throws RenderingException, IOException {
+            FragmentCache cache = RockerRuntime.getInstance().getFragmentCache();
+            
+            if (cache == null) {
+                content.render();
+                return;
+            }
+            
+            // bytes depend on the charset too
+            Object cacheKey = Arrays.asList(blockId, out.getCharset().name(), key);
+            
+            // concurrent misses of the same key render the content just once
+            byte[][] arrays = cache.get(cacheKey, ttlMillis, new FragmentCache.Loader() {
+                @Override
+                public byte[][] load() throws IOException {
+                    return capture(content);
+                }
+            });
+            
+            for (byte[] bytes : arrays) {
+                write(bytes);
+            }
+        }
+        
+        /**
+         * Renders content into a new buffer (rather than the output) and
+         * returns what was rendered.
+         */
+        protected byte[][] capture(RockerContent content) throws RenderingException, IOException {
+            ArrayOfByteArraysOutput capture = new ArrayOfByteArraysOutput(contentType, out.getCharset());
+            
+            if (out instanceof ParallelOutput) {
+                // other threads write to the same output (any @async block
+                // is rendered in place anyway)
+                ParallelOutput parallelOut = (ParallelOutput)out;
+                RockerOutput previous = parallelOut.set(capture);
+                try {
+                    content.render();
+                } finally {
+                    parallelOut.set(previous);
+                }
+                uncount(capture);
+                return capture.getArrays().toArray(new byte[capture.getArrays().size()][]);
+            }
+            
+            RockerOutput current = out;
+            Internal root = root();
+            replaceOut(current, capture);
+            // any @async block must render within the captured content
+            root.capturing++;
+            try {
+                content.render();
+            } finally {
+                root.capturing--;
+                replaceOut(capture, current);
+            }
+            uncount(capture);
+            
+            return capture.getArrays().toArray(new byte[capture.getArrays().size()][]);
+        }
+        
+        // captured bytes only count once they are replayed
+        private void uncount(RockerOutput capture) {
+            if (isCountingByteLength()) {
+                this.limits.addByteLength(-capture.getByteLength());
+            }
+        }
+        
+        protected byte[][] captured(CapturedContent content) throws RenderingException, IOException {
+            byte[][] arrays = content.get(out.getCharset());
+            
+            if (arrays == null) {
+                arrays = capture(content.getContent());
+                content.set(out.getCharset(), arrays);
+            }
+            
+            return arrays;
+        }
+        
+        //
+        // async support (e.g. @async (User user = userFuture) { ... })
+        //
+        
+        public <T> void renderAsync(CompletionStage<? extends T> stage, AsyncContent<T> content) throws RenderingException, IOException {
+            CompletableFuture<? extends T> future = stage.toCompletableFuture();
+            Internal root = root();
+            
+            if (future.isDone() || out instanceof ParallelOutput || root.capturing > 0 || root.resolvingAsync) {
+                content.render(join(future));
+                return;
+            }
+            
+            // keep rendering the rest of the page into a new buffer and only
+            // render this block (in its place) once everything else was
+            // rendered -- so waiting for it overlaps w/ the rest of the page
+            ArrayOfByteArraysOutput after = new ArrayOfByteArraysOutput(contentType, out.getCharset());
+            
+            if (root.pendingAsyncs == null) {
+                root.pendingAsyncs = new ArrayList<>();
+            }
+            
+            root.pendingAsyncs.add(new PendingAsync<>(DefaultRockerTemplate.this, out, future, content, after));
+            
+            replaceOut(out, after);
+        }
+        
+        protected void resolveAsync() throws RenderingException, IOException {
+            if (this.pendingAsyncs == null) {
+                return;
+            }
+            
+            // everything up to the first pending block was rendered to the
+            // output and everything else is appended to it in order
+            RockerOutput target = this.pendingAsyncs.get(0).before;
+            
+            this.resolvingAsync = true;
+            try {
+                for (PendingAsync<?> pending : this.pendingAsyncs) {
+                    pending.render(target);
+                }
+            } finally {
+                this.resolvingAsync = false;
+                this.pendingAsyncs = null;
+            }
+            
+            this.out = target;
+        }
+        
+        //
+        // parallel support (e.g. values within @parallel { ... })
+        //
+        
+        public boolean renderParallel(Object value, boolean nullSafe) throws RenderingException, IOException {
+            if (value instanceof BindableRockerModel) {
+                value = ((BindableRockerModel)value).getModel();
+            }
+            
+            Executor executor = RockerRuntime.getInstance().getParallelExecutor();
+            
+            // only other templates are worth rendering concurrently (and not
+            // within a range of a @parallel for loop already)
+            if (!(value instanceof DefaultRockerModel) || executor == null || out instanceof ParallelOutput) {
+                return renderAnyValue(value, nullSafe);
+            }
+            
+            final DefaultRockerModel model = (DefaultRockerModel)value;
+            final ContentType parentContentType = contentType;
+            final RockerStringify parentStringify = stringify;
+            final RenderLimits parentLimits = limits;
+            
+            // rendered on its own (not sharing our output) into a segment that
+            // is spliced back in its place just like an @async block
+            CompletableFuture<ArrayOfByteArraysOutput> segment = CompletableFuture.supplyAsync(new Supplier<ArrayOfByteArraysOutput>() {
+                @Override
+                public ArrayOfByteArraysOutput get() {
+                    return (ArrayOfByteArraysOutput)model.doRender(null, ArrayOfByteArraysOutput.FACTORY, new RockerTemplateCustomizer() {
+                        @Override
+                        public void customize(RockerTemplate template) {
+                            // same as if rendered within this template
+                            ((DefaultRockerTemplate)template).__internal.setContentType(parentContentType, parentStringify);
+                            ((DefaultRockerTemplate)template).__internal.setLimits(parentLimits);
+                        }
+                    });
+                }
+            }, executor);
+            
+            renderAsync(segment, new AsyncContent<ArrayOfByteArraysOutput>() {
+                @Override
+                public void render(ArrayOfByteArraysOutput output) throws RenderingException, IOException {
+                    if (output.getCharset().equals(out.getCharset())) {
+                        // no copying, just references to its byte arrays
+                        for (byte[] bytes : output.getArrays()) {
+                            out.w(bytes);
+                        }
+                    } else {
+                        out.w(output.toString());
+                    }
+                }
+            });
+            
+            return true;
+        }
+        
+        //
+        // parallel for loop support (e.g. @parallel for (item : items) { ... })
+        //
+        
+        public <V> void forEachParallel(Collection<V> items, final Java8Iterator.ConsumeCollection<V> consumer) throws RenderingException, IOException {
+            forEachParallel(items, new Java8Iterator.ConsumeCollectionWithIterator<V>() {
+                @Override
+                public void accept(ForIterator i, V v) throws RenderingException, IOException {
+                    consumer.accept(v);
+                }
+            });
+        }
+        
+        public <K,V> void forEachParallel(Map<K,V> items, final Java8Iterator.ConsumeMap<K,V> consumer) throws RenderingException, IOException {
+            forEachParallel(items.entrySet(), new Java8Iterator.ConsumeCollectionWithIterator<Map.Entry<K,V>>() {
+                @Override
+                public void accept(ForIterator i, Map.Entry<K,V> entry) throws RenderingException, IOException {
+                    consumer.accept(entry.getKey(), entry.getValue());
+                }
+            });
+        }
+        
+        public <K,V> void forEachParallel(Map<K,V> items, final Java8Iterator.ConsumeMapWithIterator<K,V> consumer) throws RenderingException, IOException {
+            forEachParallel(items.entrySet(), new Java8Iterator.ConsumeCollectionWithIterator<Map.Entry<K,V>>() {
+                @Override
+                public void accept(ForIterator i, Map.Entry<K,V> entry) throws RenderingException, IOException {
+                    consumer.accept(i, entry.getKey(), entry.getValue());
+                }
+            });
+        }
+        
+        public <V> void forEachParallel(Collection<V> items, final Java8Iterator.ConsumeCollectionWithIterator<V> consumer) throws RenderingException, IOException {
+            Executor executor = RockerRuntime.getInstance().getParallelExecutor();
+            final int size = items.size();
+            int ranges = Math.min(size / PARALLEL_MIN_RANGE_SIZE,
+                Runtime.getRuntime().availableProcessors() * PARALLEL_RANGES_PER_PROCESSOR);
+            
+            // nested loops (or templates called) within a range simply render in order
+            if (executor == null || ranges < 2 || out instanceof ParallelOutput) {
+                Java8Iterator.forEach(items, consumer);
+                return;
+            }
+            
+            final List<V> list = (items instanceof List && items instanceof RandomAccess)
+                ? (List<V>)items : new ArrayList<>(items);
+            
+            // everything rendered within the loop (including by templates it
+            // calls) is written to the segment of the range being rendered
+            final RockerOutput current = out;
+            final ParallelOutput parallelOut = new ParallelOutput(contentType, current.getCharset());
+            replaceOut(current, parallelOut);
+            
+            List<CompletableFuture<ArrayOfByteArraysOutput>> segments = new ArrayList<>(ranges);
+            try {
+                for (int r = 0; r < ranges; r++) {
+                    final int from = (int)((long)size * r / ranges);
+                    final int to = (int)((long)size * (r + 1) / ranges);
+                    segments.add(CompletableFuture.supplyAsync(new Supplier<ArrayOfByteArraysOutput>() {
+                        @Override
+                        public ArrayOfByteArraysOutput get() {
+                            ArrayOfByteArraysOutput segment = new ArrayOfByteArraysOutput(contentType, current.getCharset());
+                            parallelOut.set(segment);
+                            try {
+                                IndexOnlyForIterator it = new IndexOnlyForIterator(size, from);
+                                for (int i = from; i < to; i++) {
+                                    it.increment();
+                                    consumer.accept(it, list.get(i));
+                                }
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            } finally {
+                                parallelOut.set(null);
+                            }
+                            return segment;
+                        }
+                    }, executor));
+                }
+                
+                // every range must be done before the output is restored
+                CompletableFuture.allOf(segments.toArray(new CompletableFuture<?>[segments.size()])).join();
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof UncheckedIOException) {
+                    throw ((UncheckedIOException)cause).getCause();
+                } else if (cause instanceof RuntimeException) {
+                    throw (RuntimeException)cause;
+                } else if (cause instanceof Error) {
+                    throw (Error)cause;
+                }
+                throw new RenderingException(cause.getMessage(), cause);
+            } finally {
+                replaceOut(parallelOut, current);
+            }
+            
+            // no copying, just references to the byte arrays of each range
+            for (CompletableFuture<ArrayOfByteArraysOutput> segment : segments) {
+                for (byte[] bytes : segment.join().getArrays()) {
+                    current.w(bytes);
+                }
+            }
+        }
+        
+        private Internal root() {
+            DefaultRockerTemplate template = DefaultRockerTemplate.this;
+            while (template.__internal.context != null) {
+                template = template.__internal.context;
+            }
+            return template.__internal;
+        }
+        
+        //
+        // memoized rendering support (e.g. templates called w/ constant arguments)
+        //
+        
+        public boolean renderMemoized(MemoizedRender memo, final Supplier<?> value) throws RenderingException, IOException {
+            // templates may change while reloading
+            if (RockerRuntime.getInstance().isReloading()) {
+                return renderAnyValue(value.get(), false);
+            }
+            
+            byte[][] arrays = memo.get(out.getCharset());
+            
+            if (arrays == null) {
+                arrays = capture(new RockerContent() {
+                    @Override
+                    public void render() throws IOException, RenderingException {
+                        renderAnyValue(value.get(), false);
+                    }
+                });
+                memo.set(out.getCharset(), arrays);
+            }
+            
+            for (byte[] bytes : arrays) {
+                write(bytes);
+            }
+            
+            return true;
+        }
+        
+        // same as the compiler picking the renderValue() overload, but at runtime
+        private boolean renderAnyValue(Object value, boolean nullSafe) throws RenderingException, IOException {
+            if (value instanceof DefaultRockerModel) {
+                return renderValue((DefaultRockerModel)value, nullSafe);
+            } else if (value instanceof BindableRockerModel) {
+                return renderValue((BindableRockerModel)value, nullSafe);
+            } else if (value instanceof RockerContent) {
+                return renderValue((RockerContent)value, nullSafe);
+            } else if (value instanceof Raw) {
+                return renderValue((Raw)value, nullSafe);
+            } else if (value instanceof String) {
+                return renderValue((String)value, nullSafe);
+            } else {
+                return renderValue(value, nullSafe);
+            }
+        }
+        
         //
         // break, continue support
         //
@@ -239,13 +909,34 @@ public abstract class DefaultRockerTemplate extends RockerTemplate {
         //
         
         public void writeValue(String s) throws IOException {
-            out.w(s);
+            write(s);
         }
         
         public void writeValue(byte[] bytes) throws IOException {
-            out.w(bytes);
+            write(bytes);
         }
-        
+
+        // plain text that was also deflated at build time (only outputs that
+        // know how to splice it in get the deflated form)
+        public void writeValue(String s, byte[] deflated) throws IOException {
+            if (out instanceof DeflatedChunkOutput) {
+                writeValue(s.getBytes(out.getCharset()), deflated);
+            } else {
+                write(s);
+            }
+        }
+
+        public void writeValue(byte[] bytes, byte[] deflated) throws IOException {
+            if (out instanceof DeflatedChunkOutput) {
+                ((DeflatedChunkOutput)out).w(bytes, deflated);
+                if (isCountingByteLength()) {
+                    this.limits.addByteLength(bytes.length);
+                }
+            } else {
+                write(bytes);
+            }
+        }
+
         //
         // methods for rendering value expressions
         //
@@ -254,6 +945,14 @@ public abstract class DefaultRockerTemplate extends RockerTemplate {
                 return false;
             }
             
+            if (c instanceof CapturedContent) {
+                // replay rather than render again
+                for (byte[] bytes : captured((CapturedContent)c)) {
+                    write(bytes);
+                }
+                return true;
+            }
+            
             // delegating rendering this chunk of content to itself
             c.render();
             
@@ -279,7 +978,7 @@ public abstract class DefaultRockerTemplate extends RockerTemplate {
             }
             
             // no stringify for raws
-            out.w(raw.toString());
+            write(raw.toString());
             
             return true;
         }
@@ -296,7 +995,7 @@ public abstract class DefaultRockerTemplate extends RockerTemplate {
                 return false;
             }
             
-            out.w(s);
+            write(s);
             
             return true;
         }
@@ -313,63 +1012,63 @@ public abstract class DefaultRockerTemplate extends RockerTemplate {
                 return false;
             }
             
-            out.w(s);
+            write(s);
             
             return true;
         }
         
         public boolean renderValue(byte v, boolean nullSafe) throws IOException {
             // ignore nullSafe since a primitive cannot be null
-            out.w(stringify.s(v));
+            write(stringify.s(v));
             
             return true;
         }
         
         public boolean renderValue(short v, boolean nullSafe) throws IOException {
             // ignore nullSafe since a primitive cannot be null
-            out.w(stringify.s(v));
+            write(stringify.s(v));
             
             return true;
         }
 
         public boolean renderValue(int v, boolean nullSafe) throws IOException {
             // ignore nullSafe since a primitive cannot be null
-            out.w(stringify.s(v));
+            write(stringify.s(v));
             
             return true;
         }
         
         public boolean renderValue(long v, boolean nullSafe) throws IOException {
             // ignore nullSafe since a primitive cannot be null
-            out.w(stringify.s(v));
+            write(stringify.s(v));
             
             return true;
         }
 
         public boolean renderValue(float v, boolean nullSafe) throws IOException {
             // ignore nullSafe since a primitive cannot be null
-            out.w(stringify.s(v));
+            write(stringify.s(v));
             
             return true;
         }
 
         public boolean renderValue(double v, boolean nullSafe) throws IOException {
             // ignore nullSafe since a primitive cannot be null
-            out.w(stringify.s(v));
+            write(stringify.s(v));
             
             return true;
         }
 
         public boolean renderValue(char v, boolean nullSafe) throws IOException {
             // ignore nullSafe since a primitive cannot be null
-            out.w(stringify.s(v));
+            write(stringify.s(v));
             
             return true;
         }
 
         public boolean renderValue(boolean v, boolean nullSafe) throws IOException {
             // ignore nullSafe since a primitive cannot be null
-            out.w(stringify.s(v));
+            write(stringify.s(v));
             
             return true;
         }
@@ -0,0 +1,297 @@
+/*
+ * Copyright 2015 Fizzed Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.rocker.runtime;
+
+import com.fizzed.rocker.ContentType;
+import com.fizzed.rocker.RockerOutputFactory;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Checksum;
+import java.util.zip.Deflater;
+
+/**
+ * Output that compresses everything written to it into a gzip or zlib stream
+ * on an <code>OutputStream</code>. Dynamic values are compressed as they are
+ * written, while plain text that was already deflated at build time (see the
+ * <code>precompressPlainText</code> option) is copied as-is to the stream and
+ * never passes through the compressor at render time.
+ *
+ * The stream is not complete until <code>finish()</code> is called.  The
+ * underlying <code>OutputStream</code> is not closed.  The native memory of
+ * the compressor is released by <code>finish()</code> or <code>close()</code>
+ * (a render that fails closes an output it created itself).
+ */
+public class DeflateOutput extends AbstractRockerOutput<DeflateOutput> implements DeflatedChunkOutput, Closeable {
+
+    static public enum Format {
+        GZIP,
+        ZLIB
+    }
+
+    static public final int DEFAULT_LEVEL = Deflater.DEFAULT_COMPRESSION;
+    static public final int BUFFER_SIZE = 8192;
+
+    static private final byte[] GZIP_HEADER = new byte[] {
+        (byte)0x1f, (byte)0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte)0xff
+    };
+
+    static private final byte[] ZLIB_HEADER = new byte[] {
+        (byte)0x78, (byte)0x9c
+    };
+
+    private final OutputStream stream;
+    private final Format format;
+    private final Deflater deflater;
+    private final Checksum checksum;
+    private final byte[] buffer;
+    private long compressedByteLength;
+    private boolean started;
+    private boolean pending;
+    private boolean finished;
+    private boolean closed;
+
+    public DeflateOutput(ContentType contentType, OutputStream stream, String charsetName, Format format, int level) {
+        super(contentType, charsetName, 0);
+        this.stream = stream;
+        this.format = format;
+        this.deflater = new Deflater(level, true);
+        this.checksum = (format == Format.GZIP ? new CRC32() : new Adler32());
+        this.buffer = new byte[BUFFER_SIZE];
+    }
+
+    public DeflateOutput(ContentType contentType, OutputStream stream, Charset charset, Format format, int level) {
+        super(contentType, charset, 0);
+        this.stream = stream;
+        this.format = format;
+        this.deflater = new Deflater(level, true);
+        this.checksum = (format == Format.GZIP ? new CRC32() : new Adler32());
+        this.buffer = new byte[BUFFER_SIZE];
+    }
+
+    static public RockerOutputFactory<DeflateOutput> gzip(final OutputStream stream) {
+        return factory(stream, Format.GZIP, DEFAULT_LEVEL);
+    }
+
+    static public RockerOutputFactory<DeflateOutput> zlib(final OutputStream stream) {
+        return factory(stream, Format.ZLIB, DEFAULT_LEVEL);
+    }
+
+    static public RockerOutputFactory<DeflateOutput> factory(final OutputStream stream, final Format format, final int level) {
+        return new RockerOutputFactory<DeflateOutput>() {
+            @Override
+            public DeflateOutput create(ContentType contentType, String charsetName) {
+                return new DeflateOutput(contentType, stream, charsetName, format, level);
+            }
+        };
+    }
+
+    public OutputStream getStream() {
+        return stream;
+    }
+
+    public Format getFormat() {
+        return format;
+    }
+
+    /**
+     * Gets the number of compressed bytes written to the underlying stream so
+     * far (including the header and trailer). Use <code>getByteLength()</code>
+     * for the number of uncompressed bytes.
+     *
+     * @return The number of compressed bytes written
+     */
+    public long getCompressedByteLength() {
+        return compressedByteLength;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    @Override
+    public DeflateOutput w(String string) throws IOException {
+        return w(string.getBytes(charset));
+    }
+
+    @Override
+    public DeflateOutput w(byte[] bytes) throws IOException {
+        start();
+        if (bytes.length == 0) {
+            return this;
+        }
+        this.checksum.update(bytes, 0, bytes.length);
+        this.byteLength += bytes.length;
+        this.deflater.setInput(bytes);
+        while (!this.deflater.needsInput()) {
+            int len = this.deflater.deflate(buffer, 0, buffer.length, Deflater.NO_FLUSH);
+            write(buffer, 0, len);
+        }
+        this.pending = true;
+        return this;
+    }
+
+    @Override
+    public void w(byte[] bytes, byte[] deflated) throws IOException {
+        start();
+        // the compressor must be byte-aligned and must not reference any
+        // earlier data so the precompressed chunk can be spliced in as-is
+        fullFlush();
+        this.checksum.update(bytes, 0, bytes.length);
+        this.byteLength += bytes.length;
+        write(deflated, 0, deflated.length);
+    }
+
+    /**
+     * Flushes everything compressed so far to the underlying stream so a
+     * client is able to decompress all of it (e.g. for a streaming response).
+     * Frequent flushing will hurt the compression ratio.
+     *
+     * @throws IOException Thrown on exception.
+     */
+    public void flush() throws IOException {
+        start();
+        fullFlush();
+        this.stream.flush();
+    }
+
+    /**
+     * Completes the compressed stream by writing its final block and trailer.
+     * Safe to call more than once.  The underlying stream is not closed.
+     *
+     * @throws IOException Thrown on exception.
+     */
+    public void finish() throws IOException {
+        if (this.finished) {
+            return;
+        }
+        try {
+            start();
+            this.deflater.finish();
+            while (!this.deflater.finished()) {
+                int len = this.deflater.deflate(buffer, 0, buffer.length);
+                write(buffer, 0, len);
+            }
+        } finally {
+            close();
+        }
+        this.finished = true;
+
+        long value = this.checksum.getValue();
+        if (format == Format.GZIP) {
+            writeIntLE(value);
+            writeIntLE(this.byteLength & 0xffffffffL);
+        } else {
+            writeIntBE(value);
+        }
+    }
+
+    /**
+     * Releases the native memory of the compressor without completing the
+     * compressed stream (e.g. a render that failed part-way).  Nothing else
+     * may be written afterwards.  Safe to call more than once.  The
+     * underlying stream is not closed.
+     */
+    @Override
+    public void close() {
+        if (!this.closed) {
+            this.closed = true;
+            this.deflater.end();
+        }
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    private void start() throws IOException {
+        if (this.finished) {
+            throw new IOException("Output already finished");
+        }
+        if (this.closed) {
+            throw new IOException("Output already closed");
+        }
+        if (!this.started) {
+            this.started = true;
+            byte[] header = (format == Format.GZIP ? GZIP_HEADER : ZLIB_HEADER);
+            write(header, 0, header.length);
+        }
+    }
+
+    private void fullFlush() throws IOException {
+        if (this.pending) {
+            int len;
+            do {
+                len = this.deflater.deflate(buffer, 0, buffer.length, Deflater.FULL_FLUSH);
+                write(buffer, 0, len);
+            } while (len == buffer.length);
+            this.pending = false;
+        }
+    }
+
+    private void write(byte[] b, int off, int len) throws IOException {
+        if (len > 0) {
+            this.stream.write(b, off, len);
+            this.compressedByteLength += len;
+        }
+    }
+
+    private void writeIntLE(long v) throws IOException {
+        byte[] b = new byte[] { (byte)v, (byte)(v >> 8), (byte)(v >> 16), (byte)(v >> 24) };
+        write(b, 0, 4);
+    }
+
+    private void writeIntBE(long v) throws IOException {
+        byte[] b = new byte[] { (byte)(v >> 24), (byte)(v >> 16), (byte)(v >> 8), (byte)v };
+        write(b, 0, 4);
+    }
+
+    /**
+     * Deflates bytes into a raw deflate stream (no zlib/gzip framing) that is
+     * terminated by a full flush rather than a final block. This is the form
+     * expected by <code>DeflatedChunkOutput</code> and is what the template
+     * generator uses to precompress plain text.
+     *
+     * @param bytes The bytes to deflate
+     * @param level The compression level (e.g. <code>Deflater.BEST_COMPRESSION</code>)
+     * @return The deflated bytes
+     */
+    static public byte[] deflateChunk(byte[] bytes, int level) {
+        Deflater deflater = new Deflater(level, true);
+        try {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream(bytes.length / 2 + 16);
+            byte[] buf = new byte[BUFFER_SIZE];
+            deflater.setInput(bytes);
+            while (!deflater.needsInput()) {
+                int len = deflater.deflate(buf, 0, buf.length, Deflater.NO_FLUSH);
+                baos.write(buf, 0, len);
+            }
+            int len;
+            do {
+                len = deflater.deflate(buf, 0, buf.length, Deflater.FULL_FLUSH);
+                baos.write(buf, 0, len);
+            } while (len == buf.length);
+            return baos.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+}
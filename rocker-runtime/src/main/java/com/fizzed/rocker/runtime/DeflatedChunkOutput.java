@@ -0,0 +1,42 @@
+/*
+ * Copyright 2015 Fizzed Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.rocker.runtime;
+
+import java.io.IOException;
+
+/**
+ * An output that is able to accept plain text that was already deflated when
+ * the template was generated (see the <code>precompressPlainText</code> option).
+ * Templates only hand over the deflated form if the output implements this
+ * interface, otherwise the uncompressed bytes are written as usual.
+ *
+ * The deflated bytes are a raw deflate stream (no zlib/gzip framing) of only the
+ * uncompressed bytes, byte-aligned and terminated with a full flush so that it
+ * may be spliced into any other deflate stream after that stream was also full
+ * flushed.
+ */
+public interface DeflatedChunkOutput {
+
+    /**
+     * Writes a chunk of plain text.
+     *
+     * @param bytes The uncompressed bytes
+     * @param deflated The same bytes already deflated at build time
+     * @throws IOException Thrown on exception.
+     */
+    void w(byte[] bytes, byte[] deflated) throws IOException;
+
+}
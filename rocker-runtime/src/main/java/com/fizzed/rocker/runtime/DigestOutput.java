@@ -0,0 +1,195 @@
+/*
+ * Copyright 2015 Fizzed Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.rocker.runtime;
+
+import com.fizzed.rocker.ContentType;
+import com.fizzed.rocker.RockerOutput;
+import com.fizzed.rocker.RockerOutputFactory;
+import java.io.Closeable;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Output that wraps another output and updates a <code>MessageDigest</code>
+ * with every byte as it is written.  Once rendered, the digest (or an ETag
+ * built from it) is available without a second pass over the output.
+ *
+ * Strings are converted to bytes using the output charset once and those bytes
+ * are then written to the wrapped output.  The digest is always computed over
+ * the uncompressed bytes, even if the wrapped output compresses them.
+ *
+ * @param <T> The type of the wrapped output
+ */
+public class DigestOutput<T extends RockerOutput> extends AbstractRockerOutput<DigestOutput<T>> implements DeflatedChunkOutput, Closeable {
+
+    static public final String DEFAULT_ALGORITHM = "SHA-256";
+
+    static private final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final T output;
+    private final MessageDigest messageDigest;
+    private byte[] digest;
+
+    public DigestOutput(T output, MessageDigest messageDigest) {
+        super(output.getContentType(), output.getCharset(), 0);
+        this.output = output;
+        this.messageDigest = messageDigest;
+    }
+
+    static public <T extends RockerOutput> RockerOutputFactory<DigestOutput<T>> factory(RockerOutputFactory<T> factory) {
+        return factory(factory, DEFAULT_ALGORITHM);
+    }
+
+    static public <T extends RockerOutput> RockerOutputFactory<DigestOutput<T>> factory(final RockerOutputFactory<T> factory, final String algorithm) {
+        // fail now rather than on the first render
+        newMessageDigest(algorithm);
+        return new RockerOutputFactory<DigestOutput<T>>() {
+            @Override
+            public DigestOutput<T> create(ContentType contentType, String charsetName) {
+                return new DigestOutput<>(factory.create(contentType, charsetName), newMessageDigest(algorithm));
+            }
+        };
+    }
+
+    static private MessageDigest newMessageDigest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException("Unsupported digest algorithm [" + algorithm + "]", e);
+        }
+    }
+
+    /**
+     * Gets the wrapped output the bytes were written to.
+     *
+     * @return The wrapped output
+     */
+    public T getOutput() {
+        return output;
+    }
+
+    public String getAlgorithm() {
+        return messageDigest.getAlgorithm();
+    }
+
+    @Override
+    public DigestOutput<T> w(String string) throws IOException {
+        return w(string.getBytes(charset));
+    }
+
+    @Override
+    public DigestOutput<T> w(byte[] bytes) throws IOException {
+        update(bytes);
+        output.w(bytes);
+        return this;
+    }
+
+    @Override
+    public void w(byte[] bytes, byte[] deflated) throws IOException {
+        update(bytes);
+        if (output instanceof DeflatedChunkOutput) {
+            ((DeflatedChunkOutput)output).w(bytes, deflated);
+        } else {
+            output.w(bytes);
+        }
+    }
+
+    private void update(byte[] bytes) throws IOException {
+        if (this.digest != null) {
+            throw new IOException("Digest already computed (output is complete)");
+        }
+        this.messageDigest.update(bytes);
+        this.byteLength += bytes.length;
+    }
+
+    /**
+     * Completes the digest of everything written so far.  Nothing else may be
+     * written to this output afterwards.
+     *
+     * @return The digest (do not modify)
+     */
+    public byte[] getDigest() {
+        if (this.digest == null) {
+            this.digest = this.messageDigest.digest();
+        }
+        return this.digest;
+    }
+
+    /**
+     * Closes the wrapped output if it holds resources of its own (e.g. the
+     * compressor of a <code>DeflateOutput</code>).
+     *
+     * @throws IOException Thrown on exception.
+     */
+    @Override
+    public void close() throws IOException {
+        if (output instanceof Closeable) {
+            ((Closeable)output).close();
+        }
+    }
+
+    public String getDigestAsHex() {
+        byte[] bytes = getDigest();
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i*2] = HEX[(bytes[i] >> 4) & 0x0f];
+            chars[i*2+1] = HEX[bytes[i] & 0x0f];
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Gets a strong entity tag (quoted, as used in the <code>ETag</code> and
+     * <code>If-None-Match</code> HTTP headers) for the rendered bytes.
+     *
+     * @return The entity tag (e.g. <code>"9f86d08..."</code>)
+     */
+    public String getETag() {
+        return "\"" + getDigestAsHex() + "\"";
+    }
+
+    /**
+     * Whether an <code>If-None-Match</code> request header value matches the
+     * rendered bytes (i.e. a <code>304 Not Modified</code> may be sent instead).
+     *
+     * @param ifNoneMatch The header value (may be null, a list or "*")
+     * @return True if matched
+     */
+    public boolean matches(String ifNoneMatch) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String etag = getETag();
+        for (String value : ifNoneMatch.split(",")) {
+            value = value.trim();
+            // weak comparison is fine for a conditional GET
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.equals("*") || value.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return output.toString();
+    }
+
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2015 Fizzed Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.rocker.runtime;
+
+import com.fizzed.rocker.RockerModel;
+
+/**
+ * A model whose arguments are only known at runtime (e.g. a template that is
+ * interpreted rather than compiled) and therefore can't be bound through
+ * generated setters.
+ */
+public interface DynamicRockerModel extends RockerModel {
+    
+    /**
+     * Gets the names of the arguments of the template in order.
+     * 
+     * @return The argument names
+     */
+    String[] getArgumentNames();
+    
+    /**
+     * Binds an argument.
+     * 
+     * @param name The argument name
+     * @param value The argument value
+     * @throws IllegalArgumentException If the template has no argument with
+     *      the name
+     */
+    void bind(String name, Object value) throws IllegalArgumentException;
+    
+}
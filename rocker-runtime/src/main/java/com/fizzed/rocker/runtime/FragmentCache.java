@@ -0,0 +1,326 @@
+/*
+ * Copyright 2015 Fizzed Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.rocker.runtime;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded cache of rendered bytes used by the <code>@cache</code> block of
+ * templates.  Bounded by the total number of bytes cached as well as the
+ * number of entries, with an optional time-to-live per entry.  Once full, the
+ * least recently used entries are evicted first.
+ *
+ * Looking up an entry never blocks other threads (only adding entries past
+ * the bounds does) and concurrent misses of the same key render it just once
+ * (see <code>get(key, ttlMillis, loader)</code>).
+ *
+ * Cached byte arrays are shared by every render that replays them and must
+ * never be modified.  All methods are thread safe.
+ */
+public class FragmentCache {
+
+    static public final long DEFAULT_MAX_BYTES = 16L * 1024L * 1024L;
+    static public final int DEFAULT_MAX_ENTRIES = 10000;
+
+    /**
+     * Loads the bytes to cache for a key (e.g. by rendering a block).
+     */
+    public interface Loader {
+        byte[][] load() throws IOException;
+    }
+    
+    static private class Entry {
+        private final byte[][] arrays;
+        private final long byteLength;
+        private final long expiresAt;
+        // tick of the last access (the lowest is the least recently used)
+        private volatile long accessedAt;
+
+        public Entry(byte[][] arrays, long byteLength, long expiresAt, long accessedAt) {
+            this.arrays = arrays;
+            this.byteLength = byteLength;
+            this.expiresAt = expiresAt;
+            this.accessedAt = accessedAt;
+        }
+    }
+    
+    static private class Loading {
+        private final Thread thread;
+        // completed w/ null if loading failed
+        private final CompletableFuture<byte[][]> future;
+
+        public Loading() {
+            this.thread = Thread.currentThread();
+            this.future = new CompletableFuture<>();
+        }
+    }
+    
+    static private class Candidate {
+        private final Object key;
+        private final Entry entry;
+        private final long accessedAt;
+
+        public Candidate(Object key, Entry entry) {
+            this.key = key;
+            this.entry = entry;
+            this.accessedAt = entry.accessedAt;
+        }
+    }
+    
+    static private final Comparator<Candidate> LEAST_RECENTLY_USED = new Comparator<Candidate>() {
+        @Override
+        public int compare(Candidate a, Candidate b) {
+            return Long.compare(a.accessedAt, b.accessedAt);
+        }
+    };
+
+    private final long maxBytes;
+    private final int maxEntries;
+    private final ConcurrentHashMap<Object,Entry> entries;
+    private final AtomicLong bytes;
+    private final AtomicLong ticks;
+    // keys being loaded (so concurrent misses wait rather than load too)
+    private final ConcurrentHashMap<Object,Loading> loading;
+    // only evicting is serialized (not a monitor so virtual threads never pin)
+    private final ReentrantLock evictionLock;
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+    private final AtomicLong evictions;
+    private final AtomicLong expirations;
+
+    public FragmentCache() {
+        this(DEFAULT_MAX_BYTES, DEFAULT_MAX_ENTRIES);
+    }
+
+    public FragmentCache(long maxBytes, int maxEntries) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes must be > 0");
+        }
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be > 0");
+        }
+        this.maxBytes = maxBytes;
+        this.maxEntries = maxEntries;
+        this.entries = new ConcurrentHashMap<>();
+        this.bytes = new AtomicLong();
+        this.ticks = new AtomicLong();
+        this.loading = new ConcurrentHashMap<>();
+        this.evictionLock = new ReentrantLock();
+        this.hits = new AtomicLong();
+        this.misses = new AtomicLong();
+        this.evictions = new AtomicLong();
+        this.expirations = new AtomicLong();
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * Gets the cached bytes for a key.
+     *
+     * @param key The key
+     * @return The cached byte arrays (in order) or null if not cached or expired
+     */
+    public byte[][] get(Object key) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.expiresAt > 0 && entry.expiresAt <= System.currentTimeMillis()) {
+            if (remove(key, entry)) {
+                this.expirations.incrementAndGet();
+            }
+            entry = null;
+        }
+        if (entry == null) {
+            this.misses.incrementAndGet();
+            return null;
+        }
+        entry.accessedAt = this.ticks.incrementAndGet();
+        this.hits.incrementAndGet();
+        return entry.arrays;
+    }
+    
+    /**
+     * Gets the cached bytes for a key or loads (and caches) them if missing.
+     * Only one thread loads a key at once -- any other thread missing the same
+     * key waits for its bytes rather than loading them too.  If loading fails
+     * a waiting thread loads them itself.
+     *
+     * @param key The key
+     * @param ttlMillis The time-to-live in milliseconds or &lt;= 0 to never expire
+     * @param loader Loads the bytes if missing
+     * @return The cached (or loaded) byte arrays
+     * @throws IOException If loading failed
+     */
+    public byte[][] get(Object key, long ttlMillis, Loader loader) throws IOException {
+        byte[][] arrays = get(key);
+        if (arrays != null) {
+            return arrays;
+        }
+        
+        Loading ours = new Loading();
+        Loading theirs;
+        while ((theirs = this.loading.putIfAbsent(key, ours)) != null) {
+            if (theirs.thread == ours.thread) {
+                // e.g. a template rendering itself within the block (waiting
+                // on ourselves would never end)
+                arrays = loader.load();
+                put(key, arrays, ttlMillis);
+                return arrays;
+            }
+            arrays = theirs.future.join();
+            if (arrays != null) {
+                return arrays;
+            }
+        }
+        
+        arrays = null;
+        try {
+            arrays = loader.load();
+            put(key, arrays, ttlMillis);
+            return arrays;
+        } finally {
+            this.loading.remove(key, ours);
+            ours.future.complete(arrays);
+        }
+    }
+
+    /**
+     * Caches bytes for a key, evicting the least recently used entries as
+     * needed.  Bytes larger than the entire cache are not cached.
+     *
+     * @param key The key
+     * @param arrays The byte arrays (in order) -- must not be modified afterwards
+     * @param ttlMillis The time-to-live in milliseconds or &lt;= 0 to never expire
+     */
+    public void put(Object key, byte[][] arrays, long ttlMillis) {
+        long byteLength = 0;
+        for (byte[] array : arrays) {
+            byteLength += array.length;
+        }
+
+        if (byteLength > this.maxBytes) {
+            return;
+        }
+
+        long expiresAt = (ttlMillis > 0 ? System.currentTimeMillis() + ttlMillis : 0);
+
+        Entry previous = entries.put(key, new Entry(arrays, byteLength, expiresAt, this.ticks.incrementAndGet()));
+        this.bytes.addAndGet(byteLength - (previous != null ? previous.byteLength : 0));
+
+        if (isOverBounds()) {
+            evict();
+        }
+    }
+    
+    private boolean isOverBounds() {
+        return this.bytes.get() > this.maxBytes || entries.size() > this.maxEntries;
+    }
+    
+    private void evict() {
+        this.evictionLock.lock();
+        try {
+            if (!isOverBounds()) {
+                // another thread evicted already
+                return;
+            }
+            
+            List<Candidate> candidates = new ArrayList<>(entries.size());
+            for (Map.Entry<Object,Entry> e : entries.entrySet()) {
+                candidates.add(new Candidate(e.getKey(), e.getValue()));
+            }
+            Collections.sort(candidates, LEAST_RECENTLY_USED);
+            
+            for (int i = 0; i < candidates.size() && isOverBounds(); i++) {
+                if (remove(candidates.get(i).key, candidates.get(i).entry)) {
+                    this.evictions.incrementAndGet();
+                }
+            }
+        } finally {
+            this.evictionLock.unlock();
+        }
+    }
+
+    public void invalidate(Object key) {
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            remove(key, entry);
+        }
+    }
+
+    public void invalidateAll() {
+        for (Map.Entry<Object,Entry> e : entries.entrySet()) {
+            remove(e.getKey(), e.getValue());
+        }
+    }
+
+    private boolean remove(Object key, Entry entry) {
+        if (this.entries.remove(key, entry)) {
+            this.bytes.addAndGet(-entry.byteLength);
+            return true;
+        }
+        return false;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Gets the total number of bytes currently cached.
+     *
+     * @return The number of bytes
+     */
+    public long getByteSize() {
+        return bytes.get();
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    public long getExpirationCount() {
+        return expirations.get();
+    }
+
+    @Override
+    public String toString() {
+        return "FragmentCache{entries=" + size() + ", bytes=" + getByteSize()
+            + ", hits=" + getHitCount() + ", misses=" + getMissCount()
+            + ", evictions=" + getEvictionCount() + ", expirations=" + getExpirationCount() + "}";
+    }
+
+}
@@ -29,7 +29,18 @@ public class IndexOnlyForIterator implements ForIterator {
     private final int size;
     
     public IndexOnlyForIterator(int size) {
-        this.index = -1;
+        this(size, 0);
+    }
+    
+    /**
+     * Iterates a range of the elements (e.g. of a parallel for loop) that
+     * starts at an index.
+     * 
+     * @param size The number of elements overall
+     * @param startIndex The index of the first element in the range
+     */
+    public IndexOnlyForIterator(int size, int startIndex) {
+        this.index = startIndex - 1;
         this.size = size;
     }
     
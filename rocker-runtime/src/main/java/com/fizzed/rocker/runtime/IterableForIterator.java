@@ -18,14 +18,20 @@ package com.fizzed.rocker.runtime;
 import com.fizzed.rocker.ForIterator;
 
 import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.BaseStream;
 
 /**
  * ForIterator implementation that wraps an <code>Iterable</code> and actually
- * handles the iteration of elements.
+ * handles the iteration of elements.  Streams and spliterators are iterated
+ * lazily (looking ahead a single element for <code>last()</code>) and a
+ * stream is closed by <code>close()</code>.
  */
-public class IterableForIterator<T> implements ForIterator {
+public class IterableForIterator<T> implements ForIterator, AutoCloseable {
 
     private final Iterator<? extends T> iterator;
+    private final BaseStream<?,?> stream;
     private int index;
 
     public IterableForIterator(Iterable<? extends T> c) {
@@ -68,8 +74,21 @@ public class IterableForIterator<T> implements ForIterator {
         this((Iterable<T>) new PrimitiveCollections.DoubleCollection(a));
     }
 
+    public IterableForIterator(Spliterator<? extends T> spliterator) {
+        this(Spliterators.iterator(spliterator));
+    }
+
+    public IterableForIterator(BaseStream<? extends T,?> stream) {
+        this(stream.iterator(), stream);
+    }
+
     public IterableForIterator(Iterator<? extends T> iterator) {
+        this(iterator, null);
+    }
+
+    private IterableForIterator(Iterator<? extends T> iterator, BaseStream<?,?> stream) {
         this.iterator = iterator;
+        this.stream = stream;
         this.index = -1;
     }
 
@@ -98,4 +117,11 @@ public class IterableForIterator<T> implements ForIterator {
         return !iterator.hasNext();
     }
 
+    @Override
+    public void close() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
 }
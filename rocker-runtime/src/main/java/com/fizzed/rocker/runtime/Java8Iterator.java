@@ -30,6 +30,9 @@ import java.io.IOException;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.BaseStream;
 
 public class Java8Iterator {
     
@@ -49,6 +52,21 @@ public class Java8Iterator {
         void accept(ForIterator i, K k, V v) throws RenderingException, IOException;
     }
     
+    /**
+     * Calls the consumer with a snapshot of the value if it is a ForIterator
+     * (otherwise with the value itself).  Loops w/ an <code>@async</code>
+     * block pass their iterator thru this since the block may only render
+     * once the iterator moved on.
+     */
+    @SuppressWarnings("unchecked")
+    static public <T> void snapshot(T value, ConsumeCollection<T> consumer) throws RenderingException, IOException {
+        if (value instanceof ForIterator) {
+            consumer.accept((T)new SnapshotForIterator((ForIterator)value));
+        } else {
+            consumer.accept(value);
+        }
+    }
+    
     static public <V> void forEach(Iterator<V> items, ConsumeCollection<V> consumer)  throws RenderingException, IOException {
         while (items.hasNext()) {
             V item = items.next();
@@ -84,6 +102,29 @@ public class Java8Iterator {
         }
     }
     
+    // support for streams (e.g. rows from a db cursor) w/o collecting them
+    // first & closing the stream once done
+    
+    static public <V> void forEach(BaseStream<V,?> items, ConsumeCollection<V> consumer)  throws RenderingException, IOException {
+        try (BaseStream<V,?> stream = items) {
+            forEach(stream.iterator(), consumer);
+        }
+    }
+    
+    static public <V> void forEach(BaseStream<V,?> items, ConsumeCollectionWithIterator<V> consumer)  throws RenderingException, IOException {
+        try (BaseStream<V,?> stream = items) {
+            forEach(stream.iterator(), consumer);
+        }
+    }
+    
+    static public <V> void forEach(Spliterator<V> items, ConsumeCollection<V> consumer)  throws RenderingException, IOException {
+        forEach(Spliterators.iterator(items), consumer);
+    }
+    
+    static public <V> void forEach(Spliterator<V> items, ConsumeCollectionWithIterator<V> consumer)  throws RenderingException, IOException {
+        forEach(Spliterators.iterator(items), consumer);
+    }
+    
     static public <K,V> void forEach(Map<K,V> items, ConsumeMap<K,V> consumer)  throws RenderingException, IOException {
         for (Map.Entry<K,V> item : items.entrySet()) {
             consumer.accept(item.getKey(), item.getValue());
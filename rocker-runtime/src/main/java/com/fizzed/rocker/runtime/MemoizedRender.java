@@ -0,0 +1,64 @@
+/*
+ * Copyright 2015 Fizzed Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.rocker.runtime;
+
+import java.nio.charset.Charset;
+
+/**
+ * Holds the rendered bytes of a single call site in a template that always
+ * renders the same bytes (e.g. another template called with only constant
+ * arguments).  Generated as a static field of the calling template when the
+ * <code>memoizeConstantCalls</code> option is enabled.
+ *
+ * The byte arrays are shared by every render and must never be modified.
+ */
+public class MemoizedRender {
+
+    static private final class Rendered {
+        private final Charset charset;
+        private final byte[][] arrays;
+
+        public Rendered(Charset charset, byte[][] arrays) {
+            this.charset = charset;
+            this.arrays = arrays;
+        }
+    }
+
+    private volatile Rendered rendered;
+
+    /**
+     * Gets the memoized bytes.
+     *
+     * @param charset The charset the bytes must be in
+     * @return The byte arrays (in order) or null if not yet rendered in the charset
+     */
+    public byte[][] get(Charset charset) {
+        Rendered r = this.rendered;
+        if (r != null && r.charset.equals(charset)) {
+            return r.arrays;
+        }
+        return null;
+    }
+
+    public void set(Charset charset, byte[][] arrays) {
+        this.rendered = new Rendered(charset, arrays);
+    }
+
+    public void clear() {
+        this.rendered = null;
+    }
+
+}
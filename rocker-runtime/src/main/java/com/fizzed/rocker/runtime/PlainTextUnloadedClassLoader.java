@@ -16,12 +16,12 @@
 package com.fizzed.rocker.runtime;
 
 import com.fizzed.rocker.RenderingException;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.lang.reflect.Field;
 import java.net.MalformedURLException;
-import java.net.URL;
-import java.net.URLClassLoader;
-import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
@@ -35,6 +35,22 @@ import java.util.Map;
  */
 public class PlainTextUnloadedClassLoader {
     
+    // fields w/ this suffix hold bytes (e.g. precompressed plain text) stored
+    // as a latin-1 string rather than text in the template charset
+    static public final String BYTES_FIELD_SUFFIX = "_DEFLATED";
+    
+    static private class BytesClassLoader extends ClassLoader {
+        
+        public BytesClassLoader() {
+            super(null);
+        }
+        
+        public Class<?> define(String className, byte[] classData) {
+            return defineClass(className, classData, 0, classData.length);
+        }
+        
+    }
+    
     private final String className;
     private final Map<String,byte[]> fields;
 
@@ -89,31 +105,26 @@ public class PlainTextUnloadedClassLoader {
     static public PlainTextUnloadedClassLoader load(ClassLoader sourceClassLoader, String classBinaryName, String charsetName)
             throws ClassNotFoundException, MalformedURLException, IllegalArgumentException, UnsupportedEncodingException, IllegalAccessException {
         // find class as though it was any other resource
-        // this will search the classpath
+        // this will search the classpath (or a reloading classloader's memory)
         String resourceName = classBinaryName.replace('.', '/') + ".class";
-        URL url = sourceClassLoader.getResource(resourceName);
-        if (url == null) {
-            throw new ClassNotFoundException("Unable to find class as resource [" + resourceName + "]");
-        }
-
-        // chop off path at end to get the base url we will use to load
-        // the class via a temporary URLClassLoader below
-        String resourcePath = URLDecoder.decode(url.toString(), StandardCharsets.UTF_8.name());
-        int pos = resourcePath.lastIndexOf("/" + resourceName);
-        if (pos < 0) {
-            throw new ClassNotFoundException("Unable to compute resource base for [" + resourceName + "]");
+        byte[] classData;
+        try (InputStream input = sourceClassLoader.getResourceAsStream(resourceName)) {
+            if (input == null) {
+                throw new ClassNotFoundException("Unable to find class as resource [" + resourceName + "]");
+            }
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            byte[] data = new byte[8192];
+            int read;
+            while ((read = input.read(data)) != -1) {
+                buffer.write(data, 0, read);
+            }
+            classData = buffer.toByteArray();
+        } catch (IOException e) {
+            throw new ClassNotFoundException("Unable to read class resource [" + resourceName + "]", e);
         }
-
-        // we always want to keep trailing '/'
-        pos += 1;
-
-        String resourceBasePath = resourcePath.substring(0, pos);
-        URL resourceBase = new URL(resourceBasePath);
         
-        // create classloader w/ no parent class
-        URLClassLoader classLoader = new URLClassLoader(new URL[] { resourceBase }, null);
-
-        Class<?> type = classLoader.loadClass(classBinaryName);
+        // define in a temporary classloader w/ no parent class
+        Class<?> type = new BytesClassLoader().define(classBinaryName, classData);
 
         // load each declared field into map
         Map<String,byte[]> fields = new HashMap<String,byte[]>();
@@ -128,7 +139,12 @@ public class PlainTextUnloadedClassLoader {
             // field should be static
             String s = (String)field.get(null);
 
-            byte[] bytes = s.getBytes(charsetName);
+            byte[] bytes;
+            if (field.getName().endsWith(BYTES_FIELD_SUFFIX)) {
+                bytes = s.getBytes(StandardCharsets.ISO_8859_1);
+            } else {
+                bytes = s.getBytes(charsetName);
+            }
 
             fields.put(field.getName(), bytes);
         }
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2015 Fizzed Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.rocker.runtime;
+
+import com.fizzed.rocker.RenderingException;
+import com.fizzed.rocker.RockerModel;
+import com.fizzed.rocker.RockerOutput;
+import com.fizzed.rocker.RockerOutputFactory;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Helpers for rendering on an executor -- in particular a virtual thread per
+ * render on Java 21+ (while the runtime itself only requires Java 8).
+ * 
+ * The runtime never blocks while holding a monitor (locks are used instead),
+ * so a render blocked on a slow output (e.g. an <code>OutputStreamOutput</code>
+ * of a socket) unmounts its virtual thread rather than pinning the carrier.
+ * Output streams wrapped around the socket should not synchronize on writes
+ * either (e.g. a <code>BufferedOutputStream</code> prior to Java 21).  Run
+ * with <code>-Djdk.tracePinnedThreads=full</code> to check.
+ */
+public class RenderExecutors {
+    
+    // Executors.newVirtualThreadPerTaskExecutor() or null if not available
+    static private final Method NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = findNewVirtualThreadPerTaskExecutor();
+    
+    static private Method findNewVirtualThreadPerTaskExecutor() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+    
+    /**
+     * Whether virtual threads are available (Java 21+).
+     * 
+     * @return True if available
+     */
+    static public boolean isVirtualThreadsAvailable() {
+        return NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null;
+    }
+    
+    /**
+     * Creates an executor that starts a new virtual thread for every task
+     * (e.g. for every render).
+     * 
+     * @return The new executor
+     * @throws UnsupportedOperationException If virtual threads are not available
+     */
+    static public ExecutorService newVirtualThreadPerTaskExecutor() {
+        if (NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR == null) {
+            throw new UnsupportedOperationException("Virtual threads require Java 21+ (running "
+                + System.getProperty("java.version") + ")");
+        }
+        
+        try {
+            return (ExecutorService)NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invoke(null);
+        } catch (IllegalAccessException e) {
+            throw new UnsupportedOperationException("Unable to create virtual thread executor", e);
+        } catch (InvocationTargetException e) {
+            throw new UnsupportedOperationException("Unable to create virtual thread executor", e.getCause());
+        }
+    }
+    
+    /**
+     * Renders a model on an executor.
+     * 
+     * @param <O> The type of output
+     * @param model The model to render
+     * @param outputFactory Factory for creating the output
+     * @param executor The executor to render on (e.g. a virtual thread per task)
+     * @return The future output (completed exceptionally with a
+     *      <code>RenderingException</code> if rendering failed)
+     */
+    static public <O extends RockerOutput> CompletableFuture<O> render(final RockerModel model,
+            final RockerOutputFactory<O> outputFactory, Executor executor) {
+        return CompletableFuture.supplyAsync(new Supplier<O>() {
+            @Override
+            public O get() throws RenderingException {
+                return model.render(outputFactory);
+            }
+        }, executor);
+    }
+    
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2015 Fizzed Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.rocker.runtime;
+
+import com.fizzed.rocker.RockerTemplate;
+import com.fizzed.rocker.RockerTemplateCustomizer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits a render to a deadline and/or a max byte length of output.  Supplied
+ * as the customizer of a render (e.g. <code>model.render(factory, limits)</code>)
+ * and applies to every template rendered within it as well.
+ * 
+ * Limits are checked cooperatively -- at the start of every template and of
+ * every loop iteration -- so a single slow value expression is never
+ * interrupted, but a render running away over huge data is stopped with a
+ * <code>RenderLimitExceededException</code>.
+ * 
+ * The max byte length counts every byte rendered, no matter which buffer it
+ * was rendered to first (e.g. a range of a <code>@parallel for</code> loop or
+ * what follows a pending <code>@async</code> block).
+ */
+public class RenderLimits implements RockerTemplateCustomizer {
+    
+    static private final RenderLimits NONE = new RenderLimits(false, 0L, -1L, null);
+    
+    private final boolean deadline;
+    private final long deadlineNanos;
+    private final long maxByteLength;
+    // bytes rendered so far (only the limits of a render have one)
+    private final AtomicLong byteLength;
+
+    private RenderLimits(boolean deadline, long deadlineNanos, long maxByteLength, AtomicLong byteLength) {
+        this.deadline = deadline;
+        this.deadlineNanos = deadlineNanos;
+        this.maxByteLength = maxByteLength;
+        this.byteLength = byteLength;
+    }
+    
+    static public RenderLimits none() {
+        return NONE;
+    }
+    
+    /**
+     * Limits to a deadline that is the timeout from now (not from when the
+     * render begins).
+     * 
+     * @param timeout The timeout from now
+     * @param unit The unit of the timeout
+     * @return New limits
+     */
+    public RenderLimits withTimeout(long timeout, TimeUnit unit) {
+        return withDeadline(System.nanoTime() + unit.toNanos(timeout));
+    }
+    
+    /**
+     * Limits to a deadline.
+     * 
+     * @param deadlineNanos The deadline as a value of <code>System.nanoTime()</code>
+     * @return New limits
+     */
+    public RenderLimits withDeadline(long deadlineNanos) {
+        return new RenderLimits(true, deadlineNanos, this.maxByteLength, null);
+    }
+    
+    public RenderLimits withMaxByteLength(long maxByteLength) {
+        if (maxByteLength < 0) {
+            throw new IllegalArgumentException("maxByteLength must be >= 0");
+        }
+        return new RenderLimits(this.deadline, this.deadlineNanos, maxByteLength, null);
+    }
+
+    public boolean hasDeadline() {
+        return deadline;
+    }
+
+    public long getDeadlineNanos() {
+        return deadlineNanos;
+    }
+
+    public boolean hasMaxByteLength() {
+        return maxByteLength >= 0;
+    }
+    
+    public long getMaxByteLength() {
+        return maxByteLength;
+    }
+    
+    /**
+     * Gets the number of bytes rendered so far.  Only the limits of a render
+     * (as set on its templates) count them.
+     * 
+     * @return The number of bytes rendered so far
+     */
+    public long getByteLength() {
+        return (this.byteLength != null ? this.byteLength.get() : 0L);
+    }
+    
+    boolean isCountingByteLength() {
+        return this.byteLength != null;
+    }
+    
+    void addByteLength(long delta) {
+        this.byteLength.addAndGet(delta);
+    }
+    
+    public boolean isDeadlineExceeded() {
+        return this.deadline && System.nanoTime() - this.deadlineNanos > 0;
+    }
+    
+    public boolean isMaxByteLengthExceeded(long byteLength) {
+        return this.maxByteLength >= 0 && byteLength > this.maxByteLength;
+    }
+
+    @Override
+    public void customize(RockerTemplate template) {
+        // every render counts its own bytes (templates rendered within it
+        // share the same limits)
+        AtomicLong counter = (this.maxByteLength >= 0 ? new AtomicLong() : null);
+        ((DefaultRockerTemplate)template).__internal.setLimits(
+            new RenderLimits(this.deadline, this.deadlineNanos, this.maxByteLength, counter));
+    }
+    
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2015 Fizzed Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.rocker.runtime;
+
+import com.fizzed.rocker.ContentType;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Output that writes into a single growable byte array that is reset and
+ * reused (e.g. across every render of a batch by a <code>BulkRenderer</code>)
+ * rather than allocated per render.  Strings are encoded straight into the
+ * array by a reused encoder (ASCII is copied as is for charsets that are a
+ * superset of it) rather than via an intermediate byte array.
+ * 
+ * The bytes are only valid until the output is reset.
+ */
+public class ReusableByteArrayOutput extends AbstractRockerOutput<ReusableByteArrayOutput> {
+    
+    static public final int DEFAULT_INITIAL_SIZE = 8192;
+    
+    private final boolean asciiCompatible;
+    private final CharsetEncoder encoder;
+    private byte[] buffer;
+    
+    public ReusableByteArrayOutput(ContentType contentType, String charsetName) {
+        this(contentType, Charset.forName(charsetName), DEFAULT_INITIAL_SIZE);
+    }
+    
+    public ReusableByteArrayOutput(ContentType contentType, Charset charset, int initialSize) {
+        super(contentType, charset, 0);
+        this.asciiCompatible = charset.equals(StandardCharsets.UTF_8)
+            || charset.equals(StandardCharsets.ISO_8859_1)
+            || charset.equals(StandardCharsets.US_ASCII);
+        // same replacement of unmappable chars as String.getBytes()
+        this.encoder = charset.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.buffer = new byte[Math.max(initialSize, 16)];
+    }
+    
+    /**
+     * Discards everything written so far (keeping the array for reuse).
+     */
+    public void reset() {
+        this.byteLength = 0;
+    }
+    
+    /**
+     * Gets the underlying array. Only the first <code>getByteLength()</code>
+     * bytes were written.
+     * 
+     * @return The underlying array (not a copy)
+     */
+    public byte[] getBuffer() {
+        return this.buffer;
+    }
+    
+    public byte[] toByteArray() {
+        return Arrays.copyOf(this.buffer, this.byteLength);
+    }
+    
+    /**
+     * Wraps the bytes written (not a copy).
+     * 
+     * @return A read-only buffer of the bytes written
+     */
+    public ByteBuffer asByteBuffer() {
+        return ByteBuffer.wrap(this.buffer, 0, this.byteLength).asReadOnlyBuffer();
+    }
+    
+    public void writeTo(OutputStream stream) throws IOException {
+        stream.write(this.buffer, 0, this.byteLength);
+    }
+    
+    private void ensureCapacity(int capacity) {
+        if (capacity > this.buffer.length) {
+            this.buffer = Arrays.copyOf(this.buffer, Math.max(capacity, this.buffer.length * 2));
+        }
+    }
+
+    @Override
+    public ReusableByteArrayOutput w(String string) throws IOException {
+        int length = string.length();
+        
+        if (this.asciiCompatible) {
+            ensureCapacity(this.byteLength + length);
+            byte[] b = this.buffer;
+            int offset = this.byteLength;
+            int i = 0;
+            for (; i < length; i++) {
+                char c = string.charAt(i);
+                if (c >= 0x80) {
+                    break;
+                }
+                b[offset + i] = (byte)c;
+            }
+            this.byteLength += i;
+            if (i == length) {
+                return this;
+            }
+            string = string.substring(i);
+        }
+        
+        encode(string);
+        
+        return this;
+    }
+    
+    private void encode(String string) throws CharacterCodingException {
+        CharBuffer in = CharBuffer.wrap(string);
+        
+        ensureCapacity(this.byteLength + (int)(string.length() * this.encoder.averageBytesPerChar()) + 1);
+        
+        this.encoder.reset();
+        
+        boolean flushing = false;
+        while (true) {
+            ByteBuffer out = ByteBuffer.wrap(this.buffer, this.byteLength, this.buffer.length - this.byteLength);
+            CoderResult result = (flushing ? this.encoder.flush(out) : this.encoder.encode(in, out, true));
+            this.byteLength = out.position();
+            
+            if (result.isOverflow()) {
+                ensureCapacity(this.buffer.length + (int)(in.remaining() * this.encoder.maxBytesPerChar()) + 16);
+            } else if (result.isError()) {
+                result.throwException();
+            } else if (!flushing) {
+                flushing = true;
+            } else {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public ReusableByteArrayOutput w(byte[] bytes) throws IOException {
+        ensureCapacity(this.byteLength + bytes.length);
+        System.arraycopy(bytes, 0, this.buffer, this.byteLength, bytes.length);
+        this.byteLength += bytes.length;
+        return this;
+    }
+    
+    @Override
+    public String toString() {
+        return new String(this.buffer, 0, this.byteLength, this.charset);
+    }
+    
+}
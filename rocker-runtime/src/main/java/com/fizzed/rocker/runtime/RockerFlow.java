@@ -0,0 +1,45 @@
+/*
+ * Copyright 2015 Fizzed Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.rocker.runtime;
+
+/**
+ * The reactive streams interfaces of <code>java.util.concurrent.Flow</code>
+ * (which requires Java 9+) with identical methods, so adapting to it (or to
+ * any other reactive streams library) is a matter of delegating each method.
+ */
+public final class RockerFlow {
+    
+    private RockerFlow() {
+        // no instances
+    }
+    
+    public interface Publisher<T> {
+        void subscribe(Subscriber<? super T> subscriber);
+    }
+    
+    public interface Subscriber<T> {
+        void onSubscribe(Subscription subscription);
+        void onNext(T item);
+        void onError(Throwable throwable);
+        void onComplete();
+    }
+    
+    public interface Subscription {
+        void request(long n);
+        void cancel();
+    }
+    
+}
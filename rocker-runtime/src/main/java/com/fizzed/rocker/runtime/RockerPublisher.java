@@ -0,0 +1,313 @@
+/*
+ * Copyright 2015 Fizzed Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.rocker.runtime;
+
+import com.fizzed.rocker.ContentType;
+import com.fizzed.rocker.RockerModel;
+import com.fizzed.rocker.RockerOutputFactory;
+import com.fizzed.rocker.runtime.RockerFlow.Publisher;
+import com.fizzed.rocker.runtime.RockerFlow.Subscriber;
+import com.fizzed.rocker.runtime.RockerFlow.Subscription;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Renders a model as a stream of byte buffers under backpressure (the reactive
+ * streams contract).  The template renders on a thread of the executor and is
+ * paused (that thread blocks) whenever the subscriber has no outstanding
+ * demand, so a large page is never buffered in full nor does rendering block
+ * an event loop thread.  Output is batched into chunks of (at least) the chunk
+ * size, except for the last one.
+ * 
+ * See {@link RockerFlow} for adapting it to <code>java.util.concurrent.Flow</code>.
+ * 
+ * Like rendering, a publisher is single use -- only one subscriber is allowed.
+ */
+public class RockerPublisher implements Publisher<ByteBuffer> {
+    
+    static public final int DEFAULT_CHUNK_SIZE = 8192;
+    
+    private final RockerModel model;
+    private final Executor executor;
+    private final int chunkSize;
+    private final AtomicBoolean subscribed;
+
+    /**
+     * Creates a new publisher.
+     * 
+     * @param model The model to render
+     * @param executor The executor to render on (its threads will block while
+     *      the subscriber has no demand)
+     */
+    public RockerPublisher(RockerModel model, Executor executor) {
+        this(model, executor, DEFAULT_CHUNK_SIZE);
+    }
+    
+    public RockerPublisher(RockerModel model, Executor executor, int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be > 0");
+        }
+        this.model = model;
+        this.executor = executor;
+        this.chunkSize = chunkSize;
+        this.subscribed = new AtomicBoolean();
+    }
+    
+    @Override
+    public void subscribe(Subscriber<? super ByteBuffer> subscriber) {
+        if (subscriber == null) {
+            throw new NullPointerException("Subscriber was null");
+        }
+        
+        if (!this.subscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(new Subscription() {
+                @Override
+                public void request(long n) { }
+                @Override
+                public void cancel() { }
+            });
+            subscriber.onError(new IllegalStateException("Only a single subscriber is allowed (rendering is single use)"));
+            return;
+        }
+        
+        RenderSubscription subscription = new RenderSubscription(subscriber);
+        
+        subscriber.onSubscribe(subscription);
+    }
+    
+    /**
+     * Thrown (as the cause of a rendering exception) to stop rendering once
+     * the subscription was cancelled.
+     */
+    static private class CancelledException extends InterruptedIOException {
+        public CancelledException() {
+            super("Subscription cancelled");
+        }
+    }
+    
+    private class RenderSubscription implements Subscription, Runnable {
+        
+        private final Subscriber<? super ByteBuffer> subscriber;
+        // not a monitor so a virtual thread waiting for demand unmounts
+        private final ReentrantLock lock;
+        private final Condition demanded;
+        private long demand;                    // guarded by lock
+        private boolean cancelled;              // guarded by lock
+        private Throwable error;                // guarded by lock (e.g. illegal request)
+        private boolean started;                // guarded by lock
+
+        public RenderSubscription(Subscriber<? super ByteBuffer> subscriber) {
+            this.subscriber = subscriber;
+            this.lock = new ReentrantLock();
+            this.demanded = this.lock.newCondition();
+        }
+        
+        @Override
+        public void request(long n) {
+            boolean start = false;
+            
+            this.lock.lock();
+            try {
+                if (this.cancelled) {
+                    return;
+                }
+                
+                if (n <= 0) {
+                    this.error = new IllegalArgumentException("Requested " + n + " items (must be > 0)");
+                } else {
+                    this.demand += n;
+                    if (this.demand < 0) {
+                        this.demand = Long.MAX_VALUE;   // effectively unbounded
+                    }
+                }
+                
+                if (!this.started) {
+                    this.started = start = true;
+                }
+                
+                this.demanded.signalAll();
+            } finally {
+                this.lock.unlock();
+            }
+            
+            // rendering only begins once something was requested
+            if (start) {
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    this.lock.lock();
+                    try {
+                        this.cancelled = true;
+                    } finally {
+                        this.lock.unlock();
+                    }
+                    this.subscriber.onError(e);
+                }
+            }
+        }
+
+        @Override
+        public void cancel() {
+            this.lock.lock();
+            try {
+                this.cancelled = true;
+                this.demanded.signalAll();
+            } finally {
+                this.lock.unlock();
+            }
+        }
+        
+        @Override
+        public void run() {
+            try {
+                model.render(new RockerOutputFactory<ChunkedOutput>() {
+                    @Override
+                    public ChunkedOutput create(ContentType contentType, String charsetName) {
+                        return new ChunkedOutput(contentType, charsetName, RenderSubscription.this);
+                    }
+                }).flush();
+            } catch (Throwable t) {
+                Throwable error;
+                this.lock.lock();
+                try {
+                    if (this.cancelled && this.error == null) {
+                        return;
+                    }
+                    error = (this.error != null ? this.error : t);
+                    this.cancelled = true;
+                } finally {
+                    this.lock.unlock();
+                }
+                this.subscriber.onError(error);
+                return;
+            }
+            
+            Throwable error;
+            this.lock.lock();
+            try {
+                if (this.cancelled && this.error == null) {
+                    return;
+                }
+                error = this.error;
+                this.cancelled = true;
+            } finally {
+                this.lock.unlock();
+            }
+            
+            if (error != null) {
+                this.subscriber.onError(error);
+            } else {
+                this.subscriber.onComplete();
+            }
+        }
+        
+        /**
+         * Called on the rendering thread to emit a chunk.  Blocks until there
+         * is demand for it.
+         */
+        public void emit(ByteBuffer chunk) throws IOException {
+            this.lock.lock();
+            try {
+                while (this.demand == 0 && !this.cancelled && this.error == null) {
+                    try {
+                        this.demanded.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        this.cancelled = true;
+                        throw new InterruptedIOException("Interrupted while waiting for demand");
+                    }
+                }
+                
+                if (this.cancelled || this.error != null) {
+                    throw new CancelledException();
+                }
+                
+                this.demand--;
+            } finally {
+                this.lock.unlock();
+            }
+            
+            this.subscriber.onNext(chunk);
+        }
+        
+    }
+    
+    private class ChunkedOutput extends AbstractRockerOutput<ChunkedOutput> {
+        
+        private final RenderSubscription subscription;
+        private byte[] chunk;
+        private int length;
+        
+        public ChunkedOutput(ContentType contentType, String charsetName, RenderSubscription subscription) {
+            super(contentType, charsetName, 0);
+            this.subscription = subscription;
+        }
+
+        @Override
+        public ChunkedOutput w(String string) throws IOException {
+            return w(string.getBytes(this.charset));
+        }
+
+        @Override
+        public ChunkedOutput w(byte[] bytes) throws IOException {
+            this.byteLength += bytes.length;
+            
+            if (this.length == 0 && bytes.length >= chunkSize) {
+                // big enough on its own (may be shared -- e.g. plain text)
+                this.subscription.emit(ByteBuffer.wrap(bytes).asReadOnlyBuffer());
+                return this;
+            }
+            
+            int offset = 0;
+            while (offset < bytes.length) {
+                if (this.chunk == null) {
+                    this.chunk = new byte[chunkSize];
+                }
+                int count = Math.min(bytes.length - offset, chunkSize - this.length);
+                System.arraycopy(bytes, offset, this.chunk, this.length, count);
+                this.length += count;
+                offset += count;
+                if (this.length == chunkSize) {
+                    flush();
+                }
+            }
+            
+            return this;
+        }
+        
+        public void flush() throws IOException {
+            if (this.length > 0) {
+                ByteBuffer buffer = ByteBuffer.wrap(this.chunk, 0, this.length);
+                this.chunk = null;
+                this.length = 0;
+                this.subscription.emit(buffer);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "chunked output (" + this.byteLength + " bytes)";
+        }
+        
+    }
+    
+}
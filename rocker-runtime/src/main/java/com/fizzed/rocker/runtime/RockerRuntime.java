@@ -16,6 +16,8 @@
 package com.fizzed.rocker.runtime;
 
 import com.fizzed.rocker.RockerStringify;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import javax.tools.ToolProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -24,6 +26,7 @@ public class RockerRuntime {
     private final static Logger log = LoggerFactory.getLogger(RockerRuntime.class.getName());
     
     static public final String KEY_RELOADING = "rocker.reloading";
+    static public final String KEY_INTERPRETING = "rocker.interpreting";
     static public final String CONF_RESOURCE_NAME = "/rocker-compiler.conf";
     
     private static class Holder {
@@ -31,10 +34,16 @@ public class RockerRuntime {
     }
     
     private Boolean reloading;
+    private boolean interpreting;
     private RockerBootstrap bootstrap;
+    private volatile FragmentCache fragmentCache;
+    private volatile Executor parallelExecutor;
     
     private RockerRuntime() {
     
+        this.fragmentCache = new FragmentCache();
+        this.parallelExecutor = ForkJoinPool.commonPool();
+    
         log.info("Rocker version {}", com.fizzed.rocker.Version.getVersion());
         
         String reloadingProperty = System.getProperty(KEY_RELOADING, "false");
@@ -45,6 +54,13 @@ public class RockerRuntime {
         } else {
             throw new IllegalArgumentException("Illegal value [" + reloadingProperty + "] for rocker.reloading sytem property");
         }
+        
+        String interpretingProperty = System.getProperty(KEY_INTERPRETING, "false");
+        if (interpretingProperty.equalsIgnoreCase("true")) {
+            setInterpreting(true);
+        } else if (!interpretingProperty.equalsIgnoreCase("false")) {
+            throw new IllegalArgumentException("Illegal value [" + interpretingProperty + "] for rocker.interpreting sytem property");
+        }
     
     }
     
@@ -57,7 +73,7 @@ public class RockerRuntime {
     }
     
     final public void setReloading(boolean reloading) {
-        if (this.reloading != null && this.reloading == reloading) {
+        if (this.reloading != null && this.reloading == reloading && !this.interpreting) {
             // noop
             return;
         }
@@ -72,12 +88,86 @@ public class RockerRuntime {
         }
         
         this.reloading = reloading;
+        this.interpreting = false;
+    }
+    
+    public boolean isInterpreting() {
+        return this.interpreting;
+    }
+    
+    /**
+     * Activates (or deactivates) interpreting templates. Templates are then
+     * parsed from their source and rendered by walking the parsed model rather
+     * than by their compiled classes. Changes are picked up immediately and no
+     * JDK is required, but only a subset of the template syntax is supported.
+     * Deactivating falls back to the current reloading setting.
+     * 
+     * @param interpreting True to interpret templates
+     */
+    final public void setInterpreting(boolean interpreting) {
+        if (this.interpreting == interpreting) {
+            // noop
+            return;
+        }
+        
+        if (interpreting) {
+            this.bootstrap = buildInterpretingRockerBootstrap();
+            this.interpreting = true;
+            log.info("Rocker template interpreting activated");
+        } else {
+            this.interpreting = false;
+            boolean currentReloading = (this.reloading != null && this.reloading);
+            this.reloading = null;
+            setReloading(currentReloading);
+        }
     }
 
     public RockerBootstrap getBootstrap() {
         return bootstrap;
     }
     
+    /**
+     * Gets the cache used by <code>@cache</code> blocks in templates.
+     * 
+     * @return The cache or null if fragment caching is disabled
+     */
+    public FragmentCache getFragmentCache() {
+        return fragmentCache;
+    }
+
+    /**
+     * Sets the cache used by <code>@cache</code> blocks in templates (e.g. to
+     * change its size). A null value disables fragment caching and blocks are
+     * then simply rendered every time.
+     * 
+     * @param fragmentCache The cache or null to disable
+     */
+    public void setFragmentCache(FragmentCache fragmentCache) {
+        this.fragmentCache = fragmentCache;
+    }
+    
+    /**
+     * Gets the executor templates within <code>@parallel</code> blocks are
+     * rendered on.
+     * 
+     * @return The executor or null if parallel rendering is disabled
+     */
+    public Executor getParallelExecutor() {
+        return parallelExecutor;
+    }
+
+    /**
+     * Sets the executor templates within <code>@parallel</code> blocks are
+     * rendered on (e.g. a virtual thread per task executor on Java 21+).
+     * Defaults to the common fork join pool.  A null value disables parallel
+     * rendering and templates are then simply rendered in order.
+     * 
+     * @param parallelExecutor The executor or null to disable
+     */
+    public void setParallelExecutor(Executor parallelExecutor) {
+        this.parallelExecutor = parallelExecutor;
+    }
+    
     public boolean isReloadingPossible() {
         try {
             buildReloadingRockerBootstrap();
@@ -109,6 +199,17 @@ public class RockerRuntime {
         }
     }
     
+    private RockerBootstrap buildInterpretingRockerBootstrap() {
+        try {
+            Class<?> bootstrapType = Class.forName("com.fizzed.rocker.interpret.InterpretingRockerBootstrap");
+            return (RockerBootstrap)bootstrapType.newInstance();
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException("Unable to activate Rocker template interpreting. Did you forget to include 'rocker-compiler' as a dependency?");
+        } catch (Exception e) {
+            throw new RuntimeException("Unable to activate Rocker template interpreting. Unable to create InterpretingRockerBootstrap instance", e);
+        }
+    }
+    
     static public RockerStringify createDefaultHtmlStringify() {
         try {
             // try to load guava stringify for speed, but since its a large
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2015 Fizzed Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.rocker.runtime;
+
+import com.fizzed.rocker.ForIterator;
+
+/**
+ * ForIterator implementation that holds the state of another one at a point
+ * of the iteration (e.g. for an <code>@async</code> block within a loop that
+ * is only rendered once the loop moved on).
+ */
+public class SnapshotForIterator implements ForIterator {
+
+    private final int index;
+    private final boolean first;
+    private final boolean last;
+    
+    public SnapshotForIterator(ForIterator iterator) {
+        this.index = iterator.index();
+        this.first = iterator.first();
+        this.last = iterator.last();
+    }
+    
+    @Override
+    public int index() {
+        return index;
+    }
+
+    @Override
+    public boolean first() {
+        return first;
+    }
+
+    @Override
+    public boolean last() {
+        return last;
+    }
+
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2015 Fizzed Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.rocker.runtime;
+
+import com.fizzed.rocker.ContentType;
+import com.fizzed.rocker.RenderingException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Render throughput at high concurrency when every render writes to a slow,
+ * blocking sink (e.g. the socket of a slow client).  Compares a fixed pool of
+ * platform threads with a virtual thread per render (Java 21+).  Not run as
+ * part of the tests, run its main method instead e.g.
+ * 
+ *   java -cp ... com.fizzed.rocker.runtime.BlockingSinkBenchmark [renders] [platformThreads]
+ */
+public class BlockingSinkBenchmark {
+    
+    static private final int CHUNKS = 50;
+    static private final int FLUSH_EVERY_CHUNKS = 10;
+    static private final long FLUSH_MILLIS = 2;
+    
+    /**
+     * A sink that blocks on every flush (just like a full socket buffer).
+     */
+    static private class SlowOutputStream extends OutputStream {
+        
+        private int chunks;
+        
+        @Override
+        public void write(int b) throws IOException {
+            // not used
+        }
+        
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (++this.chunks % FLUSH_EVERY_CHUNKS == 0) {
+                try {
+                    Thread.sleep(FLUSH_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted");
+                }
+            }
+        }
+        
+    }
+    
+    static private DefaultRockerModel model() {
+        return new DefaultRockerModel() {
+            @Override
+            protected DefaultRockerTemplate buildTemplate() throws RenderingException {
+                return new DefaultRockerTemplate(this) {
+                    {
+                        this.__internal.setCharset("UTF-8");
+                        this.__internal.setContentType(ContentType.HTML);
+                        this.__internal.setOut(new OutputStreamOutput(ContentType.HTML, new SlowOutputStream(), "UTF-8"));
+                    }
+                    
+                    @Override
+                    protected void __doRender() throws IOException, RenderingException {
+                        for (int i = 0; i < CHUNKS; i++) {
+                            this.__internal.writeValue("<tr><td>row</td><td>");
+                            this.__internal.renderValue(i, false);
+                            this.__internal.writeValue("</td></tr>\n");
+                        }
+                    }
+                };
+            }
+        };
+    }
+    
+    static private double run(String name, ExecutorService executor, int renders) throws Exception {
+        try {
+            long start = System.nanoTime();
+            
+            List<CompletableFuture<?>> futures = new ArrayList<>(renders);
+            for (int i = 0; i < renders; i++) {
+                futures.add(RenderExecutors.render(model(), null, executor));
+            }
+            
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()])).join();
+            
+            long elapsedNanos = System.nanoTime() - start;
+            double rendersPerSecond = renders / (elapsedNanos / 1_000_000_000.0);
+            
+            System.out.printf("%-32s %8d renders in %6d ms = %10.1f renders/sec%n",
+                name, renders, TimeUnit.NANOSECONDS.toMillis(elapsedNanos), rendersPerSecond);
+            
+            return rendersPerSecond;
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+    
+    static public void main(String[] args) throws Exception {
+        int renders = (args.length > 0 ? Integer.parseInt(args[0]) : 10000);
+        int platformThreads = (args.length > 1 ? Integer.parseInt(args[1]) : 200);
+        
+        // warm up
+        run("warmup", Executors.newFixedThreadPool(platformThreads), renders / 10);
+        
+        run("platform threads (" + platformThreads + ")", Executors.newFixedThreadPool(platformThreads), renders);
+        
+        if (RenderExecutors.isVirtualThreadsAvailable()) {
+            run("virtual thread per render", RenderExecutors.newVirtualThreadPerTaskExecutor(), renders);
+        } else {
+            System.out.println("virtual threads not available (requires Java 21+)");
+        }
+    }
+    
+}
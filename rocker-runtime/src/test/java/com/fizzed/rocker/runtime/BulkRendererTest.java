@@ -0,0 +1,201 @@
+/*
+ * Copyright 2015 Fizzed Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.rocker.runtime;
+
+import com.fizzed.rocker.ContentType;
+import com.fizzed.rocker.RenderingException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class BulkRendererTest {
+    
+    static private DefaultRockerModel model(final String value) {
+        return new DefaultRockerModel() {
+            @Override
+            protected DefaultRockerTemplate buildTemplate() throws RenderingException {
+                return new DefaultRockerTemplate(this) {
+                    {
+                        this.__internal.setCharset("UTF-8");
+                        this.__internal.setContentType(ContentType.HTML);
+                        this.__internal.setTemplateName("Test.rocker.html");
+                        this.__internal.setTemplatePackageName("views");
+                    }
+                    
+                    @Override
+                    protected void __doRender() throws IOException, RenderingException {
+                        if (value == null) {
+                            throw new IllegalStateException("no value");
+                        }
+                        this.__internal.writeValue(value);
+                    }
+                };
+            }
+        };
+    }
+    
+    @Test
+    public void reusableOutput() throws Exception {
+        ReusableByteArrayOutput out = new ReusableByteArrayOutput(ContentType.HTML, StandardCharsets.UTF_8, 4);
+        
+        out.w("ab").w("cé€").w(new byte[] { 'd' });
+        
+        assertThat(out.toString(), is("abcé€d"));
+        assertThat(out.toByteArray(), is("abcé€d".getBytes(StandardCharsets.UTF_8)));
+        assertThat(out.getByteLength(), is(9));
+        
+        byte[] buffer = out.getBuffer();
+        out.reset();
+        out.w("x");
+        
+        assertThat(out.toString(), is("x"));
+        assertThat(out.getBuffer(), sameInstance(buffer));
+        
+        // unmappable chars replaced just like String.getBytes()
+        ReusableByteArrayOutput ascii = new ReusableByteArrayOutput(ContentType.HTML, "US-ASCII");
+        ascii.w("aéb");
+        assertThat(ascii.toString(), is("a?b"));
+    }
+    
+    @Test
+    public void renderOnCallingThread() throws Exception {
+        final List<String> rendered = new ArrayList<>();
+        final Set<ReusableByteArrayOutput> outputs = Collections.newSetFromMap(new ConcurrentHashMap<ReusableByteArrayOutput,Boolean>());
+        
+        BulkRenderer.Stats stats = new BulkRenderer().render(
+            Arrays.asList(model("a"), model("bb"), model("ccc")),
+            (model, out) -> {
+                rendered.add(out.toString());
+                outputs.add(out);
+            });
+        
+        assertThat(rendered, is(Arrays.asList("a", "bb", "ccc")));
+        assertThat(outputs.size(), is(1));
+        assertThat(stats.getCount(), is(3L));
+        assertThat(stats.getBytes(), is(6L));
+    }
+    
+    @Test
+    public void renderParallel() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final Set<String> rendered = ConcurrentHashMap.newKeySet();
+            
+            BulkRenderer.Stats stats = new BulkRenderer(executor, 4).render(
+                IntStream.range(0, 1000).mapToObj(i -> model("item" + i)),
+                (model, out) -> rendered.add(out.toString()));
+            
+            assertThat(stats.getCount(), is(1000L));
+            assertThat(rendered, is(IntStream.range(0, 1000).mapToObj(i -> "item" + i).collect(Collectors.toSet())));
+        } finally {
+            executor.shutdown();
+        }
+    }
+    
+    @Test
+    public void renderFailed() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            new BulkRenderer(executor, 2).render(
+                Arrays.asList(model("a"), model(null), model("c")),
+                (model, out) -> { });
+            fail();
+        } catch (RenderingException e) {
+            assertThat(e.getMessage(), containsString("no value"));
+        } finally {
+            executor.shutdown();
+        }
+        
+        try {
+            new BulkRenderer().render(
+                Arrays.asList(model("a")),
+                (model, out) -> { throw new IOException("sink closed"); });
+            fail();
+        } catch (RenderingException e) {
+            assertThat(e.getMessage(), containsString("sink closed"));
+        }
+    }
+    
+    @Test
+    public void renderRejected() throws Exception {
+        final AtomicInteger rendered = new AtomicInteger();
+        final List<Thread> threads = new ArrayList<>();
+        
+        // runs the first worker only
+        Executor executor = (runnable) -> {
+            if (!threads.isEmpty()) {
+                throw new RejectedExecutionException("pool full");
+            }
+            Thread thread = new Thread(runnable);
+            threads.add(thread);
+            thread.start();
+        };
+        
+        try {
+            new BulkRenderer(executor, 2).render(
+                Stream.generate(() -> model("a")),
+                (model, out) -> rendered.incrementAndGet());
+            fail();
+        } catch (RejectedExecutionException e) {
+            assertThat(e.getMessage(), containsString("pool full"));
+        }
+        
+        // the worker already running was stopped (rather than rendering forever)
+        threads.get(0).join(10000L);
+        assertThat(threads.get(0).isAlive(), is(false));
+        
+        // rejected right away
+        try {
+            new BulkRenderer((runnable) -> { throw new RejectedExecutionException("shut down"); }, 2).render(
+                Arrays.asList(model("a")),
+                (model, out) -> { });
+            fail();
+        } catch (RejectedExecutionException e) {
+            assertThat(e.getMessage(), containsString("shut down"));
+        }
+    }
+    
+    @Test
+    public void renderClosesStream() throws Exception {
+        final AtomicBoolean closed = new AtomicBoolean();
+        
+        new BulkRenderer().render(
+            Stream.of(model("a")).onClose(() -> closed.set(true)),
+            (model, out) -> { });
+        
+        assertThat(closed.get(), is(true));
+    }
+    
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2015 Fizzed Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.rocker.runtime;
+
+import com.fizzed.rocker.ContentType;
+import com.fizzed.rocker.RenderingException;
+import com.fizzed.rocker.RockerOutputFactory;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DeflateOutputTest {
+
+    static private String inflate(InputStream input) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        byte[] buf = new byte[1024];
+        int len;
+        while ((len = input.read(buf)) > 0) {
+            baos.write(buf, 0, len);
+        }
+        return new String(baos.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    static private void writeMixed(DeflateOutput out) throws IOException {
+        byte[] plain = "<html><body>\n".getBytes(StandardCharsets.UTF_8);
+        byte[] footer = "</body></html>\n".getBytes(StandardCharsets.UTF_8);
+
+        out.w(plain, DeflateOutput.deflateChunk(plain, Deflater.BEST_COMPRESSION));
+        out.w("Hello ");
+        out.w("World€");
+        out.w(plain, DeflateOutput.deflateChunk(plain, Deflater.BEST_COMPRESSION));
+        out.w(plain, DeflateOutput.deflateChunk(plain, Deflater.BEST_COMPRESSION));
+        out.w("!");
+        out.w(footer, DeflateOutput.deflateChunk(footer, Deflater.BEST_COMPRESSION));
+        out.finish();
+    }
+
+    @Test
+    public void gzip() throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        DeflateOutput out = DeflateOutput.gzip(baos).create(ContentType.HTML, "UTF-8");
+
+        writeMixed(out);
+
+        String expected = "<html><body>\nHello World€<html><body>\n<html><body>\n!</body></html>\n";
+
+        Assert.assertEquals(expected, inflate(new GZIPInputStream(new ByteArrayInputStream(baos.toByteArray()))));
+        Assert.assertEquals(expected.getBytes(StandardCharsets.UTF_8).length, out.getByteLength());
+        Assert.assertEquals(baos.size(), out.getCompressedByteLength());
+        Assert.assertTrue(out.isFinished());
+    }
+
+    @Test
+    public void zlib() throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        DeflateOutput out = DeflateOutput.zlib(baos).create(ContentType.HTML, "UTF-8");
+
+        writeMixed(out);
+
+        String expected = "<html><body>\nHello World€<html><body>\n<html><body>\n!</body></html>\n";
+
+        Assert.assertEquals(expected, inflate(new InflaterInputStream(new ByteArrayInputStream(baos.toByteArray()))));
+    }
+
+    @Test
+    public void empty() throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        DeflateOutput out = DeflateOutput.gzip(baos).create(ContentType.HTML, "UTF-8");
+
+        out.finish();
+        // safe to call again
+        out.finish();
+
+        Assert.assertEquals("", inflate(new GZIPInputStream(new ByteArrayInputStream(baos.toByteArray()))));
+        Assert.assertEquals(0, out.getByteLength());
+    }
+
+    @Test(expected=IOException.class)
+    public void writeAfterFinish() throws Exception {
+        DeflateOutput out = DeflateOutput.gzip(new ByteArrayOutputStream()).create(ContentType.HTML, "UTF-8");
+
+        out.finish();
+        out.w("nope");
+    }
+
+    @Test
+    public void finishReleasesCompressorWhenStreamFails() throws Exception {
+        DeflateOutput out = DeflateOutput.gzip(new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("client gone");
+            }
+        }).create(ContentType.HTML, "UTF-8");
+
+        try {
+            out.finish();
+            Assert.fail();
+        } catch (IOException e) {
+            Assert.assertEquals("client gone", e.getMessage());
+        }
+
+        Assert.assertTrue(out.isClosed());
+    }
+
+    @Test
+    public void failedRenderClosesOutput() throws Exception {
+        final List<DeflateOutput> created = new ArrayList<>();
+        final RockerOutputFactory<DeflateOutput> gzip = DeflateOutput.gzip(new ByteArrayOutputStream());
+
+        DefaultRockerModel model = new DefaultRockerModel() {
+            @Override
+            protected DefaultRockerTemplate buildTemplate() throws RenderingException {
+                return new DefaultRockerTemplate(this) {
+                    {
+                        this.__internal.setCharset("UTF-8");
+                        this.__internal.setContentType(ContentType.HTML);
+                        this.__internal.setTemplateName("Test.rocker.html");
+                        this.__internal.setTemplatePackageName("views");
+                    }
+
+                    @Override
+                    protected void __doRender() throws IOException, RenderingException {
+                        this.__internal.writeValue("partial");
+                        throw new IllegalStateException("backend down");
+                    }
+                };
+            }
+        };
+
+        try {
+            model.render(new RockerOutputFactory<DeflateOutput>() {
+                @Override
+                public DeflateOutput create(ContentType contentType, String charsetName) {
+                    DeflateOutput out = gzip.create(contentType, charsetName);
+                    created.add(out);
+                    return out;
+                }
+            });
+            Assert.fail();
+        } catch (RenderingException e) {
+            Assert.assertTrue(e.getMessage().contains("backend down"));
+        }
+
+        Assert.assertEquals(1, created.size());
+        Assert.assertTrue(created.get(0).isClosed());
+    }
+
+    @Test
+    public void deflateChunkIsSpliceable() throws Exception {
+        byte[] a = "aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa".getBytes(StandardCharsets.UTF_8);
+        byte[] b = "bbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbb".getBytes(StandardCharsets.UTF_8);
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        DeflateOutput out = DeflateOutput.zlib(baos).create(ContentType.RAW, "UTF-8");
+
+        // two precompressed chunks back-to-back w/o any dynamic data between
+        out.w(a, DeflateOutput.deflateChunk(a, Deflater.BEST_COMPRESSION));
+        out.w(b, DeflateOutput.deflateChunk(b, Deflater.BEST_COMPRESSION));
+        out.finish();
+
+        Assert.assertEquals(new String(a, StandardCharsets.UTF_8) + new String(b, StandardCharsets.UTF_8),
+            inflate(new InflaterInputStream(new ByteArrayInputStream(baos.toByteArray()))));
+    }
+
+}
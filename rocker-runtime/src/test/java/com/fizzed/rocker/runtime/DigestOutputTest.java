@@ -0,0 +1,99 @@
+/*
+ * Copyright 2015 Fizzed Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.rocker.runtime;
+
+import com.fizzed.rocker.ContentType;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DigestOutputTest {
+
+    @Test
+    public void digestMatchesSecondPass() throws Exception {
+        DigestOutput<ArrayOfByteArraysOutput> out
+            = DigestOutput.factory(ArrayOfByteArraysOutput.FACTORY).create(ContentType.HTML, "UTF-8");
+
+        out.w("Hello ");
+        out.w("World€".getBytes(StandardCharsets.UTF_8));
+
+        byte[] expected = MessageDigest.getInstance("SHA-256").digest(out.getOutput().toByteArray());
+
+        Assert.assertArrayEquals(expected, out.getDigest());
+        Assert.assertEquals("Hello World€", out.toString());
+        Assert.assertEquals(out.getOutput().getByteLength(), out.getByteLength());
+        Assert.assertEquals(66, out.getETag().length());
+    }
+
+    @Test
+    public void matches() throws Exception {
+        DigestOutput<StringBuilderOutput> out
+            = DigestOutput.factory(StringBuilderOutput.FACTORY, "MD5").create(ContentType.HTML, "UTF-8");
+
+        out.w("test");
+
+        // md5 of "test"
+        Assert.assertEquals("\"098f6bcd4621d373cade4e832627b4f6\"", out.getETag());
+        Assert.assertTrue(out.matches("\"098f6bcd4621d373cade4e832627b4f6\""));
+        Assert.assertTrue(out.matches("\"abc\", W/\"098f6bcd4621d373cade4e832627b4f6\""));
+        Assert.assertTrue(out.matches("*"));
+        Assert.assertFalse(out.matches("\"abc\""));
+        Assert.assertFalse(out.matches(null));
+    }
+
+    @Test(expected=IOException.class)
+    public void writeAfterDigest() throws Exception {
+        DigestOutput<StringBuilderOutput> out
+            = DigestOutput.factory(StringBuilderOutput.FACTORY).create(ContentType.HTML, "UTF-8");
+
+        out.getDigest();
+        out.w("nope");
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void unsupportedAlgorithm() throws Exception {
+        DigestOutput.factory(StringBuilderOutput.FACTORY, "NOPE-1");
+    }
+
+    @Test
+    public void precompressedChunksPassedThrough() throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        DigestOutput<DeflateOutput> out
+            = DigestOutput.factory(DeflateOutput.gzip(baos)).create(ContentType.HTML, "UTF-8");
+
+        byte[] plain = "<p>plain</p>".getBytes(StandardCharsets.UTF_8);
+        out.w(plain, DeflateOutput.deflateChunk(plain, Deflater.BEST_COMPRESSION));
+        out.w("dynamic");
+        out.getOutput().finish();
+
+        GZIPInputStream gzis = new GZIPInputStream(new ByteArrayInputStream(baos.toByteArray()));
+        ByteArrayOutputStream inflated = new ByteArrayOutputStream();
+        byte[] buf = new byte[256];
+        int len;
+        while ((len = gzis.read(buf)) > 0) {
+            inflated.write(buf, 0, len);
+        }
+
+        Assert.assertArrayEquals(MessageDigest.getInstance("SHA-256").digest(inflated.toByteArray()), out.getDigest());
+    }
+
+}
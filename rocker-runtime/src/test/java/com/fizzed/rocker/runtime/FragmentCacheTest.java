@@ -0,0 +1,183 @@
+/*
+ * Copyright 2015 Fizzed Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.rocker.runtime;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FragmentCacheTest {
+
+    static private byte[][] bytes(int length) {
+        return new byte[][] { new byte[length] };
+    }
+
+    @Test
+    public void hitsAndMisses() {
+        FragmentCache cache = new FragmentCache();
+
+        Assert.assertNull(cache.get("a"));
+
+        byte[][] arrays = bytes(10);
+        cache.put("a", arrays, 0);
+
+        // same (shared) arrays
+        Assert.assertSame(arrays, cache.get("a"));
+        Assert.assertEquals(1, cache.getHitCount());
+        Assert.assertEquals(1, cache.getMissCount());
+        Assert.assertEquals(1, cache.size());
+        Assert.assertEquals(10, cache.getByteSize());
+
+        // replace
+        cache.put("a", bytes(5), 0);
+        Assert.assertEquals(5, cache.getByteSize());
+
+        cache.invalidate("a");
+        Assert.assertNull(cache.get("a"));
+        Assert.assertEquals(0, cache.getByteSize());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedByBytes() {
+        FragmentCache cache = new FragmentCache(100, 100);
+
+        cache.put("a", bytes(40), 0);
+        cache.put("b", bytes(40), 0);
+
+        // "a" now most recently used
+        Assert.assertNotNull(cache.get("a"));
+
+        cache.put("c", bytes(40), 0);
+
+        Assert.assertNull(cache.get("b"));
+        Assert.assertNotNull(cache.get("a"));
+        Assert.assertNotNull(cache.get("c"));
+        Assert.assertEquals(80, cache.getByteSize());
+        Assert.assertEquals(1, cache.getEvictionCount());
+
+        // never cache something larger than the entire cache
+        cache.put("d", bytes(101), 0);
+        Assert.assertNull(cache.get("d"));
+        Assert.assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedByEntries() {
+        FragmentCache cache = new FragmentCache(100, 2);
+
+        cache.put("a", bytes(1), 0);
+        cache.put("b", bytes(1), 0);
+        cache.put("c", bytes(1), 0);
+
+        Assert.assertNull(cache.get("a"));
+        Assert.assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void expires() throws Exception {
+        FragmentCache cache = new FragmentCache();
+
+        cache.put("a", bytes(1), 1);
+        cache.put("b", bytes(1), 60000);
+
+        Thread.sleep(20);
+
+        Assert.assertNull(cache.get("a"));
+        Assert.assertNotNull(cache.get("b"));
+        Assert.assertEquals(1, cache.getExpirationCount());
+        Assert.assertEquals(1, cache.getByteSize());
+
+        cache.invalidateAll();
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void concurrentMissesLoadOnce() throws Exception {
+        final FragmentCache cache = new FragmentCache();
+        final AtomicInteger loads = new AtomicInteger();
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final byte[][] arrays = bytes(10);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<byte[][]>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> cache.get("a", 0, () -> {
+                    loads.incrementAndGet();
+                    loading.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        throw new IOException(e);
+                    }
+                    return arrays;
+                })));
+            }
+
+            // let every other thread miss while the first one loads
+            Assert.assertTrue(loading.await(5, TimeUnit.SECONDS));
+            Thread.sleep(50);
+            release.countDown();
+
+            for (Future<byte[][]> future : futures) {
+                Assert.assertSame(arrays, future.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Assert.assertEquals(1, loads.get());
+        Assert.assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void failedLoadIsRetried() throws Exception {
+        FragmentCache cache = new FragmentCache();
+
+        try {
+            cache.get("a", 0, () -> {
+                throw new IOException("failed");
+            });
+            Assert.fail();
+        } catch (IOException e) {
+            // expected
+        }
+
+        Assert.assertEquals(0, cache.size());
+
+        byte[][] arrays = bytes(10);
+        Assert.assertSame(arrays, cache.get("a", 0, () -> arrays));
+        Assert.assertSame(arrays, cache.get("a", 0, () -> bytes(10)));
+    }
+
+    @Test
+    public void recursiveLoadOfSameKey() throws Exception {
+        final FragmentCache cache = new FragmentCache();
+        final byte[][] arrays = bytes(10);
+
+        Assert.assertSame(arrays, cache.get("a", 0, () -> cache.get("a", 0, () -> arrays)));
+    }
+
+}
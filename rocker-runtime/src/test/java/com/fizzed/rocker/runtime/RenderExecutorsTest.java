@@ -0,0 +1,107 @@
+/*
+ * Copyright 2015 Fizzed Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.rocker.runtime;
+
+import com.fizzed.rocker.ContentType;
+import com.fizzed.rocker.RenderingException;
+import java.io.IOException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class RenderExecutorsTest {
+    
+    static private DefaultRockerModel model(final String value) {
+        return new DefaultRockerModel() {
+            @Override
+            protected DefaultRockerTemplate buildTemplate() throws RenderingException {
+                return new DefaultRockerTemplate(this) {
+                    {
+                        this.__internal.setCharset("UTF-8");
+                        this.__internal.setContentType(ContentType.HTML);
+                        this.__internal.setTemplateName("Test.rocker.html");
+                        this.__internal.setTemplatePackageName("views");
+                    }
+                    
+                    @Override
+                    protected void __doRender() throws IOException, RenderingException {
+                        if (value == null) {
+                            throw new IllegalStateException("no value");
+                        }
+                        this.__internal.writeValue(value);
+                    }
+                };
+            }
+        };
+    }
+    
+    @Test
+    public void virtualThreadsAvailable() throws Exception {
+        // e.g. "1.8", "17", "21"
+        String version = System.getProperty("java.specification.version");
+        int feature = Integer.parseInt(version.startsWith("1.") ? version.substring(2) : version);
+        
+        assertThat(RenderExecutors.isVirtualThreadsAvailable(), is(feature >= 21));
+        
+        if (feature >= 21) {
+            ExecutorService executor = RenderExecutors.newVirtualThreadPerTaskExecutor();
+            try {
+                String html = RenderExecutors.render(model("hello"), ArrayOfByteArraysOutput.FACTORY, executor)
+                    .get(10, TimeUnit.SECONDS)
+                    .toString();
+                assertThat(html, is("hello"));
+            } finally {
+                executor.shutdown();
+            }
+        } else {
+            try {
+                RenderExecutors.newVirtualThreadPerTaskExecutor();
+                fail();
+            } catch (UnsupportedOperationException e) {
+                assertThat(e.getMessage(), containsString("Java 21+"));
+            }
+        }
+    }
+    
+    @Test
+    public void render() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            String html = RenderExecutors.render(model("hello"), ArrayOfByteArraysOutput.FACTORY, executor)
+                .get(10, TimeUnit.SECONDS)
+                .toString();
+            
+            assertThat(html, is("hello"));
+            
+            try {
+                RenderExecutors.render(model(null), ArrayOfByteArraysOutput.FACTORY, executor).join();
+                fail();
+            } catch (CompletionException e) {
+                assertThat(e.getCause(), instanceOf(RenderingException.class));
+                assertThat(e.getCause().getMessage(), containsString("no value"));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+    
+}
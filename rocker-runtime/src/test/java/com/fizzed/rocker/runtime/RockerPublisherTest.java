@@ -0,0 +1,179 @@
+/*
+ * Copyright 2015 Fizzed Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fizzed.rocker.runtime;
+
+import com.fizzed.rocker.ContentType;
+import com.fizzed.rocker.RenderingException;
+import com.fizzed.rocker.runtime.RockerFlow.Subscriber;
+import com.fizzed.rocker.runtime.RockerFlow.Subscription;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertThat;
+
+public class RockerPublisherTest {
+    
+    private ExecutorService executor;
+    
+    @Before
+    public void before() {
+        this.executor = Executors.newCachedThreadPool();
+    }
+    
+    @After
+    public void after() {
+        this.executor.shutdownNow();
+    }
+    
+    static private DefaultRockerModel model(final int count, final AtomicInteger rendered) {
+        return new DefaultRockerModel() {
+            @Override
+            protected DefaultRockerTemplate buildTemplate() throws RenderingException {
+                return new DefaultRockerTemplate(this) {
+                    {
+                        this.__internal.setCharset("UTF-8");
+                        this.__internal.setContentType(ContentType.HTML);
+                    }
+                    
+                    @Override
+                    protected void __doRender() throws IOException, RenderingException {
+                        for (int i = 0; i < count; i++) {
+                            this.__internal.writeValue("0123456789");
+                            rendered.incrementAndGet();
+                        }
+                    }
+                };
+            }
+        };
+    }
+    
+    static private class QueueSubscriber implements Subscriber<ByteBuffer> {
+        
+        private final LinkedBlockingQueue<Object> signals = new LinkedBlockingQueue<>();
+        private volatile Subscription subscription;
+        
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(ByteBuffer item) {
+            byte[] bytes = new byte[item.remaining()];
+            item.get(bytes);
+            signals.add(new String(bytes, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            signals.add(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            signals.add("complete");
+        }
+        
+        public Object next() throws InterruptedException {
+            return signals.poll(10, TimeUnit.SECONDS);
+        }
+        
+    }
+    
+    @Test
+    public void honorsDemand() throws Exception {
+        AtomicInteger rendered = new AtomicInteger();
+        RockerPublisher publisher = new RockerPublisher(model(11, rendered), this.executor, 25);
+        QueueSubscriber subscriber = new QueueSubscriber();
+        
+        publisher.subscribe(subscriber);
+        
+        // nothing rendered until requested
+        Thread.sleep(50L);
+        assertThat(rendered.get(), is(0));
+        
+        subscriber.subscription.request(1);
+        
+        assertThat(subscriber.next(), is((Object)"0123456789012345678901234"));
+        
+        // paused while waiting for demand
+        Thread.sleep(50L);
+        assertThat(subscriber.signals.isEmpty(), is(true));
+        assertThat(rendered.get() < 11, is(true));
+        
+        subscriber.subscription.request(Long.MAX_VALUE);
+        
+        assertThat(subscriber.next(), is((Object)"5678901234567890123456789"));
+        assertThat(subscriber.next(), is((Object)"0123456789012345678901234"));
+        assertThat(subscriber.next(), is((Object)"5678901234567890123456789"));
+        assertThat(subscriber.next(), is((Object)"0123456789"));
+        assertThat(subscriber.next(), is((Object)"complete"));
+        assertThat(rendered.get(), is(11));
+    }
+    
+    @Test
+    public void cancelStopsRendering() throws Exception {
+        AtomicInteger rendered = new AtomicInteger();
+        RockerPublisher publisher = new RockerPublisher(model(1000, rendered), this.executor, 10);
+        QueueSubscriber subscriber = new QueueSubscriber();
+        
+        publisher.subscribe(subscriber);
+        subscriber.subscription.request(2);
+        
+        assertThat(subscriber.next(), is((Object)"0123456789"));
+        assertThat(subscriber.next(), is((Object)"0123456789"));
+        
+        subscriber.subscription.cancel();
+        
+        Thread.sleep(50L);
+        assertThat(subscriber.signals.isEmpty(), is(true));
+        assertThat(rendered.get() < 1000, is(true));
+    }
+    
+    @Test
+    public void illegalRequest() throws Exception {
+        RockerPublisher publisher = new RockerPublisher(model(10, new AtomicInteger()), this.executor);
+        QueueSubscriber subscriber = new QueueSubscriber();
+        
+        publisher.subscribe(subscriber);
+        subscriber.subscription.request(0);
+        
+        assertThat(subscriber.next(), instanceOf(IllegalArgumentException.class));
+    }
+    
+    @Test
+    public void singleSubscriber() throws Exception {
+        RockerPublisher publisher = new RockerPublisher(model(1, new AtomicInteger()), this.executor);
+        
+        publisher.subscribe(new QueueSubscriber());
+        
+        QueueSubscriber second = new QueueSubscriber();
+        publisher.subscribe(second);
+        
+        assertThat(second.next(), instanceOf(IllegalStateException.class));
+    }
+    
+}
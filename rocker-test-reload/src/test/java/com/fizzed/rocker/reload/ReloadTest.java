@@ -83,4 +83,47 @@ public class ReloadTest {
         assertThat(out, containsString("<h1>Hi, Joe!</h1>"));
     }
     
+    @Test
+    public void reloadWhileOtherTemplateIsBroken() throws Exception {
+        // both loaded (and thus checked for changes)
+        Rocker.template("views/other.rocker.html", "Joe").render();
+        Rocker.template("views/index.rocker.html", "Home", "Joe").render();
+        
+        URL logbackUrl = ReloadTest.class.getResource("/logback.xml");
+        File projectDir = new File(logbackUrl.toURI()).getParentFile().getParentFile().getParentFile();
+        
+        File indexFile = new File(projectDir, "src/test/java/views/index.rocker.html");
+        File otherFile = new File(projectDir, "src/test/java/views/other.rocker.html");
+        
+        String index = IOUtils.toString(new FileInputStream(indexFile), "UTF-8");
+        String other = IOUtils.toString(new FileInputStream(otherFile), "UTF-8");
+        
+        try {
+            // half-edited (does not even parse)
+            IOUtils.write(other.replace("@args (String name)", "@args (String name"), new FileOutputStream(otherFile), "UTF-8");
+            otherFile.setLastModified(System.currentTimeMillis()+10000);
+            
+            IOUtils.write(index.replace("<h1>Hi, @name!</h1>", "<h1>Hey, @name!</h1>"), new FileOutputStream(indexFile), "UTF-8");
+            indexFile.setLastModified(System.currentTimeMillis()+10000);
+            
+            // reloaded on its own
+            String out = Rocker.template("views/index.rocker.html", "Home", "Joe")
+                .render()
+                .toString();
+            
+            assertThat(out, containsString("<h1>Hey, Joe!</h1>"));
+        } finally {
+            IOUtils.write(index, new FileOutputStream(indexFile), "UTF-8");
+            IOUtils.write(other, new FileOutputStream(otherFile), "UTF-8");
+            indexFile.setLastModified(System.currentTimeMillis()+20000);
+            otherFile.setLastModified(System.currentTimeMillis()+20000);
+        }
+        
+        String out = Rocker.template("views/other.rocker.html", "Joe")
+            .render()
+            .toString();
+        
+        assertThat(out, containsString("Hello, Joe!"));
+    }
+    
 }
@@ -15,16 +15,42 @@
  */
 package com.fizzed.rocker.compiler;
 
+import com.fizzed.rocker.RenderLimitExceededException;
 import com.fizzed.rocker.RenderingException;
 import com.fizzed.test.ObjectWithToStringReturnsNull;
 import com.fizzed.test.User;
+import com.fizzed.test.Widget;
+import com.fizzed.rocker.runtime.ArrayOfByteArraysOutput;
+import com.fizzed.rocker.runtime.DeflateOutput;
+import com.fizzed.rocker.runtime.FragmentCache;
+import com.fizzed.rocker.runtime.RenderLimits;
+import com.fizzed.rocker.runtime.RockerRuntime;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
 import org.apache.commons.io.IOUtils;
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.instanceOf;
@@ -211,6 +237,53 @@ public class CompiledTemplateTest {
         Assert.assertEquals(expectedHtml, html);
     }
     
+    @Test
+    public void precompressPlainText() throws Exception {
+        String expectedHtml = new rocker.LargeContent()
+            .title("Title")
+            .twitter("jjlauer")
+            .render()
+            .toString();
+        
+        // outputs other than DeflateOutput are not affected
+        String html = new rocker.PrecompressPlainText()
+            .title("Title")
+            .twitter("jjlauer")
+            .render()
+            .toString();
+        
+        Assert.assertEquals(expectedHtml, html);
+        
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        
+        DeflateOutput out = new rocker.PrecompressPlainText()
+            .title("Title")
+            .twitter("jjlauer")
+            .render(DeflateOutput.gzip(baos));
+        
+        out.finish();
+        
+        Assert.assertEquals(expectedHtml.getBytes("UTF-8").length, out.getByteLength());
+        Assert.assertEquals(baos.size(), out.getCompressedByteLength());
+        Assert.assertTrue(out.getCompressedByteLength() < out.getByteLength());
+        
+        String gunzipped = IOUtils.toString(new GZIPInputStream(new ByteArrayInputStream(baos.toByteArray())), "UTF-8");
+        
+        Assert.assertEquals(expectedHtml, gunzipped);
+        
+        baos = new ByteArrayOutputStream();
+        
+        new rocker.PrecompressPlainText()
+            .title("Title")
+            .twitter("jjlauer")
+            .render(DeflateOutput.zlib(baos))
+            .finish();
+        
+        String inflated = IOUtils.toString(new InflaterInputStream(new ByteArrayInputStream(baos.toByteArray())), "UTF-8");
+        
+        Assert.assertEquals(expectedHtml, inflated);
+    }
+    
     @Test
     public void discardLogicWhitespace1() throws Exception {
         // verify that nothing gets chomped if something on same line as args
@@ -598,6 +671,67 @@ public class CompiledTemplateTest {
         
     }
     
+    @Test
+    public void forBlockStream() throws Exception {
+        AtomicBoolean closed = new AtomicBoolean();
+        
+        String html = new rocker.ForBlockStream()
+            .items(Stream.of("a", "b", "c").onClose(() -> closed.set(true)))
+            .render()
+            .toString()
+            .trim();
+        
+        Assert.assertEquals("first 0a1b last 2c", html);
+        assertThat(closed.get(), is(true));
+        
+        closed.set(false);
+        
+        html = new rocker.ForBlockStreamTyped()
+            .items(Stream.of("a", "b", "c").onClose(() -> closed.set(true)))
+            .render()
+            .toString()
+            .trim();
+        
+        Assert.assertEquals("first 0a1b last 2c", html);
+        assertThat(closed.get(), is(true));
+    }
+    
+    @Test
+    public void forBlockStreamIsLazy() throws Exception {
+        AtomicBoolean closed = new AtomicBoolean();
+        AtomicInteger pulled = new AtomicInteger();
+        
+        // never ending (would never finish if collected first)
+        Stream<String> items = Stream.iterate(0, i -> i + 1)
+            .map(i -> { pulled.incrementAndGet(); return "i" + i; })
+            .onClose(() -> closed.set(true));
+        
+        String html = new rocker.ForBlockStreamBreak()
+            .items(items)
+            .render()
+            .toString()
+            .trim();
+        
+        Assert.assertEquals("i0i1", html);
+        assertThat(closed.get(), is(true));
+        // the items rendered plus a single item of lookahead
+        assertThat(pulled.get() <= 4, is(true));
+    }
+    
+    @Test
+    public void capturedContent() throws Exception {
+        AtomicInteger counter = new AtomicInteger();
+        
+        String html = rocker.CapturedContentA.template(counter)
+            .render()
+            .toString()
+            .trim();
+        
+        // each layout executed the content only once
+        assertThat(html, is("2:x1|x1\n<x2|x2>"));
+        assertThat(counter.get(), is(2));
+    }
+    
     @Test
     public void forBlockEnhancedTypedMap() throws Exception {
         Map<Integer,String> map = new LinkedHashMap<Integer,String>();
@@ -764,6 +898,606 @@ public class CompiledTemplateTest {
         Assert.assertEquals("\nPost-Processing Test\n", out);
     }
 
+    @Test
+    public void cacheBlock() throws Exception {
+        FragmentCache cache = RockerRuntime.getInstance().getFragmentCache();
+        long hits = cache.getHitCount();
+        
+        String html = rocker.CacheBlock.template("cacheBlock", "1")
+            .render()
+            .toString();
+        
+        Assert.assertEquals("\nbefore\n\ncached 1\n\nttl 1\nafter\n", html);
+        
+        // same key -> replayed from cache
+        html = rocker.CacheBlock.template("cacheBlock", "2")
+            .render()
+            .toString();
+        
+        Assert.assertEquals("\nbefore\n\ncached 1\n\nttl 1\nafter\n", html);
+        Assert.assertEquals(hits + 2, cache.getHitCount());
+        
+        // different key
+        html = rocker.CacheBlock.template("cacheBlock-other", "2")
+            .render()
+            .toString();
+        
+        Assert.assertEquals("\nbefore\n\ncached 2\n\nttl 2\nafter\n", html);
+        
+        cache.invalidate(Arrays.asList("rocker/CacheBlock.rocker.html:3:1", "UTF-8", "cacheBlock"));
+        
+        html = rocker.CacheBlock.template("cacheBlock", "3")
+            .render()
+            .toString();
+        
+        Assert.assertEquals("\nbefore\n\ncached 3\n\nttl 1\nafter\n", html);
+    }
+    
+    @Test
+    public void asyncBlock() throws Exception {
+        final CompletableFuture<String> slow = new CompletableFuture<>();
+        
+        // only completed once rendered after the block (would never complete
+        // if the template waited for the block in order)
+        Object middle = new Object() {
+            @Override
+            public String toString() {
+                slow.complete("done");
+                return "middle";
+            }
+        };
+        
+        String html = rocker.AsyncBlock.template(slow, middle, CompletableFuture.completedFuture(1))
+            .render()
+            .toString();
+        
+        Assert.assertEquals("\nbefore\nslow done\nmiddle\nfast 1\nafter\n", html);
+    }
+    
+    @Test
+    public void asyncBlockFailed() throws Exception {
+        CompletableFuture<String> slow = new CompletableFuture<>();
+        slow.completeExceptionally(new IllegalStateException("backend down"));
+        
+        try {
+            rocker.AsyncBlock.template(slow, "middle", CompletableFuture.completedFuture(1))
+                .render();
+            fail();
+        } catch (RenderingException e) {
+            assertThat(e.getMessage(), containsString("backend down"));
+        }
+    }
+    
+    @Test
+    public void asyncBlockInContentOfOtherTemplate() throws Exception {
+        CompletableFuture<String> title = new CompletableFuture<>();
+        CompletableFuture<String> body = new CompletableFuture<>();
+        
+        new Thread(() -> {
+            body.complete("body");
+            title.complete("title");
+        }).start();
+        
+        String html = rocker.AsyncBlockPage.template(title, body)
+            .render()
+            .toString();
+        
+        Assert.assertEquals("<h1>title</h1><p>body</p>", html.trim());
+    }
+    
+    @Test
+    public void asyncBlockInContentOfOtherTemplateRenderedLater() throws Exception {
+        final CompletableFuture<String> body = new CompletableFuture<>();
+        
+        // the block within the content is pending while the layout renders
+        // the rest of itself
+        new Thread(() -> {
+            try {
+                Thread.sleep(100L);
+            } catch (InterruptedException e) {
+                // ignore
+            }
+            body.complete("body");
+        }).start();
+        
+        String html = rocker.AsyncBlockPage.template(CompletableFuture.completedFuture("title"), body)
+            .render()
+            .toString();
+        
+        Assert.assertEquals("<h1>title</h1><p>body</p>", html.trim());
+    }
+    
+    @Test
+    public void asyncBlockInForBlockWithIterator() throws Exception {
+        final List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            futures.add(new CompletableFuture<>());
+        }
+        
+        List<CompletionStage<String>> values = new ArrayList<>(futures);
+        Map<String,CompletionStage<String>> named = new LinkedHashMap<>();
+        named.put("x", futures.get(0));
+        named.put("y", futures.get(1));
+        
+        // only completed once every loop moved on (so all blocks are pending)
+        Object after = new Object() {
+            @Override
+            public String toString() {
+                for (int i = 0; i < futures.size(); i++) {
+                    futures.get(i).complete("v" + i);
+                }
+                return "after";
+            }
+        };
+        
+        String html = rocker.AsyncBlockForIterator.template(values, named, after)
+            .render()
+            .toString();
+        
+        Assert.assertEquals("\n[0f v0][1 v1][2l v2]\n[0f v0][1 v1][2l v2]\n[x v0][y v1]\nafter\n", html);
+    }
+    
+    @Test
+    public void parallelBlock() throws Exception {
+        final CountDownLatch started = new CountDownLatch(3);
+        
+        // each value only renders once all of them started rendering (would
+        // time out if the templates were rendered one after another)
+        List<Object> values = new ArrayList<>();
+        for (final String name : Arrays.asList("a", "b", "c")) {
+            values.add(new Object() {
+                @Override
+                public String toString() {
+                    started.countDown();
+                    try {
+                        return started.await(10, TimeUnit.SECONDS) ? name : "timeout";
+                    } catch (InterruptedException e) {
+                        return "interrupted";
+                    }
+                }
+            });
+        }
+        
+        Executor previous = RockerRuntime.getInstance().getParallelExecutor();
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            RockerRuntime.getInstance().setParallelExecutor(executor);
+            
+            String html = rocker.ParallelBlock.template(values)
+                .render()
+                .toString();
+            
+            Assert.assertEquals("<ul><li>\na</li><li>\nb</li><li>\nc</li></ul>", html.trim());
+        } finally {
+            RockerRuntime.getInstance().setParallelExecutor(previous);
+            executor.shutdown();
+        }
+    }
+    
+    @Test
+    public void parallelBlockDisabled() throws Exception {
+        final Thread renderingThread = Thread.currentThread();
+        
+        List<Object> values = new ArrayList<>();
+        for (final String name : Arrays.asList("a", "b")) {
+            values.add(new Object() {
+                @Override
+                public String toString() {
+                    return Thread.currentThread() == renderingThread ? name : "other";
+                }
+            });
+        }
+        
+        Executor previous = RockerRuntime.getInstance().getParallelExecutor();
+        try {
+            RockerRuntime.getInstance().setParallelExecutor(null);
+            
+            String html = rocker.ParallelBlock.template(values)
+                .render()
+                .toString();
+            
+            Assert.assertEquals("<ul><li>\na</li><li>\nb</li></ul>", html.trim());
+        } finally {
+            RockerRuntime.getInstance().setParallelExecutor(previous);
+        }
+    }
+    
+    @Test
+    public void parallelBlockFailed() throws Exception {
+        Object failing = new Object() {
+            @Override
+            public String toString() {
+                throw new IllegalStateException("backend down");
+            }
+        };
+        
+        try {
+            rocker.ParallelBlock.template(Arrays.asList("a", failing))
+                .render();
+            fail();
+        } catch (RenderingException e) {
+            assertThat(e.getMessage(), containsString("backend down"));
+        }
+    }
+    
+    @Test
+    public void parallelFor() throws Exception {
+        final Set<String> threads = ConcurrentHashMap.newKeySet();
+        
+        List<Object> items = new ArrayList<>();
+        StringBuilder expected = new StringBuilder("[");
+        for (int i = 0; i < 64; i++) {
+            final String name = "item" + i;
+            items.add(new Object() {
+                @Override
+                public String toString() {
+                    threads.add(Thread.currentThread().getName());
+                    return name;
+                }
+            });
+            expected.append(i).append(":\n").append(name).append(i < 63 ? "," : "]");
+        }
+        
+        Executor previous = RockerRuntime.getInstance().getParallelExecutor();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            RockerRuntime.getInstance().setParallelExecutor(executor);
+            
+            String html = rocker.ParallelFor.template(items)
+                .render()
+                .toString();
+            
+            Assert.assertEquals(expected.toString(), html.trim());
+            // 4 ranges of 16 items each
+            Assert.assertEquals(4, threads.size());
+        } finally {
+            RockerRuntime.getInstance().setParallelExecutor(previous);
+            executor.shutdown();
+        }
+    }
+    
+    @Test
+    public void parallelForFailed() throws Exception {
+        List<Object> items = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            items.add(i);
+        }
+        items.set(40, new Object() {
+            @Override
+            public String toString() {
+                throw new IllegalStateException("backend down");
+            }
+        });
+        
+        try {
+            rocker.ParallelFor.template(items)
+                .render();
+            fail();
+        } catch (RenderingException e) {
+            assertThat(e.getMessage(), containsString("backend down"));
+        }
+    }
+    
+    @Test
+    public void renderLimitsMaxByteLength() throws Exception {
+        // far too many items to ever render
+        List<String> items = new AbstractList<String>() {
+            @Override
+            public String get(int index) {
+                return "item";
+            }
+            @Override
+            public int size() {
+                return Integer.MAX_VALUE;
+            }
+        };
+        
+        try {
+            new rocker.ForBlockEnhancedTypedCollection()
+                .items(items)
+                .render(ArrayOfByteArraysOutput.FACTORY, RenderLimits.none().withMaxByteLength(1000));
+            fail();
+        } catch (RenderLimitExceededException e) {
+            assertThat(e.getLimit(), is(RenderLimitExceededException.Limit.MAX_BYTE_LENGTH));
+            assertThat(e.getMessage(), containsString("ForBlockEnhancedTypedCollection.rocker.html"));
+        }
+        
+        // within its limits
+        String html = new rocker.ForBlockEnhancedTypedCollection()
+            .items(Arrays.asList("a", "b", "c"))
+            .render(ArrayOfByteArraysOutput.FACTORY, RenderLimits.none().withMaxByteLength(1000))
+            .toString()
+            .trim();
+        
+        assertThat(html, is("abc"));
+    }
+    
+    @Test
+    public void renderLimitsDeadline() throws Exception {
+        // slow items (e.g. lazily loaded from a backend)
+        List<String> items = new AbstractList<String>() {
+            @Override
+            public String get(int index) {
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                return "item";
+            }
+            @Override
+            public int size() {
+                return 100000;
+            }
+        };
+        
+        long startedAt = System.nanoTime();
+        try {
+            new rocker.ForBlockEnhancedTypedCollection()
+                .items(items)
+                .render(ArrayOfByteArraysOutput.FACTORY, RenderLimits.none().withTimeout(50, TimeUnit.MILLISECONDS));
+            fail();
+        } catch (RenderLimitExceededException e) {
+            assertThat(e.getLimit(), is(RenderLimitExceededException.Limit.DEADLINE));
+        }
+        
+        assertThat(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - startedAt) < 10, is(true));
+    }
+    
+    static private class CountedItems extends AbstractList<Object> implements RandomAccess {
+        
+        private final int size;
+        private final String value;
+        private final AtomicInteger rendered = new AtomicInteger();
+
+        public CountedItems(int size, String value) {
+            this.size = size;
+            this.value = value;
+        }
+        
+        @Override
+        public Object get(int index) {
+            return new Object() {
+                @Override
+                public String toString() {
+                    rendered.incrementAndGet();
+                    return value;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+        
+    }
+    
+    static private String repeat(char c, int count) {
+        char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+    
+    @Test
+    public void renderLimitsMaxByteLengthOfParallelFor() throws Exception {
+        // every range on its own is well within the limit, but not all of them
+        int ranges = Runtime.getRuntime().availableProcessors() * 4;
+        CountedItems items = new CountedItems(ranges * 128, repeat('x', 100));
+        
+        Executor previous = RockerRuntime.getInstance().getParallelExecutor();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            RockerRuntime.getInstance().setParallelExecutor(executor);
+            
+            rocker.ParallelFor.template(items)
+                .render(ArrayOfByteArraysOutput.FACTORY, RenderLimits.none().withMaxByteLength(2000));
+            fail();
+        } catch (RenderLimitExceededException e) {
+            assertThat(e.getLimit(), is(RenderLimitExceededException.Limit.MAX_BYTE_LENGTH));
+        } finally {
+            RockerRuntime.getInstance().setParallelExecutor(previous);
+            executor.shutdown();
+        }
+        
+        // ~20 items fit, plus at most one more per thread (rather than ~20
+        // items per range)
+        assertThat(items.rendered.get() < 30, is(true));
+    }
+    
+    @Test
+    public void renderLimitsMaxByteLengthAfterAsyncBlock() throws Exception {
+        List<String> before = Collections.nCopies(9, repeat('x', 100));
+        CountedItems after = new CountedItems(Integer.MAX_VALUE, repeat('y', 100));
+        
+        // pending, so everything after the block is rendered to a new buffer
+        CompletableFuture<String> value = new CompletableFuture<>();
+        
+        try {
+            rocker.RenderLimitsAsync.template(before, value, after)
+                .render(ArrayOfByteArraysOutput.FACTORY, RenderLimits.none().withMaxByteLength(1000));
+            fail();
+        } catch (RenderLimitExceededException e) {
+            assertThat(e.getLimit(), is(RenderLimitExceededException.Limit.MAX_BYTE_LENGTH));
+        }
+        
+        // the bytes before the block count too
+        assertThat(after.rendered.get() <= 2, is(true));
+    }
+    
+    @Test
+    public void fragmentBlock() throws Exception {
+        AtomicInteger counter = new AtomicInteger();
+        
+        String html = rocker.FragmentPage.template("T", Arrays.asList("a", "b"), counter)
+            .render()
+            .toString()
+            .trim();
+        
+        assertThat(html, is("<h1>T1</h1><ul><li>a</li><li>b</li></ul><p>2</p>"));
+        
+        // nothing outside the fragment is executed
+        html = rocker.FragmentPage.template("T", Arrays.asList("a", "b"), counter)
+            .renderFragment("items")
+            .toString();
+        
+        assertThat(html, is("<ul><li>a</li><li>b</li></ul>"));
+        assertThat(counter.get(), is(1));
+        
+        html = rocker.FragmentPage.template("T", Arrays.asList("a", "b"), counter)
+            .renderFragment("footer", ArrayOfByteArraysOutput.FACTORY)
+            .toString();
+        
+        assertThat(html, is("<p>2</p>"));
+        
+        try {
+            rocker.FragmentPage.template("T", Arrays.asList("a", "b"), counter)
+                .renderFragment("header");
+            fail();
+        } catch (RenderingException e) {
+            assertThat(e.getMessage(), containsString("no fragment named 'header'"));
+        }
+    }
+    
+    @Test
+    public void fragmentBlockReferencesContentClosures() throws Exception {
+        String html = rocker.FragmentClosurePage.template("T", Arrays.asList("a", "b"))
+            .render()
+            .toString()
+            .trim();
+        
+        assertThat(html, is("<h1>T</h1><ul><li>a</li><li>b</li></ul>\n<h2>T</h2>"));
+        
+        // closures declared outside of the fragment are in scope when rendered alone too
+        html = rocker.FragmentClosurePage.template("T", Arrays.asList("a", "b"))
+            .renderFragment("items")
+            .toString();
+        
+        assertThat(html, is("<h1>T</h1><ul><li>a</li><li>b</li></ul>"));
+        
+        html = rocker.FragmentClosurePage.template("T", Arrays.asList("a", "b"))
+            .renderFragment("nested")
+            .toString();
+        
+        assertThat(html, is("<h2>T</h2>"));
+    }
+    
+    @Test
+    public void cacheBlockOfContentFromOtherTemplate() throws Exception {
+        String html = rocker.CacheBlockPage.template("cacheBlockPage", "1")
+            .render()
+            .toString();
+        
+        Assert.assertEquals("<div>page 1</div>", html.trim());
+        
+        html = rocker.CacheBlockPage.template("cacheBlockPage", "2")
+            .render()
+            .toString();
+        
+        Assert.assertEquals("<div>page 1</div>", html.trim());
+    }
+    
+    @Test
+    public void cacheBlockDisabled() throws Exception {
+        FragmentCache cache = RockerRuntime.getInstance().getFragmentCache();
+        try {
+            RockerRuntime.getInstance().setFragmentCache(null);
+            
+            for (String s : Arrays.asList("1", "2")) {
+                String html = rocker.CacheBlock.template("cacheBlockDisabled", s)
+                    .render()
+                    .toString();
+                
+                Assert.assertEquals("\nbefore\n\ncached " + s + "\n\nttl " + s + "\nafter\n", html);
+            }
+        } finally {
+            RockerRuntime.getInstance().setFragmentCache(cache);
+        }
+    }
+    
+    @Test
+    public void memoizeConstantCalls() throws Exception {
+        String[] html1 = rocker.MemoizedConstantCall.template("dynamic")
+            .render()
+            .toString()
+            .trim()
+            .split("\\|");
+        
+        String[] html2 = rocker.MemoizedConstantCall.template("dynamic")
+            .render()
+            .toString()
+            .trim()
+            .split("\\|");
+        
+        assertThat(html1[0], containsString("constant "));
+        assertThat(html1[1], containsString("dynamic "));
+        
+        // constant call rendered only once
+        Assert.assertEquals(html1[0], html2[0]);
+        Assert.assertNotEquals(html1[1], html2[1]);
+    }
+    
+    @Test
+    public void memoizeConstantCallsNotOnVariables() throws Exception {
+        // looks like a constant template call, but is a call on a loop variable
+        String html = rocker.MemoizedVariableCall.template(Arrays.asList(new Widget("a"), new Widget("b")))
+            .render()
+            .toString()
+            .trim();
+        
+        Assert.assertEquals("a,b,", html);
+    }
+    
+    @Test
+    public void inlineTemplateCalls() throws Exception {
+        Map<String,List<String>> items = new LinkedHashMap<>();
+        items.put("a<b", Arrays.asList("x", "y"));
+        items.put("c", Arrays.asList());
+        
+        String html = rocker.InlinedList.template(items)
+            .render()
+            .toString()
+            .trim();
+        
+        Assert.assertEquals("<ul>\n<li>a&lt;b<b>x</b><b>y</b></li>\n\n<li>c</li>\n</ul>", html);
+        
+        // rendered by a method of the calling template
+        rocker.InlinedList.Template.class.getDeclaredMethod("__inlined0", String.class, List.class);
+    }
+    
+    @Test
+    public void inlineTemplateCallsNotWithClashingImports() throws Exception {
+        // java.awt.* along w/ java.util.* would make List ambiguous
+        String html = rocker.InlinedWildcardList.template(Arrays.asList("a", "b"))
+            .render()
+            .toString()
+            .trim();
+        
+        Assert.assertEquals("true2", html.replaceAll("\\s", ""));
+        
+        try {
+            rocker.InlinedWildcardList.Template.class.getDeclaredMethod("__inlined0", java.awt.Button.class);
+            fail();
+        } catch (NoSuchMethodException e) {
+            // expected
+        }
+    }
+    
+    @Test
+    public void inlineTemplateCallsFailed() throws Exception {
+        try {
+            rocker.InlinedFailingList.template(null)
+                .render();
+            fail();
+        } catch (RenderingException e) {
+            // points to the inlined template
+            Assert.assertEquals("InlinedFailingItem.rocker.html", e.getTemplateName());
+            Assert.assertEquals(3, e.getSourceLine());
+        }
+        
+        rocker.InlinedFailingList.Template.class.getDeclaredMethod("__inlined0", String.class);
+    }
+    
     @Test
     public void withBlock() throws Exception {
         List<String> strings = Arrays.asList("b", "a", "c");
@@ -0,0 +1,15 @@
+package com.fizzed.test;
+
+public class Widget {
+ 
+    private final String name;
+
+    public Widget(String name) {
+        this.name = name;
+    }
+    
+    public String template() {
+        return this.name;
+    }
+    
+}